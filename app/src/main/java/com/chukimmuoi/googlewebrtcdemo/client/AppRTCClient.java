@@ -83,6 +83,12 @@ public interface AppRTCClient {
      */
     void disconnectFromRoom();
 
+    /**
+     * Số liệu của kênh báo hiệu, có thể đọc từ bất kỳ luồng nào.
+     * Metrics of the signaling channel, readable from any thread.
+     */
+    SignalingMetrics getSignalingMetrics();
+
     /**
      * Struct giữ các thông số báo hiệu của một phòng AppRTC.
      * Struct holding the signaling parameters of an AppRTC room.
@@ -95,10 +101,21 @@ public interface AppRTCClient {
         public final String wssPostUrl;
         public final SessionDescription offerSdp;
         public final List<IceCandidate> iceCandidates;
+        // "seq" và "ack" của từng tin nhắn chờ trong phòng, dạng {seq, ack}, hoặc null.
+        // "seq" and "ack" of every message queued in the room as {seq, ack}, or null.
+        public final List<long[]> messageSequences;
 
         public SignalingParameters(List<PeerConnection.IceServer> iceServers, boolean initiator,
                                    String clientId, String wssUrl, String wssPostUrl, SessionDescription offerSdp,
                                    List<IceCandidate> iceCandidates) {
+            this(iceServers, initiator, clientId, wssUrl, wssPostUrl, offerSdp, iceCandidates,
+                    null);
+        }
+
+        public SignalingParameters(List<PeerConnection.IceServer> iceServers, boolean initiator,
+                                   String clientId, String wssUrl, String wssPostUrl,
+                                   SessionDescription offerSdp, List<IceCandidate> iceCandidates,
+                                   List<long[]> messageSequences) {
             this.iceServers = iceServers;
             this.initiator = initiator;
             this.clientId = clientId;
@@ -106,6 +123,7 @@ public interface AppRTCClient {
             this.wssPostUrl = wssPostUrl;
             this.offerSdp = offerSdp;
             this.iceCandidates = iceCandidates;
+            this.messageSequences = messageSequences;
         }
     }
 
@@ -126,6 +144,12 @@ public interface AppRTCClient {
          */
         void onConnectedToRoom(final SignalingParameters params);
 
+        /**
+         * Gọi lại khi một giai đoạn thiết lập do máy khách báo hiệu điều khiển hoàn tất.
+         * Callback fired once a call setup stage driven by the signaling client is completed.
+         */
+        void onSignalingStageCompleted(final CallSetup.Stage stage);
+
         /**
          * Gọi lại khi đã nhận được SDP từ xa.
          * Callback fired once remote SDP is received.
@@ -138,6 +162,12 @@ public interface AppRTCClient {
          */
         void onRemoteIceCandidate(final IceCandidate candidate);
 
+        /**
+         * Gọi lại khi nhận được một lô ứng viên Ice từ xa.
+         * Callback fired once a batch of remote Ice candidates is received.
+         */
+        void onRemoteIceCandidates(final IceCandidate[] candidates);
+
         /**
          * Gọi lại bị đuổi khi nhận được ứng dụng xóa băng từ xa.
          * Callback fired once remote Ice candidate removals are received.
@@ -0,0 +1,489 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient.RoomConnectionParameters;
+import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient.SignalingParameters;
+import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionClient.PeerConnectionParameters;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+
+import org.webrtc.IceCandidate;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.SessionDescription;
+import org.webrtc.VideoCapturer;
+import org.webrtc.VideoSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Bộ điều khiển cuộc gọi nối trực tiếp báo hiệu với kết nối ngang hàng trên một luồng nền.
+ * Call controller which wires AppRTCClient.SignalingEvents and PeerConnectionEvents together on
+ * a background executor. SDP and ICE candidates go straight from the signaling client to the
+ * peer connection client and back without touching the UI thread. Only UI relevant state
+ * changes are posted to |uiExecutor| through CallEvents.
+ *
+ * <p>Việc thiết lập cuộc gọi chạy theo các giai đoạn song song của CallSetup: tạo nhà máy và
+ * mở camera bắt đầu ngay, song song với việc vào phòng.
+ * Call setup runs as the concurrent stages of CallSetup: factory creation and camera open start
+ * right away, in parallel with the room join.
+ */
+public class CallController
+        implements AppRTCClient.SignalingEvents, PeerConnectionClient.PeerConnectionEvents {
+    private static final String TAG = "CallController";
+
+    /**
+     * Các sự kiện giao diện của cuộc gọi. Tất cả được gọi trên |uiExecutor|.
+     * UI events of the call. All of them are invoked on |uiExecutor|.
+     */
+    public interface CallEvents {
+        /**
+         * Thông báo tiến trình cuộc gọi cho người dùng.
+         * Progress message for the user.
+         */
+        void onCallProgress(final String message);
+
+        /**
+         * DTLS đã kết nối.
+         * DTLS is connected.
+         */
+        void onCallConnected();
+
+        /**
+         * DTLS đã ngắt kết nối.
+         * DTLS is disconnected.
+         */
+        void onCallDisconnected();
+
+        /**
+         * Phía bên kia đã gác máy.
+         * The remote end hung up.
+         */
+        void onRemoteHangUp();
+
+        void onCallError(final String description);
+    }
+
+    /**
+     * Nhận thống kê trên luồng thống kê, không phải luồng UI; không được chặn.
+     * Receives the stats on the stats thread, not on the UI thread, so that aggregation and
+     * formatting stay off the UI; must not block. |stats| is only valid during the call.
+     */
+    public interface StatsListener {
+        void onStatsReady(final CallStatsSnapshot stats);
+    }
+
+    /**
+     * Độ trễ chuyển tiếp tính bằng micro giây, an toàn luồng.
+     * Thread-safe hand-off latency statistics in microseconds.
+     */
+    public static class LatencyStats {
+        private long count;
+        private long totalUs;
+        private long maxUs;
+
+        synchronized void record(long startNs) {
+            final long latencyUs = (System.nanoTime() - startNs) / 1000;
+            count++;
+            totalUs += latencyUs;
+            maxUs = Math.max(maxUs, latencyUs);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getAverageUs() {
+            return count == 0 ? 0 : totalUs / count;
+        }
+
+        public synchronized long getMaxUs() {
+            return maxUs;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "count=" + count + ", avg=" + getAverageUs() + "us, max=" + maxUs + "us";
+        }
+    }
+
+    private final PeerConnectionParameters peerConnectionParameters;
+    private final CallEvents events;
+    private final Executor uiExecutor;
+    private final Executor executor;
+    // Từ lúc PeerConnectionClient báo ứng viên cục bộ đến lúc nó được giao cho AppRTCClient.
+    // From PeerConnectionClient reporting a local candidate to handing it to AppRTCClient.
+    private final LatencyStats localCandidateLatency = new LatencyStats();
+    // Từ lúc AppRTCClient nhận ứng viên từ xa đến lúc nó được giao cho PeerConnectionClient.
+    // From AppRTCClient receiving a remote candidate to handing it to PeerConnectionClient.
+    private final LatencyStats remoteCandidateLatency = new LatencyStats();
+    private final CallSetup callSetup;
+
+    // Chỉ được truy cập trên |executor| sau start().
+    // Only accessed on |executor| after start().
+    @Nullable
+    private AppRTCClient appRtcClient;
+    @Nullable
+    private PeerConnectionClient peerConnectionClient;
+    @Nullable
+    private SignalingParameters signalingParameters;
+    @Nullable
+    private VideoSink localSink;
+    @Nullable
+    private List<VideoSink> remoteSinks;
+    @Nullable
+    private VideoCapturer videoCapturer;
+    // Sự kiện từ xa đến trước khi kết nối ngang hàng được yêu cầu tạo.
+    // Remote events received before the peer connection was requested.
+    private final List<Runnable> pendingRemoteEvents = new ArrayList<>();
+    private boolean peerConnectionRequested;
+    private volatile long callStartedTimeMs;
+    private volatile boolean closed;
+    @Nullable
+    private volatile StatsListener statsListener;
+
+    /**
+     * |executor| phải chạy tác vụ tuần tự. Truyền executor của luồng UI sẽ tái tạo đường đi
+     * cũ, hữu ích để so sánh độ trễ.
+     * |executor| must run tasks one at a time in order. Passing the UI thread executor reproduces
+     * the old routing, which is useful to compare the candidate latency.
+     */
+    public CallController(PeerConnectionParameters peerConnectionParameters, CallEvents events,
+                          Executor uiExecutor, Executor executor) {
+        this.peerConnectionParameters = peerConnectionParameters;
+        this.events = events;
+        this.uiExecutor = uiExecutor;
+        this.executor = executor;
+        this.callSetup = new CallSetup(executor, this::onCallSetupCompleted);
+    }
+
+    public void setStatsListener(@Nullable StatsListener statsListener) {
+        this.statsListener = statsListener;
+    }
+
+    /**
+     * Gắn các máy khách, tạo nhà máy, mở camera và kết nối tới phòng song song.
+     * |videoCapturer| có thể null cho cuộc gọi âm thanh.
+     * Attaches the clients, then creates the factory, opens the camera and connects to the room
+     * in parallel. |videoCapturer| may be null for audio calls.
+     */
+    public void start(final AppRTCClient appRtcClient, final PeerConnectionClient peerConnectionClient,
+                      final RoomConnectionParameters roomConnectionParameters,
+                      final PeerConnectionFactory.Options options, final VideoSink localSink,
+                      final List<VideoSink> remoteSinks, @Nullable final VideoCapturer videoCapturer) {
+        callStartedTimeMs = System.currentTimeMillis();
+        executor.execute(() -> {
+            this.appRtcClient = appRtcClient;
+            this.peerConnectionClient = peerConnectionClient;
+            this.localSink = localSink;
+            this.remoteSinks = remoteSinks;
+            this.videoCapturer = videoCapturer;
+            callSetup.runWhenReady(CallSetup.Stage.FACTORY,
+                    () -> peerConnectionClient.createPeerConnectionFactory(options));
+            callSetup.runWhenReady(CallSetup.Stage.MEDIA,
+                    () -> peerConnectionClient.createLocalMedia(localSink, videoCapturer));
+            callSetup.runWhenReady(CallSetup.Stage.PEER_CONNECTION, this::createPeerConnection);
+            callSetup.start();
+            appRtcClient.connectToRoom(roomConnectionParameters);
+        });
+    }
+
+    /**
+     * Ngừng chuyển tiếp sự kiện. Người gọi vẫn phải đóng các máy khách.
+     * Stops routing events. The caller still has to close the clients.
+     */
+    public void close() {
+        closed = true;
+        executor.execute(() -> {
+            Log.d(TAG, "Local candidate hand-off: " + localCandidateLatency);
+            Log.d(TAG, "Remote candidate hand-off: " + remoteCandidateLatency);
+            appRtcClient = null;
+            peerConnectionClient = null;
+            videoCapturer = null;
+            pendingRemoteEvents.clear();
+        });
+    }
+
+    public LatencyStats getLocalCandidateLatency() {
+        return localCandidateLatency;
+    }
+
+    public LatencyStats getRemoteCandidateLatency() {
+        return remoteCandidateLatency;
+    }
+
+    // Chạy trên |executor| khi đã có track cục bộ và tham số báo hiệu.
+    // Runs on |executor| once the local tracks and the signaling parameters are ready.
+    private void createPeerConnection() {
+        if (closed || peerConnectionClient == null || signalingParameters == null) {
+            return;
+        }
+        final long delta = System.currentTimeMillis() - callStartedTimeMs;
+        postProgress("Creating peer connection, delay=" + delta + "ms");
+        peerConnectionClient.createPeerConnection(
+                localSink, remoteSinks, videoCapturer, signalingParameters);
+        peerConnectionRequested = true;
+
+        if (signalingParameters.initiator) {
+            postProgress("Creating OFFER...");
+            // Create offer. Offer SDP will be sent to answering client in
+            // PeerConnectionEvents.onLocalDescription event.
+            peerConnectionClient.createOffer();
+        } else {
+            if (signalingParameters.offerSdp != null) {
+                peerConnectionClient.setRemoteDescription(signalingParameters.offerSdp);
+                postProgress("Creating ANSWER...");
+                // Create answer. Answer SDP will be sent to offering client in
+                // PeerConnectionEvents.onLocalDescription event.
+                peerConnectionClient.createAnswer();
+            }
+            if (signalingParameters.iceCandidates != null) {
+                // Add remote ICE candidates from room.
+                for (IceCandidate iceCandidate : signalingParameters.iceCandidates) {
+                    peerConnectionClient.addRemoteIceCandidate(iceCandidate);
+                }
+            }
+        }
+        for (Runnable event : pendingRemoteEvents) {
+            event.run();
+        }
+        pendingRemoteEvents.clear();
+    }
+
+    // Chạy |event| trên |executor| sau khi kết nối ngang hàng đã được yêu cầu tạo, để nó không
+    // bị mất khi đến sớm qua WebSocket.
+    // Runs |event| on |executor| after the peer connection was requested, so it is not lost when
+    // it arrives early over the WebSocket.
+    private void runAfterPeerConnection(final Runnable event) {
+        executor.execute(() -> {
+            if (closed) {
+                return;
+            }
+            if (peerConnectionRequested) {
+                event.run();
+            } else {
+                pendingRemoteEvents.add(event);
+            }
+        });
+    }
+
+    private void onCallSetupCompleted(CallSetup.Report report) {
+        Log.d(TAG, "Call setup: " + report);
+        postProgress("Call setup " + report.getTotalMs() + "ms, stages " + report.getSumMs()
+                + "ms, critical path " + report.getCriticalPath());
+    }
+
+    private void postProgress(final String message) {
+        postToUi(() -> events.onCallProgress(message));
+    }
+
+    private void postToUi(final Runnable runnable) {
+        uiExecutor.execute(() -> {
+            if (!closed) {
+                runnable.run();
+            }
+        });
+    }
+
+    // -----Implementation of AppRTCClient.AppRTCSignalingEvents ---------------
+    // Tất cả các cuộc gọi lại được chuyển sang |executor|.
+    // All callbacks are routed to |executor|.
+    @Override
+    public void onConnectedToRoom(final SignalingParameters params) {
+        executor.execute(() -> {
+            if (closed || peerConnectionClient == null) {
+                return;
+            }
+            signalingParameters = params;
+            callSetup.complete(CallSetup.Stage.ROOM);
+        });
+    }
+
+    @Override
+    public void onSignalingStageCompleted(final CallSetup.Stage stage) {
+        callSetup.complete(stage);
+    }
+
+    @Override
+    public void onRemoteDescription(final SessionDescription sdp) {
+        final long delta = System.currentTimeMillis() - callStartedTimeMs;
+        runAfterPeerConnection(() -> {
+            if (peerConnectionClient == null || signalingParameters == null) {
+                Log.e(TAG, "Received remote SDP for non-initilized peer connection.");
+                return;
+            }
+            postProgress("Received remote " + sdp.type + ", delay=" + delta + "ms");
+            peerConnectionClient.setRemoteDescription(sdp);
+            if (!signalingParameters.initiator) {
+                postProgress("Creating ANSWER...");
+                // Create answer. Answer SDP will be sent to offering client in
+                // PeerConnectionEvents.onLocalDescription event.
+                peerConnectionClient.createAnswer();
+            }
+        });
+    }
+
+    @Override
+    public void onRemoteIceCandidate(final IceCandidate candidate) {
+        final long startNs = System.nanoTime();
+        runAfterPeerConnection(() -> {
+            if (peerConnectionClient == null) {
+                Log.e(TAG, "Received ICE candidate for a non-initialized peer connection.");
+                return;
+            }
+            peerConnectionClient.addRemoteIceCandidate(candidate);
+            remoteCandidateLatency.record(startNs);
+        });
+    }
+
+    @Override
+    public void onRemoteIceCandidates(final IceCandidate[] candidates) {
+        final long startNs = System.nanoTime();
+        runAfterPeerConnection(() -> {
+            if (peerConnectionClient == null) {
+                Log.e(TAG, "Received ICE candidates for a non-initialized peer connection.");
+                return;
+            }
+            peerConnectionClient.addRemoteIceCandidates(candidates);
+            for (int i = 0; i < candidates.length; i++) {
+                remoteCandidateLatency.record(startNs);
+            }
+        });
+    }
+
+    @Override
+    public void onRemoteIceCandidatesRemoved(final IceCandidate[] candidates) {
+        runAfterPeerConnection(() -> {
+            if (peerConnectionClient == null) {
+                Log.e(TAG, "Received ICE candidate removals for a non-initialized peer connection.");
+                return;
+            }
+            peerConnectionClient.removeRemoteIceCandidates(candidates);
+        });
+    }
+
+    @Override
+    public void onChannelClose() {
+        Log.d(TAG, "Remote end hung up; dropping PeerConnection");
+        postToUi(events::onRemoteHangUp);
+    }
+
+    @Override
+    public void onChannelError(final String description) {
+        postToUi(() -> events.onCallError(description));
+    }
+
+    // -----Implementation of PeerConnectionClient.PeerConnectionEvents.---------
+    // Gửi SDP và các ứng viên ICE cục bộ cho bên kia, không qua luồng UI.
+    // Send local peer connection SDP and ICE candidates to remote party without going through
+    // the UI thread.
+    @Override
+    public void onLocalDescription(final SessionDescription sdp) {
+        final long delta = System.currentTimeMillis() - callStartedTimeMs;
+        executor.execute(() -> {
+            if (closed || signalingParameters == null) {
+                return;
+            }
+            if (appRtcClient != null) {
+                postProgress("Sending " + sdp.type + ", delay=" + delta + "ms");
+                if (signalingParameters.initiator) {
+                    appRtcClient.sendOfferSdp(sdp);
+                } else {
+                    appRtcClient.sendAnswerSdp(sdp);
+                }
+            }
+            if (peerConnectionClient != null && peerConnectionParameters.videoMaxBitrate > 0) {
+                Log.d(TAG, "Set video maximum bitrate: " + peerConnectionParameters.videoMaxBitrate);
+                peerConnectionClient.setVideoMaxBitrate(peerConnectionParameters.videoMaxBitrate);
+            }
+        });
+    }
+
+    @Override
+    public void onIceCandidate(final IceCandidate candidate) {
+        final long startNs = System.nanoTime();
+        executor.execute(() -> {
+            if (!closed && appRtcClient != null) {
+                appRtcClient.sendLocalIceCandidate(candidate);
+                localCandidateLatency.record(startNs);
+            }
+        });
+    }
+
+    @Override
+    public void onIceCandidatesRemoved(final IceCandidate[] candidates) {
+        executor.execute(() -> {
+            if (!closed && appRtcClient != null) {
+                appRtcClient.sendLocalIceCandidateRemovals(candidates);
+            }
+        });
+    }
+
+    @Override
+    public void onIceConnected() {
+        final long delta = System.currentTimeMillis() - callStartedTimeMs;
+        postProgress("ICE connected, delay=" + delta + "ms");
+    }
+
+    @Override
+    public void onIceDisconnected() {
+        postProgress("ICE disconnected");
+    }
+
+    @Override
+    public void onConnected() {
+        final long delta = System.currentTimeMillis() - callStartedTimeMs;
+        postProgress("DTLS connected, delay=" + delta + "ms");
+        postToUi(events::onCallConnected);
+    }
+
+    @Override
+    public void onDisconnected() {
+        postProgress("DTLS disconnected");
+        postToUi(events::onCallDisconnected);
+    }
+
+    @Override
+    public void onPeerConnectionFactoryCreated() {
+        callSetup.complete(CallSetup.Stage.FACTORY);
+    }
+
+    @Override
+    public void onLocalMediaCreated() {
+        callSetup.complete(CallSetup.Stage.MEDIA);
+    }
+
+    @Override
+    public void onPeerConnectionCreated() {
+        callSetup.complete(CallSetup.Stage.PEER_CONNECTION);
+    }
+
+    @Override
+    public void onPeerConnectionClosed() {
+    }
+
+    @Override
+    public void onPeerConnectionStatsReady(final CallStatsSnapshot stats) {
+        final StatsListener listener = statsListener;
+        if (!closed && listener != null) {
+            listener.onStatsReady(stats);
+        }
+    }
+
+    @Override
+    public void onPeerConnectionError(final String description) {
+        postToUi(() -> events.onCallError(description));
+    }
+}
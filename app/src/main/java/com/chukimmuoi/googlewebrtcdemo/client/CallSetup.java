@@ -0,0 +1,295 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Các giai đoạn thiết lập cuộc gọi cùng phụ thuộc của chúng. Mỗi giai đoạn bắt đầu ngay khi
+ * các giai đoạn nó phụ thuộc hoàn tất, nên thời gian thiết lập là đường găng chứ không
+ * phải tổng thời gian các giai đoạn.
+ * Call setup stages and their dependencies. Every stage starts as soon as the stages it depends
+ * on are completed, so the setup time is the critical path rather than the sum of the stages.
+ *
+ * <p>Giai đoạn có hành động được chạy trên |executor| qua runWhenReady(). Các giai đoạn
+ * khác do máy khách báo hiệu báo hoàn tất qua complete().
+ * Stages with an action are run on |executor| through runWhenReady(). The other stages are
+ * driven by the signaling client, which only reports their completion through complete(). A
+ * stage that is never reported, e.g. TURN for direct calls, is left out of the report.
+ *
+ * <p>Lớp này an toàn luồng.
+ * This class is thread-safe.
+ */
+public class CallSetup {
+    public enum Stage {
+        // Tạo hoặc dùng lại PeerConnectionFactory.
+        // Create or reuse the PeerConnectionFactory.
+        FACTORY,
+        // Mở camera và tạo các track cục bộ.
+        // Open the camera and create the local tracks.
+        MEDIA(FACTORY),
+        // Vào phòng qua máy chủ GAE.
+        // Join the room through the GAE server.
+        JOIN,
+        // Kết nối và đăng ký WebSocket, song song với TURN.
+        // Connect and register the WebSocket, in parallel with TURN.
+        WEBSOCKET(JOIN),
+        // Lấy máy chủ TURN, song song với WebSocket.
+        // Fetch the TURN servers, in parallel with the WebSocket.
+        TURN(JOIN),
+        // Có đủ tham số báo hiệu.
+        // The signaling parameters are complete.
+        ROOM(JOIN, TURN),
+        // Tạo kết nối ngang hàng từ track cục bộ và máy chủ ICE.
+        // Create the peer connection from the local tracks and the ICE servers.
+        PEER_CONNECTION(MEDIA, ROOM);
+
+        private final Stage[] dependencies;
+
+        Stage(Stage... dependencies) {
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * Được gọi một lần, trên |executor|, khi giai đoạn cuối cùng hoàn tất.
+     * Invoked once, on |executor|, when the last stage is completed.
+     */
+    public interface Listener {
+        void onCallSetupCompleted(Report report);
+    }
+
+    /**
+     * Nguồn thời gian đơn điệu tính bằng mili giây.
+     * Monotonic time source in milliseconds.
+     */
+    public interface Clock {
+        long elapsedRealtimeMs();
+    }
+
+    /**
+     * Thời gian của từng giai đoạn tính bằng mili giây từ lúc bắt đầu thiết lập.
+     * Timings of every stage in milliseconds since the setup started.
+     */
+    public static class Report {
+        private final Map<Stage, Long> startMs;
+        private final Map<Stage, Long> endMs;
+
+        Report(Map<Stage, Long> startMs, Map<Stage, Long> endMs) {
+            this.startMs = new EnumMap<>(startMs);
+            this.endMs = new EnumMap<>(endMs);
+        }
+
+        public boolean isCompleted(Stage stage) {
+            return endMs.containsKey(stage);
+        }
+
+        public long getStartMs(Stage stage) {
+            final Long value = startMs.get(stage);
+            return value != null ? value : 0;
+        }
+
+        public long getDurationMs(Stage stage) {
+            final Long value = endMs.get(stage);
+            return value != null ? value - getStartMs(stage) : 0;
+        }
+
+        /**
+         * Thời gian thiết lập thực tế.
+         * The actual setup time.
+         */
+        public long getTotalMs() {
+            long total = 0;
+            for (long end : endMs.values()) {
+                total = Math.max(total, end);
+            }
+            return total;
+        }
+
+        /**
+         * Thời gian thiết lập nếu các giai đoạn chạy lần lượt.
+         * The setup time if the stages ran one after another.
+         */
+        public long getSumMs() {
+            long sum = 0;
+            for (Stage stage : endMs.keySet()) {
+                sum += getDurationMs(stage);
+            }
+            return sum;
+        }
+
+        /**
+         * Chuỗi giai đoạn quyết định thời gian thiết lập, từ đầu đến cuối.
+         * The chain of stages that decided the setup time, first to last.
+         */
+        public List<Stage> getCriticalPath() {
+            final List<Stage> path = new ArrayList<>();
+            Stage stage = Stage.PEER_CONNECTION;
+            while (stage != null && isCompleted(stage)) {
+                path.add(stage);
+                stage = latestDependency(stage);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        private Stage latestDependency(Stage stage) {
+            Stage latest = null;
+            for (Stage dependency : stage.dependencies) {
+                if (isCompleted(dependency)
+                        && (latest == null || endMs.get(dependency) > endMs.get(latest))) {
+                    latest = dependency;
+                }
+            }
+            return latest;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            builder.append("total=").append(getTotalMs()).append("ms, sum=").append(getSumMs())
+                    .append("ms, critical path=").append(getCriticalPath());
+            for (Stage stage : endMs.keySet()) {
+                builder.append(", ").append(stage).append('=').append(getStartMs(stage))
+                        .append('+').append(getDurationMs(stage)).append("ms");
+            }
+            return builder.toString();
+        }
+    }
+
+    private final Clock clock;
+    private final Executor executor;
+    private final Listener listener;
+    private final Map<Stage, Runnable> actions = new EnumMap<>(Stage.class);
+    private final Map<Stage, Long> startMs = new EnumMap<>(Stage.class);
+    private final Map<Stage, Long> endMs = new EnumMap<>(Stage.class);
+    private long setupStartedMs;
+    private boolean started;
+
+    public CallSetup(Executor executor, Listener listener) {
+        this(SystemClock::elapsedRealtime, executor, listener);
+    }
+
+    public CallSetup(Clock clock, Executor executor, Listener listener) {
+        this.clock = clock;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Bắt đầu đo thời gian và chạy các hành động không có phụ thuộc.
+     * Starts the clock and runs the actions without dependencies.
+     */
+    public void start() {
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("Call setup already started");
+            }
+            started = true;
+            setupStartedMs = clock.elapsedRealtimeMs();
+        }
+        runReadyActions();
+    }
+
+    /**
+     * Chạy |action| trên |executor| khi mọi phụ thuộc của |stage| hoàn tất. |action| phải
+     * dẫn đến một lần gọi complete(|stage|).
+     * Runs |action| on |executor| once every dependency of |stage| is completed. |action| must
+     * eventually lead to a call to complete(|stage|).
+     */
+    public void runWhenReady(Stage stage, Runnable action) {
+        synchronized (this) {
+            if (actions.containsKey(stage) || startMs.containsKey(stage)) {
+                throw new IllegalStateException("Stage " + stage + " already scheduled");
+            }
+            actions.put(stage, action);
+        }
+        runReadyActions();
+    }
+
+    /**
+     * Đánh dấu |stage| đã hoàn tất. Lần gọi lặp lại bị bỏ qua.
+     * Marks |stage| as completed. Repeated calls are ignored.
+     */
+    public void complete(Stage stage) {
+        final Report report;
+        synchronized (this) {
+            if (!started || endMs.containsKey(stage)) {
+                return;
+            }
+            final long nowMs = clock.elapsedRealtimeMs() - setupStartedMs;
+            if (!startMs.containsKey(stage)) {
+                // Giai đoạn do máy khách báo hiệu điều khiển bắt đầu khi phụ thuộc hoàn tất.
+                // A signaling driven stage started when its dependencies were completed.
+                startMs.put(stage, Math.min(nowMs, dependenciesCompletedMsLocked(stage)));
+            }
+            endMs.put(stage, nowMs);
+            report = stage == Stage.PEER_CONNECTION ? new Report(startMs, endMs) : null;
+        }
+        if (report != null) {
+            executor.execute(() -> listener.onCallSetupCompleted(report));
+        }
+        runReadyActions();
+    }
+
+    public synchronized boolean isCompleted(Stage stage) {
+        return endMs.containsKey(stage);
+    }
+
+    private void runReadyActions() {
+        final List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            for (Stage stage : Stage.values()) {
+                final Runnable action = actions.get(stage);
+                if (action != null && dependenciesCompletedLocked(stage)) {
+                    actions.remove(stage);
+                    startMs.put(stage, clock.elapsedRealtimeMs() - setupStartedMs);
+                    ready.add(action);
+                }
+            }
+        }
+        for (Runnable action : ready) {
+            executor.execute(action);
+        }
+    }
+
+    private boolean dependenciesCompletedLocked(Stage stage) {
+        for (Stage dependency : stage.dependencies) {
+            if (!endMs.containsKey(dependency)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Thời điểm phụ thuộc cuối cùng đã báo hoàn tất, hoặc 0.
+    // Time the last reported dependency was completed, or 0.
+    private long dependenciesCompletedMsLocked(Stage stage) {
+        long completedMs = 0;
+        for (Stage dependency : stage.dependencies) {
+            final Long end = endMs.get(dependency);
+            if (end != null) {
+                completedMs = Math.max(completedMs, end);
+            }
+        }
+        return completedMs;
+    }
+}
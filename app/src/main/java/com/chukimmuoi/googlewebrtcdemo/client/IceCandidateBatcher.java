@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import org.webrtc.IceCandidate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gom các ứng viên ICE cục bộ trong một cửa sổ ngắn để gửi thành một tin nhắn.
+ * Collects local ICE candidates during a short window so a gathering burst is sent as one
+ * message. A batch is flushed when the window expires or when it reaches |maxBatchSize|.
+ *
+ * <p>Lớp này không an toàn luồng; chỉ dùng trên luồng của máy khách báo hiệu.
+ * This class is not thread-safe; use it only on the signaling client thread. |scheduler| must
+ * run the flush task on that same thread.
+ */
+public class IceCandidateBatcher {
+    public static final int DEFAULT_WINDOW_MS = 20;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 16;
+
+    /**
+     * Nhận một lô ứng viên, không bao giờ rỗng.
+     * Receives a batch of candidates, never empty.
+     */
+    public interface Sink {
+        void onCandidates(IceCandidate[] candidates);
+    }
+
+    /**
+     * Chạy |task| trên luồng của máy khách báo hiệu sau |delayMs|.
+     * Runs |task| on the signaling client thread after |delayMs|.
+     */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+    }
+
+    private final int windowMs;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final Sink sink;
+    private final List<IceCandidate> pending = new ArrayList<>();
+    private final Runnable flushTask = this::onFlushTimeout;
+    private boolean flushScheduled;
+    private boolean paused;
+
+    /**
+     * |windowMs| bằng 0 sẽ gửi từng ứng viên ngay lập tức.
+     * A |windowMs| of 0 sends every candidate right away.
+     */
+    public IceCandidateBatcher(int windowMs, int maxBatchSize, Scheduler scheduler, Sink sink) {
+        if (windowMs < 0 || maxBatchSize < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid batch window " + windowMs + " or size " + maxBatchSize);
+        }
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.sink = sink;
+    }
+
+    public void add(IceCandidate candidate) {
+        pending.add(candidate);
+        if (paused) {
+            return;
+        }
+        if (windowMs == 0 || pending.size() >= maxBatchSize) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(flushTask, windowMs);
+        }
+    }
+
+    /**
+     * Gửi ngay các ứng viên đang chờ, ví dụ trước khi gửi danh sách ứng viên bị xóa.
+     * Sends the pending candidates now, e.g. before candidate removals so the order is kept.
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final IceCandidate[] batch = pending.toArray(new IceCandidate[0]);
+        pending.clear();
+        sink.onCandidates(batch);
+    }
+
+    /**
+     * Khi tạm dừng, các ứng viên chỉ được gom lại (áp lực ngược từ kênh gửi). Khi tiếp tục,
+     * mọi ứng viên đang chờ được gửi thành một lô.
+     * While paused candidates are only collected (backpressure from the outbound channel). On
+     * resume all pending candidates are sent as one batch. An explicit flush() still sends.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (!paused) {
+            flush();
+        }
+    }
+
+    /**
+     * Bỏ các ứng viên đang chờ, ví dụ khi rời phòng.
+     * Drops the pending candidates, e.g. when leaving the room.
+     */
+    public void clear() {
+        pending.clear();
+    }
+
+    private void onFlushTimeout() {
+        flushScheduled = false;
+        if (!paused) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import org.webrtc.IceCandidate;
+
+/**
+ * Chuyển đổi giữa IceCandidate và SignalingCodec, để SignalingCodec không phụ thuộc WebRTC.
+ * Converts between IceCandidate and SignalingCodec, so SignalingCodec does not depend on WebRTC.
+ */
+public final class IceCandidates {
+    private IceCandidates() {
+    }
+
+    public static String encodeCandidate(SignalingCodec codec, IceCandidate candidate) {
+        return codec.encodeCandidate(candidate.sdpMid, candidate.sdpMLineIndex, candidate.sdp);
+    }
+
+    /**
+     * Tin nhắn |type| ("candidates" hoặc "remove-candidates") chứa |candidates|.
+     * A |type| message ("candidates" or "remove-candidates") carrying |candidates|.
+     */
+    public static String encodeCandidates(
+            SignalingCodec codec, String type, IceCandidate[] candidates) {
+        codec.beginCandidates(type);
+        for (IceCandidate candidate : candidates) {
+            codec.appendCandidate(candidate.sdpMid, candidate.sdpMLineIndex, candidate.sdp);
+        }
+        return codec.endCandidates();
+    }
+
+    public static IceCandidate[] fromMessage(SignalingCodec.Message message) {
+        final IceCandidate[] candidates = new IceCandidate[message.getCandidateCount()];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = new IceCandidate(message.getCandidateMid(i),
+                    message.getCandidateMLineIndex(i), message.getCandidateSdp(i));
+        }
+        return candidates;
+    }
+}
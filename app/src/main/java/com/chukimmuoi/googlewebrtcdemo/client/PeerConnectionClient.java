@@ -23,30 +23,28 @@ import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient.SignalingParameters;
 import com.chukimmuoi.googlewebrtcdemo.client.save.audio.RecordedAudioToFileController;
 import com.chukimmuoi.googlewebrtcdemo.client.save.log.RtcEventLog;
+import com.chukimmuoi.googlewebrtcdemo.client.save.stats.CallStatsRecorder;
+import com.chukimmuoi.googlewebrtcdemo.client.sdp.SdpDescription;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsHistory;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsProjector;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.StatsScheduler;
+import com.chukimmuoi.googlewebrtcdemo.util.executor.SessionExecutors;
 
 import org.webrtc.AudioSource;
 import org.webrtc.AudioTrack;
 import org.webrtc.CameraVideoCapturer;
 import org.webrtc.CandidatePairChangeEvent;
 import org.webrtc.DataChannel;
-import org.webrtc.DefaultVideoDecoderFactory;
-import org.webrtc.DefaultVideoEncoderFactory;
 import org.webrtc.EglBase;
 import org.webrtc.IceCandidate;
 import org.webrtc.Logging;
@@ -57,40 +55,30 @@ import org.webrtc.PeerConnection;
 import org.webrtc.PeerConnection.IceConnectionState;
 import org.webrtc.PeerConnection.PeerConnectionState;
 import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RTCStats;
 import org.webrtc.RtpParameters;
 import org.webrtc.RtpReceiver;
 import org.webrtc.RtpSender;
 import org.webrtc.RtpTransceiver;
 import org.webrtc.SdpObserver;
 import org.webrtc.SessionDescription;
-import org.webrtc.SoftwareVideoDecoderFactory;
-import org.webrtc.SoftwareVideoEncoderFactory;
-import org.webrtc.StatsObserver;
-import org.webrtc.StatsReport;
 import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
-import org.webrtc.VideoDecoderFactory;
-import org.webrtc.VideoEncoderFactory;
 import org.webrtc.VideoSink;
 import org.webrtc.VideoSource;
 import org.webrtc.VideoTrack;
-import org.webrtc.audio.AudioDeviceModule;
 import org.webrtc.audio.JavaAudioDeviceModule;
-import org.webrtc.audio.JavaAudioDeviceModule.AudioRecordErrorCallback;
-import org.webrtc.audio.JavaAudioDeviceModule.AudioRecordStateCallback;
-import org.webrtc.audio.JavaAudioDeviceModule.AudioTrackErrorCallback;
-import org.webrtc.audio.JavaAudioDeviceModule.AudioTrackStateCallback;
 
 /**
  * Thực hiện kết nối máy khách ngang hàng.
  *
- * <p> Tất cả các phương thức công khai được định tuyến đến luồng looper cục bộ.
- * Tất cả các cuộc gọi lại PeerConnectionEvents được gọi từ cùng một chuỗi looper.
+ * <p> Tất cả các phương thức công khai được định tuyến đến executor của phiên.
+ * Tất cả các cuộc gọi lại PeerConnectionEvents được gọi từ cùng executor của phiên.
  * Lớp này là một singleton.
  * Peer connection client implementation.
  *
- * <p>All public methods are routed to local looper thread.
- * All PeerConnectionEvents callbacks are invoked from the same looper thread.
+ * <p>All public methods are routed to the session executor.
+ * All PeerConnectionEvents callbacks are invoked from the same session executor.
  * This class is a singleton.
  */
 public class PeerConnectionClient {
@@ -102,16 +90,14 @@ public class PeerConnectionClient {
     private static final String VIDEO_CODEC_VP9 = "VP9";
     private static final String VIDEO_CODEC_H264 = "H264";
     private static final String VIDEO_CODEC_H264_BASELINE = "H264 Baseline";
-    private static final String VIDEO_CODEC_H264_HIGH = "H264 High";
+    static final String VIDEO_CODEC_H264_HIGH = "H264 High";
     private static final String AUDIO_CODEC_OPUS = "opus";
     private static final String AUDIO_CODEC_ISAC = "ISAC";
-    private static final String VIDEO_CODEC_PARAM_START_BITRATE = "x-google-start-bitrate";
     private static final String VIDEO_FLEXFEC_FIELDTRIAL =
             "WebRTC-FlexFEC-03-Advertised/Enabled/WebRTC-FlexFEC-03/Enabled/";
     private static final String VIDEO_VP8_INTEL_HW_ENCODER_FIELDTRIAL = "WebRTC-IntelVP8/Enabled/";
     private static final String DISABLE_WEBRTC_AGC_FIELDTRIAL =
             "WebRTC-Audio-MinimizeResamplingOnMobile/Enabled/";
-    private static final String AUDIO_CODEC_PARAM_BITRATE = "maxaveragebitrate";
     private static final String AUDIO_ECHO_CANCELLATION_CONSTRAINT = "googEchoCancellation";
     private static final String AUDIO_AUTO_GAIN_CONTROL_CONSTRAINT = "googAutoGainControl";
     private static final String AUDIO_HIGH_PASS_FILTER_CONSTRAINT = "googHighpassFilter";
@@ -121,19 +107,31 @@ public class PeerConnectionClient {
     private static final int HD_VIDEO_HEIGHT = 720;
     private static final int BPS_IN_KBPS = 1000;
     private static final String RTCEVENTLOG_OUTPUT_DIR_NAME = "rtc_event_log";
-
-    // Chuỗi thực thi được bắt đầu một lần trong ctor riêng và được sử dụng cho tất cả
-    // các lệnh gọi API kết nối ngang hàng để đảm bảo nhà máy kết nối ngang hàng mới được
-    // được tạo trên cùng một luồng với nhà máy đã bị phá hủy trước đó.
-    // Executor thread is started once in private ctor and is used for all
-    // peer connection API calls to ensure new peer connection factory is
-    // created on the same thread as previously destroyed factory.
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final String CALL_STATS_OUTPUT_DIR_NAME = "call_stats";
+    // Lịch sử thống kê: 3 phút ở chu kỳ lấy mẫu nhanh nhất của StatsScheduler.
+    // Stats history: 3 minutes at the fastest sampling period of StatsScheduler.
+    private static final int STATS_HISTORY_MINUTES = 3;
+    private static final int STATS_HISTORY_MIN_PERIOD_MS = 200;
+    private static final long STATS_HISTORY_LOG_WINDOW_MS = 120000;
+
+    // Làn thực thi tuần tự của phiên này, dùng cho tất cả các lệnh gọi API kết nối ngang hàng
+    // và các cuộc gọi lại PeerConnectionEvents. Mặc định là một làn trên nhóm luồng dùng chung
+    // để các phiên độc lập không phải chờ nhau.
+    // Ordered executor of this session, used for all peer connection API calls and
+    // PeerConnectionEvents callbacks. By default it is a lane on the shared session pool, so
+    // independent sessions do not queue up behind each other. A lane may run on a different pool
+    // thread for every task, so the factory itself is created and destroyed by
+    // PeerConnectionFactoryHolder on its own thread.
+    private final ExecutorService executor;
 
     private final PCObserver pcObserver = new PCObserver();
     private final SDPObserver sdpObserver = new SDPObserver();
-    private final Timer statsTimer = new Timer();
+    private final StatsScheduler statsScheduler;
+    private final CallStatsProjector statsProjector = new CallStatsProjector();
+    private final CallStatsHistory statsHistory =
+            new CallStatsHistory(STATS_HISTORY_MINUTES, STATS_HISTORY_MIN_PERIOD_MS);
     private final EglBase rootEglBase;
+    private final PeerConnectionFactoryHolder factoryHolder = PeerConnectionFactoryHolder.getInstance();
     private final Context appContext;
     private final PeerConnectionParameters peerConnectionParameters;
     private final PeerConnectionEvents events;
@@ -150,6 +148,10 @@ public class PeerConnectionClient {
     private VideoSource videoSource;
     private boolean preferIsac;
     private boolean videoCapturerStopped;
+    // Máy quay chỉ chạy khi Activity muốn và video cục bộ đang được gửi.
+    // The capturer only runs while the activity wants it and local video is being sent.
+    private boolean videoSourceRequested = true;
+    private boolean localVideoSending = true;
     private boolean isError;
     @Nullable
     private VideoSink localRender;
@@ -175,6 +177,9 @@ public class PeerConnectionClient {
                                          // cung cấp hoặc trả lời SDP
     @Nullable
     private VideoCapturer videoCapturer;
+    // Các track cục bộ có thể được tạo trước khi có tham số báo hiệu.
+    // The local tracks may be created before the signaling parameters are known.
+    private boolean localMediaCreated;
     // enableVideo được đặt thành true nếu video được hiển thị và gửi.
     // enableVideo is set to true if video should be rendered and sent.
     private boolean renderVideo = true;
@@ -196,12 +201,33 @@ public class PeerConnectionClient {
     // Enable RtcEventLog.
     @Nullable
     private RtcEventLog rtcEventLog;
+    // Được đọc trong cuộc gọi lại thống kê.
+    // Read in the stats callback.
+    @Nullable
+    private volatile CallStatsRecorder callStatsRecorder;
     // Triển khai giao diện WebRtcAudioRecordSamplesReadyCallback
     // và ghi các mẫu âm thanh đã ghi vào tệp đầu ra.
     // Implements the WebRtcAudioRecordSamplesReadyCallback interface and writes
     // recorded audio samples to an output file.
     @Nullable
-    private RecordedAudioToFileController saveRecordedAudioToFile;
+    private volatile RecordedAudioToFileController saveRecordedAudioToFile;
+    // Nhận sự kiện từ ADM dùng chung của |factoryHolder|.
+    // Receives the events of the audio device module shared through |factoryHolder|.
+    private final PeerConnectionFactoryHolder.AudioDeviceListener audioDeviceListener =
+            new PeerConnectionFactoryHolder.AudioDeviceListener() {
+                @Override
+                public void onAudioDeviceError(String errorMessage) {
+                    reportError(errorMessage);
+                }
+
+                @Override
+                public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples samples) {
+                    final RecordedAudioToFileController controller = saveRecordedAudioToFile;
+                    if (controller != null) {
+                        controller.onWebRtcAudioRecordSamplesReady(samples);
+                    }
+                }
+            };
 
     /**
      * Thông số kết nối ngang hàng.
@@ -330,15 +356,32 @@ public class PeerConnectionClient {
          */
         void onDisconnected();
 
+        /**
+         * Callback fired once the peer connection factory is created or reused.
+         */
+        void onPeerConnectionFactoryCreated();
+
+        /**
+         * Callback fired once the local audio and video tracks are created and capture
+         * has started.
+         */
+        void onLocalMediaCreated();
+
+        /**
+         * Callback fired once the peer connection is created.
+         */
+        void onPeerConnectionCreated();
+
         /**
          * Callback fired once peer connection is closed.
          */
         void onPeerConnectionClosed();
 
         /**
-         * Callback fired once peer connection statistics is ready.
+         * Callback fired once peer connection statistics is ready. |stats| is reused, see
+         * CallStatsProjector.getLatest().
          */
-        void onPeerConnectionStatsReady(final StatsReport[] reports);
+        void onPeerConnectionStatsReady(final CallStatsSnapshot stats);
 
         /**
          * Callback fired once peer connection error happened.
@@ -347,13 +390,29 @@ public class PeerConnectionClient {
     }
 
     /**
-     * Tạo một PeerConnectionClient với các tham số đã chỉ định.
-     * PeerConnectionClient có quyền sở hữu | eglBase |.
-     * Create a PeerConnectionClient with the specified parameters. PeerConnectionClient takes
-     * ownership of |eglBase|.
+     * Tạo một PeerConnectionClient với các tham số đã chỉ định. |eglBase| thường là ngữ cảnh
+     * dùng chung của PeerConnectionFactoryHolder; PeerConnectionClient không giải phóng nó.
+     * Create a PeerConnectionClient with the specified parameters. |eglBase| is normally the
+     * shared context of PeerConnectionFactoryHolder; PeerConnectionClient does not release it.
      */
     public PeerConnectionClient(Context appContext, EglBase eglBase,
                                 PeerConnectionParameters peerConnectionParameters, PeerConnectionEvents events) {
+        this(appContext, eglBase, peerConnectionParameters, events,
+                SessionExecutors.newSessionExecutor());
+    }
+
+    /**
+     * Giống như trên, nhưng dùng |executor| được truyền vào. |executor| phải chạy các tác vụ
+     * tuần tự theo thứ tự gửi; người gọi giữ quyền sở hữu nó.
+     * Same as above, but uses the given |executor|. |executor| must run tasks one at a time in
+     * submission order; the caller keeps ownership of it.
+     */
+    public PeerConnectionClient(Context appContext, EglBase eglBase,
+                                PeerConnectionParameters peerConnectionParameters, PeerConnectionEvents events,
+                                ExecutorService executor) {
+        this.executor = executor;
+        this.statsScheduler =
+                new StatsScheduler(SessionExecutors.timer(), executor, this::getStats);
         this.rootEglBase = eglBase;
         this.appContext = appContext;
         this.events = events;
@@ -363,14 +422,7 @@ public class PeerConnectionClient {
         Log.d(TAG, "Preferred video codec: " + getSdpVideoCodecName(peerConnectionParameters));
 
         final String fieldTrials = getFieldTrials(peerConnectionParameters);
-        executor.execute(() -> {
-            Log.d(TAG, "Initialize WebRTC. Field trials: " + fieldTrials);
-            PeerConnectionFactory.initialize(
-                    PeerConnectionFactory.InitializationOptions.builder(appContext)
-                            .setFieldTrials(fieldTrials)
-                            .setEnableInternalTracer(true)
-                            .createInitializationOptions());
-        });
+        executor.execute(() -> factoryHolder.initialize(appContext, fieldTrials));
     }
 
     /**
@@ -393,6 +445,25 @@ public class PeerConnectionClient {
                 localRender, Collections.singletonList(remoteSink), videoCapturer, signalingParameters);
     }
 
+    /**
+     * Mở camera và tạo các track cục bộ trước khi có tham số báo hiệu. Không bắt buộc:
+     * createPeerConnection() tự tạo chúng nếu cần.
+     * Opens the camera and creates the local tracks before the signaling parameters are known.
+     * Optional: createPeerConnection() creates them when needed.
+     */
+    public void createLocalMedia(final VideoSink localRender, @Nullable final VideoCapturer videoCapturer) {
+        this.localRender = localRender;
+        this.videoCapturer = videoCapturer;
+        executor.execute(() -> {
+            try {
+                createLocalMediaInternal();
+            } catch (Exception e) {
+                reportError("Failed to create local media: " + e.getMessage());
+                throw e;
+            }
+        });
+    }
+
     public void createPeerConnection(final VideoSink localRender, final List<VideoSink> remoteSinks,
                                      final VideoCapturer videoCapturer, final SignalingParameters signalingParameters) {
         if (peerConnectionParameters == null) {
@@ -405,9 +476,15 @@ public class PeerConnectionClient {
         this.signalingParameters = signalingParameters;
         executor.execute(() -> {
             try {
-                createMediaConstraintsInternal();
+                if (!localMediaCreated) {
+                    createLocalMediaInternal();
+                }
                 createPeerConnectionInternal();
                 maybeCreateAndStartRtcEventLog();
+                maybeCreateAndStartCallStatsRecorder();
+                if (peerConnection != null) {
+                    events.onPeerConnectionCreated();
+                }
             } catch (Exception e) {
                 reportError("Failed to create peer connection: " + e.getMessage());
                 throw e;
@@ -460,127 +537,11 @@ public class PeerConnectionClient {
             }
         }
 
-        final AudioDeviceModule adm = createJavaAudioDevice();
-
-        // Tạo nhà máy kết nối ngang hàng.
-        // Create peer connection factory.
-        if (options != null) {
-            Log.d(TAG, "Factory networkIgnoreMask option: " + options.networkIgnoreMask);
-        }
-        final boolean enableH264HighProfile =
-                VIDEO_CODEC_H264_HIGH.equals(peerConnectionParameters.videoCodec);
-        final VideoEncoderFactory encoderFactory;
-        final VideoDecoderFactory decoderFactory;
-
-        if (peerConnectionParameters.videoCodecHwAcceleration) {
-            encoderFactory = new DefaultVideoEncoderFactory(
-                    rootEglBase.getEglBaseContext(), true /* enableIntelVp8Encoder */, enableH264HighProfile);
-            decoderFactory = new DefaultVideoDecoderFactory(rootEglBase.getEglBaseContext());
-        } else {
-            encoderFactory = new SoftwareVideoEncoderFactory();
-            decoderFactory = new SoftwareVideoDecoderFactory();
-        }
-
-        factory = PeerConnectionFactory.builder()
-                .setOptions(options)
-                .setAudioDeviceModule(adm)
-                .setVideoEncoderFactory(encoderFactory)
-                .setVideoDecoderFactory(decoderFactory)
-                .createPeerConnectionFactory();
-        Log.d(TAG, "Peer connection factory created.");
-        adm.release();
-    }
-
-    AudioDeviceModule createJavaAudioDevice() {
-        // Kích hoạt/vô hiệu hóa phát lại OpenSL ES.
-        // Enable/disable OpenSL ES playback.
-        if (!peerConnectionParameters.useOpenSLES) {
-            Log.w(TAG, "External OpenSLES ADM not implemented yet.");
-            // TODO(magjed): Thêm hỗ trợ cho ADL OpenSLES bên ngoài.
-            // TODO(magjed): Add support for external OpenSLES ADM.
-        }
-
-        // Đặt cuộc gọi lại bản ghi lỗi âm thanh.
-        // Set audio record error callbacks.
-        AudioRecordErrorCallback audioRecordErrorCallback = new AudioRecordErrorCallback() {
-            @Override
-            public void onWebRtcAudioRecordInitError(String errorMessage) {
-                Log.e(TAG, "onWebRtcAudioRecordInitError: " + errorMessage);
-                reportError(errorMessage);
-            }
-
-            @Override
-            public void onWebRtcAudioRecordStartError(
-                    JavaAudioDeviceModule.AudioRecordStartErrorCode errorCode, String errorMessage) {
-                Log.e(TAG, "onWebRtcAudioRecordStartError: " + errorCode + ". " + errorMessage);
-                reportError(errorMessage);
-            }
-
-            @Override
-            public void onWebRtcAudioRecordError(String errorMessage) {
-                Log.e(TAG, "onWebRtcAudioRecordError: " + errorMessage);
-                reportError(errorMessage);
-            }
-        };
-
-        AudioTrackErrorCallback audioTrackErrorCallback = new AudioTrackErrorCallback() {
-            @Override
-            public void onWebRtcAudioTrackInitError(String errorMessage) {
-                Log.e(TAG, "onWebRtcAudioTrackInitError: " + errorMessage);
-                reportError(errorMessage);
-            }
-
-            @Override
-            public void onWebRtcAudioTrackStartError(
-                    JavaAudioDeviceModule.AudioTrackStartErrorCode errorCode, String errorMessage) {
-                Log.e(TAG, "onWebRtcAudioTrackStartError: " + errorCode + ". " + errorMessage);
-                reportError(errorMessage);
-            }
-
-            @Override
-            public void onWebRtcAudioTrackError(String errorMessage) {
-                Log.e(TAG, "onWebRtcAudioTrackError: " + errorMessage);
-                reportError(errorMessage);
-            }
-        };
-
-        // Đặt cuộc gọi lại trạng thái bản ghi âm thanh.
-        // Set audio record state callbacks.
-        AudioRecordStateCallback audioRecordStateCallback = new AudioRecordStateCallback() {
-            @Override
-            public void onWebRtcAudioRecordStart() {
-                Log.i(TAG, "Audio recording starts");
-            }
-
-            @Override
-            public void onWebRtcAudioRecordStop() {
-                Log.i(TAG, "Audio recording stops");
-            }
-        };
-
-        // Đặt cuộc gọi lại trạng thái theo dõi âm thanh.
-        // Set audio track state callbacks.
-        AudioTrackStateCallback audioTrackStateCallback = new AudioTrackStateCallback() {
-            @Override
-            public void onWebRtcAudioTrackStart() {
-                Log.i(TAG, "Audio playout starts");
-            }
-
-            @Override
-            public void onWebRtcAudioTrackStop() {
-                Log.i(TAG, "Audio playout stops");
-            }
-        };
-
-        return JavaAudioDeviceModule.builder(appContext)
-                .setSamplesReadyCallback(saveRecordedAudioToFile)
-                .setUseHardwareAcousticEchoCanceler(!peerConnectionParameters.disableBuiltInAEC)
-                .setUseHardwareNoiseSuppressor(!peerConnectionParameters.disableBuiltInNS)
-                .setAudioRecordErrorCallback(audioRecordErrorCallback)
-                .setAudioTrackErrorCallback(audioTrackErrorCallback)
-                .setAudioRecordStateCallback(audioRecordStateCallback)
-                .setAudioTrackStateCallback(audioTrackStateCallback)
-                .createAudioDeviceModule();
+        // Dùng lại nhà máy của cuộc gọi trước nếu các tham số của nó không đổi.
+        // Reuse the factory of the previous call when its parameters did not change.
+        factory = factoryHolder.acquire(
+                appContext, peerConnectionParameters, options, audioDeviceListener);
+        events.onPeerConnectionFactoryCreated();
     }
 
     private void createMediaConstraintsInternal() {
@@ -631,11 +592,26 @@ public class PeerConnectionClient {
                 "OfferToReceiveVideo", Boolean.toString(isVideoCallEnabled())));
     }
 
-    private void createPeerConnectionInternal() {
+    private void createLocalMediaInternal() {
         if (factory == null || isError) {
             Log.e(TAG, "Peerconnection factory is not created");
             return;
         }
+        createMediaConstraintsInternal();
+        if (isVideoCallEnabled()) {
+            createVideoTrack(videoCapturer);
+        }
+        createAudioTrack();
+        localMediaCreated = true;
+        Log.d(TAG, "Local media created.");
+        events.onLocalMediaCreated();
+    }
+
+    private void createPeerConnectionInternal() {
+        if (factory == null || !localMediaCreated || isError) {
+            Log.e(TAG, "Peerconnection factory is not created");
+            return;
+        }
         Log.d(TAG, "Create peer connection.");
 
         queuedRemoteCandidates = new ArrayList<>();
@@ -674,7 +650,7 @@ public class PeerConnectionClient {
 
         List<String> mediaStreamLabels = Collections.singletonList("ARDAMS");
         if (isVideoCallEnabled()) {
-            peerConnection.addTrack(createVideoTrack(videoCapturer), mediaStreamLabels);
+            peerConnection.addTrack(localVideoTrack, mediaStreamLabels);
             // We can add the renderers right away because we don't need to wait for an
             // answer to get the remote track.
             remoteVideoTrack = getRemoteVideoTrack();
@@ -683,7 +659,7 @@ public class PeerConnectionClient {
                 remoteVideoTrack.addSink(remoteSink);
             }
         }
-        peerConnection.addTrack(createAudioTrack(), mediaStreamLabels);
+        peerConnection.addTrack(localAudioTrack, mediaStreamLabels);
         if (isVideoCallEnabled()) {
             findVideoSender();
         }
@@ -729,16 +705,44 @@ public class PeerConnectionClient {
         rtcEventLog.start(createRtcEventLogOutputFile());
     }
 
+    private File createCallStatsOutputFile() {
+        DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_hhmm_ss", Locale.getDefault());
+        Date date = new Date();
+        final String outputFileName = "call_stats_" + dateFormat.format(date) + ".bin";
+        return new File(
+                appContext.getDir(CALL_STATS_OUTPUT_DIR_NAME, Context.MODE_PRIVATE), outputFileName);
+    }
+
+    // Thống kê được ghi cùng với nhật ký sự kiện RTC, vào thư mục bên cạnh.
+    // The stats are recorded together with the RTC event log, into the directory next to it.
+    private void maybeCreateAndStartCallStatsRecorder() {
+        if (appContext == null || peerConnection == null
+                || !peerConnectionParameters.enableRtcEventLog) {
+            return;
+        }
+        final CallStatsRecorder recorder = new CallStatsRecorder();
+        recorder.start(createCallStatsOutputFile());
+        callStatsRecorder = recorder;
+    }
+
     private void closeInternal() {
         if (factory != null && peerConnectionParameters.aecDump) {
             factory.stopAecDump();
         }
         Log.d(TAG, "Closing peer connection.");
-        statsTimer.cancel();
+        statsScheduler.stop();
+        Log.d(TAG, "Stats ticks skipped while a request was in flight: "
+                + statsScheduler.getCoalescedTicks());
+        Log.d(TAG, "Stats of the last 2 minutes:\n"
+                + statsHistory.describe(STATS_HISTORY_LOG_WINDOW_MS));
         if (dataChannel != null) {
             dataChannel.dispose();
             dataChannel = null;
         }
+        if (callStatsRecorder != null) {
+            callStatsRecorder.stop();
+            callStatsRecorder = null;
+        }
         if (rtcEventLog != null) {
             // RtcEventLog should stop before the peer connection is disposed.
             rtcEventLog.stop();
@@ -780,55 +784,87 @@ public class PeerConnectionClient {
         }
         localRender = null;
         remoteSinks = null;
-        Log.d(TAG, "Closing peer connection factory.");
         if (factory != null) {
-            factory.dispose();
+            factoryHolder.release(factory, audioDeviceListener);
             factory = null;
         }
-        rootEglBase.release();
         Log.d(TAG, "Closing peer connection done.");
         events.onPeerConnectionClosed();
         PeerConnectionFactory.stopInternalTracingCapture();
-        PeerConnectionFactory.shutdownInternalTracer();
+    }
+
+    /**
+     * Lịch sử thống kê của cuộc gọi trong vài phút gần nhất, chỉ giữ trong bộ nhớ.
+     * Stats history of the call over the last few minutes, kept in memory only.
+     */
+    public CallStatsHistory getStatsHistory() {
+        return statsHistory;
     }
 
     public boolean isHDVideo() {
         return isVideoCallEnabled() && videoWidth * videoHeight >= 1280 * 720;
     }
 
-    @SuppressWarnings("deprecation") // TODO(sakal): getStats is deprecated.
-    private void getStats() {
+    private boolean getStats(final Runnable done) {
         if (peerConnection == null || isError) {
-            return;
+            return false;
         }
-        boolean success = peerConnection.getStats(new StatsObserver() {
-            @Override
-            public void onComplete(final StatsReport[] reports) {
-                events.onPeerConnectionStatsReady(reports);
+        peerConnection.getStats(report -> {
+            try {
+                statsProjector.begin((long) report.getTimestampUs());
+                for (RTCStats stats : report.getStatsMap().values()) {
+                    statsProjector.add(stats.getId(), stats.getType(), stats.getMembers());
+                }
+                final CallStatsSnapshot snapshot = statsProjector.publish();
+                statsHistory.add(snapshot);
+                final CallStatsRecorder recorder = callStatsRecorder;
+                if (recorder != null) {
+                    recorder.record(snapshot);
+                }
+                events.onPeerConnectionStatsReady(snapshot);
+            } finally {
+                done.run();
             }
-        }, null);
-        if (!success) {
-            Log.e(TAG, "getStats() returns false!");
-        }
+        });
+        return true;
     }
 
+    /**
+     * Bật hoặc tắt sự kiện thống kê. Có thể bật lại sau khi đã tắt.
+     * Enables or disables stats events. Stats can be enabled again after being disabled.
+     */
     public void enableStatsEvents(boolean enable, int periodMs) {
         if (enable) {
-            try {
-                statsTimer.schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        executor.execute(() -> getStats());
-                    }
-                }, 0, periodMs);
-            } catch (Exception e) {
-                Log.e(TAG, "Can not schedule statistics timer", e);
-            }
+            statsScheduler.start(periodMs);
         } else {
-            statsTimer.cancel();
+            statsScheduler.stop();
         }
     }
 
+    /**
+     * Thống kê có đang được hiển thị hay không; khi ẩn, chu kỳ được kéo dài.
+     * Whether the stats are displayed; while hidden the stats period is stretched.
+     */
+    public void setStatsConsumerVisible(boolean visible) {
+        statsScheduler.setConsumerVisible(visible);
+    }
+
+    /**
+     * Ứng dụng có ở tiền cảnh hay không; khi ở nền, chu kỳ được kéo dài.
+     * Whether the app is in the foreground; while in background the stats period is stretched.
+     */
+    public void setStatsInForeground(boolean foreground) {
+        statsScheduler.setInForeground(foreground);
+    }
+
+    /**
+     * Rút ngắn chu kỳ thống kê khi vòng thích ứng cần mẫu mới.
+     * Tightens the stats period while an adaptation loop needs fresh samples.
+     */
+    public void setStatsFastSampling(boolean enable) {
+        statsScheduler.setFastSampling(enable);
+    }
+
     public void setAudioEnabled(final boolean enable) {
         executor.execute(() -> {
             enableAudio = enable;
@@ -850,6 +886,33 @@ public class PeerConnectionClient {
         });
     }
 
+    /**
+     * Bật hoặc tắt chỉ việc gửi video cục bộ: bộ mã hóa ngừng gửi và máy quay dừng, còn video
+     * nhận được vẫn hiển thị. Dùng khi lùi về chỉ âm thanh.
+     * Enables or disables sending local video only: the encoding stops sending and the capturer
+     * is stopped to save its cost, while the received video is still rendered. Used for the
+     * audio only fallback.
+     */
+    public void setLocalVideoSendingEnabled(final boolean enable) {
+        executor.execute(() -> {
+            if (localVideoSending == enable) {
+                return;
+            }
+            Log.d(TAG, "Local video sending: " + enable);
+            localVideoSending = enable;
+            if (localVideoSender != null && !isError) {
+                final RtpParameters parameters = localVideoSender.getParameters();
+                for (RtpParameters.Encoding encoding : parameters.encodings) {
+                    encoding.active = enable;
+                }
+                if (!localVideoSender.setParameters(parameters)) {
+                    Log.e(TAG, "RtpSender.setParameters failed.");
+                }
+            }
+            updateVideoCapture();
+        });
+    }
+
     public void createOffer() {
         executor.execute(() -> {
             if (peerConnection != null && !isError) {
@@ -882,6 +945,24 @@ public class PeerConnectionClient {
         });
     }
 
+    /**
+     * Thêm một lô ứng viên từ xa với một lần chuyển sang executor.
+     * Adds a batch of remote candidates with a single hop onto the executor.
+     */
+    public void addRemoteIceCandidates(final IceCandidate[] candidates) {
+        executor.execute(() -> {
+            if (peerConnection != null && !isError) {
+                if (queuedRemoteCandidates != null) {
+                    Collections.addAll(queuedRemoteCandidates, candidates);
+                } else {
+                    for (IceCandidate candidate : candidates) {
+                        peerConnection.addIceCandidate(candidate);
+                    }
+                }
+            }
+        });
+    }
+
     public void removeRemoteIceCandidates(final IceCandidate[] candidates) {
         executor.execute(() -> {
             if (peerConnection == null || isError) {
@@ -899,18 +980,7 @@ public class PeerConnectionClient {
             if (peerConnection == null || isError) {
                 return;
             }
-            String sdpDescription = sdp.description;
-            if (preferIsac) {
-                sdpDescription = preferCodec(sdpDescription, AUDIO_CODEC_ISAC, true);
-            }
-            if (isVideoCallEnabled()) {
-                sdpDescription =
-                        preferCodec(sdpDescription, getSdpVideoCodecName(peerConnectionParameters), false);
-            }
-            if (peerConnectionParameters.audioStartBitrate > 0) {
-                sdpDescription = setStartBitrate(
-                        AUDIO_CODEC_OPUS, false, sdpDescription, peerConnectionParameters.audioStartBitrate);
-            }
+            String sdpDescription = mungeSdp(sdp.description, true /* isRemote */);
             Log.d(TAG, "Set remote SDP.");
             SessionDescription sdpRemote = new SessionDescription(sdp.type, sdpDescription);
             peerConnection.setRemoteDescription(sdpObserver, sdpRemote);
@@ -919,27 +989,40 @@ public class PeerConnectionClient {
 
     public void stopVideoSource() {
         executor.execute(() -> {
-            if (videoCapturer != null && !videoCapturerStopped) {
-                Log.d(TAG, "Stop video source.");
-                try {
-                    videoCapturer.stopCapture();
-                } catch (InterruptedException e) {
-                }
-                videoCapturerStopped = true;
-            }
+            videoSourceRequested = false;
+            updateVideoCapture();
         });
     }
 
     public void startVideoSource() {
         executor.execute(() -> {
-            if (videoCapturer != null && videoCapturerStopped) {
-                Log.d(TAG, "Restart video source.");
-                videoCapturer.startCapture(videoWidth, videoHeight, videoFps);
-                videoCapturerStopped = false;
-            }
+            videoSourceRequested = true;
+            updateVideoCapture();
         });
     }
 
+    // Chạy hoặc dừng máy quay theo Activity và việc gửi video cục bộ. Chạy trên executor.
+    // Starts or stops the capturer following the activity and local video sending. Runs on the
+    // executor.
+    private void updateVideoCapture() {
+        if (videoCapturer == null) {
+            return;
+        }
+        final boolean run = videoSourceRequested && localVideoSending;
+        if (!run && !videoCapturerStopped) {
+            Log.d(TAG, "Stop video source.");
+            try {
+                videoCapturer.stopCapture();
+            } catch (InterruptedException e) {
+            }
+            videoCapturerStopped = true;
+        } else if (run && videoCapturerStopped) {
+            Log.d(TAG, "Restart video source.");
+            videoCapturer.startCapture(videoWidth, videoHeight, videoFps);
+            videoCapturerStopped = false;
+        }
+    }
+
     public void setVideoMaxBitrate(@Nullable final Integer maxBitrateKbps) {
         executor.execute(() -> {
             if (peerConnection == null || localVideoSender == null || isError) {
@@ -1052,151 +1135,25 @@ public class PeerConnectionClient {
         return fieldTrials;
     }
 
-    @SuppressWarnings("StringSplitter")
-    private static String setStartBitrate(
-            String codec, boolean isVideoCodec, String sdpDescription, int bitrateKbps) {
-        String[] lines = sdpDescription.split("\r\n");
-        int rtpmapLineIndex = -1;
-        boolean sdpFormatUpdated = false;
-        String codecRtpMap = null;
-        // Search for codec rtpmap in format
-        // a=rtpmap:<payload type> <encoding name>/<clock rate> [/<encoding parameters>]
-        String regex = "^a=rtpmap:(\\d+) " + codec + "(/\\d+)+[\r]?$";
-        Pattern codecPattern = Pattern.compile(regex);
-        for (int i = 0; i < lines.length; i++) {
-            Matcher codecMatcher = codecPattern.matcher(lines[i]);
-            if (codecMatcher.matches()) {
-                codecRtpMap = codecMatcher.group(1);
-                rtpmapLineIndex = i;
-                break;
-            }
-        }
-        if (codecRtpMap == null) {
-            Log.w(TAG, "No rtpmap for " + codec + " codec");
-            return sdpDescription;
-        }
-        Log.d(TAG, "Found " + codec + " rtpmap " + codecRtpMap + " at " + lines[rtpmapLineIndex]);
-
-        // Check if a=fmtp string already exist in remote SDP for this codec and
-        // update it with new bitrate parameter.
-        regex = "^a=fmtp:" + codecRtpMap + " \\w+=\\d+.*[\r]?$";
-        codecPattern = Pattern.compile(regex);
-        for (int i = 0; i < lines.length; i++) {
-            Matcher codecMatcher = codecPattern.matcher(lines[i]);
-            if (codecMatcher.matches()) {
-                Log.d(TAG, "Found " + codec + " " + lines[i]);
-                if (isVideoCodec) {
-                    lines[i] += "; " + VIDEO_CODEC_PARAM_START_BITRATE + "=" + bitrateKbps;
-                } else {
-                    lines[i] += "; " + AUDIO_CODEC_PARAM_BITRATE + "=" + (bitrateKbps * 1000);
-                }
-                Log.d(TAG, "Update remote SDP line: " + lines[i]);
-                sdpFormatUpdated = true;
-                break;
-            }
-        }
-
-        StringBuilder newSdpDescription = new StringBuilder();
-        for (int i = 0; i < lines.length; i++) {
-            newSdpDescription.append(lines[i]).append("\r\n");
-            // Append new a=fmtp line if no such line exist for a codec.
-            if (!sdpFormatUpdated && i == rtpmapLineIndex) {
-                String bitrateSet;
-                if (isVideoCodec) {
-                    bitrateSet =
-                            "a=fmtp:" + codecRtpMap + " " + VIDEO_CODEC_PARAM_START_BITRATE + "=" + bitrateKbps;
-                } else {
-                    bitrateSet = "a=fmtp:" + codecRtpMap + " " + AUDIO_CODEC_PARAM_BITRATE + "="
-                            + (bitrateKbps * 1000);
-                }
-                Log.d(TAG, "Add remote SDP line: " + bitrateSet);
-                newSdpDescription.append(bitrateSet).append("\r\n");
-            }
+    // Áp dụng tất cả các phép biến đổi SDP trong một lần phân tích và tuần tự hóa.
+    // Applies all SDP munging in a single parse and serialize pass.
+    private String mungeSdp(String sdpDescription, boolean isRemote) {
+        final SdpDescription description = SdpDescription.parse(sdpDescription);
+        if (preferIsac && !description.preferCodec(AUDIO_CODEC_ISAC, true /* isAudio */)) {
+            Log.w(TAG, "Can't prefer " + AUDIO_CODEC_ISAC);
         }
-        return newSdpDescription.toString();
-    }
-
-    /**
-     * Returns the line number containing "m=audio|video", or -1 if no such line exists.
-     */
-    private static int findMediaDescriptionLine(boolean isAudio, String[] sdpLines) {
-        final String mediaDescription = isAudio ? "m=audio " : "m=video ";
-        for (int i = 0; i < sdpLines.length; ++i) {
-            if (sdpLines[i].startsWith(mediaDescription)) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    private static String joinString(
-            Iterable<? extends CharSequence> s, String delimiter, boolean delimiterAtEnd) {
-        Iterator<? extends CharSequence> iter = s.iterator();
-        if (!iter.hasNext()) {
-            return "";
-        }
-        StringBuilder buffer = new StringBuilder(iter.next());
-        while (iter.hasNext()) {
-            buffer.append(delimiter).append(iter.next());
-        }
-        if (delimiterAtEnd) {
-            buffer.append(delimiter);
-        }
-        return buffer.toString();
-    }
-
-    private static @Nullable
-    String movePayloadTypesToFront(
-            List<String> preferredPayloadTypes, String mLine) {
-        // The format of the media description line should be: m=<media> <port> <proto> <fmt> ...
-        final List<String> origLineParts = Arrays.asList(mLine.split(" "));
-        if (origLineParts.size() <= 3) {
-            Log.e(TAG, "Wrong SDP media description format: " + mLine);
-            return null;
-        }
-        final List<String> header = origLineParts.subList(0, 3);
-        final List<String> unpreferredPayloadTypes =
-                new ArrayList<>(origLineParts.subList(3, origLineParts.size()));
-        unpreferredPayloadTypes.removeAll(preferredPayloadTypes);
-        // Reconstruct the line with |preferredPayloadTypes| moved to the beginning of the payload
-        // types.
-        final List<String> newLineParts = new ArrayList<>();
-        newLineParts.addAll(header);
-        newLineParts.addAll(preferredPayloadTypes);
-        newLineParts.addAll(unpreferredPayloadTypes);
-        return joinString(newLineParts, " ", false /* delimiterAtEnd */);
-    }
-
-    private static String preferCodec(String sdpDescription, String codec, boolean isAudio) {
-        final String[] lines = sdpDescription.split("\r\n");
-        final int mLineIndex = findMediaDescriptionLine(isAudio, lines);
-        if (mLineIndex == -1) {
-            Log.w(TAG, "No mediaDescription line, so can't prefer " + codec);
-            return sdpDescription;
-        }
-        // A list with all the payload types with name |codec|. The payload types are integers in the
-        // range 96-127, but they are stored as strings here.
-        final List<String> codecPayloadTypes = new ArrayList<>();
-        // a=rtpmap:<payload type> <encoding name>/<clock rate> [/<encoding parameters>]
-        final Pattern codecPattern = Pattern.compile("^a=rtpmap:(\\d+) " + codec + "(/\\d+)+[\r]?$");
-        for (String line : lines) {
-            Matcher codecMatcher = codecPattern.matcher(line);
-            if (codecMatcher.matches()) {
-                codecPayloadTypes.add(codecMatcher.group(1));
+        if (isVideoCallEnabled()) {
+            final String videoCodec = getSdpVideoCodecName(peerConnectionParameters);
+            if (!description.preferCodec(videoCodec, false /* isAudio */)) {
+                Log.w(TAG, "Can't prefer " + videoCodec);
             }
         }
-        if (codecPayloadTypes.isEmpty()) {
-            Log.w(TAG, "No payload types with name " + codec);
-            return sdpDescription;
-        }
-
-        final String newMLine = movePayloadTypesToFront(codecPayloadTypes, lines[mLineIndex]);
-        if (newMLine == null) {
-            return sdpDescription;
+        if (isRemote && peerConnectionParameters.audioStartBitrate > 0
+                && !description.setStartBitrate(AUDIO_CODEC_OPUS, false /* isVideoCodec */,
+                peerConnectionParameters.audioStartBitrate)) {
+            Log.w(TAG, "No rtpmap for " + AUDIO_CODEC_OPUS + " codec");
         }
-        Log.d(TAG, "Change media description from: " + lines[mLineIndex] + " to " + newMLine);
-        lines[mLineIndex] = newMLine;
-        return joinString(Arrays.asList(lines), "\r\n", true /* delimiterAtEnd */);
+        return description.serialize();
     }
 
     private void drainCandidates() {
@@ -1364,14 +1321,7 @@ public class PeerConnectionClient {
                 reportError("Multiple SDP create.");
                 return;
             }
-            String sdpDescription = origSdp.description;
-            if (preferIsac) {
-                sdpDescription = preferCodec(sdpDescription, AUDIO_CODEC_ISAC, true);
-            }
-            if (isVideoCallEnabled()) {
-                sdpDescription =
-                        preferCodec(sdpDescription, getSdpVideoCodecName(peerConnectionParameters), false);
-            }
+            String sdpDescription = mungeSdp(origSdp.description, false /* isRemote */);
             final SessionDescription sdp = new SessionDescription(origSdp.type, sdpDescription);
             localSdp = sdp;
             executor.execute(() -> {
@@ -0,0 +1,511 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionClient.PeerConnectionParameters;
+
+import org.webrtc.DefaultVideoDecoderFactory;
+import org.webrtc.DefaultVideoEncoderFactory;
+import org.webrtc.EglBase;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.SoftwareVideoDecoderFactory;
+import org.webrtc.SoftwareVideoEncoderFactory;
+import org.webrtc.VideoDecoderFactory;
+import org.webrtc.VideoEncoderFactory;
+import org.webrtc.audio.AudioDeviceModule;
+import org.webrtc.audio.JavaAudioDeviceModule;
+import org.webrtc.audio.JavaAudioDeviceModule.AudioRecordErrorCallback;
+import org.webrtc.audio.JavaAudioDeviceModule.AudioRecordStateCallback;
+import org.webrtc.audio.JavaAudioDeviceModule.AudioSamples;
+import org.webrtc.audio.JavaAudioDeviceModule.AudioTrackErrorCallback;
+import org.webrtc.audio.JavaAudioDeviceModule.AudioTrackStateCallback;
+import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Giữ PeerConnectionFactory, các nhà máy mã hóa/giải mã và ngữ cảnh EGL sống qua nhiều
+ * cuộc gọi trong cùng tiến trình.
+ * Keeps the PeerConnectionFactory, its encoder/decoder factories and the EGL context warm across
+ * calls of the same process. Back-to-back calls with the same factory settings skip native
+ * initialization and factory construction entirely.
+ *
+ * <p>Nhà máy chỉ được tạo lại khi các tham số ảnh hưởng đến nó thay đổi: tăng tốc phần cứng,
+ * field trial, cài đặt ADM hoặc tùy chọn mạng.
+ * The factory is only rebuilt when the parameters it was built from change: codec hardware
+ * acceleration, field trials, audio device module settings or network options. A factory still
+ * in use by another call is disposed when its last user releases it.
+ *
+ * <p>Nhà máy mới phải được tạo trên cùng luồng với nhà máy đã bị hủy trước đó, nên mọi lần
+ * khởi tạo, tạo và hủy nhà máy chạy trên một luồng riêng của lớp này, không phải trên làn của
+ * phiên vốn có thể đổi luồng giữa các tác vụ.
+ * A new factory must be created on the same thread as the previously destroyed factory, so
+ * every initialization, creation and disposal of a factory runs on a dedicated thread of this
+ * class rather than on the session lane, which may move to another pool thread between tasks.
+ *
+ * <p>Mọi phương thức đều an toàn luồng.
+ * All methods are thread-safe. They block until the work on the factory thread is done.
+ */
+public class PeerConnectionFactoryHolder {
+    private static final String TAG = "PCFactoryHolder";
+
+    /**
+     * Nhận lỗi và mẫu âm thanh ghi được từ ADM dùng chung. Chỉ người dùng nhà máy mới nhất
+     * nhận được sự kiện.
+     * Receives errors and recorded samples of the shared audio device module. Only the latest
+     * user of the factory receives them. Invoked on the WebRTC audio threads.
+     */
+    public interface AudioDeviceListener extends SamplesReadyCallback {
+        void onAudioDeviceError(String errorMessage);
+    }
+
+    // Các tham số mà một nhà máy được tạo từ đó.
+    // The parameters a factory is built from.
+    private static class FactoryKey {
+        final String fieldTrials;
+        final boolean videoCodecHwAcceleration;
+        final boolean enableH264HighProfile;
+        final boolean useOpenSLES;
+        final boolean disableBuiltInAEC;
+        final boolean disableBuiltInNS;
+        final boolean recordSamples;
+        final int networkIgnoreMask;
+        final boolean disableEncryption;
+        final boolean disableNetworkMonitor;
+
+        FactoryKey(String fieldTrials, PeerConnectionParameters parameters,
+                   @Nullable PeerConnectionFactory.Options options) {
+            this.fieldTrials = fieldTrials;
+            this.videoCodecHwAcceleration = parameters.videoCodecHwAcceleration;
+            this.enableH264HighProfile = parameters.videoCodecHwAcceleration
+                    && PeerConnectionClient.VIDEO_CODEC_H264_HIGH.equals(parameters.videoCodec);
+            this.useOpenSLES = parameters.useOpenSLES;
+            this.disableBuiltInAEC = parameters.disableBuiltInAEC;
+            this.disableBuiltInNS = parameters.disableBuiltInNS;
+            this.recordSamples = parameters.saveInputAudioToFile && !parameters.useOpenSLES;
+            this.networkIgnoreMask = options != null ? options.networkIgnoreMask : 0;
+            this.disableEncryption = options != null && options.disableEncryption;
+            this.disableNetworkMonitor = options != null && options.disableNetworkMonitor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FactoryKey)) {
+                return false;
+            }
+            final FactoryKey that = (FactoryKey) o;
+            return fieldTrials.equals(that.fieldTrials)
+                    && videoCodecHwAcceleration == that.videoCodecHwAcceleration
+                    && enableH264HighProfile == that.enableH264HighProfile
+                    && useOpenSLES == that.useOpenSLES
+                    && disableBuiltInAEC == that.disableBuiltInAEC
+                    && disableBuiltInNS == that.disableBuiltInNS
+                    && recordSamples == that.recordSamples
+                    && networkIgnoreMask == that.networkIgnoreMask
+                    && disableEncryption == that.disableEncryption
+                    && disableNetworkMonitor == that.disableNetworkMonitor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = fieldTrials.hashCode();
+            result = 31 * result + (videoCodecHwAcceleration ? 1 : 0);
+            result = 31 * result + (enableH264HighProfile ? 1 : 0);
+            result = 31 * result + (useOpenSLES ? 1 : 0);
+            result = 31 * result + (disableBuiltInAEC ? 1 : 0);
+            result = 31 * result + (disableBuiltInNS ? 1 : 0);
+            result = 31 * result + (recordSamples ? 1 : 0);
+            result = 31 * result + networkIgnoreMask;
+            result = 31 * result + (disableEncryption ? 1 : 0);
+            result = 31 * result + (disableNetworkMonitor ? 1 : 0);
+            return result;
+        }
+    }
+
+    private static class Entry {
+        final FactoryKey key;
+        final PeerConnectionFactory factory;
+        int refCount;
+
+        Entry(FactoryKey key, PeerConnectionFactory factory) {
+            this.key = key;
+            this.factory = factory;
+        }
+    }
+
+    @Nullable
+    private static PeerConnectionFactoryHolder instance;
+
+    // Mọi nhà máy chưa bị hủy, kể cả các nhà máy cũ vẫn đang được dùng.
+    // Every factory not disposed yet, including stale ones still in use.
+    private final Map<PeerConnectionFactory, Entry> entries = new IdentityHashMap<>();
+    // Luồng duy nhất chạm vào vòng đời của nhà máy. Các tác vụ trên nó không được lấy khóa
+    // của lớp này, vì người gọi giữ khóa trong khi chờ.
+    // The only thread touching the life cycle of the factories. Tasks on it must not take the
+    // lock of this class, since callers hold it while they wait.
+    private final ExecutorService factoryThread = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "pc-factory");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @Nullable
+    private Entry current;
+    @Nullable
+    private EglBase eglBase;
+    private boolean eglBaseEvicted;
+    @Nullable
+    private String initializedFieldTrials;
+    @Nullable
+    private volatile AudioDeviceListener audioDeviceListener;
+    private int reuseCount;
+    private int buildCount;
+
+    public static synchronized PeerConnectionFactoryHolder getInstance() {
+        if (instance == null) {
+            instance = new PeerConnectionFactoryHolder();
+        }
+        return instance;
+    }
+
+    private PeerConnectionFactoryHolder() {
+    }
+
+    /**
+     * Trả về ngữ cảnh EGL dùng chung, tạo nó nếu cần. Người gọi không được giải phóng nó.
+     * Returns the shared EGL context, creating it when needed. Callers must not release it.
+     */
+    public synchronized EglBase getEglBase() {
+        // Một ngữ cảnh đã bị bỏ nhưng vẫn còn được dùng thì được giữ lại.
+        // A context evicted while still in use is simply kept.
+        if (eglBase == null) {
+            eglBase = EglBase.create();
+        }
+        eglBaseEvicted = false;
+        return eglBase;
+    }
+
+    /**
+     * Khởi tạo WebRTC với |fieldTrials|. Không làm gì nếu đã khởi tạo với cùng field trial.
+     * Initializes WebRTC with |fieldTrials|. Does nothing when it is already initialized with the
+     * same field trials.
+     */
+    public synchronized void initialize(Context appContext, String fieldTrials) {
+        if (fieldTrials.equals(initializedFieldTrials)) {
+            Log.d(TAG, "WebRTC already initialized. Field trials: " + fieldTrials);
+            return;
+        }
+        Log.d(TAG, "Initialize WebRTC. Field trials: " + fieldTrials);
+        runOnFactoryThread(() -> {
+            PeerConnectionFactory.initialize(
+                    PeerConnectionFactory.InitializationOptions.builder(appContext)
+                            .setFieldTrials(fieldTrials)
+                            .setEnableInternalTracer(true)
+                            .createInitializationOptions());
+            return null;
+        });
+        initializedFieldTrials = fieldTrials;
+    }
+
+    /**
+     * Trả về một nhà máy khớp với |parameters| và |options|, dùng lại nhà máy đang giữ nếu
+     * có thể. Mỗi lần gọi phải đi kèm một lần release().
+     * Returns a factory matching |parameters| and |options|, reusing the warm one when possible.
+     * initialize() must have been called first. Every call must be paired with release().
+     * |listener| receives the audio device events until another call acquires the factory.
+     */
+    public synchronized PeerConnectionFactory acquire(Context appContext,
+                                                      PeerConnectionParameters parameters, @Nullable PeerConnectionFactory.Options options,
+                                                      AudioDeviceListener listener) {
+        if (initializedFieldTrials == null) {
+            throw new IllegalStateException("WebRTC has not been initialized");
+        }
+        final FactoryKey key = new FactoryKey(initializedFieldTrials, parameters, options);
+        audioDeviceListener = listener;
+        if (current != null && current.key.equals(key)) {
+            reuseCount++;
+            Log.d(TAG, "Reusing peer connection factory. Reused: " + reuseCount
+                    + ", built: " + buildCount);
+        } else {
+            retireCurrentLocked();
+            final EglBase.Context eglBaseContext =
+                    key.videoCodecHwAcceleration ? getEglBase().getEglBaseContext() : null;
+            current = new Entry(key, runOnFactoryThread(
+                    () -> createFactory(appContext, key, options, eglBaseContext)));
+            entries.put(current.factory, current);
+            buildCount++;
+            Log.d(TAG, "Peer connection factory created. Reused: " + reuseCount
+                    + ", built: " + buildCount);
+        }
+        current.refCount++;
+        return current.factory;
+    }
+
+    /**
+     * Trả lại |factory| đã lấy bằng acquire(). Nhà máy hiện tại vẫn được giữ cho cuộc gọi sau.
+     * Returns a |factory| obtained from acquire(). The current factory stays warm for the next
+     * call; a stale or evicted one is disposed with its last user.
+     */
+    public synchronized void release(PeerConnectionFactory factory, AudioDeviceListener listener) {
+        final Entry entry = entries.get(factory);
+        if (entry == null || entry.refCount == 0) {
+            throw new IllegalStateException("Releasing a factory that was not acquired");
+        }
+        entry.refCount--;
+        if (audioDeviceListener == listener) {
+            audioDeviceListener = null;
+        }
+        if (entry.refCount == 0 && entry != current) {
+            disposeLocked(entry);
+        }
+        if (eglBaseEvicted && entries.isEmpty()) {
+            releaseEglBaseLocked();
+        }
+    }
+
+    /**
+     * Bỏ nhà máy và ngữ cảnh EGL đang giữ, ví dụ khi hệ thống thiếu bộ nhớ. Những thứ đang
+     * được dùng sẽ bị hủy khi cuộc gọi cuối cùng trả lại chúng.
+     * Drops the warm factory and EGL context, e.g. when the system runs low on memory. Anything
+     * still in use is disposed when the last call releases it. The next call starts cold.
+     *
+     * <p>Không chờ việc hủy, nên có thể gọi trên luồng chính.
+     * Does not wait for the disposal, so it may be called on the main thread.
+     */
+    public synchronized void evict() {
+        Log.d(TAG, "Evicting peer connection factory.");
+        retireCurrentLocked();
+        if (eglBase != null) {
+            eglBaseEvicted = true;
+            if (entries.isEmpty()) {
+                releaseEglBaseLocked();
+            }
+        }
+        if (entries.isEmpty() && initializedFieldTrials != null) {
+            postToFactoryThread(PeerConnectionFactory::shutdownInternalTracer);
+            initializedFieldTrials = null;
+        }
+    }
+
+    private void retireCurrentLocked() {
+        if (current == null) {
+            return;
+        }
+        final Entry retired = current;
+        current = null;
+        if (retired.refCount == 0) {
+            disposeLocked(retired);
+        }
+    }
+
+    private void disposeLocked(Entry entry) {
+        Log.d(TAG, "Closing peer connection factory.");
+        entries.remove(entry.factory);
+        postToFactoryThread(entry.factory::dispose);
+    }
+
+    // Chạy |task| trên luồng nhà máy mà không chờ. Các tác vụ sau, như tạo nhà máy mới, chạy
+    // sau nó.
+    // Runs |task| on the factory thread without waiting. Later tasks, like building a new
+    // factory, run after it.
+    private void postToFactoryThread(Runnable task) {
+        factoryThread.execute(task);
+    }
+
+    // Chạy |task| trên luồng nhà máy và chờ kết quả.
+    // Runs |task| on the factory thread and waits for its result.
+    private <T> T runOnFactoryThread(Callable<T> task) {
+        final Future<T> future = factoryThread.submit(task);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // Nhà máy phải được tạo xong hoặc hủy xong, nên không bỏ dở việc chờ.
+                    // The factory must be fully created or disposed, so keep waiting.
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void releaseEglBaseLocked() {
+        if (eglBase != null) {
+            postToFactoryThread(eglBase::release);
+            eglBase = null;
+        }
+    }
+
+    // Chạy trên luồng nhà máy.
+    // Runs on the factory thread.
+    private PeerConnectionFactory createFactory(Context appContext, FactoryKey key,
+            @Nullable PeerConnectionFactory.Options options,
+            @Nullable EglBase.Context eglBaseContext) {
+        if (options != null) {
+            Log.d(TAG, "Factory networkIgnoreMask option: " + options.networkIgnoreMask);
+        }
+        final AudioDeviceModule adm = createJavaAudioDevice(appContext, key);
+
+        final VideoEncoderFactory encoderFactory;
+        final VideoDecoderFactory decoderFactory;
+        if (key.videoCodecHwAcceleration) {
+            encoderFactory = new DefaultVideoEncoderFactory(
+                    eglBaseContext, true /* enableIntelVp8Encoder */, key.enableH264HighProfile);
+            decoderFactory = new DefaultVideoDecoderFactory(eglBaseContext);
+        } else {
+            encoderFactory = new SoftwareVideoEncoderFactory();
+            decoderFactory = new SoftwareVideoDecoderFactory();
+        }
+
+        final PeerConnectionFactory factory = PeerConnectionFactory.builder()
+                .setOptions(options)
+                .setAudioDeviceModule(adm)
+                .setVideoEncoderFactory(encoderFactory)
+                .setVideoDecoderFactory(decoderFactory)
+                .createPeerConnectionFactory();
+        adm.release();
+        return factory;
+    }
+
+    private AudioDeviceModule createJavaAudioDevice(Context appContext, FactoryKey key) {
+        // Kích hoạt/vô hiệu hóa phát lại OpenSL ES.
+        // Enable/disable OpenSL ES playback.
+        if (!key.useOpenSLES) {
+            Log.w(TAG, "External OpenSLES ADM not implemented yet.");
+            // TODO(magjed): Thêm hỗ trợ cho ADL OpenSLES bên ngoài.
+            // TODO(magjed): Add support for external OpenSLES ADM.
+        }
+
+        // Đặt cuộc gọi lại bản ghi lỗi âm thanh.
+        // Set audio record error callbacks.
+        AudioRecordErrorCallback audioRecordErrorCallback = new AudioRecordErrorCallback() {
+            @Override
+            public void onWebRtcAudioRecordInitError(String errorMessage) {
+                Log.e(TAG, "onWebRtcAudioRecordInitError: " + errorMessage);
+                reportAudioDeviceError(errorMessage);
+            }
+
+            @Override
+            public void onWebRtcAudioRecordStartError(
+                    JavaAudioDeviceModule.AudioRecordStartErrorCode errorCode, String errorMessage) {
+                Log.e(TAG, "onWebRtcAudioRecordStartError: " + errorCode + ". " + errorMessage);
+                reportAudioDeviceError(errorMessage);
+            }
+
+            @Override
+            public void onWebRtcAudioRecordError(String errorMessage) {
+                Log.e(TAG, "onWebRtcAudioRecordError: " + errorMessage);
+                reportAudioDeviceError(errorMessage);
+            }
+        };
+
+        AudioTrackErrorCallback audioTrackErrorCallback = new AudioTrackErrorCallback() {
+            @Override
+            public void onWebRtcAudioTrackInitError(String errorMessage) {
+                Log.e(TAG, "onWebRtcAudioTrackInitError: " + errorMessage);
+                reportAudioDeviceError(errorMessage);
+            }
+
+            @Override
+            public void onWebRtcAudioTrackStartError(
+                    JavaAudioDeviceModule.AudioTrackStartErrorCode errorCode, String errorMessage) {
+                Log.e(TAG, "onWebRtcAudioTrackStartError: " + errorCode + ". " + errorMessage);
+                reportAudioDeviceError(errorMessage);
+            }
+
+            @Override
+            public void onWebRtcAudioTrackError(String errorMessage) {
+                Log.e(TAG, "onWebRtcAudioTrackError: " + errorMessage);
+                reportAudioDeviceError(errorMessage);
+            }
+        };
+
+        // Đặt cuộc gọi lại trạng thái bản ghi âm thanh.
+        // Set audio record state callbacks.
+        AudioRecordStateCallback audioRecordStateCallback = new AudioRecordStateCallback() {
+            @Override
+            public void onWebRtcAudioRecordStart() {
+                Log.i(TAG, "Audio recording starts");
+            }
+
+            @Override
+            public void onWebRtcAudioRecordStop() {
+                Log.i(TAG, "Audio recording stops");
+            }
+        };
+
+        // Đặt cuộc gọi lại trạng thái theo dõi âm thanh.
+        // Set audio track state callbacks.
+        AudioTrackStateCallback audioTrackStateCallback = new AudioTrackStateCallback() {
+            @Override
+            public void onWebRtcAudioTrackStart() {
+                Log.i(TAG, "Audio playout starts");
+            }
+
+            @Override
+            public void onWebRtcAudioTrackStop() {
+                Log.i(TAG, "Audio playout stops");
+            }
+        };
+
+        // Các mẫu chỉ được sao chép khi có người ghi chúng vào tệp.
+        // Samples are only copied out when someone writes them to a file.
+        final SamplesReadyCallback samplesReadyCallback =
+                key.recordSamples ? this::onAudioSamplesReady : null;
+
+        return JavaAudioDeviceModule.builder(appContext)
+                .setSamplesReadyCallback(samplesReadyCallback)
+                .setUseHardwareAcousticEchoCanceler(!key.disableBuiltInAEC)
+                .setUseHardwareNoiseSuppressor(!key.disableBuiltInNS)
+                .setAudioRecordErrorCallback(audioRecordErrorCallback)
+                .setAudioTrackErrorCallback(audioTrackErrorCallback)
+                .setAudioRecordStateCallback(audioRecordStateCallback)
+                .setAudioTrackStateCallback(audioTrackStateCallback)
+                .createAudioDeviceModule();
+    }
+
+    private void reportAudioDeviceError(String errorMessage) {
+        final AudioDeviceListener listener = audioDeviceListener;
+        if (listener != null) {
+            listener.onAudioDeviceError(errorMessage);
+        }
+    }
+
+    private void onAudioSamplesReady(AudioSamples samples) {
+        final AudioDeviceListener listener = audioDeviceListener;
+        if (listener != null) {
+            listener.onWebRtcAudioRecordSamplesReady(samples);
+        }
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser;
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.SyntaxException;
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.Token;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mã hóa và giải mã tin nhắn báo hiệu dùng chung cho WebSocketRTCClient, DirectRTCClient và
+ * SignalingHub.
+ * Encodes and decodes the signaling messages shared by WebSocketRTCClient, DirectRTCClient and
+ * SignalingHub.
+ *
+ * <p>Tin nhắn được ghi thẳng vào một StringBuilder dùng lại, không dựng cây JSONObject. Khi
+ * đọc, phong bì của máy chủ WebSocket và tin nhắn lồng bên trong được giải mã trong cùng một
+ * lượt, vào một Message dùng lại.
+ * Messages are written straight into a reused StringBuilder, without a JSONObject tree. When
+ * reading, the envelope of the WebSocket server and the message nested in it are decoded in the
+ * same pass, into a reused Message.
+ *
+ * <p>Lớp này không an toàn luồng và không phụ thuộc Android để có thể đo trong module
+ * benchmark. Mỗi máy khách dùng một phiên bản riêng trên luồng của nó.
+ * This class is not thread-safe and does not depend on Android so it can be measured in the
+ * benchmark module. Every client uses its own instance on its own thread.
+ */
+public class SignalingCodec {
+    public static final String TYPE_OFFER = "offer";
+    public static final String TYPE_ANSWER = "answer";
+    public static final String TYPE_CANDIDATE = "candidate";
+    public static final String TYPE_CANDIDATES = "candidates";
+    public static final String TYPE_REMOVE_CANDIDATES = "remove-candidates";
+    public static final String TYPE_BYE = "bye";
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Một tin nhắn đã giải mã. Chỉ hợp lệ đến lần giải mã kế tiếp của cùng bộ mã hóa.
+     * One decoded message. Only valid until the next decode call on the same codec.
+     */
+    public static class Message {
+        private String type;
+        private String sdp;
+        private String error;
+        private String room;
+        private boolean initiator;
+        private boolean reply;
+        private long seq;
+        private long ack;
+        private long ts;
+        private int candidateCount;
+        private String[] candidateMids = new String[4];
+        private int[] candidateMLineIndexes = new int[4];
+        private String[] candidateSdps = new String[4];
+
+        /**
+         * Loại tin nhắn, null nếu phong bì WebSocket không chứa tin nhắn nào.
+         * Message type, null if a WebSocket envelope carries no message.
+         */
+        public String getType() {
+            return type;
+        }
+
+        public String getSdp() {
+            return sdp;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public String getRoom() {
+            return room;
+        }
+
+        public boolean isInitiator() {
+            return initiator;
+        }
+
+        public boolean isReply() {
+            return reply;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public long getAck() {
+            return ack;
+        }
+
+        public long getTs() {
+            return ts;
+        }
+
+        /**
+         * Số ứng viên; 1 cho tin nhắn "candidate".
+         * Number of candidates; 1 for a "candidate" message.
+         */
+        public int getCandidateCount() {
+            return candidateCount;
+        }
+
+        public String getCandidateMid(int i) {
+            return candidateMids[i];
+        }
+
+        public int getCandidateMLineIndex(int i) {
+            return candidateMLineIndexes[i];
+        }
+
+        public String getCandidateSdp(int i) {
+            return candidateSdps[i];
+        }
+
+        private void reset() {
+            type = null;
+            sdp = null;
+            error = null;
+            room = null;
+            initiator = false;
+            reply = false;
+            seq = 0;
+            ack = 0;
+            ts = 0;
+            Arrays.fill(candidateMids, 0, candidateCount, null);
+            Arrays.fill(candidateSdps, 0, candidateCount, null);
+            candidateCount = 0;
+        }
+
+        private void addCandidate(String sdpMid, int sdpMLineIndex, String sdp) {
+            if (candidateCount == candidateMids.length) {
+                final int capacity = candidateCount * 2;
+                candidateMids = Arrays.copyOf(candidateMids, capacity);
+                candidateMLineIndexes = Arrays.copyOf(candidateMLineIndexes, capacity);
+                candidateSdps = Arrays.copyOf(candidateSdps, capacity);
+            }
+            candidateMids[candidateCount] = sdpMid;
+            candidateMLineIndexes[candidateCount] = sdpMLineIndex;
+            candidateSdps[candidateCount] = sdp;
+            candidateCount++;
+        }
+    }
+
+    private final StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+    private final Message message = new Message();
+    private boolean firstCandidate;
+
+    /**
+     * {"type":|type|,"sdp":|sdp|} cho offer và answer.
+     * {"type":|type|,"sdp":|sdp|} for offers and answers.
+     */
+    public String encodeSdp(String type, String sdp) {
+        beginMessage(type);
+        appendField("sdp", sdp);
+        return endMessage();
+    }
+
+    /**
+     * Một |sdpMid| null bị bỏ qua, như JSONObject.put() đã làm.
+     * A null |sdpMid| is left out, as JSONObject.put() did.
+     */
+    public String encodeCandidate(String sdpMid, int sdpMLineIndex, String sdp) {
+        beginMessage(TYPE_CANDIDATE);
+        appendName("label");
+        builder.append(sdpMLineIndex);
+        appendField("id", sdpMid);
+        appendField("candidate", sdp);
+        return endMessage();
+    }
+
+    /**
+     * Bắt đầu tin nhắn "candidates" hoặc "remove-candidates"; thêm ứng viên bằng
+     * appendCandidate() rồi gọi endCandidates().
+     * Starts a "candidates" or "remove-candidates" message; add the candidates with
+     * appendCandidate(), then call endCandidates().
+     */
+    public void beginCandidates(String type) {
+        beginMessage(type);
+        appendName("candidates");
+        builder.append('[');
+        firstCandidate = true;
+    }
+
+    public void appendCandidate(String sdpMid, int sdpMLineIndex, String sdp) {
+        if (!firstCandidate) {
+            builder.append(',');
+        }
+        firstCandidate = false;
+        builder.append("{\"label\":").append(sdpMLineIndex);
+        appendField("id", sdpMid);
+        appendField("candidate", sdp);
+        builder.append('}');
+    }
+
+    public String endCandidates() {
+        builder.append(']');
+        return endMessage();
+    }
+
+    /**
+     * Tin nhắn chỉ có loại, ví dụ "bye".
+     * A message with only a type, e.g. "bye".
+     */
+    public String encodeType(String type) {
+        beginMessage(type);
+        return endMessage();
+    }
+
+    public String encodeType(String type, String name, String value) {
+        beginMessage(type);
+        appendField(name, value);
+        return endMessage();
+    }
+
+    public String encodeType(String type, String name, boolean value) {
+        beginMessage(type);
+        appendName(name);
+        builder.append(value);
+        return endMessage();
+    }
+
+    /**
+     * Lệnh đăng ký với máy chủ WebSocket.
+     * Register command for the WebSocket server.
+     */
+    public String encodeRegister(String roomId, String clientId) {
+        builder.setLength(0);
+        builder.append("{\"cmd\":\"register\",\"roomid\":");
+        appendString(builder, roomId);
+        builder.append(",\"clientid\":");
+        appendString(builder, clientId);
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Lệnh gửi |message| qua máy chủ WebSocket; |message| được lồng dưới dạng chuỗi JSON.
+     * Send command carrying |message| through the WebSocket server; |message| is nested as a
+     * JSON string.
+     */
+    public String encodeSendCommand(String message) {
+        builder.setLength(0);
+        builder.append("{\"cmd\":\"send\",\"msg\":");
+        appendString(builder, message);
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Giải mã một tin nhắn báo hiệu. Ném SyntaxException nếu JSON sai hoặc thiếu trường
+     * bắt buộc của offer, answer hay ứng viên.
+     * Decodes one signaling message. Throws SyntaxException on malformed JSON or when an offer,
+     * answer or candidate misses a required field.
+     */
+    public Message decode(String json) throws IOException {
+        message.reset();
+        decodeMessage(new JsonPullParser(json));
+        return message;
+    }
+
+    /**
+     * Giải mã phong bì {"msg":...,"error":...} của máy chủ WebSocket cùng với tin nhắn lồng
+     * trong "msg", trong một lượt.
+     * Decodes the {"msg":...,"error":...} envelope of the WebSocket server together with the
+     * message nested in "msg", in one pass.
+     */
+    public Message decodeEnvelope(String json) throws IOException {
+        message.reset();
+        String envelopeError = null;
+        final JsonPullParser parser = new JsonPullParser(json);
+        parser.beginObject();
+        while (parser.hasNext()) {
+            final String name = parser.nextName();
+            if (parser.peek() == Token.NULL) {
+                parser.nextNull();
+            } else if (name.equals("msg") && parser.peek() == Token.STRING) {
+                final JsonPullParser embedded = parser.nextEmbedded();
+                // "msg" rỗng khi máy chủ chỉ báo lỗi.
+                // "msg" is empty when the server only reports an error.
+                if (embedded.peek() != Token.END_DOCUMENT) {
+                    decodeMessage(embedded);
+                }
+            } else if (name.equals("msg")) {
+                decodeMessage(parser);
+            } else if (name.equals("error")) {
+                envelopeError = parser.nextString();
+            } else {
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+        if (message.type == null) {
+            message.error = envelopeError;
+        }
+        return message;
+    }
+
+    // "type" có thể đứng sau các trường khác, nên tin nhắn chỉ được kiểm tra khi đọc hết.
+    // "type" may follow the other fields, so the message is only checked once fully read.
+    private void decodeMessage(JsonPullParser parser) throws IOException {
+        String id = null;
+        String candidate = null;
+        int label = -1;
+        parser.beginObject();
+        while (parser.hasNext()) {
+            final String name = parser.nextName();
+            if (parser.peek() == Token.NULL) {
+                parser.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "type":
+                    message.type = parser.nextString();
+                    break;
+                case "sdp":
+                    message.sdp = parser.nextString();
+                    break;
+                case "seq":
+                    message.seq = parser.nextLong();
+                    break;
+                case "ack":
+                    message.ack = parser.nextLong();
+                    break;
+                case "ts":
+                    message.ts = parser.nextLong();
+                    break;
+                case "reply":
+                    message.reply = parser.nextBoolean();
+                    break;
+                case "initiator":
+                    message.initiator = parser.nextBoolean();
+                    break;
+                case "error":
+                    message.error = parser.nextString();
+                    break;
+                case "room":
+                    message.room = parser.nextString();
+                    break;
+                case "id":
+                    id = parser.nextString();
+                    break;
+                case "label":
+                    label = parser.nextInt();
+                    break;
+                case "candidate":
+                    candidate = parser.nextString();
+                    break;
+                case "candidates":
+                    decodeCandidates(parser);
+                    break;
+                default:
+                    parser.skipValue();
+                    break;
+            }
+        }
+        parser.endObject();
+
+        if (message.type == null) {
+            throw new SyntaxException("Missing type");
+        }
+        if (TYPE_OFFER.equals(message.type) || TYPE_ANSWER.equals(message.type)) {
+            require(message.sdp, "sdp");
+        } else if (TYPE_CANDIDATE.equals(message.type)) {
+            // "id" (sdpMid) có thể thiếu hoặc null; ứng viên khi đó được khớp theo "label".
+            // "id" (sdpMid) may be missing or null; the candidate is then matched by "label".
+            message.addCandidate(id, label, require(candidate, "candidate"));
+        }
+    }
+
+    private void decodeCandidates(JsonPullParser parser) throws IOException {
+        parser.beginArray();
+        while (parser.hasNext()) {
+            String id = null;
+            String candidate = null;
+            int label = -1;
+            parser.beginObject();
+            while (parser.hasNext()) {
+                final String name = parser.nextName();
+                if (parser.peek() == Token.NULL) {
+                    parser.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        id = parser.nextString();
+                        break;
+                    case "label":
+                        label = parser.nextInt();
+                        break;
+                    case "candidate":
+                        candidate = parser.nextString();
+                        break;
+                    default:
+                        parser.skipValue();
+                        break;
+                }
+            }
+            parser.endObject();
+            message.addCandidate(id, label, require(candidate, "candidate"));
+        }
+        parser.endArray();
+    }
+
+    // "type" được ghi đầu tiên để SignalingSession tìm nó mà không cần phân tích tin nhắn.
+    // "type" is written first so SignalingSession finds it without parsing the message.
+    private void beginMessage(String type) {
+        builder.setLength(0);
+        builder.append("{\"type\":");
+        appendString(builder, type);
+    }
+
+    private void appendName(String name) {
+        builder.append(",\"").append(name).append("\":");
+    }
+
+    // Ghi trường |name| trừ khi |value| là null.
+    // Writes the field |name| unless |value| is null.
+    private void appendField(String name, String value) {
+        if (value != null) {
+            appendName(name);
+            appendString(builder, value);
+        }
+    }
+
+    private String endMessage() {
+        return builder.append('}').toString();
+    }
+
+    // Ghi |value| thành chuỗi JSON, hoặc null; chỉ dấu ngoặc kép, gạch chéo ngược và ký tự
+    // điều khiển được thoát.
+    // Writes |value| as a JSON string, or null; only quotes, backslashes and control characters
+    // are escaped.
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        final int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(value, start, i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                    break;
+            }
+            start = i + 1;
+        }
+        out.append(value, start, length).append('"');
+    }
+
+    private static <T> T require(T value, String name) throws SyntaxException {
+        if (value == null) {
+            throw new SyntaxException("Missing " + name);
+        }
+        return value;
+    }
+}
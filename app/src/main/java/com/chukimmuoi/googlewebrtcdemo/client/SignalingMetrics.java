@@ -0,0 +1,270 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Số liệu của kênh báo hiệu, an toàn luồng: RTT từ ping/pong, độ trễ từ lúc gửi đến lúc được
+ * xác nhận theo loại tin nhắn, lưu lượng và số tin nhắn đang chờ xác nhận.
+ * Thread-safe metrics of the signaling channel: RTT from ping/pong heartbeats, send-to-ack
+ * latency per message type, throughput and the number of messages waiting for an ack. They tell
+ * whether a slow call setup comes from the signaling path or from ICE.
+ */
+public class SignalingMetrics {
+    // Giới hạn số tin nhắn chờ xác nhận được theo dõi.
+    // Bound on the messages tracked for an ack.
+    private static final int MAX_TRACKED = 256;
+    private static final long RATE_WINDOW_MS = 1000;
+
+    // Độ trễ đến khi được xác nhận của một loại tin nhắn.
+    // Time until acknowledged of one message type.
+    private static class AckLatency {
+        long count;
+        long totalMs;
+        long maxMs;
+    }
+
+    private static class Tracked {
+        final long seq;
+        final String type;
+        final long sentMs;
+
+        Tracked(long seq, String type, long sentMs) {
+            this.seq = seq;
+            this.type = type;
+            this.sentMs = sentMs;
+        }
+    }
+
+    private final ArrayDeque<Tracked> tracked = new ArrayDeque<>();
+    // Tắt khi bên kia là bên cũ, không bao giờ xác nhận.
+    // Turned off when the peer is an older one that never acknowledges.
+    private boolean tracking = true;
+    private final Map<String, AckLatency> ackLatencies = new TreeMap<>();
+    private long smoothedRttMs = -1;
+    private long minRttMs = -1;
+    private long lastRttMs = -1;
+    private long pingCount;
+    private long pongCount;
+    private long messagesSent;
+    private long messagesReceived;
+    private long bytesSent;
+    private long bytesReceived;
+    // Cửa sổ tính tốc độ hiện tại và tốc độ của cửa sổ trước.
+    // Current rate window and the rates of the previous one.
+    private long windowStartMs = -1;
+    private long windowBytes;
+    private long windowMessages;
+    private long bytesPerSecond;
+    private long messagesPerSecond;
+
+    /**
+     * Thời gian đơn điệu tính bằng mili giây, dùng cho dấu thời gian của ping.
+     * Monotonic time in milliseconds, used for the ping timestamps.
+     */
+    public static long nowMs() {
+        return System.nanoTime() / 1000000;
+    }
+
+    synchronized void onSent(int bytes) {
+        messagesSent++;
+        bytesSent += bytes;
+        addToWindow(bytes);
+    }
+
+    synchronized void onReceived(int bytes) {
+        messagesReceived++;
+        bytesReceived += bytes;
+        addToWindow(bytes);
+    }
+
+    synchronized void onMessageSent(long seq, String type) {
+        if (!tracking) {
+            return;
+        }
+        tracked.addLast(new Tracked(seq, type, nowMs()));
+        if (tracked.size() > MAX_TRACKED) {
+            tracked.pollFirst();
+        }
+    }
+
+    synchronized void onAcknowledged(long ack) {
+        final long now = nowMs();
+        while (!tracked.isEmpty() && tracked.peekFirst().seq <= ack) {
+            final Tracked message = tracked.pollFirst();
+            AckLatency latency = ackLatencies.get(message.type);
+            if (latency == null) {
+                latency = new AckLatency();
+                ackLatencies.put(message.type, latency);
+            }
+            final long elapsedMs = now - message.sentMs;
+            latency.count++;
+            latency.totalMs += elapsedMs;
+            latency.maxMs = Math.max(latency.maxMs, elapsedMs);
+        }
+    }
+
+    // Các tin nhắn đang chờ sẽ không bao giờ được xác nhận, ví dụ khi phiên kết thúc.
+    // The pending messages will never be acknowledged, e.g. when the session ended.
+    synchronized void onUnackedDropped() {
+        tracked.clear();
+    }
+
+    // Bên kia là bên cũ: không theo dõi tin nhắn chờ xác nhận nữa.
+    // The peer is an older one: stop tracking messages for an ack.
+    synchronized void onPeerWithoutAcks() {
+        tracking = false;
+        tracked.clear();
+    }
+
+    synchronized void onPingSent() {
+        pingCount++;
+    }
+
+    // Ước lượng trơn như TCP: srtt = 7/8 srtt + 1/8 mẫu.
+    // Smoothed like TCP: srtt = 7/8 srtt + 1/8 sample.
+    synchronized void onPong(long rttMs) {
+        pongCount++;
+        lastRttMs = rttMs;
+        minRttMs = minRttMs < 0 ? rttMs : Math.min(minRttMs, rttMs);
+        smoothedRttMs = smoothedRttMs < 0 ? rttMs : (7 * smoothedRttMs + rttMs) / 8;
+    }
+
+    /**
+     * RTT trơn, -1 khi chưa có pong.
+     * Smoothed RTT, -1 until a pong was received.
+     */
+    public synchronized long getRttMs() {
+        return smoothedRttMs;
+    }
+
+    public synchronized long getMinRttMs() {
+        return minRttMs;
+    }
+
+    public synchronized long getLastRttMs() {
+        return lastRttMs;
+    }
+
+    public synchronized long getMessagesSent() {
+        return messagesSent;
+    }
+
+    public synchronized long getMessagesReceived() {
+        return messagesReceived;
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Số byte mỗi giây, cả hai chiều, trong cửa sổ một giây gần nhất.
+     * Bytes per second in both directions over the last one second window.
+     */
+    public synchronized long getBytesPerSecond() {
+        rollWindow(nowMs());
+        return bytesPerSecond;
+    }
+
+    public synchronized long getMessagesPerSecond() {
+        rollWindow(nowMs());
+        return messagesPerSecond;
+    }
+
+    /**
+     * Số tin nhắn đã gửi nhưng chưa được bên kia xác nhận.
+     * Number of messages sent but not acknowledged by the peer yet.
+     */
+    public synchronized int getQueueDepth() {
+        return tracked.size();
+    }
+
+    /**
+     * Độ trễ trung bình từ lúc gửi đến lúc được xác nhận của |type|, -1 nếu chưa có.
+     * Average send-to-ack latency of |type|, -1 if none was acknowledged yet.
+     */
+    public synchronized long getAverageAckMs(String type) {
+        final AckLatency latency = ackLatencies.get(type);
+        return latency == null ? -1 : latency.totalMs / latency.count;
+    }
+
+    private void addToWindow(int bytes) {
+        rollWindow(nowMs());
+        windowBytes += bytes;
+        windowMessages++;
+    }
+
+    private void rollWindow(long now) {
+        if (windowStartMs < 0) {
+            windowStartMs = now;
+            return;
+        }
+        final long elapsedMs = now - windowStartMs;
+        if (elapsedMs < RATE_WINDOW_MS) {
+            return;
+        }
+        // Sau hơn hai cửa sổ không có lưu lượng thì tốc độ là 0.
+        // After more than two windows without traffic the rate is 0.
+        if (elapsedMs < 2 * RATE_WINDOW_MS) {
+            bytesPerSecond = windowBytes * 1000 / elapsedMs;
+            messagesPerSecond = windowMessages * 1000 / elapsedMs;
+        } else {
+            bytesPerSecond = 0;
+            messagesPerSecond = 0;
+        }
+        windowStartMs = now;
+        windowBytes = 0;
+        windowMessages = 0;
+    }
+
+    /**
+     * Một dòng ngắn cho HUD.
+     * One short line for the HUD.
+     */
+    public synchronized String toHudString() {
+        return "Sig RTT: " + smoothedRttMs + "ms (min " + minRttMs + "). "
+                + getMessagesPerSecond() + " msg/s, " + getBytesPerSecond() + " B/s, queue "
+                + tracked.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder builder = new StringBuilder(128)
+                .append("rtt=").append(smoothedRttMs)
+                .append("ms, minRtt=").append(minRttMs)
+                .append("ms, pings=").append(pingCount)
+                .append(", pongs=").append(pongCount)
+                .append(", sent=").append(messagesSent).append('/').append(bytesSent)
+                .append("B, received=").append(messagesReceived).append('/').append(bytesReceived)
+                .append("B, queue=").append(tracked.size())
+                .append(", ack={");
+        boolean first = true;
+        for (Map.Entry<String, AckLatency> entry : ackLatencies.entrySet()) {
+            final AckLatency latency = entry.getValue();
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(entry.getKey()).append('=')
+                    .append(latency.totalMs / latency.count).append("ms avg/")
+                    .append(latency.maxMs).append("ms max x").append(latency.count);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Phiên báo hiệu có thể nối lại: đánh số tin nhắn gửi đi, xác nhận tin nhắn nhận được và gửi
+ * lại các tin nhắn chưa được xác nhận sau khi kênh được nối lại.
+ * Resumable signaling session: numbers outgoing messages, acknowledges received ones and replays
+ * the unacknowledged messages once the channel is reconnected. A transient drop of the signaling
+ * channel then no longer ends a call whose media may still be flowing.
+ *
+ * <p>Mỗi tin nhắn gửi đi mang "seq" và "ack" (số thứ tự lớn nhất đã nhận). Bên cũ bỏ qua hai
+ * trường này. Tin nhắn được giữ lại để gửi lại cho đến khi biết bên kia là bên cũ, để offer
+ * đầu tiên cũng có thể được gửi lại; phiên chỉ được nối lại khi bên kia đã gửi "seq". Sau khi
+ * nối lại, một bên gửi {"type":"resume","ack":...}, bên kia trả lời tương tự với
+ * "reply":true, rồi cả hai gửi lại những gì bên kia chưa nhận.
+ * Every outgoing message carries "seq" and "ack" (highest sequence number received). Older
+ * peers ignore both fields. Messages are kept for replay until the first message of the peer
+ * shows it is an older one, so the first messages, e.g. the offer, can be replayed too; the
+ * session is only resumed once the peer has sent a "seq" itself. After reconnecting one side
+ * sends {"type":"resume","ack":...}, the other answers the same way with "reply":true, then
+ * both replay what the other has not received. Duplicates are dropped on receipt.
+ *
+ * <p>Khi bên kia hỗ trợ, ping {"type":"ping","ts":...} được gửi định kỳ và bên kia trả lời
+ * pong với cùng "ts". RTT, độ trễ xác nhận và lưu lượng được ghi vào SignalingMetrics.
+ * When the peer supports it, {"type":"ping","ts":...} heartbeats are sent periodically and the
+ * peer answers with a pong carrying the same "ts". RTT, ack latency and throughput are recorded
+ * in SignalingMetrics.
+ *
+ * <p>Lớp này không an toàn luồng; chỉ dùng trên luồng của máy khách báo hiệu.
+ * This class is not thread-safe; use it only on the signaling client thread. |scheduler| must
+ * run its tasks on that same thread.
+ */
+public class SignalingSession {
+    public static final int DEFAULT_ACK_DELAY_MS = 200;
+    public static final int DEFAULT_MAX_UNACKED = 256;
+    public static final int DEFAULT_HEARTBEAT_INTERVAL_MS = 5000;
+    private static final long RECONNECT_BASE_DELAY_MS = 250;
+    private static final long RECONNECT_MAX_DELAY_MS = 4000;
+    // Thời gian tối đa để nối lại trước khi kết thúc cuộc gọi.
+    // Longest time to resume before the call is ended.
+    private static final long RESUME_TIMEOUT_MS = 20000;
+
+    /**
+     * Chạy |task| trên luồng của máy khách báo hiệu sau |delayMs|.
+     * Runs |task| on the signaling client thread after |delayMs|.
+     */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+    }
+
+    /**
+     * Kênh báo hiệu bên dưới, được gọi trên luồng của máy khách báo hiệu.
+     * The underlying signaling channel, called on the signaling client thread.
+     */
+    public interface Transport {
+        /**
+         * Ghi |message| lên kênh hiện tại.
+         * Writes |message| to the current channel.
+         */
+        void send(String message);
+
+        /**
+         * Ghi tin nhắn điều khiển |message| ("ack", "ping", "pong", "resume") lên kênh rẻ nhất
+         * tới bên kia; nó không được đánh số và không bao giờ được gửi lại.
+         * Writes the control |message| ("ack", "ping", "pong" or "resume") to the cheapest
+         * channel to the peer, e.g. the WebSocket rather than a POST to the room server. It is
+         * not numbered and never replayed.
+         */
+        void sendControl(String message);
+
+        /**
+         * Mở một kênh mới, rồi báo bằng onChannelOpened() hoặc onChannelLost().
+         * Opens a new channel, then reports with onChannelOpened() or onChannelLost().
+         */
+        void reconnect();
+
+        /**
+         * Không nối lại được trong thời hạn; cuộc gọi nên kết thúc.
+         * Could not resume in time; the call should end.
+         */
+        void onSessionLost();
+    }
+
+    private enum State {CONNECTED, RESUMING, ENDED}
+
+    private static class Outbound {
+        final long seq;
+        final String message;
+
+        Outbound(long seq, String message) {
+            this.seq = seq;
+            this.message = message;
+        }
+    }
+
+    private final int ackDelayMs;
+    private final int maxUnacked;
+    private final Scheduler scheduler;
+    private final Transport transport;
+    private final ArrayDeque<Outbound> unacked = new ArrayDeque<>();
+    private final Random random = new Random();
+    private final Runnable ackTask = this::onAckTimeout;
+    private final Runnable reconnectTask = this::onReconnectTimeout;
+    private final Runnable heartbeatTask = this::onHeartbeatTimeout;
+    private final SignalingMetrics metrics = new SignalingMetrics();
+    private final int heartbeatIntervalMs;
+    private State state = State.CONNECTED;
+    private long lastSentSeq;
+    private long lastReceivedSeq;
+    private boolean peerSupportsResume;
+    // Đã nhận tin nhắn đầu tiên của bên kia, nên biết nó có hỗ trợ nối lại hay không.
+    // The first message of the peer was received, so whether it supports resuming is known.
+    private boolean peerChecked;
+    // Tin nhắn cũ nhất đã bị bỏ vì hàng đợi đầy, không thể nối lại nữa.
+    // The oldest message was dropped because the queue was full, resuming is no longer possible.
+    private boolean overflowed;
+    private boolean ackScheduled;
+    private boolean reconnectScheduled;
+    private int reconnectAttempts;
+    private int resumeEpoch;
+    private int resumeCount;
+    private int replayedCount;
+
+    public SignalingSession(Scheduler scheduler, Transport transport) {
+        this(DEFAULT_ACK_DELAY_MS, DEFAULT_HEARTBEAT_INTERVAL_MS, DEFAULT_MAX_UNACKED, scheduler,
+                transport);
+    }
+
+    /**
+     * |ackDelayMs| là thời gian chờ một tin nhắn gửi đi để mang xác nhận trước khi gửi xác
+     * nhận riêng. |heartbeatIntervalMs| bằng 0 tắt ping.
+     * |ackDelayMs| is how long to wait for an outgoing message to carry the acknowledgement
+     * before sending one on its own. A |heartbeatIntervalMs| of 0 disables the pings.
+     */
+    public SignalingSession(int ackDelayMs, int heartbeatIntervalMs, int maxUnacked,
+                            Scheduler scheduler, Transport transport) {
+        if (ackDelayMs < 0 || heartbeatIntervalMs < 0 || maxUnacked < 1) {
+            throw new IllegalArgumentException("Invalid ack delay " + ackDelayMs
+                    + ", heartbeat interval " + heartbeatIntervalMs + " or queue size " + maxUnacked);
+        }
+        this.ackDelayMs = ackDelayMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.maxUnacked = maxUnacked;
+        this.scheduler = scheduler;
+        this.transport = transport;
+    }
+
+    /**
+     * Gửi |message|, một đối tượng JSON, với số thứ tự. Trong khi nối lại tin nhắn chỉ được
+     * giữ lại và gửi sau khi nối lại xong.
+     * Sends |message|, a JSON object, with a sequence number. While resuming the message is
+     * only kept and sent once the session is resumed.
+     */
+    public void send(String message) {
+        if (state == State.ENDED) {
+            return;
+        }
+        final long seq = ++lastSentSeq;
+        metrics.onMessageSent(seq, messageType(message));
+        if (peerSupportsResume || !peerChecked) {
+            unacked.addLast(new Outbound(seq, message));
+            if (unacked.size() > maxUnacked) {
+                unacked.pollFirst();
+                overflowed = true;
+            }
+        }
+        if (state == State.CONNECTED) {
+            sendRaw(stamp(seq, message));
+        }
+    }
+
+    /**
+     * Xử lý "seq" và "ack" của một tin nhắn nhận được dài |bytes|, 0 nếu không có. Trả về
+     * false nếu tin nhắn là bản trùng đã nhận và phải bị bỏ qua.
+     * Handles "seq" and "ack" of a received message of |bytes|, 0 when absent. Returns false if
+     * the message is a duplicate that was already received and must be ignored.
+     */
+    public boolean onReceive(long seq, long ack, int bytes) {
+        metrics.onReceived(bytes);
+        if (ack > 0) {
+            acknowledge(ack);
+        }
+        if (seq <= 0) {
+            if (!peerChecked && ack <= 0) {
+                // Bên cũ: không giữ tin nhắn để gửi lại nữa.
+                // An older peer: stop keeping messages for replay.
+                peerChecked = true;
+                unacked.clear();
+                overflowed = false;
+                metrics.onPeerWithoutAcks();
+            }
+            return true;
+        }
+        peerChecked = true;
+        if (!peerSupportsResume) {
+            peerSupportsResume = true;
+            if (heartbeatIntervalMs > 0) {
+                scheduler.schedule(heartbeatTask, heartbeatIntervalMs);
+            }
+        }
+        if (seq <= lastReceivedSeq) {
+            return false;
+        }
+        lastReceivedSeq = seq;
+        if (!ackScheduled) {
+            ackScheduled = true;
+            scheduler.schedule(ackTask, ackDelayMs);
+        }
+        return true;
+    }
+
+    /**
+     * Kênh bị mất. Trả về true nếu phiên sẽ được nối lại, false nếu cuộc gọi nên kết thúc như
+     * trước đây. Có thể gọi lại khi một lần nối lại thất bại.
+     * The channel was lost. Returns true if the session will be resumed, false if the call
+     * should end as before. May be called again when a reconnect attempt fails.
+     */
+    public boolean onChannelLost() {
+        if (!enterResuming()) {
+            return false;
+        }
+        if (!reconnectScheduled) {
+            reconnectScheduled = true;
+            scheduler.schedule(reconnectTask, nextReconnectDelayMs());
+        }
+        return true;
+    }
+
+    /**
+     * Bên kia mất kênh của nó nhưng kênh này vẫn mở, ví dụ trên SignalingHub. Phiên chờ bên
+     * kia nối lại mà không tự kết nối lại. Trả về false nếu cuộc gọi nên kết thúc.
+     * The peer lost its channel while this one is still open, e.g. on a SignalingHub. The
+     * session waits for the peer to resume without reconnecting itself. Returns false if the call
+     * should end.
+     */
+    public boolean onPeerLost() {
+        return enterResuming();
+    }
+
+    /**
+     * Một kênh mới đã mở sau onChannelLost(). |initiateResume| là true với bên bắt đầu bắt
+     * tay nối lại, bên kia chờ tin nhắn "resume".
+     * A new channel opened after onChannelLost(). |initiateResume| is true for the side that
+     * starts the resume handshake, the other side waits for the "resume" message.
+     */
+    public void onChannelOpened(boolean initiateResume) {
+        if (state != State.RESUMING) {
+            return;
+        }
+        if (initiateResume) {
+            sendControl(resumeMessage(false));
+        }
+    }
+
+    /**
+     * Xử lý tin nhắn "resume" của bên kia: bỏ những gì bên kia đã nhận và gửi lại phần còn lại.
+     * Handles the "resume" message of the peer: drops what the peer has received and replays
+     * the rest.
+     */
+    public void onResume(long ack, boolean reply) {
+        if (state == State.ENDED) {
+            return;
+        }
+        acknowledge(ack);
+        state = State.CONNECTED;
+        reconnectAttempts = 0;
+        resumeCount++;
+        if (!reply) {
+            sendControl(resumeMessage(true));
+        }
+        for (Outbound outbound : unacked) {
+            sendRaw(stamp(outbound.seq, outbound.message));
+        }
+        replayedCount += unacked.size();
+    }
+
+    /**
+     * Trả lời ping của bên kia với cùng dấu thời gian |ts|.
+     * Answers a ping of the peer with the same timestamp |ts|.
+     */
+    public void onPing(long ts) {
+        if (state == State.CONNECTED) {
+            sendControl("{\"type\":\"pong\",\"ts\":" + ts + "}");
+        }
+    }
+
+    /**
+     * Pong cho một ping đã gửi lúc |ts|.
+     * Pong for a ping sent at |ts|.
+     */
+    public void onPong(long ts) {
+        metrics.onPong(SignalingMetrics.nowMs() - ts);
+    }
+
+    public SignalingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Kết thúc phiên, ví dụ khi gửi hoặc nhận "bye". Không nối lại sau đó.
+     * Ends the session, e.g. when "bye" is sent or received. Nothing is resumed afterwards.
+     */
+    public void end() {
+        state = State.ENDED;
+        unacked.clear();
+        metrics.onUnackedDropped();
+    }
+
+    public boolean isResuming() {
+        return state == State.RESUMING;
+    }
+
+    /**
+     * True nếu bên kia đã cho thấy nó hiểu phiên có thể nối lại.
+     * True if the peer has shown it understands resumable sessions.
+     */
+    public boolean isPeerResumable() {
+        return peerSupportsResume;
+    }
+
+    private boolean enterResuming() {
+        if (state == State.ENDED || !peerSupportsResume || overflowed) {
+            return false;
+        }
+        if (state == State.CONNECTED) {
+            state = State.RESUMING;
+            final int epoch = ++resumeEpoch;
+            scheduler.schedule(() -> onResumeTimeout(epoch), RESUME_TIMEOUT_MS);
+        }
+        return true;
+    }
+
+    private void acknowledge(long ack) {
+        metrics.onAcknowledged(ack);
+        while (!unacked.isEmpty() && unacked.peekFirst().seq <= ack) {
+            unacked.pollFirst();
+        }
+    }
+
+    // Lùi theo cấp số nhân với độ lệch ngẫu nhiên để các bên không nối lại cùng lúc.
+    // Exponential backoff with random jitter so the peers do not reconnect in lockstep.
+    private long nextReconnectDelayMs() {
+        final long delay = Math.min(RECONNECT_MAX_DELAY_MS,
+                RECONNECT_BASE_DELAY_MS << Math.min(reconnectAttempts, 8));
+        reconnectAttempts++;
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    private void onReconnectTimeout() {
+        reconnectScheduled = false;
+        if (state == State.RESUMING) {
+            transport.reconnect();
+        }
+    }
+
+    private void onResumeTimeout(int epoch) {
+        if (state == State.RESUMING && epoch == resumeEpoch) {
+            state = State.ENDED;
+            unacked.clear();
+            metrics.onUnackedDropped();
+            transport.onSessionLost();
+        }
+    }
+
+    private void onHeartbeatTimeout() {
+        if (state == State.ENDED) {
+            return;
+        }
+        if (state == State.CONNECTED) {
+            metrics.onPingSent();
+            sendControl("{\"type\":\"ping\",\"ts\":" + SignalingMetrics.nowMs() + "}");
+        }
+        scheduler.schedule(heartbeatTask, heartbeatIntervalMs);
+    }
+
+    private void sendRaw(String message) {
+        metrics.onSent(message.length());
+        transport.send(message);
+    }
+
+    private void sendControl(String message) {
+        metrics.onSent(message.length());
+        transport.sendControl(message);
+    }
+
+    // Giá trị "type" của đối tượng JSON |message|, không phân tích toàn bộ tin nhắn.
+    // The "type" value of the JSON object |message|, without parsing the whole message.
+    private static String messageType(String message) {
+        final int start = message.indexOf("\"type\":\"");
+        if (start < 0) {
+            return "unknown";
+        }
+        final int valueStart = start + 8;
+        final int end = message.indexOf('"', valueStart);
+        return end < 0 ? "unknown" : message.substring(valueStart, end);
+    }
+
+    // Gửi xác nhận riêng nếu không có tin nhắn gửi đi nào mang nó trong |ackDelayMs|.
+    // Sends a standalone acknowledgement if no outgoing message carried it within |ackDelayMs|.
+    private void onAckTimeout() {
+        if (ackScheduled && state == State.CONNECTED) {
+            sendControl("{\"type\":\"ack\",\"ack\":" + lastReceivedSeq + "}");
+        }
+        ackScheduled = false;
+    }
+
+    // Thêm "seq" và "ack" vào đầu đối tượng JSON |message|.
+    // Adds "seq" and "ack" at the start of the JSON object |message|.
+    private String stamp(long seq, String message) {
+        if (!message.startsWith("{")) {
+            throw new IllegalArgumentException("Not a JSON object: " + message);
+        }
+        ackScheduled = false;
+        final StringBuilder builder = new StringBuilder(message.length() + 32)
+                .append("{\"seq\":").append(seq)
+                .append(",\"ack\":").append(lastReceivedSeq);
+        if (message.length() > 1 && message.charAt(1) != '}') {
+            builder.append(',');
+        }
+        return builder.append(message, 1, message.length()).toString();
+    }
+
+    private String resumeMessage(boolean reply) {
+        return "{\"type\":\"resume\",\"ack\":" + lastReceivedSeq + ",\"reply\":" + reply + "}";
+    }
+
+    @Override
+    public String toString() {
+        return "SignalingSession{state=" + state
+                + ", sent=" + lastSentSeq
+                + ", received=" + lastReceivedSeq
+                + ", unacked=" + unacked.size()
+                + ", resumes=" + resumeCount
+                + ", replayed=" + replayedCount + "}";
+    }
+}
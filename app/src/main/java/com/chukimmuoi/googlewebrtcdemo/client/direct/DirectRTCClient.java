@@ -14,16 +14,25 @@ import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient;
-
+import com.chukimmuoi.googlewebrtcdemo.client.CallSetup;
+import com.chukimmuoi.googlewebrtcdemo.client.IceCandidateBatcher;
+import com.chukimmuoi.googlewebrtcdemo.client.IceCandidates;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingMetrics;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingSession;
+import com.chukimmuoi.googlewebrtcdemo.util.executor.SessionExecutors;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.webrtc.IceCandidate;
 import org.webrtc.SessionDescription;
 
@@ -34,6 +43,16 @@ import org.webrtc.SessionDescription;
  * Implementation of AppRTCClient that uses direct TCP connection as the signaling channel.
  * This eliminates the need for an external server. This class does not support loopback
  * connections.
+ * <p>
+ * Với id phòng dạng "ip[:port]/phòng", máy khách vào phòng trên một SignalingHub; nếu ip là
+ * địa chỉ bất kỳ, thiết bị này tự chạy hub và kết nối tới nó.
+ * With a room id of the form "ip[:port]/room", the client joins the room on a SignalingHub; if
+ * ip is the any address, this device runs the hub itself and connects to it.
+ * <p>
+ * Khi kết nối TCP bị mất, máy khách kết nối lại và nối lại SignalingSession; cuộc gọi chỉ kết
+ * thúc khi nhận "bye" hoặc không nối lại được.
+ * When the TCP connection drops, the client reconnects and resumes its SignalingSession; the
+ * call only ends on "bye" or when resuming fails.
  */
 public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChannelEvents {
     private static final String TAG = "DirectRTCClient";
@@ -57,11 +76,30 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
             // Optional port number
             + "(:(\\d+))?");
 
+    // Mẫu Regex cho id phòng trên hub: điểm cuối khớp IP_PATTERN, rồi "/" và tên phòng.
+    // Regex pattern for room ids on a hub: an endpoint matching IP_PATTERN, "/" and the room name.
+    private static final Pattern HUB_ROOM_PATTERN = Pattern.compile("(.+)/([A-Za-z0-9_-]{1,64})");
+
     private final ExecutorService executor;
     private final SignalingEvents events;
+    private final IceCandidateBatcher candidateBatcher;
+    private final boolean binaryFraming;
+    private final SignalingSession session;
+    // Chỉ dùng trên chủ đề looper.
+    // Only used on the looper thread.
+    private final SignalingCodec codec = new SignalingCodec();
     @Nullable
     private TCPChannelClient tcpClient;
+    // Sự kiện của các kênh cũ hơn kênh hiện tại bị bỏ qua.
+    // Events of channels older than the current one are ignored.
+    private int channelGeneration;
+    private String channelIp;
+    private int channelPort;
     private RoomConnectionParameters connectionParameters;
+    // Tên phòng trên hub, hoặc null khi kết nối trực tiếp tới một bên.
+    // Room name on the hub, or null when connecting directly to one peer.
+    @Nullable
+    private String hubRoom;
 
     private enum ConnectionState {NEW, CONNECTED, CLOSED, ERROR}
 
@@ -70,17 +108,55 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
     private ConnectionState roomState;
 
     public DirectRTCClient(SignalingEvents events) {
+        this(events, IceCandidateBatcher.DEFAULT_WINDOW_MS);
+    }
+
+    /**
+     * |candidateBatchWindowMs| là cửa sổ gom ứng viên ICE cục bộ; 0 gửi từng ứng viên riêng.
+     * |candidateBatchWindowMs| is the window used to batch local ICE candidates; 0 sends every
+     * candidate in its own message.
+     */
+    public DirectRTCClient(SignalingEvents events, int candidateBatchWindowMs) {
+        this(events, candidateBatchWindowMs, false /* binaryFraming */);
+    }
+
+    /**
+     * |binaryFraming| cho phép thỏa thuận khung nhị phân với bên kia; chỉ bật khi biết bên kia
+     * là phiên bản này, vì bên cũ từ chối dòng thỏa thuận. Trên hub khung nhị phân luôn được
+     * thỏa thuận vì hub luôn hiểu nó.
+     * |binaryFraming| allows negotiating binary framing with the peer. Only enable it when the
+     * peer is known to run this version, since older listeners reject the negotiation line and
+     * the call fails. Binary framing is always negotiated with a SignalingHub, which understands
+     * it.
+     */
+    public DirectRTCClient(
+            SignalingEvents events, int candidateBatchWindowMs, boolean binaryFraming) {
         this.events = events;
+        this.binaryFraming = binaryFraming;
 
         executor = Executors.newSingleThreadExecutor();
         roomState = ConnectionState.NEW;
+        candidateBatcher = new IceCandidateBatcher(candidateBatchWindowMs,
+                IceCandidateBatcher.DEFAULT_MAX_BATCH_SIZE, this::scheduleOnExecutor,
+                this::sendLocalIceCandidatesInternal);
+        session = new SignalingSession(this::scheduleOnExecutor, new SessionTransport());
+    }
+
+    /**
+     * True nếu |roomId| là một địa chỉ IP, có thể kèm một phòng trên hub.
+     * True if |roomId| is an IP address, optionally followed by a room on a hub.
+     */
+    public static boolean isDirectRoomId(String roomId) {
+        final Matcher hubMatcher = HUB_ROOM_PATTERN.matcher(roomId);
+        final String endpoint = hubMatcher.matches() ? hubMatcher.group(1) : roomId;
+        return IP_PATTERN.matcher(endpoint).matches();
     }
 
     /**
      * Kết nối với phòng, roomId trong các kết nối được yêu cầu. roomId phải là hợp lệ
-     * Địa chỉ IP khớp với IP_PATTERN.
+     * Địa chỉ IP khớp với IP_PATTERN, có thể kèm "/phòng".
      * Connects to the room, roomId in connectionsParameters is required. roomId must be a valid
-     * IP address matching IP_PATTERN.
+     * IP address matching IP_PATTERN, optionally followed by "/room".
      */
     @Override
     public void connectToRoom(RoomConnectionParameters connectionParameters) {
@@ -121,6 +197,13 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
 
         String endpoint = connectionParameters.roomId;
 
+        hubRoom = null;
+        Matcher hubMatcher = HUB_ROOM_PATTERN.matcher(endpoint);
+        if (hubMatcher.matches()) {
+            endpoint = hubMatcher.group(1);
+            hubRoom = hubMatcher.group(2);
+        }
+
         Matcher matcher = IP_PATTERN.matcher(endpoint);
         if (!matcher.matches()) {
             reportError("roomId must match IP_PATTERN for DirectRTCClient.");
@@ -142,7 +225,30 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
             port = DEFAULT_PORT;
         }
 
-        tcpClient = new TCPChannelClient(executor, this, ip, port);
+        if (hubRoom != null) {
+            InetAddress address;
+            try {
+                address = InetAddress.getByName(ip);
+            } catch (UnknownHostException e) {
+                reportError("Invalid IP address.");
+                return;
+            }
+            // Địa chỉ bất kỳ: thiết bị này là hub.
+            // Any address: this device is the hub.
+            if (address.isAnyLocalAddress()) {
+                SignalingHub.getInstance().start(address, port);
+                ip = address instanceof Inet6Address ? "::1" : "127.0.0.1";
+            }
+        }
+
+        channelIp = ip;
+        channelPort = port;
+        openChannel();
+    }
+
+    private void openChannel() {
+        tcpClient = new TCPChannelClient(executor, new ChannelEvents(++channelGeneration),
+                channelIp, channelPort, binaryFraming || hubRoom != null);
     }
 
     /**
@@ -154,7 +260,16 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
      * Runs on the looper thread.
      */
     private void disconnectFromRoomInternal() {
+        // Báo bên kia kết thúc cuộc gọi; bên cũ không hiểu "bye" nên chỉ gửi cho bên mới.
+        // Tell the peer the call is over; older peers do not understand "bye", so it is only
+        // sent to peers that resume sessions.
+        if (roomState == ConnectionState.CONNECTED && tcpClient != null
+                && session.isPeerResumable()) {
+            tcpClient.send(codec.encodeType(SignalingCodec.TYPE_BYE));
+        }
+        session.end();
         roomState = ConnectionState.CLOSED;
+        candidateBatcher.clear();
 
         if (tcpClient != null) {
             tcpClient.disconnect();
@@ -172,10 +287,7 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
                     reportError("Sending offer SDP in non connected state.");
                     return;
                 }
-                JSONObject json = new JSONObject();
-                jsonPut(json, "sdp", sdp.description);
-                jsonPut(json, "type", "offer");
-                sendMessage(json.toString());
+                sendMessage(codec.encodeSdp(SignalingCodec.TYPE_OFFER, sdp.description));
             }
         });
     }
@@ -185,10 +297,7 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
         executor.execute(new Runnable() {
             @Override
             public void run() {
-                JSONObject json = new JSONObject();
-                jsonPut(json, "sdp", sdp.description);
-                jsonPut(json, "type", "answer");
-                sendMessage(json.toString());
+                sendMessage(codec.encodeSdp(SignalingCodec.TYPE_ANSWER, sdp.description));
             }
         });
     }
@@ -198,21 +307,36 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
         executor.execute(new Runnable() {
             @Override
             public void run() {
-                JSONObject json = new JSONObject();
-                jsonPut(json, "type", "candidate");
-                jsonPut(json, "label", candidate.sdpMLineIndex);
-                jsonPut(json, "id", candidate.sdpMid);
-                jsonPut(json, "candidate", candidate.sdp);
-
-                if (roomState != ConnectionState.CONNECTED) {
-                    reportError("Sending ICE candidate in non connected state.");
-                    return;
-                }
-                sendMessage(json.toString());
+                candidateBatcher.add(candidate);
             }
         });
     }
 
+    /**
+     * Gửi một lô ứng viên Ice. Tin nhắn "candidates" chỉ được gửi cho bên mới; bên cũ nhận
+     * từng ứng viên dưới dạng tin nhắn "candidate" cũ.
+     * Sends a batch of Ice candidates. The "candidates" message is only sent once the peer has
+     * shown it runs a newer version; older peers get every candidate as the old "candidate"
+     * message, back to back.
+     * <p>
+     * Chạy trên chủ đề looper.
+     * Runs on the looper thread.
+     */
+    private void sendLocalIceCandidatesInternal(final IceCandidate[] candidates) {
+        if (roomState != ConnectionState.CONNECTED) {
+            reportError("Sending ICE candidate in non connected state.");
+            return;
+        }
+        if (candidates.length > 1 && session.isPeerResumable()) {
+            sendMessage(IceCandidates.encodeCandidates(
+                    codec, SignalingCodec.TYPE_CANDIDATES, candidates));
+            return;
+        }
+        for (IceCandidate candidate : candidates) {
+            sendMessage(IceCandidates.encodeCandidate(codec, candidate));
+        }
+    }
+
     /**
      * Gửi các ứng cử viên Ice đã loại bỏ cho người tham gia khác.
      * Send removed Ice candidates to the other participant.
@@ -222,71 +346,123 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
         executor.execute(new Runnable() {
             @Override
             public void run() {
-                JSONObject json = new JSONObject();
-                jsonPut(json, "type", "remove-candidates");
-                JSONArray jsonArray = new JSONArray();
-                for (final IceCandidate candidate : candidates) {
-                    jsonArray.put(toJsonCandidate(candidate));
-                }
-                jsonPut(json, "candidates", jsonArray);
-
+                // Gửi các ứng viên đang chờ trước để bên kia không nhận lệnh xóa trước lệnh thêm.
+                // Send pending candidates first so the removal never overtakes the addition.
+                candidateBatcher.flush();
                 if (roomState != ConnectionState.CONNECTED) {
                     reportError("Sending ICE candidate removals in non connected state.");
                     return;
                 }
-                sendMessage(json.toString());
+                sendMessage(IceCandidates.encodeCandidates(
+                        codec, SignalingCodec.TYPE_REMOVE_CANDIDATES, candidates));
             }
         });
     }
 
+    @Override
+    public SignalingMetrics getSignalingMetrics() {
+        return session.getMetrics();
+    }
+
     // -------------------------------------------------------------------
     // TCPChannelClient event handlers
 
     /**
-     * Nếu máy khách là phía máy chủ, điều này sẽ kích hoạt onConnectedToRoom.
-     * If the client is the server side, this will trigger onConnectedToRoom.
+     * Nếu máy khách là phía máy chủ, điều này sẽ kích hoạt onConnectedToRoom. Trên hub, máy
+     * khách vào phòng trước.
+     * If the client is the server side, this will trigger onConnectedToRoom. On a hub, the client
+     * joins the room first.
      */
     @Override
     public void onTCPConnected(boolean isServer) {
+        if (hubRoom != null) {
+            tcpClient.send(SignalingHub.joinMessage(codec, hubRoom));
+            return;
+        }
+        if (session.isResuming()) {
+            // Bên kết nối bắt đầu nối lại, bên nghe chờ.
+            // The connecting side starts the resume, the listening side waits.
+            session.onChannelOpened(!isServer);
+            return;
+        }
+        events.onSignalingStageCompleted(CallSetup.Stage.JOIN);
         if (isServer) {
-            roomState = ConnectionState.CONNECTED;
-
-            SignalingParameters parameters = new SignalingParameters(
-                    // Máy chủ ICE không cần thiết cho các kết nối trực tiếp.
-                    // Ice servers are not needed for direct connections.
-                    new ArrayList<>(),
-                    isServer, // Server side acts as the initiator on direct connections.
-                    null, // clientId
-                    null, // wssUrl
-                    null, // wwsPostUrl
-                    null, // offerSdp
-                    null // iceCandidates
-            );
-            events.onConnectedToRoom(parameters);
+            // Server side acts as the initiator on direct connections.
+            connectedAsInitiator();
         }
     }
 
+    private void connectedAsInitiator() {
+        roomState = ConnectionState.CONNECTED;
+
+        SignalingParameters parameters = new SignalingParameters(
+                // Máy chủ ICE không cần thiết cho các kết nối trực tiếp.
+                // Ice servers are not needed for direct connections.
+                new ArrayList<>(),
+                true, // initiator
+                null, // clientId
+                null, // wssUrl
+                null, // wwsPostUrl
+                null, // offerSdp
+                null // iceCandidates
+        );
+        events.onConnectedToRoom(parameters);
+    }
+
     @Override
     public void onTCPMessage(String msg) {
+        final SignalingCodec.Message message;
         try {
-            JSONObject json = new JSONObject(msg);
-            String type = json.optString("type");
-            if (type.equals("candidate")) {
-                events.onRemoteIceCandidate(toJavaCandidate(json));
-            } else if (type.equals("remove-candidates")) {
-                JSONArray candidateArray = json.getJSONArray("candidates");
-                IceCandidate[] candidates = new IceCandidate[candidateArray.length()];
-                for (int i = 0; i < candidateArray.length(); ++i) {
-                    candidates[i] = toJavaCandidate(candidateArray.getJSONObject(i));
-                }
-                events.onRemoteIceCandidatesRemoved(candidates);
-            } else if (type.equals("answer")) {
+            message = codec.decode(msg);
+        } catch (IOException e) {
+            reportError("TCP message JSON parsing error: " + e.toString());
+            return;
+        }
+        // Tin nhắn của hub không đến từ bên kia nên không đi qua phiên: chúng không có "seq" và
+        // không cho biết bên kia có hỗ trợ nối lại hay không.
+        // Hub messages do not come from the peer, so they bypass the session: they carry no
+        // "seq" and say nothing about whether the peer can resume.
+        if (onHubMessage(message)) {
+            return;
+        }
+        if (!session.onReceive(message.getSeq(), message.getAck(), msg.length())) {
+            Log.d(TAG, "Dropping duplicate TCP message");
+            return;
+        }
+        final String type = message.getType();
+        switch (type) {
+            case "ack":
+                // Đã được xử lý bởi phiên.
+                // Already handled by the session.
+                break;
+            case "ping":
+                session.onPing(message.getTs());
+                break;
+            case "pong":
+                session.onPong(message.getTs());
+                break;
+            case "resume":
+                session.onResume(message.getAck(), message.isReply());
+                Log.d(TAG, "Signaling resumed: " + session);
+                break;
+            case SignalingCodec.TYPE_CANDIDATE:
+                events.onRemoteIceCandidate(IceCandidates.fromMessage(message)[0]);
+                break;
+            case SignalingCodec.TYPE_CANDIDATES:
+                events.onRemoteIceCandidates(IceCandidates.fromMessage(message));
+                break;
+            case SignalingCodec.TYPE_REMOVE_CANDIDATES:
+                events.onRemoteIceCandidatesRemoved(IceCandidates.fromMessage(message));
+                break;
+            case SignalingCodec.TYPE_ANSWER: {
                 SessionDescription sdp = new SessionDescription(
-                        SessionDescription.Type.fromCanonicalForm(type), json.getString("sdp"));
+                        SessionDescription.Type.fromCanonicalForm(type), message.getSdp());
                 events.onRemoteDescription(sdp);
-            } else if (type.equals("offer")) {
+                break;
+            }
+            case SignalingCodec.TYPE_OFFER: {
                 SessionDescription sdp = new SessionDescription(
-                        SessionDescription.Type.fromCanonicalForm(type), json.getString("sdp"));
+                        SessionDescription.Type.fromCanonicalForm(type), message.getSdp());
 
                 SignalingParameters parameters = new SignalingParameters(
                         // Máy chủ ICE không cần thiết cho các kết nối trực tiếp.
@@ -301,21 +477,70 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
                 );
                 roomState = ConnectionState.CONNECTED;
                 events.onConnectedToRoom(parameters);
-            } else {
-                reportError("Unexpected TCP message: " + msg);
+                break;
             }
-        } catch (JSONException e) {
-            reportError("TCP message JSON parsing error: " + e.toString());
+            case SignalingCodec.TYPE_BYE:
+                Log.d(TAG, "Remote end hung up; dropping PeerConnection");
+                session.end();
+                events.onChannelClose();
+                break;
+            default:
+                reportError("Unexpected TCP message: " + msg);
+                break;
+        }
+    }
+
+    // Xử lý |message| nếu nó đến từ SignalingHub; trả về false với tin nhắn của bên kia.
+    // Handles |message| if it comes from the SignalingHub; returns false for peer messages.
+    private boolean onHubMessage(SignalingCodec.Message message) {
+        final String type = message.getType();
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+            case SignalingHub.TYPE_JOINED:
+                if (session.isResuming()) {
+                    // Khi nối lại, bên vào sau bắt đầu bắt tay nối lại.
+                    // When resuming, the peer joining second starts the resume handshake.
+                    session.onChannelOpened(message.isInitiator());
+                    break;
+                }
+                // Bên vào sau là bên khởi tạo; bên kia chờ offer.
+                // The peer joining second is the initiator; the other one waits for the offer.
+                events.onSignalingStageCompleted(CallSetup.Stage.JOIN);
+                if (message.isInitiator()) {
+                    connectedAsInitiator();
+                }
+                break;
+            case SignalingHub.TYPE_ERROR:
+                reportError("Signaling hub error: " + message.getError());
+                break;
+            case SignalingHub.TYPE_PEER_LEFT:
+                if (!session.onPeerLost()) {
+                    events.onChannelClose();
+                }
+                break;
+            default:
+                return false;
         }
+        return true;
     }
 
     @Override
     public void onTCPError(String description) {
+        if (roomState == ConnectionState.CONNECTED && session.onChannelLost()) {
+            Log.w(TAG, "TCP connection error, reconnecting: " + description);
+            return;
+        }
         reportError("TCP connection error: " + description);
     }
 
     @Override
     public void onTCPClose() {
+        if (roomState == ConnectionState.CONNECTED && session.onChannelLost()) {
+            Log.w(TAG, "TCP connection closed, reconnecting: " + session);
+            return;
+        }
         events.onChannelClose();
     }
 
@@ -334,38 +559,101 @@ public class DirectRTCClient implements AppRTCClient, TCPChannelClient.TCPChanne
         });
     }
 
+    // Chạy |task| trên chủ đề looper sau |delayMs|, dùng bộ hẹn giờ dùng chung.
+    // Runs |task| on the looper thread after |delayMs|, using the shared timer.
+    private void scheduleOnExecutor(final Runnable task, long delayMs) {
+        SessionExecutors.timer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!executor.isShutdown()) {
+                    executor.execute(task);
+                }
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
     private void sendMessage(final String message) {
         executor.execute(new Runnable() {
             @Override
             public void run() {
-                tcpClient.send(message);
+                session.send(message);
             }
         });
     }
 
-    // Put a |key|->|value| mapping in |json|.
-    private static void jsonPut(JSONObject json, String key, Object value) {
-        try {
-            json.put(key, value);
-        } catch (JSONException e) {
-            throw new RuntimeException(e);
+    /**
+     * Kênh TCP của phiên báo hiệu, trên chủ đề looper.
+     * TCP channel of the signaling session, on the looper thread.
+     */
+    private class SessionTransport implements SignalingSession.Transport {
+        @Override
+        public void send(String message) {
+            if (tcpClient != null) {
+                tcpClient.send(message);
+            }
+        }
+
+        @Override
+        public void sendControl(String message) {
+            send(message);
+        }
+
+        @Override
+        public void reconnect() {
+            if (roomState != ConnectionState.CONNECTED) {
+                return;
+            }
+            Log.d(TAG, "Reconnecting to " + channelIp + ":" + channelPort);
+            if (tcpClient != null) {
+                tcpClient.disconnect();
+            }
+            openChannel();
         }
-    }
 
-    // Chuyển đổi một ứng cử viên Java thành JSONObject.
-    // Converts a Java candidate to a JSONObject.
-    private static JSONObject toJsonCandidate(final IceCandidate candidate) {
-        JSONObject json = new JSONObject();
-        jsonPut(json, "label", candidate.sdpMLineIndex);
-        jsonPut(json, "id", candidate.sdpMid);
-        jsonPut(json, "candidate", candidate.sdp);
-        return json;
+        @Override
+        public void onSessionLost() {
+            Log.w(TAG, "Could not resume signaling: " + session);
+            events.onChannelClose();
+        }
     }
 
-    // Chuyển đổi một ứng cử viên JSON thành một đối tượng Java.
-    // Converts a JSON candidate to a Java object.
-    private static IceCandidate toJavaCandidate(JSONObject json) throws JSONException {
-        return new IceCandidate(
-                json.getString("id"), json.getInt("label"), json.getString("candidate"));
+    /**
+     * Chuyển sự kiện của một kênh TCP, bỏ qua nếu kênh đã được thay thế.
+     * Forwards the events of one TCP channel, ignoring them once the channel was replaced.
+     */
+    private class ChannelEvents implements TCPChannelClient.TCPChannelEvents {
+        private final int generation;
+
+        ChannelEvents(int generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public void onTCPConnected(boolean server) {
+            if (generation == channelGeneration) {
+                DirectRTCClient.this.onTCPConnected(server);
+            }
+        }
+
+        @Override
+        public void onTCPMessage(String message) {
+            if (generation == channelGeneration) {
+                DirectRTCClient.this.onTCPMessage(message);
+            }
+        }
+
+        @Override
+        public void onTCPError(String description) {
+            if (generation == channelGeneration) {
+                DirectRTCClient.this.onTCPError(description);
+            }
+        }
+
+        @Override
+        public void onTCPClose() {
+            if (generation == channelGeneration) {
+                DirectRTCClient.this.onTCPClose();
+            }
+        }
     }
 }
@@ -0,0 +1,309 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.direct;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.chukimmuoi.googlewebrtcdemo.util.executor.SessionExecutors;
+
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.json.JSONObject;
+
+/**
+ * Máy chủ báo hiệu trong mạng LAN: nhận nhiều bên cùng lúc trên một cổng, ghép từng cặp theo
+ * tên phòng và chuyển offer/answer/ứng viên giữa hai bên của cặp.
+ * LAN signaling hub: accepts many peers at once on one port, pairs them by room name and routes
+ * offer/answer/candidate messages between the two peers of each pair. This lets DirectRTCClient
+ * place calls without an external room server.
+ *
+ * <p>Giao thức, sau dòng thỏa thuận khung tùy chọn của TCPChannelClient:
+ * Protocol, after the optional framing line of TCPChannelClient:
+ * <ul>
+ * <li>{"type":"hub-join","room":...} từ bên kết nối / from the peer.</li>
+ * <li>{"type":"hub-joined","initiator":...} khi vào phòng. Bên thứ hai là bên khởi tạo.
+ * On join. The second peer of a room is the initiator.</li>
+ * <li>{"type":"hub-error","error":...} rồi đóng kết nối / then the connection is closed.</li>
+ * <li>{"type":"hub-peer-left"} khi kết nối của bên kia bị đóng. Bên còn lại chờ trong phòng
+ * để bên kia nối lại. When the connection of the other peer closes. The remaining peer waits
+ * in the room so the other one can rejoin and resume.</li>
+ * </ul>
+ * Mọi tin nhắn khác được chuyển nguyên vẹn cho bên kia.
+ * Every other message is forwarded verbatim to the other peer.
+ *
+ * <p>Trạng thái của các bên chỉ được dùng trên một làn tuần tự riêng.
+ * Peer state is only used on a dedicated ordered lane.
+ */
+public class SignalingHub {
+    private static final String TAG = "SignalingHub";
+    public static final int DEFAULT_MAX_PEERS = 64;
+
+    static final String TYPE_JOIN = "hub-join";
+    static final String TYPE_JOINED = "hub-joined";
+    static final String TYPE_ERROR = "hub-error";
+    static final String TYPE_PEER_LEFT = "hub-peer-left";
+    private static final String ERROR_FULL = "FULL";
+    private static final String ERROR_NOT_JOINED = "NOT_JOINED";
+
+    private static class InstanceHolder {
+        static final SignalingHub INSTANCE = new SignalingHub();
+    }
+
+    // Trạng thái của một bên đã kết nối.
+    // State of one connected peer.
+    private static class Peer {
+        final TCPSelectorEngine.Connection connection;
+        final TCPFraming.Writer writer =
+                new TCPFraming.Writer(TCPFraming.DEFAULT_COMPRESSION_THRESHOLD);
+        @Nullable
+        String room;
+        @Nullable
+        Peer partner;
+        boolean framingPending = true;
+        boolean flushScheduled;
+        boolean closed;
+
+        Peer(TCPSelectorEngine.Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private final TCPSelectorEngine engine = TCPSelectorEngine.getInstance();
+    private final ExecutorService executor = SessionExecutors.newSessionExecutor();
+    // Chỉ dùng trên |executor|.
+    // Only used on |executor|.
+    private final Map<TCPSelectorEngine.Connection, Peer> peers = new HashMap<>();
+    private final Map<String, Peer> waitingPeers = new HashMap<>();
+    private final Set<String> busyRooms = new HashSet<>();
+    private final SignalingCodec codec = new SignalingCodec();
+    private int forwardedMessages;
+    private int rejectedPeers;
+
+    @Nullable
+    private TCPSelectorEngine.Server server;
+    private int port;
+
+    public static SignalingHub getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    private SignalingHub() {
+    }
+
+    /**
+     * Bắt đầu nghe trên |address|:|port|, không làm gì nếu đã nghe trên cổng đó.
+     * Starts listening on |address|:|port|, does nothing if already listening on that port.
+     * Connections made after this call returns are served, since the engine runs its tasks in
+     * order.
+     */
+    public synchronized void start(InetAddress address, int port) {
+        if (server != null) {
+            if (this.port == port) {
+                return;
+            }
+            server.close();
+        }
+        Log.d(TAG, "Starting hub on port " + port);
+        this.port = port;
+        server = engine.listen(address, port, DEFAULT_MAX_PEERS, executor, new HubCallbacks());
+    }
+
+    /**
+     * Ngừng nghe và đóng mọi kết nối.
+     * Stops listening and closes every connection.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.close();
+        server = null;
+        executor.execute(() -> {
+            Log.d(TAG, "Stopping hub: " + this);
+            for (Peer peer : peers.values()) {
+                peer.connection.close();
+            }
+        });
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    private void onMessage(Peer peer, String message) {
+        if (peer.framingPending) {
+            peer.framingPending = false;
+            final JSONObject framing = TCPChannelClient.parseFramingMessage(message);
+            if (framing != null) {
+                final boolean binary = framing.optBoolean("binary");
+                // Trả lời bằng văn bản, sau đó mới chuyển chế độ ghi.
+                // Answer in text, only then switch the write mode.
+                send(peer, TCPChannelClient.framingMessage(binary));
+                peer.writer.setMode(binary, binary && framing.optBoolean("deflate"));
+                return;
+            }
+        }
+        if (peer.room == null) {
+            onJoin(peer, message);
+        } else if (peer.partner != null) {
+            forwardedMessages++;
+            send(peer.partner, message);
+        } else {
+            Log.w(TAG, "Dropping message without partner in room " + peer.room);
+        }
+    }
+
+    private void onJoin(Peer peer, String message) {
+        final String room;
+        try {
+            final SignalingCodec.Message join = codec.decode(message);
+            room = TYPE_JOIN.equals(join.getType()) ? join.getRoom() : null;
+        } catch (IOException e) {
+            reject(peer, ERROR_NOT_JOINED);
+            return;
+        }
+        if (room == null || room.isEmpty()) {
+            reject(peer, ERROR_NOT_JOINED);
+            return;
+        }
+
+        final Peer waiting = waitingPeers.remove(room);
+        if (waiting != null) {
+            peer.room = room;
+            peer.partner = waiting;
+            waiting.partner = peer;
+            busyRooms.add(room);
+            send(peer, codec.encodeType(TYPE_JOINED, "initiator", true));
+        } else if (busyRooms.contains(room)) {
+            reject(peer, ERROR_FULL);
+            return;
+        } else {
+            peer.room = room;
+            waitingPeers.put(room, peer);
+            send(peer, codec.encodeType(TYPE_JOINED, "initiator", false));
+        }
+        Log.d(TAG, "Peer joined room " + room + ", paired: " + (waiting != null));
+    }
+
+    private void onClosed(Peer peer) {
+        peer.closed = true;
+        peer.writer.release();
+        if (peer.room == null) {
+            return;
+        }
+        if (waitingPeers.get(peer.room) == peer) {
+            waitingPeers.remove(peer.room);
+        }
+        final Peer partner = peer.partner;
+        if (partner != null) {
+            // Bên còn lại chờ lại trong phòng; cuộc gọi chỉ kết thúc khi nó nhận "bye".
+            // The remaining peer waits in the room again; the call only ends when it gets "bye".
+            partner.partner = null;
+            busyRooms.remove(peer.room);
+            waitingPeers.put(peer.room, partner);
+            send(partner, codec.encodeType(TYPE_PEER_LEFT));
+        }
+    }
+
+    private void reject(Peer peer, String error) {
+        Log.w(TAG, "Rejecting peer: " + error);
+        rejectedPeers++;
+        send(peer, codec.encodeType(TYPE_ERROR, "error", error));
+        flush(peer);
+        peer.connection.close();
+    }
+
+    // Tin nhắn được gom và ghi cùng nhau sau tác vụ hiện tại.
+    // Messages are coalesced and written together after the current task.
+    private void send(Peer peer, String message) {
+        if (peer.closed) {
+            return;
+        }
+        peer.writer.append(message);
+        if (!peer.flushScheduled) {
+            peer.flushScheduled = true;
+            executor.execute(() -> flush(peer));
+        }
+    }
+
+    private void flush(Peer peer) {
+        peer.flushScheduled = false;
+        if (peer.closed || !peer.writer.hasPending()) {
+            return;
+        }
+        try {
+            peer.writer.writeTo(peer.connection.getOutputStream());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write to peer: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tin nhắn vào phòng gửi tới hub.
+     * Join message sent to the hub.
+     */
+    static String joinMessage(SignalingCodec codec, String room) {
+        return codec.encodeType(TYPE_JOIN, "room", room);
+    }
+
+    /**
+     * Sự kiện socket từ TCPSelectorEngine, trên |executor|.
+     * Socket events from TCPSelectorEngine, on |executor|.
+     */
+    private class HubCallbacks implements TCPSelectorEngine.Callbacks {
+        @Override
+        public void onConnected(TCPSelectorEngine.Connection connection) {
+            peers.put(connection, new Peer(connection));
+        }
+
+        @Override
+        public void onMessage(TCPSelectorEngine.Connection connection, String message) {
+            final Peer peer = peers.get(connection);
+            if (peer != null) {
+                SignalingHub.this.onMessage(peer, message);
+            }
+        }
+
+        @Override
+        public void onError(@Nullable TCPSelectorEngine.Connection connection,
+                            String description) {
+            Log.e(TAG, "Hub error: " + description);
+        }
+
+        @Override
+        public void onClosed(TCPSelectorEngine.Connection connection) {
+            final Peer peer = peers.remove(connection);
+            if (peer != null) {
+                SignalingHub.this.onClosed(peer);
+            }
+        }
+    }
+
+    // Chỉ gọi trên |executor| để số liệu nhất quán.
+    // Only call on |executor| for consistent numbers.
+    @Override
+    public String toString() {
+        return "SignalingHub{peers=" + peers.size()
+                + ", waiting=" + waitingPeers.size()
+                + ", pairs=" + busyRooms.size()
+                + ", forwarded=" + forwardedMessages
+                + ", rejected=" + rejectedPeers + "}";
+    }
+}
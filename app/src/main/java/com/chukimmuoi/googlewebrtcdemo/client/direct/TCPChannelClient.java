@@ -13,18 +13,13 @@ package com.chukimmuoi.googlewebrtcdemo.client.direct;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.net.UnknownHostException;
-import java.nio.charset.Charset;
 import java.util.concurrent.ExecutorService;
 
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.webrtc.ThreadUtils;
 
 /**
@@ -40,14 +35,39 @@ import org.webrtc.ThreadUtils;
  * All public methods should be called from a looper executor thread
  * passed in a constructor, otherwise exception will be thrown.
  * All events are dispatched on the same thread.
+ * <p>
+ * Khung nhị phân (TCPFraming) được thỏa thuận khi kết nối: bên kết nối gửi một dòng
+ * "framing", bên nghe trả lời bằng chế độ nó chấp nhận. Nếu không, kênh giữ chế độ văn bản.
+ * Binary framing (see TCPFraming) is negotiated on connect: the connecting side sends a
+ * "framing" line and the listening side answers with the mode it accepts. Otherwise the channel
+ * stays in text mode. Messages sent within the same executor task are written together.
+ * <p>
+ * Socket được phục vụ bởi TCPSelectorEngine dùng chung, không có luồng riêng.
+ * The socket is served by the shared TCPSelectorEngine, without a thread of its own.
  */
 public class TCPChannelClient {
     private static final String TAG = "TCPChannelClient";
+    private static final String FRAMING_TYPE = "framing";
 
     private final ExecutorService executor;
     private final ThreadUtils.ThreadChecker executorThreadCheck;
     private final TCPChannelEvents eventListener;
-    private TCPSocket socket;
+    private final boolean binaryFraming;
+    private final TCPSelectorEngine engine = TCPSelectorEngine.getInstance();
+    private final TCPFraming.Writer writer =
+            new TCPFraming.Writer(TCPFraming.DEFAULT_COMPRESSION_THRESHOLD);
+    private final Runnable flushTask = this::flush;
+    @Nullable
+    private TCPSelectorEngine.Server server;
+    @Nullable
+    private TCPSelectorEngine.Connection connection;
+    private boolean flushScheduled;
+    private boolean disconnected;
+    // Bên nghe chờ dòng thỏa thuận ở tin nhắn đầu tiên, bên kết nối chờ câu trả lời,
+    // có thể đến sau offer.
+    // The listening side expects the negotiation line as the first message, the connecting
+    // side waits for the answer, which may arrive after the offer.
+    private boolean framingPending;
 
     /**
      * Callback interface for messages delivered on TCP Connection. All callbacks are invoked from the
@@ -73,10 +93,21 @@ public class TCPChannelClient {
      */
     public TCPChannelClient(
             ExecutorService executor, TCPChannelEvents eventListener, String ip, int port) {
+        this(executor, eventListener, ip, port, false /* binaryFraming */);
+    }
+
+    /**
+     * |binaryFraming| cho phép thỏa thuận khung nhị phân có nén deflate.
+     * |binaryFraming| allows negotiating binary frames with deflate compression. It must only be
+     * enabled when the peer runs this version, since older peers reject the "framing" line.
+     */
+    public TCPChannelClient(ExecutorService executor, TCPChannelEvents eventListener, String ip,
+                            int port, boolean binaryFraming) {
         this.executor = executor;
         executorThreadCheck = new ThreadUtils.ThreadChecker();
         executorThreadCheck.detachThread();
         this.eventListener = eventListener;
+        this.binaryFraming = binaryFraming;
 
         InetAddress address;
         try {
@@ -86,13 +117,12 @@ public class TCPChannelClient {
             return;
         }
 
+        final TCPSelectorEngine.Callbacks callbacks = new SocketCallbacks();
         if (address.isAnyLocalAddress()) {
-            socket = new TCPSocketServer(address, port);
+            server = engine.listen(address, port, 1 /* maxConnections */, executor, callbacks);
         } else {
-            socket = new TCPSocketClient(address, port);
+            connection = engine.connect(address, port, executor, callbacks);
         }
-
-        socket.start();
     }
 
     /**
@@ -101,7 +131,19 @@ public class TCPChannelClient {
     public void disconnect() {
         executorThreadCheck.checkIsOnValidThread();
 
-        socket.disconnect();
+        // Ghi nốt các tin nhắn gửi trong tác vụ này.
+        // Write out the messages sent during this task.
+        flush();
+        disconnected = true;
+        writer.release();
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
     }
 
     /**
@@ -112,7 +154,60 @@ public class TCPChannelClient {
     public void send(String message) {
         executorThreadCheck.checkIsOnValidThread();
 
-        socket.send(message);
+        Log.v(TAG, "Send: " + message);
+        if (connection == null || disconnected) {
+            reportError("Sending data on closed socket.");
+            return;
+        }
+        // Tin nhắn được ghi cùng các tin nhắn khác gửi trong cùng tác vụ executor.
+        // The message is written together with the other messages sent during the same executor
+        // task.
+        writer.append(message);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.execute(flushTask);
+        }
+    }
+
+    // Chuyển mọi tin nhắn đang chờ cho engine trong một lần. Chạy trên luồng executor.
+    // Hands all pending messages to the engine at once. Runs on the executor thread.
+    private void flush() {
+        flushScheduled = false;
+        if (connection == null || disconnected || !writer.hasPending()) {
+            return;
+        }
+        try {
+            writer.writeTo(connection.getOutputStream());
+        } catch (IOException e) {
+            reportError("Failed to write to rawSocket: " + e.getMessage());
+        }
+    }
+
+    // Dòng thỏa thuận khung: khả năng của bên kết nối, hoặc chế độ bên nghe đã chọn.
+    // Framing negotiation line: what the connecting side can do, or what the listener chose.
+    static String framingMessage(boolean binary) {
+        final JSONObject json = new JSONObject();
+        try {
+            json.put("type", FRAMING_TYPE);
+            json.put("binary", binary);
+            json.put("deflate", binary);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return json.toString();
+    }
+
+    @Nullable
+    static JSONObject parseFramingMessage(String message) {
+        if (!message.contains(FRAMING_TYPE)) {
+            return null;
+        }
+        try {
+            final JSONObject json = new JSONObject(message);
+            return FRAMING_TYPE.equals(json.optString("type")) ? json : null;
+        } catch (JSONException e) {
+            return null;
+        }
     }
 
     /**
@@ -129,255 +224,86 @@ public class TCPChannelClient {
     }
 
     /**
-     * Base class for server and client sockets. Contains a listening thread that will call
-     * eventListener.onTCPMessage on new messages.
+     * Xử lý dòng thỏa thuận khung, trả về true nếu |message| là dòng đó.
+     * Handles the framing negotiation line, returns true if |message| was one. Runs on the
+     * executor thread.
      */
-    private abstract class TCPSocket extends Thread {
-        // Lock for editing out and rawSocket
-        protected final Object rawSocketLock;
-        @Nullable
-        private PrintWriter out;
-        @Nullable
-        private Socket rawSocket;
-
-        /**
-         * Connect to the peer, potentially a slow operation.
-         *
-         * @return Socket connection, null if connection failed.
-         */
-        @Nullable
-        public abstract Socket connect();
-
-        /**
-         * Returns true if sockets is a server rawSocket.
-         */
-        public abstract boolean isServer();
-
-        TCPSocket() {
-            rawSocketLock = new Object();
-        }
-
-        /**
-         * The listening thread.
-         */
-        @Override
-        public void run() {
-            Log.d(TAG, "Listening thread started...");
-
-            // Receive connection to temporary variable first, so we don't block.
-            Socket tempSocket = connect();
-            BufferedReader in;
-
-            Log.d(TAG, "TCP connection established.");
-
-            synchronized (rawSocketLock) {
-                if (rawSocket != null) {
-                    Log.e(TAG, "Socket already existed and will be replaced.");
-                }
-
-                rawSocket = tempSocket;
-
-                // Connecting failed, error has already been reported, just exit.
-                if (rawSocket == null) {
-                    return;
-                }
-
-                try {
-                    out = new PrintWriter(
-                            new OutputStreamWriter(rawSocket.getOutputStream(), Charset.forName("UTF-8")), true);
-                    in = new BufferedReader(
-                            new InputStreamReader(rawSocket.getInputStream(), Charset.forName("UTF-8")));
-                } catch (IOException e) {
-                    reportError("Failed to open IO on rawSocket: " + e.getMessage());
-                    return;
-                }
-            }
-
-            Log.v(TAG, "Execute onTCPConnected");
-            executor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    Log.v(TAG, "Run onTCPConnected");
-                    eventListener.onTCPConnected(isServer());
-                }
-            });
-
-            while (true) {
-                final String message;
-                try {
-                    message = in.readLine();
-                } catch (IOException e) {
-                    synchronized (rawSocketLock) {
-                        // If socket was closed, this is expected.
-                        if (rawSocket == null) {
-                            break;
-                        }
-                    }
-
-                    reportError("Failed to read from rawSocket: " + e.getMessage());
-                    break;
-                }
-
-                // No data received, rawSocket probably closed.
-                if (message == null) {
-                    break;
-                }
-
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        Log.v(TAG, "Receive: " + message);
-                        eventListener.onTCPMessage(message);
-                    }
-                });
-            }
-
-            Log.d(TAG, "Receiving thread exiting...");
-
-            // Close the rawSocket if it is still open.
-            disconnect();
-        }
-
-        /**
-         * Closes the rawSocket if it is still open. Also fires the onTCPClose event.
-         */
-        public void disconnect() {
-            try {
-                synchronized (rawSocketLock) {
-                    if (rawSocket != null) {
-                        rawSocket.close();
-                        rawSocket = null;
-                        out = null;
-
-                        executor.execute(new Runnable() {
-                            @Override
-                            public void run() {
-                                eventListener.onTCPClose();
-                            }
-                        });
-                    }
-                }
-            } catch (IOException e) {
-                reportError("Failed to close rawSocket: " + e.getMessage());
-            }
+    private boolean onFramingMessage(String message, boolean isServer) {
+        final JSONObject json = parseFramingMessage(message);
+        if (json == null) {
+            return false;
         }
-
-        /**
-         * Sends a message on the socket. Should only be called on the executor thread.
-         */
-        public void send(String message) {
-            Log.v(TAG, "Send: " + message);
-
-            synchronized (rawSocketLock) {
-                if (out == null) {
-                    reportError("Sending data on closed socket.");
-                    return;
-                }
-
-                out.write(message + "\n");
-                out.flush();
-            }
+        final boolean binary = binaryFraming && json.optBoolean("binary");
+        final boolean deflate = binary && json.optBoolean("deflate");
+        if (isServer) {
+            // Trả lời bằng văn bản, sau đó mới chuyển chế độ ghi.
+            // Answer in text, only then switch the write mode.
+            send(framingMessage(binary));
         }
+        writer.setMode(binary, deflate);
+        Log.d(TAG, "Framing: " + (binary ? "binary" : "text") + ", deflate: " + deflate);
+        return true;
     }
 
-    private class TCPSocketServer extends TCPSocket {
-        // Server socket is also guarded by rawSocketLock.
-        @Nullable
-        private ServerSocket serverSocket;
-
-        final private InetAddress address;
-        final private int port;
-
-        public TCPSocketServer(InetAddress address, int port) {
-            this.address = address;
-            this.port = port;
-        }
-
-        /**
-         * Opens a listening socket and waits for a connection.
-         */
-        @Nullable
+    /**
+     * Sự kiện socket từ TCPSelectorEngine, trên luồng executor.
+     * Socket events from TCPSelectorEngine, on the executor thread.
+     */
+    private class SocketCallbacks implements TCPSelectorEngine.Callbacks {
         @Override
-        public Socket connect() {
-            Log.d(TAG, "Listening on [" + address.getHostAddress() + "]:" + Integer.toString(port));
-
-            final ServerSocket tempSocket;
-            try {
-                tempSocket = new ServerSocket(port, 0, address);
-            } catch (IOException e) {
-                reportError("Failed to create server socket: " + e.getMessage());
-                return null;
+        public void onConnected(TCPSelectorEngine.Connection accepted) {
+            if (disconnected || connection != null) {
+                accepted.close();
+                return;
             }
-
-            synchronized (rawSocketLock) {
-                if (serverSocket != null) {
-                    Log.e(TAG, "Server rawSocket was already listening and new will be opened.");
+            Log.v(TAG, "Run onTCPConnected");
+            connection = accepted;
+            final boolean isServer = accepted.isServer();
+            if (isServer) {
+                // Chỉ phục vụ một bên; nhiều bên do SignalingHub đảm nhận.
+                // Only one peer is served; many peers are handled by SignalingHub.
+                if (server != null) {
+                    server.close();
+                    server = null;
                 }
-
-                serverSocket = tempSocket;
-            }
-
-            try {
-                return tempSocket.accept();
-            } catch (IOException e) {
-                reportError("Failed to receive connection: " + e.getMessage());
-                return null;
+                framingPending = true;
+            } else if (binaryFraming) {
+                framingPending = true;
+                send(framingMessage(true));
             }
+            eventListener.onTCPConnected(isServer);
         }
 
-        /**
-         * Closes the listening socket and calls super.
-         */
         @Override
-        public void disconnect() {
-            try {
-                synchronized (rawSocketLock) {
-                    if (serverSocket != null) {
-                        serverSocket.close();
-                        serverSocket = null;
-                    }
+        public void onMessage(TCPSelectorEngine.Connection from, String message) {
+            if (from != connection) {
+                return;
+            }
+            Log.v(TAG, "Receive: " + message);
+            if (framingPending) {
+                framingPending = !from.isServer();
+                if (onFramingMessage(message, from.isServer())) {
+                    framingPending = false;
+                    return;
                 }
-            } catch (IOException e) {
-                reportError("Failed to close server socket: " + e.getMessage());
             }
-
-            super.disconnect();
+            eventListener.onTCPMessage(message);
         }
 
         @Override
-        public boolean isServer() {
-            return true;
-        }
-    }
-
-    private class TCPSocketClient extends TCPSocket {
-        final private InetAddress address;
-        final private int port;
-
-        public TCPSocketClient(InetAddress address, int port) {
-            this.address = address;
-            this.port = port;
-        }
-
-        /**
-         * Connects to the peer.
-         */
-        @Nullable
-        @Override
-        public Socket connect() {
-            Log.d(TAG, "Connecting to [" + address.getHostAddress() + "]:" + Integer.toString(port));
-
-            try {
-                return new Socket(address, port);
-            } catch (IOException e) {
-                reportError("Failed to connect: " + e.getMessage());
-                return null;
+        public void onError(@Nullable TCPSelectorEngine.Connection from, String description) {
+            if (from == null || from == connection) {
+                eventListener.onTCPError(description);
             }
         }
 
         @Override
-        public boolean isServer() {
-            return false;
+        public void onClosed(TCPSelectorEngine.Connection from) {
+            if (connection != null && from != connection) {
+                return;
+            }
+            Log.d(TAG, "Receiving side closed.");
+            eventListener.onTCPClose();
         }
     }
 }
@@ -0,0 +1,426 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.direct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Định dạng khung của kênh báo hiệu TCP.
+ * Framing of the TCP signaling channel.
+ *
+ * <p>Chế độ văn bản: mỗi tin nhắn là một dòng UTF-8 kết thúc bằng "\n", như trước đây.
+ * Chế độ nhị phân: [kiểu: 1 byte][độ dài: 4 byte big-endian][nội dung]. Kiểu TEXT chứa
+ * UTF-8, kiểu DEFLATE chứa UTF-8 đã nén (deflate thô).
+ * Text mode: every message is one UTF-8 line ended by "\n", as before. Binary mode:
+ * [type: 1 byte][length: 4 bytes big-endian][payload]. A TEXT frame holds UTF-8, a DEFLATE frame
+ * holds raw deflate compressed UTF-8.
+ *
+ * <p>Tin nhắn JSON luôn bắt đầu bằng một ký tự in được, còn byte kiểu khung thì không, nên
+ * Reader đọc được cả hai chế độ trên cùng một luồng mà không cần đánh dấu chuyển chế độ.
+ * JSON messages always start with a printable character and frame type bytes never do, so the
+ * Reader reads both modes on the same stream without a marker for the switch.
+ *
+ * <p>Lớp này không phụ thuộc Android để có thể đo trong module benchmark.
+ * This class does not depend on Android so it can be measured in the benchmark module.
+ */
+public final class TCPFraming {
+    public static final byte TYPE_TEXT = 0x01;
+    public static final byte TYPE_DEFLATE = 0x02;
+    private static final int HEADER_LENGTH = 5;
+    // Chỉ nén nội dung lớn (SDP); ứng viên ICE quá ngắn để nén có lợi.
+    // Only large payloads (SDP) are compressed; ICE candidates are too short to gain from it.
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 512;
+    public static final int MAX_MESSAGE_LENGTH = 1 << 20;
+
+    private TCPFraming() {
+    }
+
+    /**
+     * Mã hóa tin nhắn vào bộ đệm chờ để nhiều tin nhắn được ghi trong một lần.
+     * Encodes messages into a pending buffer so several messages are written at once.
+     *
+     * <p>Lớp này không an toàn luồng.
+     * This class is not thread-safe.
+     */
+    public static final class Writer {
+        private final Buffer pending = new Buffer();
+        private final int compressionThreshold;
+        private Deflater deflater;
+        private byte[] compressed = new byte[0];
+        private boolean binary;
+        private boolean deflate;
+
+        public Writer(int compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+        }
+
+        /**
+         * Chế độ cho các tin nhắn được thêm sau lần gọi này.
+         * Mode of the messages appended after this call.
+         */
+        public void setMode(boolean binary, boolean deflate) {
+            this.binary = binary;
+            this.deflate = binary && deflate;
+        }
+
+        public boolean isBinary() {
+            return binary;
+        }
+
+        public boolean isDeflate() {
+            return deflate;
+        }
+
+        public void append(String message) {
+            final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            if (!binary) {
+                pending.write(bytes, 0, bytes.length);
+                pending.write('\n');
+                return;
+            }
+            if (deflate && bytes.length >= compressionThreshold) {
+                final int length = compress(bytes);
+                if (length < bytes.length) {
+                    writeFrame(TYPE_DEFLATE, compressed, length);
+                    return;
+                }
+            }
+            writeFrame(TYPE_TEXT, bytes, bytes.length);
+        }
+
+        public boolean hasPending() {
+            return pending.size() > 0;
+        }
+
+        /**
+         * Số byte đang chờ ghi.
+         * Number of bytes waiting to be written.
+         */
+        public int getPendingBytes() {
+            return pending.size();
+        }
+
+        /**
+         * Ghi mọi tin nhắn đang chờ bằng một lần gọi write() rồi xóa bộ đệm.
+         * Writes all pending messages with a single write() call and clears the buffer.
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            pending.writeTo(out);
+            pending.reset();
+        }
+
+        /**
+         * Giải phóng bộ nén. Writer không được dùng sau đó.
+         * Releases the compressor. The writer must not be used afterwards.
+         */
+        public void release() {
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+        }
+
+        private void writeFrame(byte type, byte[] payload, int length) {
+            pending.write(type);
+            pending.write(length >>> 24);
+            pending.write(length >>> 16);
+            pending.write(length >>> 8);
+            pending.write(length);
+            pending.write(payload, 0, length);
+        }
+
+        // Nén |input| vào |compressed|, trả về số byte đã nén.
+        // Compresses |input| into |compressed|, returns the compressed length.
+        private int compress(byte[] input) {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.BEST_SPEED, true /* nowrap */);
+            }
+            if (compressed.length < input.length) {
+                compressed = new byte[input.length];
+            }
+            deflater.setInput(input);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished() && length < compressed.length) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            final boolean finished = deflater.finished();
+            deflater.reset();
+            // Không nhỏ hơn bản gốc thì gửi bản gốc.
+            // Not smaller than the original, send the original.
+            return finished ? length : input.length;
+        }
+    }
+
+    /**
+     * Giải mã từng phần tin nhắn ở cả chế độ văn bản lẫn nhị phân từ các khối byte tùy ý,
+     * dùng cho socket không chặn.
+     * Incrementally decodes messages in both text and binary mode from arbitrary chunks of
+     * bytes, as read from a non-blocking socket.
+     *
+     * <p>Lớp này không an toàn luồng.
+     * This class is not thread-safe.
+     */
+    public static final class Decoder {
+        /**
+         * Nhận các tin nhắn đã giải mã theo thứ tự.
+         * Receives the decoded messages in order.
+         */
+        public interface Sink {
+            void onMessage(String message);
+        }
+
+        private static final int STATE_START = 0;
+        private static final int STATE_LINE = 1;
+        private static final int STATE_HEADER = 2;
+        private static final int STATE_PAYLOAD = 3;
+
+        private final Buffer line = new Buffer();
+        private int state = STATE_START;
+        private byte type;
+        private int headerRead;
+        private int length;
+        private int payloadRead;
+        private byte[] payload = new byte[0];
+        private byte[] inflated = new byte[0];
+        private Inflater inflater;
+
+        /**
+         * Giải mã mọi byte còn lại của |input|; phần tin nhắn chưa đủ được giữ lại.
+         * Decodes all remaining bytes of |input|; an incomplete message is kept for later.
+         */
+        public void feed(ByteBuffer input, Sink sink) throws IOException {
+            while (input.hasRemaining()) {
+                switch (state) {
+                    case STATE_START:
+                        final int first = input.get() & 0xff;
+                        if (first == TYPE_TEXT || first == TYPE_DEFLATE) {
+                            type = (byte) first;
+                            headerRead = 0;
+                            length = 0;
+                            state = STATE_HEADER;
+                        } else if (first < 0x20 && first != '\n' && first != '\r') {
+                            throw new IOException("Unknown frame type: " + first);
+                        } else {
+                            line.reset();
+                            input.position(input.position() - 1);
+                            state = STATE_LINE;
+                        }
+                        break;
+                    case STATE_LINE:
+                        final byte c = input.get();
+                        if (c == '\n') {
+                            state = STATE_START;
+                            sink.onMessage(line.toUtf8(true /* stripCarriageReturn */));
+                        } else {
+                            line.write(c);
+                            if (line.size() > MAX_MESSAGE_LENGTH) {
+                                throw new IOException("Line too long");
+                            }
+                        }
+                        break;
+                    case STATE_HEADER:
+                        length = (length << 8) | (input.get() & 0xff);
+                        if (++headerRead < HEADER_LENGTH - 1) {
+                            break;
+                        }
+                        if (length < 0 || length > MAX_MESSAGE_LENGTH) {
+                            throw new IOException("Invalid frame length: " + length);
+                        }
+                        if (payload.length < length) {
+                            payload = new byte[length];
+                        }
+                        payloadRead = 0;
+                        state = STATE_PAYLOAD;
+                        if (length == 0) {
+                            state = STATE_START;
+                            sink.onMessage("");
+                        }
+                        break;
+                    case STATE_PAYLOAD:
+                        final int count = Math.min(input.remaining(), length - payloadRead);
+                        input.get(payload, payloadRead, count);
+                        payloadRead += count;
+                        if (payloadRead == length) {
+                            state = STATE_START;
+                            sink.onMessage(type == TYPE_TEXT
+                                    ? new String(payload, 0, length, StandardCharsets.UTF_8)
+                                    : inflate());
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown state: " + state);
+                }
+            }
+        }
+
+        /**
+         * Báo hết luồng. Dòng cuối không có "\n" vẫn là một tin nhắn, như
+         * BufferedReader.readLine(); khung dở dang là lỗi.
+         * Signals the end of the stream. A last line without "\n" is still a message, like
+         * BufferedReader.readLine(); a partial frame is an error.
+         */
+        public void finish(Sink sink) throws IOException {
+            final int lastState = state;
+            state = STATE_START;
+            if (lastState == STATE_LINE) {
+                sink.onMessage(line.toUtf8(true /* stripCarriageReturn */));
+            } else if (lastState != STATE_START) {
+                throw new EOFException("Truncated frame");
+            }
+        }
+
+        public void release() {
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
+            }
+        }
+
+        private String inflate() throws IOException {
+            if (inflater == null) {
+                inflater = new Inflater(true /* nowrap */);
+            }
+            if (inflated.length < length * 4) {
+                inflated = new byte[Math.min(length * 4, MAX_MESSAGE_LENGTH)];
+            }
+            inflater.setInput(payload, 0, length);
+            int size = 0;
+            try {
+                while (!inflater.finished()) {
+                    if (size == inflated.length) {
+                        if (size >= MAX_MESSAGE_LENGTH) {
+                            throw new IOException("Inflated message too long");
+                        }
+                        final byte[] grown = new byte[Math.min(size * 2, MAX_MESSAGE_LENGTH)];
+                        System.arraycopy(inflated, 0, grown, 0, size);
+                        inflated = grown;
+                    }
+                    final int count = inflater.inflate(inflated, size, inflated.length - size);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated deflate frame");
+                    }
+                    size += count;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid deflate frame: " + e.getMessage());
+            } finally {
+                inflater.reset();
+            }
+            return new String(inflated, 0, size, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Đọc tin nhắn từ một luồng chặn, dựa trên Decoder.
+     * Reads messages from a blocking stream, on top of Decoder.
+     *
+     * <p>Lớp này không an toàn luồng.
+     * This class is not thread-safe.
+     */
+    public static final class Reader {
+        private final InputStream in;
+        private final Decoder decoder = new Decoder();
+        private final ArrayDeque<String> messages = new ArrayDeque<>();
+        private final Decoder.Sink sink = messages::add;
+        private final byte[] chunk = new byte[8192];
+        private boolean finished;
+
+        public Reader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Trả về tin nhắn kế tiếp, hoặc null khi luồng kết thúc.
+         * Returns the next message, or null at the end of the stream.
+         */
+        public String read() throws IOException {
+            while (messages.isEmpty() && !finished) {
+                final int count = in.read(chunk);
+                if (count == -1) {
+                    finished = true;
+                    decoder.finish(sink);
+                } else {
+                    decoder.feed(ByteBuffer.wrap(chunk, 0, count), sink);
+                }
+            }
+            return messages.poll();
+        }
+
+        public void release() {
+            decoder.release();
+        }
+    }
+
+    // ByteArrayOutputStream không đồng bộ hóa, đọc thẳng được mảng nội bộ.
+    // Unsynchronized ByteArrayOutputStream whose internal array can be decoded in place.
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(1024);
+        }
+
+        @Override
+        public void write(int b) {
+            if (count == buf.length) {
+                grow(count + 1);
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > buf.length) {
+                grow(count + len);
+            }
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(buf, 0, count);
+        }
+
+        @Override
+        public void reset() {
+            count = 0;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        String toUtf8(boolean stripCarriageReturn) {
+            int length = count;
+            if (stripCarriageReturn && length > 0 && buf[length - 1] == '\r') {
+                length--;
+            }
+            return new String(buf, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void grow(int minCapacity) {
+            final byte[] grown = new byte[Math.max(buf.length * 2, minCapacity)];
+            System.arraycopy(buf, 0, grown, 0, count);
+            buf = grown;
+        }
+    }
+}
@@ -0,0 +1,632 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.direct;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Một luồng I/O duy nhất phục vụ mọi socket báo hiệu trực tiếp bằng Selector của NIO, thay
+ * cho một luồng chặn cho mỗi socket.
+ * A single I/O thread that serves every direct signaling socket with an NIO Selector, instead of
+ * one blocking thread per socket. Accept, connect, read and write are all non-blocking.
+ *
+ * <p>Tin nhắn nhận được được giải mã bằng TCPFraming.Decoder trên luồng I/O và chuyển cho
+ * |callbacks| trên executor của người gọi. Dữ liệu gửi đi được chép vào các ByteBuffer
+ * trực tiếp lấy từ một vùng chung.
+ * Received messages are decoded with TCPFraming.Decoder on the I/O thread and handed to
+ * |callbacks| on the caller's executor. Outgoing data is copied into direct ByteBuffers taken
+ * from a shared pool.
+ *
+ * <p>Lớp này an toàn luồng.
+ * This class is thread-safe.
+ */
+public class TCPSelectorEngine {
+    private static final String TAG = "TCPSelectorEngine";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 32;
+
+    /**
+     * Sự kiện của một máy chủ hoặc kết nối, được gọi trên executor đã truyền vào.
+     * Events of a server or connection, invoked on the executor passed in.
+     */
+    public interface Callbacks {
+        void onConnected(Connection connection);
+
+        void onMessage(Connection connection, String message);
+
+        /**
+         * |connection| là null với lỗi của socket nghe.
+         * |connection| is null for errors of the listening socket.
+         */
+        void onError(@Nullable Connection connection, String description);
+
+        void onClosed(Connection connection);
+    }
+
+    private static class InstanceHolder {
+        static final TCPSelectorEngine INSTANCE = new TCPSelectorEngine();
+    }
+
+    private final ConcurrentLinkedQueue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+    // Chỉ dùng trên luồng I/O.
+    // Only used on the I/O thread.
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    @Nullable
+    private Selector selector;
+    @Nullable
+    private Thread ioThread;
+
+    public static TCPSelectorEngine getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    TCPSelectorEngine() {
+    }
+
+    /**
+     * Nghe trên |address|:|port| với tối đa |maxConnections| kết nối cùng lúc.
+     * Listens on |address|:|port| with up to |maxConnections| connections open at the same time.
+     * Every accepted connection is reported through onConnected(). The address is bound with
+     * SO_REUSEADDR so a restart does not wait for TIME_WAIT.
+     */
+    public Server listen(InetAddress address, int port, int maxConnections, Executor executor,
+                         Callbacks callbacks) {
+        final Server server = new Server(maxConnections, executor, callbacks);
+        runOnIoThread(() -> server.open(new InetSocketAddress(address, port)));
+        return server;
+    }
+
+    /**
+     * Kết nối tới |address|:|port|.
+     * Connects to |address|:|port|.
+     */
+    public Connection connect(InetAddress address, int port, Executor executor,
+                              Callbacks callbacks) {
+        final Connection connection = new Connection(null, executor, callbacks);
+        runOnIoThread(() -> connection.open(new InetSocketAddress(address, port)));
+        return connection;
+    }
+
+    /**
+     * Socket nghe.
+     * Listening socket.
+     */
+    public class Server {
+        private final int maxConnections;
+        private final Executor executor;
+        private final Callbacks callbacks;
+        // Chỉ dùng trên luồng I/O.
+        // Only used on the I/O thread.
+        @Nullable
+        private ServerSocketChannel channel;
+        private int openCount;
+        private boolean closed;
+
+        Server(int maxConnections, Executor executor, Callbacks callbacks) {
+            this.maxConnections = maxConnections;
+            this.executor = executor;
+            this.callbacks = callbacks;
+        }
+
+        /**
+         * Ngừng nghe. Các kết nối đã nhận không bị ảnh hưởng.
+         * Stops listening. Connections already accepted are not affected.
+         */
+        public void close() {
+            runOnIoThread(this::closeChannel);
+        }
+
+        private void open(InetSocketAddress address) {
+            if (closed) {
+                return;
+            }
+            Log.d(TAG, "Listening on " + address);
+            try {
+                channel = ServerSocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setReuseAddress(true);
+                channel.socket().bind(address);
+                channel.register(selector, SelectionKey.OP_ACCEPT, this);
+            } catch (IOException e) {
+                closeChannel();
+                dispatch(executor, () -> callbacks.onError(
+                        null, "Failed to create server socket: " + e.getMessage()));
+            }
+        }
+
+        private void accept() {
+            final SocketChannel accepted;
+            try {
+                accepted = channel.accept();
+            } catch (IOException e) {
+                dispatch(executor, () -> callbacks.onError(
+                        null, "Failed to receive connection: " + e.getMessage()));
+                return;
+            }
+            if (accepted == null) {
+                return;
+            }
+            final Connection connection = new Connection(this, executor, callbacks);
+            if (++openCount >= maxConnections) {
+                // Giữ socket nghe mở nhưng không nhận thêm cho đến khi có kết nối đóng.
+                // Keep the listening socket open, but accept no more until a connection closes.
+                setAccepting(false);
+            }
+            connection.attach(accepted);
+        }
+
+        private void onConnectionClosed() {
+            if (--openCount < maxConnections) {
+                setAccepting(true);
+            }
+        }
+
+        private void setAccepting(boolean accepting) {
+            final SelectionKey key = channel != null ? channel.keyFor(selector) : null;
+            if (key != null && key.isValid()) {
+                key.interestOps(accepting ? SelectionKey.OP_ACCEPT : 0);
+            }
+        }
+
+        private void closeChannel() {
+            closed = true;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to close server socket: " + e.getMessage());
+                }
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Một kết nối TCP.
+     * One TCP connection.
+     */
+    public class Connection {
+        // Socket nghe đã nhận kết nối này, hoặc null với kết nối đi.
+        // Listening socket that accepted this connection, or null for outgoing connections.
+        @Nullable
+        private final Server server;
+        private final Executor executor;
+        private final Callbacks callbacks;
+        private final TCPFraming.Decoder decoder = new TCPFraming.Decoder();
+        private final TCPFraming.Decoder.Sink sink = this::onMessage;
+        // Bộ đệm gửi đang ở chế độ ghi; được bảo vệ bởi |this|.
+        // Outbound buffers, in fill mode; guarded by |this|.
+        private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        private final OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                send(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] data, int offset, int length) {
+                send(data, offset, length);
+            }
+        };
+        // Chỉ dùng trên luồng I/O.
+        // Only used on the I/O thread.
+        @Nullable
+        private SocketChannel channel;
+        private boolean connected;
+        // Được bảo vệ bởi |this|.
+        // Guarded by |this|.
+        private boolean closed;
+        private boolean opened;
+
+        Connection(@Nullable Server server, Executor executor, Callbacks callbacks) {
+            this.server = server;
+            this.executor = executor;
+            this.callbacks = callbacks;
+        }
+
+        /**
+         * True nếu kết nối được nhận bởi socket nghe.
+         * True if the connection was accepted by a listening socket.
+         */
+        public boolean isServer() {
+            return server != null;
+        }
+
+        /**
+         * Xếp |length| byte để gửi. Có thể gọi từ bất kỳ luồng nào.
+         * Queues |length| bytes to be sent. May be called from any thread.
+         */
+        public void send(byte[] data, int offset, int length) {
+            synchronized (this) {
+                if (closed) {
+                    dispatch(executor, () -> callbacks.onError(
+                            this, "Sending data on closed socket."));
+                    return;
+                }
+                while (length > 0) {
+                    ByteBuffer tail = outbound.peekLast();
+                    if (tail == null || !tail.hasRemaining()) {
+                        tail = acquireBuffer();
+                        outbound.add(tail);
+                    }
+                    final int count = Math.min(length, tail.remaining());
+                    tail.put(data, offset, count);
+                    offset += count;
+                    length -= count;
+                }
+            }
+            runOnIoThread(this::enableWrite);
+        }
+
+        /**
+         * Dùng cho TCPFraming.Writer.writeTo().
+         * For TCPFraming.Writer.writeTo().
+         */
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        /**
+         * Đóng kết nối sau khi thử gửi nốt dữ liệu đang chờ. onClosed() được gọi một lần.
+         * Closes the connection after trying to send the pending data. onClosed() is invoked
+         * once.
+         */
+        public void close() {
+            if (markClosed()) {
+                runOnIoThread(() -> {
+                    flushOutbound();
+                    closeChannel();
+                });
+            }
+        }
+
+        private void open(InetSocketAddress address) {
+            if (isClosed()) {
+                return;
+            }
+            Log.d(TAG, "Connecting to " + address);
+            try {
+                final SocketChannel socketChannel = SocketChannel.open();
+                socketChannel.configureBlocking(false);
+                channel = socketChannel;
+                if (socketChannel.connect(address)) {
+                    attach(socketChannel);
+                } else {
+                    socketChannel.register(selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                fail("Failed to connect: " + e.getMessage());
+            }
+        }
+
+        private void finishConnect() {
+            try {
+                channel.finishConnect();
+                attach(channel);
+            } catch (IOException e) {
+                fail("Failed to connect: " + e.getMessage());
+            }
+        }
+
+        // Bắt đầu đọc trên |socketChannel| đã kết nối.
+        // Starts reading on the connected |socketChannel|.
+        private void attach(SocketChannel socketChannel) {
+            channel = socketChannel;
+            try {
+                socketChannel.configureBlocking(false);
+                // Tin nhắn đã được gom trước khi ghi, không cần thuật toán Nagle.
+                // Messages are already coalesced before writing, Nagle's algorithm only
+                // delays them.
+                socketChannel.socket().setTcpNoDelay(true);
+                socketChannel.register(selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                fail("Failed to open IO on rawSocket: " + e.getMessage());
+                return;
+            }
+            connected = true;
+            synchronized (this) {
+                opened = true;
+            }
+            Log.d(TAG, "TCP connection established.");
+            dispatch(executor, () -> callbacks.onConnected(this));
+            enableWrite();
+        }
+
+        private void read() {
+            int count;
+            try {
+                do {
+                    readBuffer.clear();
+                    count = channel.read(readBuffer);
+                    if (count > 0) {
+                        readBuffer.flip();
+                        decoder.feed(readBuffer, sink);
+                    }
+                } while (count == readBuffer.capacity());
+                if (count == -1) {
+                    decoder.finish(sink);
+                }
+            } catch (IOException e) {
+                if (!isClosed()) {
+                    fail("Failed to read from rawSocket: " + e.getMessage());
+                }
+                return;
+            }
+            if (count == -1) {
+                // Bên kia đóng kết nối.
+                // The peer closed the connection.
+                Log.d(TAG, "Receiving side closed.");
+                if (markClosed()) {
+                    closeChannel();
+                }
+            }
+        }
+
+        private void onMessage(String message) {
+            dispatch(executor, () -> callbacks.onMessage(this, message));
+        }
+
+        private void enableWrite() {
+            if (!connected || channel == null) {
+                return;
+            }
+            if (!flushOutbound() && channel != null) {
+                final SelectionKey key = channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+        }
+
+        private void write() {
+            if (flushOutbound() && channel != null) {
+                final SelectionKey key = channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+            }
+        }
+
+        // Ghi không chặn mọi dữ liệu có thể; trả về true nếu không còn gì đang chờ.
+        // Writes as much as possible without blocking; returns true if nothing is pending.
+        private boolean flushOutbound() {
+            if (!connected || channel == null) {
+                return true;
+            }
+            synchronized (this) {
+                try {
+                    while (!outbound.isEmpty()) {
+                        final ByteBuffer head = outbound.peek();
+                        head.flip();
+                        channel.write(head);
+                        if (head.hasRemaining()) {
+                            head.compact();
+                            return false;
+                        }
+                        outbound.poll();
+                        releaseBuffer(head);
+                    }
+                } catch (IOException e) {
+                    fail("Failed to write to rawSocket: " + e.getMessage());
+                }
+                return true;
+            }
+        }
+
+        private void fail(String description) {
+            Log.e(TAG, "TCP Error: " + description);
+            dispatch(executor, () -> callbacks.onError(this, description));
+            if (markClosed()) {
+                closeChannel();
+            }
+        }
+
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+
+        // Trả về true ở lần gọi đầu tiên và báo onClosed() nếu đã kết nối.
+        // Returns true on the first call and reports onClosed() if connected.
+        private boolean markClosed() {
+            final boolean wasOpened;
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                closed = true;
+                wasOpened = opened;
+            }
+            if (wasOpened) {
+                // Báo ngay từ luồng gọi để sự kiện đến trước khi executor có thể bị tắt.
+                // Reported right from the calling thread so the event is queued before the
+                // executor may be shut down.
+                dispatch(executor, () -> callbacks.onClosed(this));
+            }
+            return true;
+        }
+
+        private void closeChannel() {
+            decoder.release();
+            synchronized (this) {
+                for (ByteBuffer buffer : outbound) {
+                    releaseBuffer(buffer);
+                }
+                outbound.clear();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to close rawSocket: " + e.getMessage());
+                }
+                channel = null;
+                if (server != null) {
+                    server.onConnectionClosed();
+                }
+            }
+            connected = false;
+        }
+    }
+
+    private ByteBuffer acquireBuffer() {
+        synchronized (bufferPool) {
+            final ByteBuffer buffer = bufferPool.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        synchronized (bufferPool) {
+            if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+                bufferPool.add(buffer);
+            }
+        }
+    }
+
+    private static void dispatch(Executor executor, Runnable event) {
+        try {
+            executor.execute(event);
+        } catch (RejectedExecutionException e) {
+            // Executor đã tắt, ví dụ sau khi rời phòng.
+            // The executor is shut down, e.g. after leaving the room.
+            Log.w(TAG, "Dropping event, executor is shut down.");
+        }
+    }
+
+    // Chạy |task| trên luồng I/O, khởi động luồng nếu cần.
+    // Runs |task| on the I/O thread, starting the thread if needed.
+    private void runOnIoThread(Runnable task) {
+        pendingTasks.add(task);
+        synchronized (this) {
+            if (ioThread == null) {
+                try {
+                    selector = Selector.open();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to open selector", e);
+                }
+                ioThread = new Thread(this::loop, "tcp-io");
+                ioThread.setDaemon(true);
+                ioThread.start();
+                return;
+            }
+        }
+        selector.wakeup();
+    }
+
+    // Một tác vụ hoặc khóa lỗi chỉ làm hỏng kết nối của nó, không làm dừng luồng I/O. Nếu
+    // luồng vẫn dừng, ví dụ vì một Error, lần runOnIoThread() sau khởi động luồng mới.
+    // A failing task or key only breaks its own connection, never the I/O thread. If the thread
+    // dies anyway, e.g. on an Error, the next runOnIoThread() starts a new one.
+    private void loop() {
+        Log.d(TAG, "I/O thread started");
+        try {
+            while (true) {
+                Runnable task;
+                while ((task = pendingTasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "I/O task failed", e);
+                    }
+                }
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    Log.e(TAG, "Selector failed: " + e.getMessage());
+                    continue;
+                }
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        handle(key);
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "I/O event failed", e);
+                        closeAttachment(key, e);
+                    }
+                }
+            }
+        } finally {
+            Log.e(TAG, "I/O thread stopped");
+            synchronized (this) {
+                ioThread = null;
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to close selector: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Đóng socket của |key| sau khi xử lý nó thất bại.
+    // Closes the socket of |key| after handling it failed.
+    private static void closeAttachment(SelectionKey key, RuntimeException e) {
+        final Object attachment = key.attachment();
+        if (attachment instanceof Server) {
+            ((Server) attachment).closeChannel();
+        } else if (attachment instanceof Connection) {
+            ((Connection) attachment).fail("Internal error: " + e);
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        final Object attachment = key.attachment();
+        if (attachment instanceof Server) {
+            if (key.isAcceptable()) {
+                ((Server) attachment).accept();
+            }
+            return;
+        }
+        final Connection connection = (Connection) attachment;
+        try {
+            if (key.isConnectable()) {
+                connection.finishConnect();
+                return;
+            }
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.write();
+            }
+        } catch (CancelledKeyException e) {
+            // Kết nối vừa bị đóng.
+            // The connection was just closed.
+        }
+    }
+}
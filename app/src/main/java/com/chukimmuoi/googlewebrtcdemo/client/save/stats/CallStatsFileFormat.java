@@ -0,0 +1,230 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.save.stats;
+
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Định dạng tệp nhị phân của CallStatsRecorder, dùng chung với công cụ đọc trên JVM.
+ * Binary file format of CallStatsRecorder, shared with the JVM reader tool. All numbers are big
+ * endian.
+ *
+ * <pre>
+ * header:  int magic, short version, short metric count, int record size, long start time ms,
+ *          then per metric: short id, byte type ('L' long or 'D' double), short name length,
+ *          UTF-8 name.
+ * record:  int sequence, long timestamp us, one 8 byte value per metric in dictionary order,
+ *          int CRC32 of the preceding bytes of the record.
+ * </pre>
+ *
+ * Bản ghi có độ dài cố định; bản ghi cuối bị cắt hoặc sai CRC sau sự cố được bỏ qua.
+ * Records have a fixed width, so a reader knows where every record starts; a truncated or
+ * mismatching last record after a crash is skipped. Metric ids never change meaning, new metrics
+ * get new ids. The codec names are not recorded since they are not fixed-width.
+ *
+ * <p>Lớp này không phụ thuộc Android.
+ * This class has no Android dependencies.
+ */
+public final class CallStatsFileFormat {
+    public static final int MAGIC = 0x43535453; // "CSTS"
+    public static final int VERSION = 1;
+    public static final byte TYPE_LONG = 'L';
+    public static final byte TYPE_DOUBLE = 'D';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Từ điển số liệu, theo đúng thứ tự ghi trong encode().
+    // Metric dictionary, in the order written by encode().
+    private static final String[] NAMES = {
+            "video_bytes_sent", "video_packets_sent", "video_frames_encoded", "video_qp_sum",
+            "video_frame_width_sent", "video_frame_height_sent", "video_fps_sent",
+            "video_target_bitrate_bps", "video_quality_limitation", "video_send_bitrate_bps",
+            "audio_bytes_sent", "audio_packets_sent", "audio_send_bitrate_bps",
+            "video_bytes_received", "video_packets_received", "video_packets_lost",
+            "video_jitter_s", "video_frames_decoded", "video_frames_dropped",
+            "video_frame_width_received", "video_frame_height_received", "video_fps_received",
+            "video_receive_bitrate_bps",
+            "audio_bytes_received", "audio_packets_received", "audio_packets_lost",
+            "audio_jitter_s", "audio_receive_bitrate_bps",
+            "connected", "rtt_s", "available_outgoing_bitrate_bps",
+            "available_incoming_bitrate_bps",
+    };
+    private static final byte[] TYPES = {
+            TYPE_LONG, TYPE_LONG, TYPE_LONG, TYPE_LONG,
+            TYPE_LONG, TYPE_LONG, TYPE_DOUBLE,
+            TYPE_DOUBLE, TYPE_LONG, TYPE_LONG,
+            TYPE_LONG, TYPE_LONG, TYPE_LONG,
+            TYPE_LONG, TYPE_LONG, TYPE_LONG,
+            TYPE_DOUBLE, TYPE_LONG, TYPE_LONG,
+            TYPE_LONG, TYPE_LONG, TYPE_DOUBLE,
+            TYPE_LONG,
+            TYPE_LONG, TYPE_LONG, TYPE_LONG,
+            TYPE_DOUBLE, TYPE_LONG,
+            TYPE_LONG, TYPE_DOUBLE, TYPE_DOUBLE,
+            TYPE_DOUBLE,
+    };
+
+    /**
+     * Số byte của một bản ghi do phiên bản này ghi.
+     * Size in bytes of a record written by this version.
+     */
+    public static final int RECORD_SIZE = recordSize(NAMES.length);
+
+    /**
+     * Từ điển đọc từ phần đầu tệp.
+     * Dictionary read from a file header.
+     */
+    public static final class Header {
+        public final int version;
+        public final int recordSize;
+        public final long startTimeMs;
+        public final short[] ids;
+        public final byte[] types;
+        public final String[] names;
+
+        Header(int version, int recordSize, long startTimeMs, short[] ids, byte[] types,
+                String[] names) {
+            this.version = version;
+            this.recordSize = recordSize;
+            this.startTimeMs = startTimeMs;
+            this.ids = ids;
+            this.types = types;
+            this.names = names;
+        }
+    }
+
+    private CallStatsFileFormat() {
+    }
+
+    public static int recordSize(int metricCount) {
+        return 4 + 8 + 8 * metricCount + 4;
+    }
+
+    /**
+     * Phần đầu tệp cho bản ghi bắt đầu lúc |startTimeMs|.
+     * File header for a recording started at |startTimeMs|.
+     */
+    public static ByteBuffer header(long startTimeMs) {
+        int size = 4 + 2 + 2 + 4 + 8;
+        final byte[][] names = new byte[NAMES.length][];
+        for (int i = 0; i < NAMES.length; i++) {
+            names[i] = NAMES[i].getBytes(UTF_8);
+            size += 2 + 1 + 2 + names[i].length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) NAMES.length)
+                .putInt(RECORD_SIZE).putLong(startTimeMs);
+        for (int i = 0; i < NAMES.length; i++) {
+            buffer.putShort((short) (i + 1)).put(TYPES[i]).putShort((short) names[i].length)
+                    .put(names[i]);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Đọc phần đầu tệp, ném IOException nếu đây không phải tệp thống kê.
+     * Reads a file header, throws IOException if this is not a stats file.
+     */
+    public static Header readHeader(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a call stats file");
+        }
+        final int version = in.readShort();
+        if (version > VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        final int count = in.readShort();
+        final int recordSize = in.readInt();
+        final long startTimeMs = in.readLong();
+        if (count < 0 || recordSize != recordSize(count)) {
+            throw new IOException("Invalid record size " + recordSize + " for " + count);
+        }
+        final short[] ids = new short[count];
+        final byte[] types = new byte[count];
+        final String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readShort();
+            types[i] = in.readByte();
+            final byte[] name = new byte[in.readShort()];
+            in.readFully(name);
+            names[i] = new String(name, UTF_8);
+        }
+        return new Header(version, recordSize, startTimeMs, ids, types, names);
+    }
+
+    /**
+     * Ghi |stats| thành một bản ghi vào |buffer| có mảng nền, từ vị trí 0; |crc| được dùng lại.
+     * Encodes |stats| as one record into the array-backed |buffer|, from position 0, and flips
+     * it; |crc| is reused.
+     */
+    public static void encode(CallStatsSnapshot stats, ByteBuffer buffer, CRC32 crc) {
+        buffer.clear();
+        buffer.putInt((int) stats.getSequence()).putLong(stats.getTimestampUs());
+        buffer.putLong(stats.getVideoBytesSent())
+                .putLong(stats.getVideoPacketsSent())
+                .putLong(stats.getVideoFramesEncoded())
+                .putLong(stats.getVideoQpSum())
+                .putLong(stats.getVideoFrameWidthSent())
+                .putLong(stats.getVideoFrameHeightSent())
+                .putDouble(stats.getVideoFramesPerSecondSent())
+                .putDouble(stats.getVideoTargetBitrateBps())
+                .putLong(stats.getVideoQualityLimitation())
+                .putLong(stats.getVideoSendBitrateBps());
+        buffer.putLong(stats.getAudioBytesSent())
+                .putLong(stats.getAudioPacketsSent())
+                .putLong(stats.getAudioSendBitrateBps());
+        buffer.putLong(stats.getVideoBytesReceived())
+                .putLong(stats.getVideoPacketsReceived())
+                .putLong(stats.getVideoPacketsLost())
+                .putDouble(stats.getVideoJitterSeconds())
+                .putLong(stats.getVideoFramesDecoded())
+                .putLong(stats.getVideoFramesDropped())
+                .putLong(stats.getVideoFrameWidthReceived())
+                .putLong(stats.getVideoFrameHeightReceived())
+                .putDouble(stats.getVideoFramesPerSecondReceived())
+                .putLong(stats.getVideoReceiveBitrateBps());
+        buffer.putLong(stats.getAudioBytesReceived())
+                .putLong(stats.getAudioPacketsReceived())
+                .putLong(stats.getAudioPacketsLost())
+                .putDouble(stats.getAudioJitterSeconds())
+                .putLong(stats.getAudioReceiveBitrateBps());
+        buffer.putLong(stats.isConnected() ? 1 : 0)
+                .putDouble(stats.getRoundTripTimeSeconds())
+                .putDouble(stats.getAvailableOutgoingBitrateBps())
+                .putDouble(stats.getAvailableIncomingBitrateBps());
+        buffer.putInt(checksum(buffer.array(), buffer.arrayOffset(), buffer.position(), crc));
+        buffer.flip();
+    }
+
+    /**
+     * Kiểm tra CRC của bản ghi |record| dài |recordSize| byte.
+     * Checks the CRC of the |recordSize| bytes long |record|.
+     */
+    public static boolean isValid(byte[] record, int recordSize, CRC32 crc) {
+        final int end = recordSize - 4;
+        final int stored = ((record[end] & 0xff) << 24) | ((record[end + 1] & 0xff) << 16)
+                | ((record[end + 2] & 0xff) << 8) | (record[end + 3] & 0xff);
+        return stored == checksum(record, 0, end, crc);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length, CRC32 crc) {
+        crc.reset();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.save.stats;
+
+import android.util.Log;
+
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * Ghi các ảnh chụp thống kê của một cuộc gọi vào tệp nhị phân, xem CallStatsFileFormat.
+ * Records the stats snapshots of one call into a binary file, see CallStatsFileFormat. record()
+ * only encodes the snapshot into a pooled buffer on the calling thread; the write goes through a
+ * FileChannel on a thread of its own, since force() blocks for the flash write and must not hold
+ * a thread of the shared session pool. When the writer falls behind, a sample is dropped instead
+ * of queueing more buffers, so the cost stays bounded.
+ *
+ * <p>Mỗi bản ghi được ghi bằng một lần write() nên còn lại sau khi tiến trình bị dừng; force()
+ * định kỳ giữ chúng qua sự cố của hệ thống.
+ * Every record is handed to the kernel by a single write(), so it survives the process dying
+ * mid-call; a periodic force() also keeps the records across a device crash.
+ */
+public class CallStatsRecorder {
+    private static final String TAG = "CallStatsRecorder";
+    private static final int BUFFER_COUNT = 4;
+    // Số bản ghi giữa hai lần force(), tức 10 giây ở 1 Hz.
+    // Records between two force() calls, i.e. 10 seconds at 1 Hz.
+    private static final int FORCE_INTERVAL_RECORDS = 10;
+    // Số tệp giữ lại trong thư mục; các tệp cũ hơn bị xóa khi bắt đầu.
+    // Files kept in the directory; older ones are deleted on start.
+    private static final int MAX_FILES = 20;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "call-stats-io"));
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers =
+            new ArrayBlockingQueue<>(BUFFER_COUNT);
+    // Chỉ dùng trên luồng gọi record(), mỗi lần một luồng.
+    // Only used on the thread calling record(), one at a time.
+    private final CRC32 encodeCrc = new CRC32();
+    // Chỉ dùng trên luồng ghi.
+    // Only used on the writer thread.
+    private FileChannel channel;
+    private int recordsSinceForce;
+    private volatile boolean started;
+    private volatile long recordCount;
+    private volatile long droppedCount;
+
+    public CallStatsRecorder() {
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(ByteBuffer.allocate(CallStatsFileFormat.RECORD_SIZE));
+        }
+    }
+
+    /**
+     * Mở |outputFile| và ghi phần đầu tệp trên luồng ghi.
+     * Opens |outputFile| and writes the file header on the writer thread.
+     */
+    public void start(final File outputFile) {
+        if (started) {
+            Log.e(TAG, "CallStatsRecorder has already started.");
+            return;
+        }
+        started = true;
+        execute(() -> {
+            deleteOldFiles(outputFile.getParentFile());
+            try {
+                channel = new FileOutputStream(outputFile).getChannel();
+                write(CallStatsFileFormat.header(System.currentTimeMillis()));
+                channel.force(true);
+                Log.d(TAG, "CallStatsRecorder started: " + outputFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to create " + outputFile, e);
+                closeChannel();
+            }
+        });
+    }
+
+    /**
+     * Ghi |stats|; chỉ đọc |stats| trong lúc gọi.
+     * Records |stats|; only reads |stats| during the call.
+     */
+    public void record(CallStatsSnapshot stats) {
+        if (!started) {
+            return;
+        }
+        final ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            droppedCount++;
+            return;
+        }
+        CallStatsFileFormat.encode(stats, buffer, encodeCrc);
+        final boolean queued = execute(() -> {
+            try {
+                if (channel != null) {
+                    write(buffer);
+                    recordCount++;
+                    if (++recordsSinceForce >= FORCE_INTERVAL_RECORDS) {
+                        recordsSinceForce = 0;
+                        channel.force(false);
+                    }
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write stats record.", e);
+                closeChannel();
+            } finally {
+                freeBuffers.offer(buffer);
+            }
+        });
+        if (!queued) {
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Đóng tệp sau khi các bản ghi đang chờ đã được ghi, rồi dừng luồng ghi. Không thể bắt
+     * đầu lại sau đó.
+     * Closes the file once the pending records are written, then ends the writer thread. The
+     * recorder cannot be started again afterwards.
+     */
+    public void stop() {
+        if (!started) {
+            Log.e(TAG, "CallStatsRecorder was not started.");
+            return;
+        }
+        started = false;
+        execute(() -> {
+            closeChannel();
+            Log.d(TAG, "CallStatsRecorder stopped. Records: " + recordCount
+                    + ", dropped: " + droppedCount);
+        });
+        executor.shutdown();
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    // Trả về false nếu luồng ghi đã dừng, ví dụ khi record() chạy đua với stop().
+    // Returns false if the writer thread has ended, e.g. when record() races with stop().
+    private boolean execute(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close stats file.", e);
+        }
+        channel = null;
+    }
+
+    private static void deleteOldFiles(File directory) {
+        final File[] files = directory != null ? directory.listFiles() : null;
+        if (files == null || files.length < MAX_FILES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i <= files.length - MAX_FILES; i++) {
+            if (!files[i].delete()) {
+                Log.w(TAG, "Failed to delete " + files[i]);
+            }
+        }
+    }
+}
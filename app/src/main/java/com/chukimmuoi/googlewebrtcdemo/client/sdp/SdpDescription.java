@@ -0,0 +1,338 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.sdp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mô hình SDP được phân tích một lần thành các phần m= được lập chỉ mục và các dòng thuộc tính.
+ * Tất cả các phép biến đổi được áp dụng trên mô hình và kết quả chỉ được tuần tự hóa một lần.
+ * SDP model which is parsed once into indexed m-sections and attribute lines. All munging
+ * transforms are applied to the model and the result is serialized only once.
+ *
+ * <p>Lớp này không an toàn luồng và không phụ thuộc vào Android.
+ * This class is not thread-safe and has no Android dependencies.
+ */
+public final class SdpDescription {
+    private static final String LINE_SEPARATOR = "\r\n";
+    private static final String MEDIA_PREFIX = "m=";
+    private static final String RTPMAP_PREFIX = "a=rtpmap:";
+    private static final String FMTP_PREFIX = "a=fmtp:";
+    private static final String MEDIA_AUDIO = "audio";
+    private static final String MEDIA_VIDEO = "video";
+    private static final String VIDEO_CODEC_PARAM_START_BITRATE = "x-google-start-bitrate";
+    private static final String AUDIO_CODEC_PARAM_BITRATE = "maxaveragebitrate";
+
+    private final String original;
+    private final List<String> sessionLines = new ArrayList<>();
+    private final List<MediaSection> mediaSections = new ArrayList<>();
+    private boolean modified;
+
+    private SdpDescription(String original) {
+        this.original = original;
+    }
+
+    /**
+     * Phân tích |sdpDescription| trong một lần quét duy nhất.
+     * Parses |sdpDescription| in a single scan. Lines are expected to be separated by "\r\n";
+     * empty lines are dropped.
+     */
+    public static SdpDescription parse(String sdpDescription) {
+        final SdpDescription description = new SdpDescription(sdpDescription);
+        final int length = sdpDescription.length();
+        MediaSection section = null;
+        int start = 0;
+        while (start < length) {
+            int end = sdpDescription.indexOf(LINE_SEPARATOR, start);
+            if (end == -1) {
+                end = length;
+            }
+            if (end > start) {
+                final String line = sdpDescription.substring(start, end);
+                if (line.startsWith(MEDIA_PREFIX)) {
+                    section = new MediaSection(line);
+                    description.mediaSections.add(section);
+                } else if (section != null) {
+                    section.addAttributeLine(line);
+                } else {
+                    description.sessionLines.add(line);
+                }
+            }
+            start = end + LINE_SEPARATOR.length();
+        }
+        return description;
+    }
+
+    public List<MediaSection> getMediaSections() {
+        return mediaSections;
+    }
+
+    /**
+     * Trả về phần m= đầu tiên của loại |media| hoặc null nếu không tồn tại.
+     * Returns the first m-section of type |media| ("audio", "video", ...), or null if no such
+     * section exists.
+     */
+    public MediaSection findMediaSection(String media) {
+        for (MediaSection section : mediaSections) {
+            if (section.media.equals(media)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Di chuyển các kiểu tải trọng của |codec| lên đầu dòng m=audio|video đầu tiên.
+     * Moves the payload types of |codec| to the front of the first m=audio|video line.
+     *
+     * @return false if there is no such m-section, it has no payload types with name |codec| or
+     * its media description line is malformed.
+     */
+    public boolean preferCodec(String codec, boolean isAudio) {
+        final MediaSection section = findMediaSection(isAudio ? MEDIA_AUDIO : MEDIA_VIDEO);
+        if (section == null || !section.preferCodec(codec)) {
+            return false;
+        }
+        modified = true;
+        return true;
+    }
+
+    /**
+     * Đặt tốc độ bit bắt đầu cho |codec| trong phần m= đầu tiên có chứa codec đó.
+     * Sets the start bitrate of |codec| in the first m-section that has an rtpmap for it. An
+     * existing a=fmtp line is extended, otherwise a new one is added after the rtpmap line.
+     *
+     * @return false if no rtpmap for |codec| exists.
+     */
+    public boolean setStartBitrate(String codec, boolean isVideoCodec, int bitrateKbps) {
+        for (MediaSection section : mediaSections) {
+            final int rtpmapLine = section.findRtpmapLine(codec);
+            if (rtpmapLine == -1) {
+                continue;
+            }
+            final String payloadType = section.getPayloadType(rtpmapLine);
+            final String bitrateParam = isVideoCodec
+                    ? VIDEO_CODEC_PARAM_START_BITRATE + "=" + bitrateKbps
+                    : AUDIO_CODEC_PARAM_BITRATE + "=" + (bitrateKbps * 1000);
+            final int fmtpLine = section.findNumericFmtpLine(payloadType);
+            if (fmtpLine != -1) {
+                section.attributeLines.set(
+                        fmtpLine, section.attributeLines.get(fmtpLine) + "; " + bitrateParam);
+            } else {
+                section.insertAttributeLine(
+                        rtpmapLine + 1, FMTP_PREFIX + payloadType + " " + bitrateParam);
+            }
+            modified = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tuần tự hóa mô hình. Trả về chuỗi gốc nếu không có phép biến đổi nào được áp dụng.
+     * Serializes the model. Returns the original string if no transform has been applied.
+     */
+    public String serialize() {
+        if (!modified) {
+            return original;
+        }
+        final StringBuilder builder = new StringBuilder(original.length() + 64);
+        for (String line : sessionLines) {
+            builder.append(line).append(LINE_SEPARATOR);
+        }
+        for (MediaSection section : mediaSections) {
+            section.appendTo(builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Một phần m= với dòng mô tả phương tiện và các dòng thuộc tính của nó.
+     * One m-section: the media description line and its attribute lines. rtpmap lines are
+     * indexed while parsing so codec lookups do not rescan the section.
+     */
+    public static final class MediaSection {
+        private final String media;
+        private final List<String> attributeLines = new ArrayList<>();
+        private String mLine;
+        // Chỉ mục (trong attributeLines) của các dòng a=rtpmap.
+        // Indexes (into attributeLines) of the a=rtpmap lines.
+        private int[] rtpmapLines = new int[8];
+        private int rtpmapCount;
+
+        MediaSection(String mLine) {
+            this.mLine = mLine;
+            final int mediaEnd = mLine.indexOf(' ');
+            this.media = mLine.substring(
+                    MEDIA_PREFIX.length(), mediaEnd == -1 ? mLine.length() : mediaEnd);
+        }
+
+        public String getMedia() {
+            return media;
+        }
+
+        public String getMediaDescriptionLine() {
+            return mLine;
+        }
+
+        public List<String> getAttributeLines() {
+            return Collections.unmodifiableList(attributeLines);
+        }
+
+        /**
+         * Trả về các kiểu tải trọng có tên |codec| theo thứ tự xuất hiện.
+         * Returns the payload types with name |codec|, in order of appearance.
+         */
+        public List<String> getPayloadTypes(String codec) {
+            final List<String> payloadTypes = new ArrayList<>();
+            for (int i = 0; i < rtpmapCount; ++i) {
+                if (rtpmapMatches(attributeLines.get(rtpmapLines[i]), codec)) {
+                    payloadTypes.add(getPayloadType(rtpmapLines[i]));
+                }
+            }
+            return payloadTypes;
+        }
+
+        private void addAttributeLine(String line) {
+            if (line.startsWith(RTPMAP_PREFIX)) {
+                if (rtpmapCount == rtpmapLines.length) {
+                    final int[] grown = new int[rtpmapLines.length * 2];
+                    System.arraycopy(rtpmapLines, 0, grown, 0, rtpmapCount);
+                    rtpmapLines = grown;
+                }
+                rtpmapLines[rtpmapCount++] = attributeLines.size();
+            }
+            attributeLines.add(line);
+        }
+
+        private void insertAttributeLine(int index, String line) {
+            attributeLines.add(index, line);
+            for (int i = 0; i < rtpmapCount; ++i) {
+                if (rtpmapLines[i] >= index) {
+                    rtpmapLines[i]++;
+                }
+            }
+        }
+
+        private boolean preferCodec(String codec) {
+            final List<String> preferredPayloadTypes = getPayloadTypes(codec);
+            if (preferredPayloadTypes.isEmpty()) {
+                return false;
+            }
+            // Định dạng của dòng mô tả phương tiện phải là: m=<media> <port> <proto> <fmt> ...
+            // The format of the media description line should be: m=<media> <port> <proto> <fmt> ...
+            int headerEnd = -1;
+            for (int i = 0; i < 3; ++i) {
+                headerEnd = mLine.indexOf(' ', headerEnd + 1);
+                if (headerEnd == -1) {
+                    return false;
+                }
+            }
+            final StringBuilder newMLine = new StringBuilder(mLine.length());
+            newMLine.append(mLine, 0, headerEnd);
+            for (String payloadType : preferredPayloadTypes) {
+                newMLine.append(' ').append(payloadType);
+            }
+            int start = headerEnd + 1;
+            while (start < mLine.length()) {
+                int end = mLine.indexOf(' ', start);
+                if (end == -1) {
+                    end = mLine.length();
+                }
+                if (!containsRegion(preferredPayloadTypes, mLine, start, end)) {
+                    newMLine.append(' ').append(mLine, start, end);
+                }
+                start = end + 1;
+            }
+            mLine = newMLine.toString();
+            return true;
+        }
+
+        // Trả về chỉ mục của dòng a=rtpmap đầu tiên cho |codec| hoặc -1.
+        // Returns the index of the first a=rtpmap line for |codec|, or -1.
+        private int findRtpmapLine(String codec) {
+            for (int i = 0; i < rtpmapCount; ++i) {
+                if (rtpmapMatches(attributeLines.get(rtpmapLines[i]), codec)) {
+                    return rtpmapLines[i];
+                }
+            }
+            return -1;
+        }
+
+        // Trả về chỉ mục của dòng "a=fmtp:<pt> <key>=<number>..." hoặc -1.
+        // Returns the index of the "a=fmtp:<pt> <key>=<number>..." line, or -1.
+        private int findNumericFmtpLine(String payloadType) {
+            final int paramsStart = FMTP_PREFIX.length() + payloadType.length() + 1;
+            for (int i = 0; i < attributeLines.size(); ++i) {
+                final String line = attributeLines.get(i);
+                if (line.length() > paramsStart && line.startsWith(FMTP_PREFIX)
+                        && line.startsWith(payloadType, FMTP_PREFIX.length())
+                        && line.charAt(paramsStart - 1) == ' '
+                        && isNumericParameter(line, paramsStart)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private String getPayloadType(int rtpmapLine) {
+            final String line = attributeLines.get(rtpmapLine);
+            return line.substring(RTPMAP_PREFIX.length(), line.indexOf(' '));
+        }
+
+        private void appendTo(StringBuilder builder) {
+            builder.append(mLine).append(LINE_SEPARATOR);
+            for (String line : attributeLines) {
+                builder.append(line).append(LINE_SEPARATOR);
+            }
+        }
+
+        // Khớp "a=rtpmap:<payload type> <encoding name>/<clock rate> [/<encoding parameters>]".
+        // Matches "a=rtpmap:<payload type> <encoding name>/<clock rate> [/<encoding parameters>]".
+        private static boolean rtpmapMatches(String line, String codec) {
+            final int nameStart = line.indexOf(' ') + 1;
+            if (nameStart == 0 || nameStart == RTPMAP_PREFIX.length() + 1) {
+                return false;
+            }
+            for (int i = RTPMAP_PREFIX.length(); i < nameStart - 1; ++i) {
+                if (!Character.isDigit(line.charAt(i))) {
+                    return false;
+                }
+            }
+            final int nameEnd = nameStart + codec.length();
+            return line.startsWith(codec, nameStart) && line.length() > nameEnd + 1
+                    && line.charAt(nameEnd) == '/' && Character.isDigit(line.charAt(nameEnd + 1));
+        }
+
+        // Khớp "<word>=<digit>" bắt đầu từ |start|.
+        // Matches "<word>=<digit>" starting at |start|.
+        private static boolean isNumericParameter(String line, int start) {
+            int i = start;
+            while (i < line.length()
+                    && (Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '_')) {
+                ++i;
+            }
+            return i > start && i + 1 < line.length() && line.charAt(i) == '='
+                    && Character.isDigit(line.charAt(i + 1));
+        }
+
+        private static boolean containsRegion(List<String> values, String s, int start, int end) {
+            for (String value : values) {
+                if (value.length() == end - start && s.startsWith(value, start)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
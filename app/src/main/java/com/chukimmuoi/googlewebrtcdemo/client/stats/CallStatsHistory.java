@@ -0,0 +1,228 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+import java.util.Locale;
+
+/**
+ * Lịch sử trong bộ nhớ của các số liệu cuộc gọi trong vài phút gần nhất.
+ * In-memory history of the call metrics over the last few minutes: bitrates, RTT, jitter,
+ * packet loss, FPS, QP and CPU, each in its own StatsSeries. The capacity is fixed up front from
+ * the covered duration and the shortest stats period, so that adding a snapshot never
+ * allocates. Nothing is persisted; the history goes away with the call.
+ */
+public class CallStatsHistory {
+    private final StatsSeries videoSendBitrate;
+    private final StatsSeries videoReceiveBitrate;
+    private final StatsSeries audioSendBitrate;
+    private final StatsSeries audioReceiveBitrate;
+    private final StatsSeries roundTripTimeMs;
+    private final StatsSeries videoJitterMs;
+    private final StatsSeries audioJitterMs;
+    private final StatsSeries videoPacketLossPercent;
+    private final StatsSeries audioPacketLossPercent;
+    private final StatsSeries videoFpsSent;
+    private final StatsSeries videoFpsReceived;
+    private final StatsSeries videoQp;
+    private final StatsSeries cpuUsagePercent;
+    private final StatsSeries.Summary summary = new StatsSeries.Summary();
+
+    // Bộ đếm của ảnh chụp trước, để tính tỉ lệ mất gói và QP giữa hai lần.
+    // Counters of the previous snapshot, to derive packet loss and QP between two of them.
+    private long previousTimestampMs = -1;
+    private long previousVideoPacketsLost;
+    private long previousVideoPacketsReceived;
+    private long previousAudioPacketsLost;
+    private long previousAudioPacketsReceived;
+    private long previousVideoQpSum;
+    private long previousVideoFramesEncoded;
+
+    /**
+     * Giữ |minutes| phút lịch sử, với chu kỳ thống kê ngắn nhất |minPeriodMs|.
+     * Keeps |minutes| of history for a stats period of at least |minPeriodMs|.
+     */
+    public CallStatsHistory(int minutes, int minPeriodMs) {
+        if (minutes <= 0 || minPeriodMs <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid history: " + minutes + " min, " + minPeriodMs + " ms");
+        }
+        final int capacity = (int) Math.max(1, minutes * 60000L / minPeriodMs);
+        videoSendBitrate = StatsSeries.counter(capacity);
+        videoReceiveBitrate = StatsSeries.counter(capacity);
+        audioSendBitrate = StatsSeries.counter(capacity);
+        audioReceiveBitrate = StatsSeries.counter(capacity);
+        roundTripTimeMs = StatsSeries.gauge(capacity);
+        videoJitterMs = StatsSeries.gauge(capacity);
+        audioJitterMs = StatsSeries.gauge(capacity);
+        videoPacketLossPercent = StatsSeries.gauge(capacity);
+        audioPacketLossPercent = StatsSeries.gauge(capacity);
+        videoFpsSent = StatsSeries.gauge(capacity);
+        videoFpsReceived = StatsSeries.gauge(capacity);
+        videoQp = StatsSeries.gauge(capacity);
+        cpuUsagePercent = StatsSeries.gauge(capacity);
+    }
+
+    /**
+     * Thêm một ảnh chụp thống kê; các giá trị chưa biết (-1) được bỏ qua.
+     * Adds a stats snapshot; unknown values (-1) are skipped.
+     */
+    public synchronized void add(CallStatsSnapshot stats) {
+        final long timestampMs = stats.getTimestampUs() / 1000;
+        // Bitrate là tốc độ mỗi giây của số bit, từ bộ đếm byte.
+        // The bitrates are the rates per second of the bit counts, from the byte counters.
+        videoSendBitrate.addCounter(timestampMs, stats.getVideoBytesSent() * 8.0);
+        videoReceiveBitrate.addCounter(timestampMs, stats.getVideoBytesReceived() * 8.0);
+        audioSendBitrate.addCounter(timestampMs, stats.getAudioBytesSent() * 8.0);
+        audioReceiveBitrate.addCounter(timestampMs, stats.getAudioBytesReceived() * 8.0);
+        addGauge(roundTripTimeMs, timestampMs, stats.getRoundTripTimeSeconds() * 1000);
+        addGauge(videoJitterMs, timestampMs, stats.getVideoJitterSeconds() * 1000);
+        addGauge(audioJitterMs, timestampMs, stats.getAudioJitterSeconds() * 1000);
+        addGauge(videoFpsSent, timestampMs, stats.getVideoFramesPerSecondSent());
+        addGauge(videoFpsReceived, timestampMs, stats.getVideoFramesPerSecondReceived());
+
+        if (previousTimestampMs >= 0 && timestampMs > previousTimestampMs) {
+            addLoss(videoPacketLossPercent, timestampMs,
+                    stats.getVideoPacketsLost() - previousVideoPacketsLost,
+                    stats.getVideoPacketsReceived() - previousVideoPacketsReceived);
+            addLoss(audioPacketLossPercent, timestampMs,
+                    stats.getAudioPacketsLost() - previousAudioPacketsLost,
+                    stats.getAudioPacketsReceived() - previousAudioPacketsReceived);
+            final long frames = stats.getVideoFramesEncoded() - previousVideoFramesEncoded;
+            final long qpSum = stats.getVideoQpSum() - previousVideoQpSum;
+            if (frames > 0 && qpSum >= 0) {
+                videoQp.add(timestampMs, (double) qpSum / frames);
+            }
+        }
+        previousTimestampMs = timestampMs;
+        previousVideoPacketsLost = stats.getVideoPacketsLost();
+        previousVideoPacketsReceived = stats.getVideoPacketsReceived();
+        previousAudioPacketsLost = stats.getAudioPacketsLost();
+        previousAudioPacketsReceived = stats.getAudioPacketsReceived();
+        previousVideoQpSum = stats.getVideoQpSum();
+        previousVideoFramesEncoded = stats.getVideoFramesEncoded();
+    }
+
+    /**
+     * Thêm mức sử dụng CPU, ví dụ từ CpuMonitor.
+     * Adds a CPU usage sample, e.g. from CpuMonitor.
+     */
+    public synchronized void addCpuUsage(long timestampMs, int percent) {
+        if (percent >= 0) {
+            cpuUsagePercent.add(timestampMs, percent);
+        }
+    }
+
+    public synchronized void clear() {
+        videoSendBitrate.clear();
+        videoReceiveBitrate.clear();
+        audioSendBitrate.clear();
+        audioReceiveBitrate.clear();
+        roundTripTimeMs.clear();
+        videoJitterMs.clear();
+        audioJitterMs.clear();
+        videoPacketLossPercent.clear();
+        audioPacketLossPercent.clear();
+        videoFpsSent.clear();
+        videoFpsReceived.clear();
+        videoQp.clear();
+        cpuUsagePercent.clear();
+        previousTimestampMs = -1;
+    }
+
+    /**
+     * Tóm tắt bitrate video gửi (bps) trong |windowMs| cuối vào |result|.
+     * Summarizes the video send bitrate (bps) of the last |windowMs| into |result|.
+     */
+    public synchronized boolean summarizeVideoSendBitrate(long windowMs,
+            StatsSeries.Summary result) {
+        return videoSendBitrate.summarize(windowMs, result);
+    }
+
+    public synchronized boolean summarizeVideoReceiveBitrate(long windowMs,
+            StatsSeries.Summary result) {
+        return videoReceiveBitrate.summarize(windowMs, result);
+    }
+
+    public synchronized boolean summarizeRoundTripTimeMs(long windowMs,
+            StatsSeries.Summary result) {
+        return roundTripTimeMs.summarize(windowMs, result);
+    }
+
+    public synchronized boolean summarizeVideoPacketLossPercent(long windowMs,
+            StatsSeries.Summary result) {
+        return videoPacketLossPercent.summarize(windowMs, result);
+    }
+
+    public synchronized boolean summarizeVideoFpsSent(long windowMs,
+            StatsSeries.Summary result) {
+        return videoFpsSent.summarize(windowMs, result);
+    }
+
+    public synchronized boolean summarizeCpuUsagePercent(long windowMs,
+            StatsSeries.Summary result) {
+        return cpuUsagePercent.summarize(windowMs, result);
+    }
+
+    /**
+     * Số byte video đã gửi trong |windowMs| cuối.
+     * Video bytes sent in the last |windowMs|.
+     */
+    public synchronized long getVideoBytesSent(long windowMs) {
+        return (long) (videoSendBitrate.getDelta(windowMs) / 8);
+    }
+
+    public synchronized long getVideoBytesReceived(long windowMs) {
+        return (long) (videoReceiveBitrate.getDelta(windowMs) / 8);
+    }
+
+    /**
+     * Mô tả mọi số liệu trong |windowMs| cuối, mỗi số liệu một dòng, để ghi log.
+     * Describes every metric of the last |windowMs|, one line each, for logging.
+     */
+    public synchronized String describe(long windowMs) {
+        final StringBuilder builder = new StringBuilder(1024);
+        append(builder, "Video send bps", videoSendBitrate, windowMs);
+        append(builder, "Video recv bps", videoReceiveBitrate, windowMs);
+        append(builder, "Audio send bps", audioSendBitrate, windowMs);
+        append(builder, "Audio recv bps", audioReceiveBitrate, windowMs);
+        append(builder, "RTT ms", roundTripTimeMs, windowMs);
+        append(builder, "Video jitter ms", videoJitterMs, windowMs);
+        append(builder, "Audio jitter ms", audioJitterMs, windowMs);
+        append(builder, "Video loss %", videoPacketLossPercent, windowMs);
+        append(builder, "Audio loss %", audioPacketLossPercent, windowMs);
+        append(builder, "Video fps sent", videoFpsSent, windowMs);
+        append(builder, "Video fps recv", videoFpsReceived, windowMs);
+        append(builder, "Video QP", videoQp, windowMs);
+        append(builder, "CPU %", cpuUsagePercent, windowMs);
+        return builder.toString();
+    }
+
+    private void append(StringBuilder builder, String name, StatsSeries series, long windowMs) {
+        if (series.summarize(windowMs, summary)) {
+            builder.append(String.format(Locale.US, "%-16s", name)).append(summary).append('\n');
+        }
+    }
+
+    private static void addGauge(StatsSeries series, long timestampMs, double value) {
+        if (value >= 0) {
+            series.add(timestampMs, value);
+        }
+    }
+
+    // Tỉ lệ phần trăm gói bị mất giữa hai ảnh chụp; bỏ qua khi không có gói nào.
+    // Percentage of packets lost between two snapshots; skipped when there was no packet.
+    private static void addLoss(StatsSeries series, long timestampMs, long lost, long received) {
+        final long expected = lost + received;
+        if (lost >= 0 && received >= 0 && expected > 0) {
+            series.add(timestampMs, 100.0 * lost / expected);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+import java.util.Map;
+
+/**
+ * Chiếu báo cáo RTCStats vào CallStatsSnapshot, với hai bộ đệm luân phiên.
+ * Projects an RTCStats report onto a CallStatsSnapshot, double-buffered. The writer fills the
+ * back buffer with begin(), add() for every RTCStats object and publish(); readers get the
+ * front buffer from getLatest() or from the publish() result without taking a lock. Only the
+ * members listed in CallStatsSnapshot are read, and nothing is allocated per report.
+ *
+ * <p>Lớp này không phụ thuộc Android hay org.webrtc, để có thể đo trên JVM.
+ * This class has no Android or org.webrtc dependencies, so that it can be benchmarked on the JVM.
+ */
+public class CallStatsProjector {
+    // Số codec tối đa được ghi nhớ trong một báo cáo.
+    // Maximum number of codecs remembered per report.
+    private static final int MAX_CODECS = 16;
+
+    private final CallStatsSnapshot first = new CallStatsSnapshot();
+    private final CallStatsSnapshot second = new CallStatsSnapshot();
+    private volatile CallStatsSnapshot latest;
+    // Các trường dưới đây chỉ dùng khi giữ khóa của đối tượng này.
+    // The fields below are only used while holding the lock of this object.
+    private CallStatsSnapshot back = first;
+    private long sequence;
+    private final String[] codecIds = new String[MAX_CODECS];
+    private final String[] codecMimeTypes = new String[MAX_CODECS];
+    private int codecCount;
+    private String videoSendCodecId;
+    private String videoReceiveCodecId;
+    private String selectedPairId;
+    private boolean pairSelected;
+    private boolean pairFound;
+
+    /**
+     * Ảnh chụp được công bố gần nhất, null trước lần đầu. Giá trị của nó không đổi cho đến lần
+     * publish() thứ hai sau đó, tức ít nhất một chu kỳ thống kê; người đọc nên lấy những gì
+     * cần ngay.
+     * Latest published snapshot, null before the first one. Its values stay unchanged until the
+     * second publish() after it, i.e. at least one stats period; readers should copy what they
+     * need right away.
+     */
+    public CallStatsSnapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * Bắt đầu một báo cáo mới có dấu thời gian |timestampUs|.
+     * Starts a new report with the timestamp |timestampUs|.
+     */
+    public synchronized void begin(long timestampUs) {
+        back.reset();
+        back.timestampUs = timestampUs;
+        for (int i = 0; i < codecCount; i++) {
+            codecIds[i] = null;
+            codecMimeTypes[i] = null;
+        }
+        codecCount = 0;
+        videoSendCodecId = null;
+        videoReceiveCodecId = null;
+        selectedPairId = null;
+        pairSelected = false;
+        pairFound = false;
+    }
+
+    /**
+     * Thêm một đối tượng RTCStats: getId(), getType() và getMembers() của nó.
+     * Adds one RTCStats object: its getId(), getType() and getMembers().
+     */
+    public synchronized void add(String id, String type, Map<String, Object> members) {
+        switch (type) {
+            case "outbound-rtp":
+                addOutboundRtp(members);
+                break;
+            case "inbound-rtp":
+                addInboundRtp(members);
+                break;
+            case "remote-inbound-rtp":
+                // Mất gói phía gửi, theo RTCP của bên nhận; lấy luồng simulcast xấu nhất.
+                // Send side loss from the receiver's RTCP; the worst simulcast stream is kept.
+                if (isVideo(members)) {
+                    back.videoRemoteFractionLost = Math.max(back.videoRemoteFractionLost,
+                            doubleValue(members, "fractionLost", -1));
+                } else {
+                    back.audioRemoteFractionLost = Math.max(back.audioRemoteFractionLost,
+                            doubleValue(members, "fractionLost", -1));
+                }
+                break;
+            case "media-source":
+                // Kích thước và fps của nguồn, khi outbound-rtp chưa có chúng.
+                // Size and fps of the source, for versions without them on outbound-rtp.
+                if (isVideo(members) && back.videoFrameWidthSent < 0) {
+                    back.videoFrameWidthSent = (int) longValue(members, "width", -1);
+                    back.videoFrameHeightSent = (int) longValue(members, "height", -1);
+                    back.videoFramesPerSecondSent =
+                            doubleValue(members, "framesPerSecond", back.videoFramesPerSecondSent);
+                }
+                break;
+            case "track":
+                addTrack(members);
+                break;
+            case "candidate-pair":
+                addCandidatePair(id, members);
+                break;
+            case "transport":
+                selectedPairId = stringValue(members, "selectedCandidatePairId");
+                break;
+            case "codec":
+                if (codecCount < MAX_CODECS) {
+                    codecIds[codecCount] = id;
+                    codecMimeTypes[codecCount] = stringValue(members, "mimeType");
+                    codecCount++;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Kết thúc báo cáo, tính bitrate so với ảnh chụp trước và công bố ảnh chụp.
+     * Finishes the report, derives the bitrates from the previous snapshot and publishes it.
+     */
+    public synchronized CallStatsSnapshot publish() {
+        final CallStatsSnapshot snapshot = back;
+        snapshot.videoSendCodec = codecMimeType(videoSendCodecId);
+        snapshot.videoReceiveCodec = codecMimeType(videoReceiveCodecId);
+        final CallStatsSnapshot previous = latest;
+        if (previous != null && snapshot.timestampUs > previous.timestampUs) {
+            final long elapsedUs = snapshot.timestampUs - previous.timestampUs;
+            snapshot.videoSendBitrateBps =
+                    bitrate(snapshot.videoBytesSent, previous.videoBytesSent, elapsedUs);
+            snapshot.audioSendBitrateBps =
+                    bitrate(snapshot.audioBytesSent, previous.audioBytesSent, elapsedUs);
+            snapshot.videoReceiveBitrateBps =
+                    bitrate(snapshot.videoBytesReceived, previous.videoBytesReceived, elapsedUs);
+            snapshot.audioReceiveBitrateBps =
+                    bitrate(snapshot.audioBytesReceived, previous.audioBytesReceived, elapsedUs);
+        }
+        snapshot.sequence = ++sequence;
+        latest = snapshot;
+        back = snapshot == first ? second : first;
+        return snapshot;
+    }
+
+    // Nhiều luồng simulcast được cộng dồn; kích thước là của lớp lớn nhất.
+    // Simulcast streams are summed up; the size is the one of the largest layer.
+    private void addOutboundRtp(Map<String, Object> members) {
+        final CallStatsSnapshot s = back;
+        if (isVideo(members)) {
+            s.videoBytesSent += longValue(members, "bytesSent", 0);
+            s.videoPacketsSent += longValue(members, "packetsSent", 0);
+            s.videoFramesEncoded += longValue(members, "framesEncoded", 0);
+            s.videoQpSum += longValue(members, "qpSum", 0);
+            final int width = (int) longValue(members, "frameWidth", -1);
+            if (width > s.videoFrameWidthSent) {
+                s.videoFrameWidthSent = width;
+                s.videoFrameHeightSent = (int) longValue(members, "frameHeight", -1);
+                s.videoFramesPerSecondSent = doubleValue(members, "framesPerSecond", -1);
+            }
+            final double targetBitrate = doubleValue(members, "targetBitrate", -1);
+            if (targetBitrate >= 0) {
+                s.videoTargetBitrateBps = Math.max(s.videoTargetBitrateBps, 0) + targetBitrate;
+            }
+            s.videoQualityLimitation = Math.max(s.videoQualityLimitation,
+                    qualityLimitation(stringValue(members, "qualityLimitationReason")));
+            if (videoSendCodecId == null) {
+                videoSendCodecId = stringValue(members, "codecId");
+            }
+        } else {
+            s.audioBytesSent += longValue(members, "bytesSent", 0);
+            s.audioPacketsSent += longValue(members, "packetsSent", 0);
+        }
+    }
+
+    private void addInboundRtp(Map<String, Object> members) {
+        final CallStatsSnapshot s = back;
+        if (isVideo(members)) {
+            s.videoBytesReceived += longValue(members, "bytesReceived", 0);
+            s.videoPacketsReceived += longValue(members, "packetsReceived", 0);
+            s.videoPacketsLost += longValue(members, "packetsLost", 0);
+            s.videoJitterSeconds = doubleValue(members, "jitter", s.videoJitterSeconds);
+            s.videoFramesDecoded += longValue(members, "framesDecoded", 0);
+            s.videoFrameWidthReceived =
+                    (int) longValue(members, "frameWidth", s.videoFrameWidthReceived);
+            s.videoFrameHeightReceived =
+                    (int) longValue(members, "frameHeight", s.videoFrameHeightReceived);
+            s.videoFramesPerSecondReceived =
+                    doubleValue(members, "framesPerSecond", s.videoFramesPerSecondReceived);
+            if (videoReceiveCodecId == null) {
+                videoReceiveCodecId = stringValue(members, "codecId");
+            }
+        } else {
+            s.audioBytesReceived += longValue(members, "bytesReceived", 0);
+            s.audioPacketsReceived += longValue(members, "packetsReceived", 0);
+            s.audioPacketsLost += longValue(members, "packetsLost", 0);
+            s.audioJitterSeconds = doubleValue(members, "jitter", s.audioJitterSeconds);
+        }
+    }
+
+    // Thống kê track của video nhận: kích thước và số khung bị bỏ với các phiên bản cũ.
+    // Track stats of the received video: size and dropped frames on older versions.
+    private void addTrack(Map<String, Object> members) {
+        if (!isVideo(members) || !Boolean.TRUE.equals(members.get("remoteSource"))) {
+            return;
+        }
+        final CallStatsSnapshot s = back;
+        s.videoFramesDropped += longValue(members, "framesDropped", 0);
+        if (s.videoFrameWidthReceived < 0) {
+            s.videoFrameWidthReceived = (int) longValue(members, "frameWidth", -1);
+            s.videoFrameHeightReceived = (int) longValue(members, "frameHeight", -1);
+        }
+    }
+
+    // Lấy cặp được transport chọn; trước khi biết nó, lấy cặp đầu tiên đã đề cử và thành công.
+    // Takes the pair selected by the transport; until that one is known, the first nominated and
+    // succeeded pair.
+    private void addCandidatePair(String id, Map<String, Object> members) {
+        if (pairSelected) {
+            return;
+        }
+        final boolean selected = id.equals(selectedPairId);
+        if (!selected && (pairFound || !Boolean.TRUE.equals(members.get("nominated"))
+                || !"succeeded".equals(members.get("state")))) {
+            return;
+        }
+        pairSelected = selected;
+        pairFound = true;
+        final CallStatsSnapshot s = back;
+        s.connected = true;
+        s.roundTripTimeSeconds = doubleValue(members, "currentRoundTripTime", -1);
+        s.availableOutgoingBitrateBps = doubleValue(members, "availableOutgoingBitrate", -1);
+        s.availableIncomingBitrateBps = doubleValue(members, "availableIncomingBitrate", -1);
+    }
+
+    private String codecMimeType(String codecId) {
+        if (codecId == null) {
+            return null;
+        }
+        for (int i = 0; i < codecCount; i++) {
+            if (codecId.equals(codecIds[i])) {
+                return codecMimeTypes[i];
+            }
+        }
+        return null;
+    }
+
+    private static boolean isVideo(Map<String, Object> members) {
+        final Object kind = members.get("kind");
+        return "video".equals(kind != null ? kind : members.get("mediaType"));
+    }
+
+    private static int qualityLimitation(String reason) {
+        if (reason == null || "none".equals(reason)) {
+            return CallStatsSnapshot.QUALITY_LIMITATION_NONE;
+        } else if ("cpu".equals(reason)) {
+            return CallStatsSnapshot.QUALITY_LIMITATION_CPU;
+        } else if ("bandwidth".equals(reason)) {
+            return CallStatsSnapshot.QUALITY_LIMITATION_BANDWIDTH;
+        }
+        return CallStatsSnapshot.QUALITY_LIMITATION_OTHER;
+    }
+
+    private static long bitrate(long bytes, long previousBytes, long elapsedUs) {
+        // Bộ đếm giảm khi một luồng bị thay thế.
+        // Counters go down when a stream is replaced.
+        return bytes < previousBytes ? -1 : (bytes - previousBytes) * 8 * 1000000 / elapsedUs;
+    }
+
+    // Thành viên số có thể là Integer, Long, BigInteger hoặc Double tùy kiểu gốc.
+    // Numeric members are Integer, Long, BigInteger or Double depending on the native type.
+    private static long longValue(Map<String, Object> members, String name, long missing) {
+        final Object value = members.get(name);
+        return value instanceof Number ? ((Number) value).longValue() : missing;
+    }
+
+    private static double doubleValue(Map<String, Object> members, String name, double missing) {
+        final Object value = members.get(name);
+        return value instanceof Number ? ((Number) value).doubleValue() : missing;
+    }
+
+    private static String stringValue(Map<String, Object> members, String name) {
+        final Object value = members.get(name);
+        return value instanceof String ? (String) value : null;
+    }
+}
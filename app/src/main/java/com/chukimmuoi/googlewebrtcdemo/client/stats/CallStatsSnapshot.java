@@ -0,0 +1,347 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+/**
+ * Ảnh chụp thống kê cuộc gọi, chỉ gồm các số liệu ứng dụng dùng, lưu trong trường nguyên thủy.
+ * Snapshot of the call stats the app uses, kept in primitive fields: outbound and inbound RTP
+ * per media kind, the selected candidate pair with the bandwidth estimates, and the video codecs.
+ * Counters are cumulative and start at 0; gauges are -1 while unknown. Bitrates are derived from
+ * the previous snapshot.
+ *
+ * <p>Đối tượng được CallStatsProjector dùng lại, xem CallStatsProjector.getLatest().
+ * Instances are reused by CallStatsProjector, see CallStatsProjector.getLatest() for how long
+ * the values stay stable.
+ */
+public final class CallStatsSnapshot {
+    public static final int QUALITY_LIMITATION_NONE = 0;
+    public static final int QUALITY_LIMITATION_CPU = 1;
+    public static final int QUALITY_LIMITATION_BANDWIDTH = 2;
+    public static final int QUALITY_LIMITATION_OTHER = 3;
+
+    long sequence;
+    long timestampUs;
+
+    // Gửi video.
+    // Video send.
+    long videoBytesSent;
+    long videoPacketsSent;
+    long videoFramesEncoded;
+    long videoQpSum;
+    int videoFrameWidthSent;
+    int videoFrameHeightSent;
+    double videoFramesPerSecondSent;
+    double videoTargetBitrateBps;
+    int videoQualityLimitation;
+    String videoSendCodec;
+    long videoSendBitrateBps;
+    // Phần gói video gửi đi bị mất, theo báo cáo của bên nhận.
+    // Fraction of the sent video packets lost, as reported by the receiver.
+    double videoRemoteFractionLost;
+
+    // Gửi âm thanh.
+    // Audio send.
+    long audioBytesSent;
+    long audioPacketsSent;
+    long audioSendBitrateBps;
+    double audioRemoteFractionLost;
+
+    // Nhận video.
+    // Video receive.
+    long videoBytesReceived;
+    long videoPacketsReceived;
+    long videoPacketsLost;
+    double videoJitterSeconds;
+    long videoFramesDecoded;
+    long videoFramesDropped;
+    int videoFrameWidthReceived;
+    int videoFrameHeightReceived;
+    double videoFramesPerSecondReceived;
+    String videoReceiveCodec;
+    long videoReceiveBitrateBps;
+
+    // Nhận âm thanh.
+    // Audio receive.
+    long audioBytesReceived;
+    long audioPacketsReceived;
+    long audioPacketsLost;
+    double audioJitterSeconds;
+    long audioReceiveBitrateBps;
+
+    // Cặp ứng viên đang dùng.
+    // Selected candidate pair.
+    boolean connected;
+    double roundTripTimeSeconds;
+    double availableOutgoingBitrateBps;
+    double availableIncomingBitrateBps;
+
+    CallStatsSnapshot() {
+        reset();
+    }
+
+    void reset() {
+        sequence = 0;
+        timestampUs = 0;
+        videoBytesSent = 0;
+        videoPacketsSent = 0;
+        videoFramesEncoded = 0;
+        videoQpSum = 0;
+        videoFrameWidthSent = -1;
+        videoFrameHeightSent = -1;
+        videoFramesPerSecondSent = -1;
+        videoTargetBitrateBps = -1;
+        videoQualityLimitation = QUALITY_LIMITATION_NONE;
+        videoSendCodec = null;
+        videoSendBitrateBps = -1;
+        videoRemoteFractionLost = -1;
+        audioBytesSent = 0;
+        audioPacketsSent = 0;
+        audioSendBitrateBps = -1;
+        audioRemoteFractionLost = -1;
+        videoBytesReceived = 0;
+        videoPacketsReceived = 0;
+        videoPacketsLost = 0;
+        videoJitterSeconds = -1;
+        videoFramesDecoded = 0;
+        videoFramesDropped = 0;
+        videoFrameWidthReceived = -1;
+        videoFrameHeightReceived = -1;
+        videoFramesPerSecondReceived = -1;
+        videoReceiveCodec = null;
+        videoReceiveBitrateBps = -1;
+        audioBytesReceived = 0;
+        audioPacketsReceived = 0;
+        audioPacketsLost = 0;
+        audioJitterSeconds = -1;
+        audioReceiveBitrateBps = -1;
+        connected = false;
+        roundTripTimeSeconds = -1;
+        availableOutgoingBitrateBps = -1;
+        availableIncomingBitrateBps = -1;
+    }
+
+    /**
+     * Số thứ tự tăng dần của ảnh chụp, 1 cho ảnh đầu tiên.
+     * Increasing number of the snapshot, 1 for the first one.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Dấu thời gian của báo cáo thống kê, tính bằng micro giây.
+     * Timestamp of the stats report in microseconds.
+     */
+    public long getTimestampUs() {
+        return timestampUs;
+    }
+
+    public long getVideoBytesSent() {
+        return videoBytesSent;
+    }
+
+    public long getVideoPacketsSent() {
+        return videoPacketsSent;
+    }
+
+    public long getVideoFramesEncoded() {
+        return videoFramesEncoded;
+    }
+
+    /**
+     * Tổng QP của các khung đã mã hóa; chia mức tăng cho mức tăng của số khung để có QP trung bình.
+     * Sum of the QP of the encoded frames; divide its increase by the increase of the frame count
+     * to get the average QP.
+     */
+    public long getVideoQpSum() {
+        return videoQpSum;
+    }
+
+    public int getVideoFrameWidthSent() {
+        return videoFrameWidthSent;
+    }
+
+    public int getVideoFrameHeightSent() {
+        return videoFrameHeightSent;
+    }
+
+    public double getVideoFramesPerSecondSent() {
+        return videoFramesPerSecondSent;
+    }
+
+    /**
+     * Bitrate mục tiêu của bộ mã hóa video.
+     * Target bitrate of the video encoder.
+     */
+    public double getVideoTargetBitrateBps() {
+        return videoTargetBitrateBps;
+    }
+
+    /**
+     * Lý do bộ mã hóa giảm chất lượng, một trong các hằng QUALITY_LIMITATION_*.
+     * Why the encoder reduced the quality, one of the QUALITY_LIMITATION_* constants.
+     */
+    public int getVideoQualityLimitation() {
+        return videoQualityLimitation;
+    }
+
+    /**
+     * Kiểu MIME của codec video gửi đi, ví dụ "video/VP8", hoặc null.
+     * MIME type of the sent video codec, e.g. "video/VP8", or null.
+     */
+    public String getVideoSendCodec() {
+        return videoSendCodec;
+    }
+
+    public long getVideoSendBitrateBps() {
+        return videoSendBitrateBps;
+    }
+
+    /**
+     * Phần gói video gửi đi bị mất (0..1) theo remote-inbound-rtp, -1 nếu chưa biết.
+     * Fraction (0..1) of the sent video packets lost according to remote-inbound-rtp, -1 if
+     * unknown.
+     */
+    public double getVideoRemoteFractionLost() {
+        return videoRemoteFractionLost;
+    }
+
+    public long getAudioBytesSent() {
+        return audioBytesSent;
+    }
+
+    public long getAudioPacketsSent() {
+        return audioPacketsSent;
+    }
+
+    public long getAudioSendBitrateBps() {
+        return audioSendBitrateBps;
+    }
+
+    /**
+     * Phần gói âm thanh gửi đi bị mất (0..1) theo remote-inbound-rtp, -1 nếu chưa biết.
+     * Fraction (0..1) of the sent audio packets lost according to remote-inbound-rtp, -1 if
+     * unknown.
+     */
+    public double getAudioRemoteFractionLost() {
+        return audioRemoteFractionLost;
+    }
+
+    public long getVideoBytesReceived() {
+        return videoBytesReceived;
+    }
+
+    public long getVideoPacketsReceived() {
+        return videoPacketsReceived;
+    }
+
+    public long getVideoPacketsLost() {
+        return videoPacketsLost;
+    }
+
+    public double getVideoJitterSeconds() {
+        return videoJitterSeconds;
+    }
+
+    public long getVideoFramesDecoded() {
+        return videoFramesDecoded;
+    }
+
+    public long getVideoFramesDropped() {
+        return videoFramesDropped;
+    }
+
+    public int getVideoFrameWidthReceived() {
+        return videoFrameWidthReceived;
+    }
+
+    public int getVideoFrameHeightReceived() {
+        return videoFrameHeightReceived;
+    }
+
+    public double getVideoFramesPerSecondReceived() {
+        return videoFramesPerSecondReceived;
+    }
+
+    public String getVideoReceiveCodec() {
+        return videoReceiveCodec;
+    }
+
+    public long getVideoReceiveBitrateBps() {
+        return videoReceiveBitrateBps;
+    }
+
+    public long getAudioBytesReceived() {
+        return audioBytesReceived;
+    }
+
+    public long getAudioPacketsReceived() {
+        return audioPacketsReceived;
+    }
+
+    public long getAudioPacketsLost() {
+        return audioPacketsLost;
+    }
+
+    public double getAudioJitterSeconds() {
+        return audioJitterSeconds;
+    }
+
+    public long getAudioReceiveBitrateBps() {
+        return audioReceiveBitrateBps;
+    }
+
+    /**
+     * Có cặp ứng viên được chọn hay không.
+     * Whether there is a selected candidate pair.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public double getRoundTripTimeSeconds() {
+        return roundTripTimeSeconds;
+    }
+
+    /**
+     * Ước lượng băng thông gửi đi (BWE).
+     * Estimated outgoing bandwidth (BWE).
+     */
+    public double getAvailableOutgoingBitrateBps() {
+        return availableOutgoingBitrateBps;
+    }
+
+    public double getAvailableIncomingBitrateBps() {
+        return availableIncomingBitrateBps;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(256)
+                .append("seq=").append(sequence)
+                .append(", videoSend=").append(videoSendCodec).append(' ')
+                .append(videoFrameWidthSent).append('x').append(videoFrameHeightSent)
+                .append('@').append(videoFramesPerSecondSent)
+                .append(' ').append(videoSendBitrateBps).append("bps/target ")
+                .append(videoTargetBitrateBps).append("bps, limitation=")
+                .append(videoQualityLimitation)
+                .append(", videoReceive=").append(videoReceiveCodec).append(' ')
+                .append(videoFrameWidthReceived).append('x').append(videoFrameHeightReceived)
+                .append('@').append(videoFramesPerSecondReceived)
+                .append(' ').append(videoReceiveBitrateBps).append("bps, lost=")
+                .append(videoPacketsLost)
+                .append(", audio=").append(audioSendBitrateBps).append("bps/")
+                .append(audioReceiveBitrateBps).append("bps, lost=").append(audioPacketsLost)
+                .append(", rtt=").append(roundTripTimeSeconds)
+                .append("s, bwe=").append(availableOutgoingBitrateBps).append("bps")
+                .toString();
+    }
+}
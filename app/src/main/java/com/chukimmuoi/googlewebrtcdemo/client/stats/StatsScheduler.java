@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bộ lập lịch thống kê thích ứng. Không bao giờ có quá một yêu cầu thống kê đang chờ, kéo dài
+ * chu kỳ khi không ai dùng dữ liệu và rút ngắn chu kỳ khi vòng thích ứng cần mẫu mới.
+ * Adaptive stats scheduler. It never has more than one stats request in flight, stretches the
+ * period while nobody consumes the data (HUD hidden, app in background) and tightens it while an
+ * adaptation loop needs fresh samples. Unlike java.util.Timer it can be stopped and started again.
+ *
+ * <p>Các yêu cầu được chạy trên |executor|; |timer| chỉ dùng để đếm thời gian.
+ * Requests are run on |executor|; |timer| is only used for the delays.
+ * This class is thread-safe and has no Android dependencies.
+ */
+public class StatsScheduler {
+    // Hệ số kéo dài chu kỳ khi không có ai xem thống kê.
+    // Period multiplier while nobody looks at the stats.
+    private static final int IDLE_PERIOD_FACTOR = 5;
+    // Chu kỳ tối đa khi nhàn rỗi và tối thiểu khi lấy mẫu nhanh.
+    // Maximum idle period and minimum fast sampling period.
+    private static final long MAX_IDLE_PERIOD_MS = 10000;
+    private static final long MIN_FAST_PERIOD_MS = 200;
+    private static final int FAST_PERIOD_DIVISOR = 4;
+    // Sau thời gian này, một yêu cầu chưa hoàn thành được coi là bị mất.
+    // After this time an unanswered request is considered lost.
+    private static final long REQUEST_TIMEOUT_MS = 5000;
+
+    /**
+     * Nguồn thống kê, được gọi trên |executor|.
+     * Source of stats, called on |executor|.
+     */
+    public interface StatsRequester {
+        /**
+         * Bắt đầu một yêu cầu thống kê và gọi |done| khi có kết quả.
+         * Starts a stats request and calls |done| once the result has been delivered.
+         * Returns false if no request was started, in which case |done| must not be called.
+         */
+        boolean requestStats(Runnable done);
+    }
+
+    private final Object lock = new Object();
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+    private final StatsRequester requester;
+
+    private boolean running;
+    private long basePeriodMs;
+    // Tăng mỗi lần start/stop để bỏ qua các tick cũ.
+    // Bumped on every start/stop so stale ticks are ignored.
+    private int generation;
+    private ScheduledFuture<?> nextTick;
+    private long lastTickMs;
+
+    private boolean consumerVisible = true;
+    private boolean inForeground = true;
+    private boolean fastSampling;
+
+    private boolean requestInFlight;
+    private int requestId;
+    private long requestStartMs;
+    private long coalescedTicks;
+
+    public StatsScheduler(
+            ScheduledExecutorService timer, Executor executor, StatsRequester requester) {
+        this.timer = timer;
+        this.executor = executor;
+        this.requester = requester;
+    }
+
+    /**
+     * Bắt đầu (hoặc bắt đầu lại) lấy thống kê với chu kỳ cơ bản |periodMs|.
+     * Starts (or restarts) polling with the base period |periodMs|. The first request is issued
+     * right away.
+     */
+    public void start(int periodMs) {
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("Invalid stats period: " + periodMs);
+        }
+        synchronized (lock) {
+            running = true;
+            basePeriodMs = periodMs;
+            generation++;
+            scheduleTickLocked(0);
+        }
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            running = false;
+            generation++;
+            if (nextTick != null) {
+                nextTick.cancel(false);
+                nextTick = null;
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    /**
+     * Có ai đó đang hiển thị thống kê hay không (ví dụ HUD).
+     * Whether somebody displays the stats (e.g. the HUD).
+     */
+    public void setConsumerVisible(boolean visible) {
+        synchronized (lock) {
+            consumerVisible = visible;
+            periodChangedLocked();
+        }
+    }
+
+    /**
+     * Ứng dụng có đang ở tiền cảnh hay không.
+     * Whether the app is in the foreground.
+     */
+    public void setInForeground(boolean foreground) {
+        synchronized (lock) {
+            inForeground = foreground;
+            periodChangedLocked();
+        }
+    }
+
+    /**
+     * Bật khi vòng thích ứng cần mẫu mới thường xuyên hơn; ưu tiên hơn các trạng thái khác.
+     * Enabled while an adaptation loop needs fresh samples more often; wins over the other states.
+     */
+    public void setFastSampling(boolean enable) {
+        synchronized (lock) {
+            fastSampling = enable;
+            periodChangedLocked();
+        }
+    }
+
+    /**
+     * Chu kỳ hiện tại tính bằng ms.
+     * Current effective period in ms.
+     */
+    public long getPeriodMs() {
+        synchronized (lock) {
+            return getPeriodMsLocked();
+        }
+    }
+
+    /**
+     * Số tick bị bỏ qua vì yêu cầu trước vẫn đang chờ.
+     * Number of ticks skipped because the previous request was still in flight.
+     */
+    public long getCoalescedTicks() {
+        synchronized (lock) {
+            return coalescedTicks;
+        }
+    }
+
+    private long getPeriodMsLocked() {
+        if (fastSampling) {
+            // Không bao giờ chậm hơn chu kỳ cơ bản.
+            // Never slower than the base period.
+            return Math.min(basePeriodMs,
+                    Math.max(MIN_FAST_PERIOD_MS, basePeriodMs / FAST_PERIOD_DIVISOR));
+        }
+        if (!consumerVisible || !inForeground) {
+            return Math.max(basePeriodMs,
+                    Math.min(MAX_IDLE_PERIOD_MS, basePeriodMs * IDLE_PERIOD_FACTOR));
+        }
+        return basePeriodMs;
+    }
+
+    private void periodChangedLocked() {
+        if (!running) {
+            return;
+        }
+        // Tính lại tick kế tiếp từ tick trước theo chu kỳ mới.
+        // Recompute the next tick from the previous one with the new period.
+        final long delayMs = lastTickMs + getPeriodMsLocked() - nowMs();
+        scheduleTickLocked(Math.max(0, delayMs));
+    }
+
+    private void scheduleTickLocked(long delayMs) {
+        if (nextTick != null) {
+            nextTick.cancel(false);
+        }
+        final int tickGeneration = generation;
+        nextTick = timer.schedule(() -> executor.execute(() -> onTick(tickGeneration)),
+                delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Chạy trên |executor|.
+    // Runs on |executor|.
+    private void onTick(int tickGeneration) {
+        final int id;
+        synchronized (lock) {
+            if (!running || tickGeneration != generation) {
+                return;
+            }
+            final long now = nowMs();
+            lastTickMs = now;
+            scheduleTickLocked(getPeriodMsLocked());
+            if (requestInFlight && now - requestStartMs < REQUEST_TIMEOUT_MS) {
+                coalescedTicks++;
+                return;
+            }
+            requestInFlight = true;
+            requestStartMs = now;
+            id = ++requestId;
+        }
+        boolean started = false;
+        try {
+            started = requester.requestStats(() -> onRequestDone(id));
+        } finally {
+            if (!started) {
+                onRequestDone(id);
+            }
+        }
+    }
+
+    private void onRequestDone(int id) {
+        synchronized (lock) {
+            if (id == requestId) {
+                requestInFlight = false;
+            }
+        }
+    }
+
+    private static long nowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+import java.util.Arrays;
+
+/**
+ * Chuỗi thời gian của một số liệu trong bộ đệm vòng có dung lượng cố định, dùng mảng nguyên thủy.
+ * Time series of one metric in a fixed-capacity ring buffer of primitive arrays. A gauge series
+ * stores the values as given; a counter series is fed with a cumulative counter and stores the
+ * rate per second since the previous sample, together with the delta. Summaries over a time
+ * window (min, avg, max, p50, p95, p99) are computed on demand without boxing; only the scratch
+ * array allocated up front is sorted.
+ *
+ * <p>Lớp này không an toàn luồng và không phụ thuộc Android.
+ * This class is not thread-safe and has no Android dependencies.
+ */
+public class StatsSeries {
+    private final boolean counter;
+    private final long[] timestampsMs;
+    private final double[] values;
+    // Chỉ với chuỗi bộ đếm: mức tăng của bộ đếm tại mỗi mẫu.
+    // Counter series only: increase of the counter at every sample.
+    private final double[] deltas;
+    private final double[] scratch;
+    // Vị trí mẫu kế tiếp và số mẫu đang giữ.
+    // Position of the next sample and number of samples held.
+    private int next;
+    private int size;
+    private long previousTimestampMs = -1;
+    private double previousCounter;
+
+    /**
+     * Kết quả tóm tắt, được dùng lại giữa các lần gọi summarize().
+     * Summary result, reused across summarize() calls.
+     */
+    public static final class Summary {
+        int count;
+        double min;
+        double max;
+        double average;
+        double p50;
+        double p95;
+        double p99;
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getAverage() {
+            return average;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP95() {
+            return p95;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "n=%d min=%.1f avg=%.1f p50=%.1f p95=%.1f p99=%.1f max=%.1f",
+                    count, min, average, p50, p95, p99, max);
+        }
+    }
+
+    private StatsSeries(int capacity, boolean counter) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.counter = counter;
+        timestampsMs = new long[capacity];
+        values = new double[capacity];
+        deltas = counter ? new double[capacity] : null;
+        scratch = new double[capacity];
+    }
+
+    /**
+     * Chuỗi lưu giá trị tức thời, ví dụ RTT hoặc FPS.
+     * Series of instantaneous values, e.g. RTT or FPS.
+     */
+    public static StatsSeries gauge(int capacity) {
+        return new StatsSeries(capacity, false);
+    }
+
+    /**
+     * Chuỗi được cấp bộ đếm tích lũy, lưu tốc độ mỗi giây, ví dụ số byte đã gửi.
+     * Series fed with a cumulative counter that stores the rate per second, e.g. bytes sent.
+     */
+    public static StatsSeries counter(int capacity) {
+        return new StatsSeries(capacity, true);
+    }
+
+    public int getCapacity() {
+        return values.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        next = 0;
+        size = 0;
+        previousTimestampMs = -1;
+    }
+
+    /**
+     * Thêm giá trị tức thời |value| của một chuỗi gauge.
+     * Adds the instantaneous |value| to a gauge series.
+     */
+    public void add(long timestampMs, double value) {
+        if (counter) {
+            throw new IllegalStateException("add() on a counter series");
+        }
+        append(timestampMs, value, 0);
+    }
+
+    /**
+     * Thêm giá trị bộ đếm tích lũy. Mẫu đầu tiên, và mẫu sau khi bộ đếm bị đặt lại, chỉ làm mốc.
+     * Adds a value of the cumulative counter. The first sample, and the first one after the
+     * counter went backwards (e.g. a replaced stream), only serve as the reference.
+     */
+    public void addCounter(long timestampMs, double counterValue) {
+        if (!counter) {
+            throw new IllegalStateException("addCounter() on a gauge series");
+        }
+        final long elapsedMs = timestampMs - previousTimestampMs;
+        final double delta = counterValue - previousCounter;
+        final boolean reference = previousTimestampMs < 0 || elapsedMs <= 0 || delta < 0;
+        previousTimestampMs = timestampMs;
+        previousCounter = counterValue;
+        if (!reference) {
+            append(timestampMs, delta * 1000 / elapsedMs, delta);
+        }
+    }
+
+    private void append(long timestampMs, double value, double delta) {
+        timestampsMs[next] = timestampMs;
+        values[next] = value;
+        if (deltas != null) {
+            deltas[next] = delta;
+        }
+        next = (next + 1) % values.length;
+        if (size < values.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Giá trị mới nhất, NaN nếu chuỗi rỗng.
+     * Latest value, NaN if the series is empty.
+     */
+    public double getLatest() {
+        return size == 0 ? Double.NaN : values[index(0)];
+    }
+
+    /**
+     * Dấu thời gian của mẫu mới nhất, -1 nếu chuỗi rỗng.
+     * Timestamp of the latest sample, -1 if the series is empty.
+     */
+    public long getLatestTimestampMs() {
+        return size == 0 ? -1 : timestampsMs[index(0)];
+    }
+
+    /**
+     * Tổng mức tăng của bộ đếm trong |windowMs| cuối, tính từ mẫu mới nhất.
+     * Total increase of the counter in the last |windowMs|, counted back from the latest sample.
+     */
+    public double getDelta(long windowMs) {
+        if (!counter) {
+            throw new IllegalStateException("getDelta() on a gauge series");
+        }
+        final long sinceMs = getLatestTimestampMs() - windowMs;
+        double total = 0;
+        for (int i = 0; i < size && timestampsMs[index(i)] >= sinceMs; i++) {
+            total += deltas[index(i)];
+        }
+        return total;
+    }
+
+    /**
+     * Tóm tắt các mẫu trong |windowMs| cuối vào |summary|. Trả về false nếu không có mẫu nào.
+     * Summarizes the samples of the last |windowMs|, counted back from the latest sample, into
+     * |summary|. Returns false if there is no sample.
+     */
+    public boolean summarize(long windowMs, Summary summary) {
+        final long sinceMs = getLatestTimestampMs() - windowMs;
+        int count = 0;
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            final int index = index(i);
+            if (timestampsMs[index] < sinceMs) {
+                break;
+            }
+            scratch[count++] = values[index];
+            sum += values[index];
+        }
+        summary.count = count;
+        if (count == 0) {
+            return false;
+        }
+        Arrays.sort(scratch, 0, count);
+        summary.min = scratch[0];
+        summary.max = scratch[count - 1];
+        summary.average = sum / count;
+        summary.p50 = percentile(count, 50);
+        summary.p95 = percentile(count, 95);
+        summary.p99 = percentile(count, 99);
+        return true;
+    }
+
+    // Phân vị theo hạng gần nhất trên |scratch| đã sắp xếp.
+    // Nearest-rank percentile over the sorted |scratch|.
+    private double percentile(int count, int percentile) {
+        final int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return scratch[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    // Vị trí của mẫu thứ |age| tính từ mẫu mới nhất (0).
+    // Position of the sample |age| steps back from the latest one (0).
+    private int index(int age) {
+        return (next - 1 - age + 2 * values.length) % values.length;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.web;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection;
+import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection.AsyncHttpEvents;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hàng đợi POST ra ngoài của một phòng. Các tin nhắn được gửi lần lượt theo thứ tự gửi,
+ * nối tiếp nhau trên cùng một kết nối keep-alive.
+ * Outbound POST queue of one room. Messages are sent one after another in submission order, back
+ * to back over the same keep-alive connection, so an offer can never be overtaken by the
+ * candidates that follow it.
+ *
+ * <p>Tin nhắn không bao giờ bị bỏ. Khi độ sâu hàng đợi đạt |capacity|, hàng đợi báo bão hòa
+ * để bên gửi (ví dụ bộ gom ứng viên) tạm dừng cho đến khi độ sâu giảm xuống một nửa.
+ * Messages are never dropped. When the queue depth reaches |capacity| the queue reports
+ * saturation so producers that can wait (e.g. the candidate batcher) hold back until the depth
+ * falls to half of it.
+ */
+public class RoomMessageQueue {
+    private static final String TAG = "RoomMessageQueue";
+    public static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Được gọi trên |callbackExecutor| khi trạng thái bão hòa thay đổi.
+     * Invoked on |callbackExecutor| when the saturation state changes.
+     */
+    public interface BackpressureListener {
+        void onSaturationChanged(boolean saturated);
+    }
+
+    private static class Message {
+        final String url;
+        @Nullable
+        final String body;
+        final AsyncHttpEvents events;
+        final long enqueueNs;
+
+        Message(String url, @Nullable String body, AsyncHttpEvents events) {
+            this.url = url;
+            this.body = body;
+            this.events = events;
+            this.enqueueNs = System.nanoTime();
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Message> pending = new ArrayDeque<>();
+    private final int capacity;
+    private final Executor callbackExecutor;
+    private final BackpressureListener listener;
+    private boolean sending;
+    private boolean saturated;
+    private int maxDepth;
+    private long sentCount;
+    private long totalLatencyMs;
+    private long maxLatencyMs;
+
+    public RoomMessageQueue(int capacity, Executor callbackExecutor, BackpressureListener listener) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * Xếp hàng một POST tới |url|. |events| được gọi trên luồng http như trước đây.
+     * Queues a POST to |url|. |events| is invoked on the http thread, as before.
+     */
+    public void send(String url, @Nullable String message, AsyncHttpEvents events) {
+        final Message next;
+        synchronized (lock) {
+            pending.add(new Message(url, message, events));
+            maxDepth = Math.max(maxDepth, getDepthLocked());
+            updateSaturationLocked();
+            if (sending) {
+                return;
+            }
+            sending = true;
+            next = pending.poll();
+        }
+        sendMessage(next);
+    }
+
+    /**
+     * Bỏ các tin nhắn chưa gửi, ví dụ khi rời phòng. Tin nhắn đang gửi vẫn được hoàn tất.
+     * Drops the messages not sent yet, e.g. when leaving the room. The message in flight still
+     * completes. Returns the number of dropped messages.
+     */
+    public int clear() {
+        synchronized (lock) {
+            final int dropped = pending.size();
+            pending.clear();
+            updateSaturationLocked();
+            return dropped;
+        }
+    }
+
+    /**
+     * Số tin nhắn đang chờ cộng với tin nhắn đang gửi.
+     * Number of pending messages plus the one in flight.
+     */
+    public int getDepth() {
+        synchronized (lock) {
+            return getDepthLocked();
+        }
+    }
+
+    public int getMaxDepth() {
+        synchronized (lock) {
+            return maxDepth;
+        }
+    }
+
+    public long getSentCount() {
+        synchronized (lock) {
+            return sentCount;
+        }
+    }
+
+    /**
+     * Độ trễ trung bình từ lúc xếp hàng đến lúc có phản hồi.
+     * Average latency from queuing a message to its response.
+     */
+    public long getAverageLatencyMs() {
+        synchronized (lock) {
+            return sentCount == 0 ? 0 : totalLatencyMs / sentCount;
+        }
+    }
+
+    public long getMaxLatencyMs() {
+        synchronized (lock) {
+            return maxLatencyMs;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "depth=" + getDepthLocked() + ", maxDepth=" + maxDepth + ", sent=" + sentCount
+                    + ", avgLatency=" + (sentCount == 0 ? 0 : totalLatencyMs / sentCount)
+                    + "ms, maxLatency=" + maxLatencyMs + "ms";
+        }
+    }
+
+    private int getDepthLocked() {
+        return pending.size() + (sending ? 1 : 0);
+    }
+
+    private void updateSaturationLocked() {
+        final int depth = getDepthLocked();
+        final boolean wasSaturated = saturated;
+        if (!saturated && depth >= capacity) {
+            saturated = true;
+        } else if (saturated && depth <= capacity / 2) {
+            saturated = false;
+        }
+        if (saturated != wasSaturated) {
+            final boolean value = saturated;
+            Log.d(TAG, "Saturated: " + value + ", depth: " + depth);
+            callbackExecutor.execute(() -> listener.onSaturationChanged(value));
+        }
+    }
+
+    private void sendMessage(final Message message) {
+        new AsyncHttpURLConnection("POST", message.url, message.body, new AsyncHttpEvents() {
+            @Override
+            public void onHttpError(String errorMessage) {
+                onMessageDone(message);
+                message.events.onHttpError(errorMessage);
+            }
+
+            @Override
+            public void onHttpComplete(String response) {
+                onMessageDone(message);
+                message.events.onHttpComplete(response);
+            }
+        }).send();
+    }
+
+    // Ghi lại độ trễ và gửi ngay tin nhắn kế tiếp trên cùng kết nối.
+    // Records the latency and sends the next message right away on the same connection.
+    private void onMessageDone(Message done) {
+        final long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - done.enqueueNs);
+        final Message next;
+        synchronized (lock) {
+            sentCount++;
+            totalLatencyMs += latencyMs;
+            maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+            next = pending.poll();
+            if (next == null) {
+                sending = false;
+            }
+            updateSaturationLocked();
+        }
+        if (next != null) {
+            sendMessage(next);
+        }
+    }
+}
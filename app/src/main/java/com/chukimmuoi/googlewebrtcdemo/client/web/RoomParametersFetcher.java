@@ -13,20 +13,15 @@ package com.chukimmuoi.googlewebrtcdemo.client.web;
 import android.util.Log;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
-import java.util.Scanner;
 import java.util.List;
 
 import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient.SignalingParameters;
 import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection;
 import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection.AsyncHttpEvents;
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.webrtc.IceCandidate;
 import org.webrtc.PeerConnection;
 import org.webrtc.SessionDescription;
@@ -39,8 +34,8 @@ import org.webrtc.SessionDescription;
  */
 public class RoomParametersFetcher {
     private static final String TAG = "RoomRTCClient";
-    private static final int TURN_HTTP_TIMEOUT_MS = 5000;
     private final RoomParametersFetcherEvents events;
+    private final TurnCredentialCache turnCache = TurnCredentialCache.getInstance();
     private final String roomUrl;
     private final String roomMessage;
 
@@ -48,6 +43,13 @@ public class RoomParametersFetcher {
      * Room parameters fetcher callbacks.
      */
     public interface RoomParametersFetcherEvents {
+        /**
+         * Gọi lại khi đã vào phòng. Danh sách máy chủ ICE có thể chưa có máy chủ TURN.
+         * Callback fired once the room is joined. The ICE servers may not include the TURN
+         * servers yet, but the signaling channel can be connected while they are fetched.
+         */
+        void onRoomJoined(final SignalingParameters params);
+
         /**
          * Callback fired once the room's signaling parameters
          * SignalingParameters are extracted.
@@ -86,52 +88,64 @@ public class RoomParametersFetcher {
     }
 
     private void roomHttpResponseParse(String response) {
-        Log.d(TAG, "Room response: " + response);
+        // Chỉ ghi kích thước: phản hồi của bên trả lời chứa cả offer và mọi ứng viên.
+        // Only the size is logged: the answerer's response holds the offer and every candidate.
+        Log.d(TAG, "Room response: " + response.length() + " chars");
         try {
-            List<IceCandidate> iceCandidates = null;
-            SessionDescription offerSdp = null;
-            JSONObject roomJson = new JSONObject(response);
-
-            String result = roomJson.getString("result");
-            if (!result.equals("SUCCESS")) {
-                events.onSignalingParametersError("Room response error: " + result);
+            final List<PeerConnection.IceServer> iceServers = new ArrayList<>();
+            final List<IceCandidate> iceCandidates = new ArrayList<>();
+            final List<long[]> messageSequences = new ArrayList<>();
+            final SessionDescription[] offer = new SessionDescription[1];
+            final RoomResponseParser.RoomResponse room =
+                    RoomResponseParser.parse(response, new RoomResponseParser.Listener() {
+                        @Override
+                        public void onIceServer(String url, String credential) {
+                            iceServers.add(PeerConnection.IceServer.builder(url)
+                                    .setPassword(credential)
+                                    .createIceServer());
+                        }
+
+                        @Override
+                        public void onOffer(String sdp) {
+                            offer[0] = new SessionDescription(SessionDescription.Type.OFFER, sdp);
+                        }
+
+                        @Override
+                        public void onCandidate(String sdpMid, int sdpMLineIndex, String sdp) {
+                            iceCandidates.add(new IceCandidate(sdpMid, sdpMLineIndex, sdp));
+                        }
+
+                        @Override
+                        public void onUnknownMessage(String type) {
+                            Log.e(TAG, "Unknown message type: " + type);
+                        }
+
+                        @Override
+                        public void onMessageSequence(long seq, long ack) {
+                            messageSequences.add(new long[] {seq, ack});
+                        }
+                    });
+
+            if (!room.isSuccess()) {
+                events.onSignalingParametersError("Room response error: " + room.getResult());
                 return;
             }
-            response = roomJson.getString("params");
-            roomJson = new JSONObject(response);
-            String roomId = roomJson.getString("room_id");
-            String clientId = roomJson.getString("client_id");
-            String wssUrl = roomJson.getString("wss_url");
-            String wssPostUrl = roomJson.getString("wss_post_url");
-            boolean initiator = (roomJson.getBoolean("is_initiator"));
-            if (!initiator) {
-                iceCandidates = new ArrayList<>();
-                String messagesString = roomJson.getString("messages");
-                JSONArray messages = new JSONArray(messagesString);
-                for (int i = 0; i < messages.length(); ++i) {
-                    String messageString = messages.getString(i);
-                    JSONObject message = new JSONObject(messageString);
-                    String messageType = message.getString("type");
-                    Log.d(TAG, "GAE->C #" + i + " : " + messageString);
-                    if (messageType.equals("offer")) {
-                        offerSdp = new SessionDescription(
-                                SessionDescription.Type.fromCanonicalForm(messageType), message.getString("sdp"));
-                    } else if (messageType.equals("candidate")) {
-                        IceCandidate candidate = new IceCandidate(
-                                message.getString("id"), message.getInt("label"), message.getString("candidate"));
-                        iceCandidates.add(candidate);
-                    } else {
-                        Log.e(TAG, "Unknown message: " + messageString);
-                    }
-                }
-            }
-            Log.d(TAG, "RoomId: " + roomId + ". ClientId: " + clientId);
+            final boolean initiator = room.isInitiator();
+            final String clientId = room.getClientId();
+            final String wssUrl = room.getWssUrl();
+            final String wssPostUrl = room.getWssPostUrl();
+            // Bên khởi tạo không nhận tin nhắn đang chờ trong phòng.
+            // The initiator does not take the messages queued in the room.
+            final SessionDescription offerSdp = initiator ? null : offer[0];
+            final List<IceCandidate> roomCandidates = initiator ? null : iceCandidates;
+            final List<long[]> roomSequences = initiator ? null : messageSequences;
+            Log.d(TAG, "RoomId: " + room.getRoomId() + ". ClientId: " + clientId);
             Log.d(TAG, "Initiator: " + initiator);
             Log.d(TAG, "WSS url: " + wssUrl);
             Log.d(TAG, "WSS POST url: " + wssPostUrl);
+            Log.d(TAG, "Messages: " + room.getMessageCount() + ", offer: " + (offerSdp != null)
+                    + ", candidates: " + (roomCandidates != null ? roomCandidates.size() : 0));
 
-            List<PeerConnection.IceServer> iceServers =
-                    iceServersFromPCConfigJSON(roomJson.getString("pc_config"));
             boolean isTurnPresent = false;
             for (PeerConnection.IceServer server : iceServers) {
                 Log.d(TAG, "IceServer: " + server);
@@ -142,93 +156,36 @@ public class RoomParametersFetcher {
                     }
                 }
             }
-            // Request TURN servers.
-            if (!isTurnPresent && !roomJson.optString("ice_server_url").isEmpty()) {
-                List<PeerConnection.IceServer> turnServers =
-                        requestTurnServers(roomJson.getString("ice_server_url"));
+            // Kênh báo hiệu có thể kết nối trong khi lấy máy chủ TURN.
+            // The signaling channel can connect while the TURN servers are fetched.
+            events.onRoomJoined(new SignalingParameters(new ArrayList<>(iceServers), initiator,
+                    clientId, wssUrl, wssPostUrl, offerSdp, roomCandidates, roomSequences));
+
+            // Request TURN servers, unless valid ones are cached.
+            final String iceServerUrl = room.getIceServerUrl();
+            if (!isTurnPresent && iceServerUrl != null) {
+                final long turnStartMs = System.currentTimeMillis();
+                List<PeerConnection.IceServer> turnServers = turnCache.getCached(iceServerUrl);
+                if (turnServers == null) {
+                    turnServers = turnCache.fetch(iceServerUrl);
+                }
                 for (PeerConnection.IceServer turnServer : turnServers) {
                     Log.d(TAG, "TurnServer: " + turnServer);
                     iceServers.add(turnServer);
                 }
+                Log.d(TAG, "TURN servers took " + (System.currentTimeMillis() - turnStartMs)
+                        + "ms. TURN cache: " + turnCache);
             }
 
-            SignalingParameters params = new SignalingParameters(
-                    iceServers, initiator, clientId, wssUrl, wssPostUrl, offerSdp, iceCandidates);
+            SignalingParameters params = new SignalingParameters(iceServers, initiator, clientId,
+                    wssUrl, wssPostUrl, offerSdp, roomCandidates, roomSequences);
             events.onSignalingParametersReady(params);
+        } catch (JsonPullParser.SyntaxException e) {
+            events.onSignalingParametersError("Room JSON parsing error: " + e.toString());
         } catch (JSONException e) {
             events.onSignalingParametersError("Room JSON parsing error: " + e.toString());
         } catch (IOException e) {
             events.onSignalingParametersError("Room IO error: " + e.toString());
         }
     }
-
-    // Yêu cầu và trả về TURN ICE Server dựa trên URL yêu cầu.
-    // Phải chạy tắt chủ đề chính!
-    // Requests & returns a TURN ICE Server based on a request URL.  Must be run
-    // off the main thread!
-    private List<PeerConnection.IceServer> requestTurnServers(String url)
-            throws IOException, JSONException {
-        List<PeerConnection.IceServer> turnServers = new ArrayList<>();
-        Log.d(TAG, "Request TURN from: " + url);
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-        connection.setDoOutput(true);
-        connection.setRequestProperty("REFERER", "https://appr.tc");
-        connection.setConnectTimeout(TURN_HTTP_TIMEOUT_MS);
-        connection.setReadTimeout(TURN_HTTP_TIMEOUT_MS);
-        int responseCode = connection.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("Non-200 response when requesting TURN server from " + url + " : "
-                    + connection.getHeaderField(null));
-        }
-        InputStream responseStream = connection.getInputStream();
-        String response = drainStream(responseStream);
-        connection.disconnect();
-        Log.d(TAG, "TURN response: " + response);
-        JSONObject responseJSON = new JSONObject(response);
-        JSONArray iceServers = responseJSON.getJSONArray("iceServers");
-        for (int i = 0; i < iceServers.length(); ++i) {
-            JSONObject server = iceServers.getJSONObject(i);
-            JSONArray turnUrls = server.getJSONArray("urls");
-            String username = server.has("username") ? server.getString("username") : "";
-            String credential = server.has("credential") ? server.getString("credential") : "";
-            for (int j = 0; j < turnUrls.length(); j++) {
-                String turnUrl = turnUrls.getString(j);
-                PeerConnection.IceServer turnServer =
-                        PeerConnection.IceServer.builder(turnUrl)
-                                .setUsername(username)
-                                .setPassword(credential)
-                                .createIceServer();
-                turnServers.add(turnServer);
-            }
-        }
-        return turnServers;
-    }
-
-    // Trả về danh sách các máy chủ ICE được mô tả bởi WebRTCPeerConnection chuỗi cấu hình.
-    // Return the list of ICE servers described by a WebRTCPeerConnection
-    // configuration string.
-    private List<PeerConnection.IceServer> iceServersFromPCConfigJSON(String pcConfig)
-            throws JSONException {
-        JSONObject json = new JSONObject(pcConfig);
-        JSONArray servers = json.getJSONArray("iceServers");
-        List<PeerConnection.IceServer> ret = new ArrayList<>();
-        for (int i = 0; i < servers.length(); ++i) {
-            JSONObject server = servers.getJSONObject(i);
-            String url = server.getString("urls");
-            String credential = server.has("credential") ? server.getString("credential") : "";
-            PeerConnection.IceServer turnServer =
-                    PeerConnection.IceServer.builder(url)
-                            .setPassword(credential)
-                            .createIceServer();
-            ret.add(turnServer);
-        }
-        return ret;
-    }
-
-    // Trả về nội dung của InputStream dưới dạng Chuỗi.
-    // Return the contents of an InputStream as a String.
-    private static String drainStream(InputStream in) {
-        Scanner s = new Scanner(in, "UTF-8").useDelimiter("\\A");
-        return s.hasNext() ? s.next() : "";
-    }
 }
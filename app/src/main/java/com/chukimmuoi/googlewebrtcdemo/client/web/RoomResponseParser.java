@@ -0,0 +1,358 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.web;
+
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser;
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.SyntaxException;
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.Token;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đọc phản hồi vào phòng của máy chủ AppRTC trong một lượt duy nhất.
+ * Reads the join response of the AppRTC room server in a single pass.
+ *
+ * <p>Máy chủ gửi "params", "pc_config" và từng tin nhắn trong "messages" dưới dạng JSON lồng
+ * trong chuỗi JSON. Chúng được giải mã ngay trong lượt đọc, không dựng cây JSONObject và
+ * không sao chép chuỗi lồng. Máy chủ ICE, offer và ứng viên được chuyển ngay cho |listener|.
+ * The server sends "params", "pc_config" and every entry of "messages" as JSON nested inside
+ * JSON strings. They are decoded within the same pass, without a JSONObject tree and without
+ * copying the nested strings. ICE servers, the offer and the candidates are handed to |listener|
+ * as soon as they are read.
+ *
+ * <p>Lớp này không phụ thuộc Android để có thể đo trong module benchmark.
+ * This class does not depend on Android so it can be measured in the benchmark module.
+ */
+public class RoomResponseParser {
+    private static final String RESULT_SUCCESS = "SUCCESS";
+
+    /**
+     * Nhận các phần tử của phản hồi theo thứ tự xuất hiện.
+     * Receives the parts of the response in the order they appear.
+     */
+    public interface Listener {
+        void onIceServer(String url, String credential);
+
+        void onOffer(String sdp);
+
+        void onCandidate(String sdpMid, int sdpMLineIndex, String sdp);
+
+        void onUnknownMessage(String type);
+
+        /**
+         * Được gọi sau mỗi tin nhắn trong "messages" với "seq" và "ack" của nó, 0 nếu không có.
+         * Invoked after every entry of "messages" with its "seq" and "ack", 0 when absent.
+         */
+        void onMessageSequence(long seq, long ack);
+    }
+
+    /**
+     * Các trường đơn của phản hồi. Khi isSuccess() trả về false chỉ có getResult() hợp lệ.
+     * The scalar fields of the response. Only getResult() is valid when isSuccess() is false.
+     */
+    public static class RoomResponse {
+        private String result;
+        private String roomId;
+        private String clientId;
+        private String wssUrl;
+        private String wssPostUrl;
+        private String iceServerUrl;
+        private Boolean initiator;
+        private boolean hasPcConfig;
+        private int messageCount;
+
+        public boolean isSuccess() {
+            return RESULT_SUCCESS.equals(result);
+        }
+
+        public String getResult() {
+            return result;
+        }
+
+        public String getRoomId() {
+            return roomId;
+        }
+
+        public String getClientId() {
+            return clientId;
+        }
+
+        public String getWssUrl() {
+            return wssUrl;
+        }
+
+        public String getWssPostUrl() {
+            return wssPostUrl;
+        }
+
+        /**
+         * URL lấy máy chủ TURN, hoặc null nếu phòng không có.
+         * URL to fetch the TURN servers from, or null if the room has none.
+         */
+        public String getIceServerUrl() {
+            return iceServerUrl;
+        }
+
+        public boolean isInitiator() {
+            return initiator;
+        }
+
+        public int getMessageCount() {
+            return messageCount;
+        }
+    }
+
+    private RoomResponseParser() {
+    }
+
+    /**
+     * Đọc |response|. Ném SyntaxException nếu phản hồi thành công thiếu trường bắt buộc.
+     * Reads |response|. Throws SyntaxException if a successful response misses a required field.
+     */
+    public static RoomResponse parse(String response, Listener listener) throws IOException {
+        final RoomResponse room = new RoomResponse();
+        final JsonPullParser parser = new JsonPullParser(response);
+        parser.beginObject();
+        while (parser.hasNext()) {
+            final String name = parser.nextName();
+            if (name.equals("result")) {
+                room.result = parser.nextString();
+            } else if (name.equals("params") && parser.peek() != Token.NULL) {
+                parseParams(document(parser), room, listener);
+            } else {
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+
+        if (room.result == null) {
+            throw new SyntaxException("Missing result");
+        }
+        if (room.isSuccess()) {
+            require(room.roomId, "room_id");
+            require(room.clientId, "client_id");
+            require(room.wssUrl, "wss_url");
+            require(room.wssPostUrl, "wss_post_url");
+            require(room.initiator, "is_initiator");
+            if (!room.hasPcConfig) {
+                throw new SyntaxException("Missing pc_config");
+            }
+        }
+        return room;
+    }
+
+    private static void parseParams(JsonPullParser parser, RoomResponse room, Listener listener)
+            throws IOException {
+        parser.beginObject();
+        while (parser.hasNext()) {
+            final String name = parser.nextName();
+            if (parser.peek() == Token.NULL) {
+                parser.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "room_id":
+                    room.roomId = parser.nextString();
+                    break;
+                case "client_id":
+                    room.clientId = parser.nextString();
+                    break;
+                case "wss_url":
+                    room.wssUrl = parser.nextString();
+                    break;
+                case "wss_post_url":
+                    room.wssPostUrl = parser.nextString();
+                    break;
+                case "is_initiator":
+                    room.initiator = parser.nextBoolean();
+                    break;
+                case "ice_server_url":
+                    final String url = parser.nextString();
+                    room.iceServerUrl = url.isEmpty() ? null : url;
+                    break;
+                case "pc_config":
+                    parsePcConfig(document(parser), listener);
+                    room.hasPcConfig = true;
+                    break;
+                case "messages":
+                    room.messageCount = parseMessages(document(parser), listener);
+                    break;
+                default:
+                    parser.skipValue();
+                    break;
+            }
+        }
+        parser.endObject();
+    }
+
+    private static void parsePcConfig(JsonPullParser parser, Listener listener)
+            throws IOException {
+        parser.beginObject();
+        while (parser.hasNext()) {
+            if (!parser.nextName().equals("iceServers")) {
+                parser.skipValue();
+                continue;
+            }
+            parser.beginArray();
+            while (parser.hasNext()) {
+                parseIceServer(parser, listener);
+            }
+            parser.endArray();
+        }
+        parser.endObject();
+    }
+
+    // "urls" có thể là một chuỗi hoặc một mảng chuỗi.
+    // "urls" may be a single string or an array of strings.
+    private static void parseIceServer(JsonPullParser parser, Listener listener)
+            throws IOException {
+        final List<String> urls = new ArrayList<>(1);
+        String credential = "";
+        parser.beginObject();
+        while (parser.hasNext()) {
+            final String name = parser.nextName();
+            if (name.equals("urls") && parser.peek() == Token.BEGIN_ARRAY) {
+                parser.beginArray();
+                while (parser.hasNext()) {
+                    urls.add(parser.nextString());
+                }
+                parser.endArray();
+            } else if (name.equals("urls")) {
+                urls.add(parser.nextString());
+            } else if (name.equals("credential") && parser.peek() != Token.NULL) {
+                credential = parser.nextString();
+            } else {
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+        if (urls.isEmpty()) {
+            throw new SyntaxException("Missing urls");
+        }
+        for (String url : urls) {
+            listener.onIceServer(url, credential);
+        }
+    }
+
+    private static int parseMessages(JsonPullParser parser, Listener listener)
+            throws IOException {
+        int count = 0;
+        parser.beginArray();
+        while (parser.hasNext()) {
+            parseMessage(document(parser), listener);
+            count++;
+        }
+        parser.endArray();
+        return count;
+    }
+
+    // "type" có thể đứng sau "sdp", nên offer và ứng viên đơn chỉ được báo khi đọc hết tin
+    // nhắn. Trường "candidates" chỉ có trong tin nhắn "candidates" nên được báo ngay.
+    // "type" may follow "sdp", so the offer and single candidates are reported once the whole
+    // message is read. The "candidates" field only exists in "candidates" messages, so those are
+    // reported right away.
+    private static void parseMessage(JsonPullParser parser, Listener listener)
+            throws IOException {
+        String type = null;
+        String sdp = null;
+        String id = null;
+        int label = -1;
+        long seq = 0;
+        long ack = 0;
+        parser.beginObject();
+        while (parser.hasNext()) {
+            switch (parser.nextName()) {
+                case "type":
+                    type = parser.nextString();
+                    break;
+                case "seq":
+                    seq = parser.nextLong();
+                    break;
+                case "ack":
+                    ack = parser.nextLong();
+                    break;
+                case "sdp":
+                    sdp = parser.nextString();
+                    break;
+                case "id":
+                    id = parser.nextString();
+                    break;
+                case "label":
+                    label = parser.nextInt();
+                    break;
+                case "candidate":
+                    sdp = parser.nextString();
+                    break;
+                case "candidates":
+                    parseCandidates(parser, listener);
+                    break;
+                default:
+                    parser.skipValue();
+                    break;
+            }
+        }
+        parser.endObject();
+
+        if ("offer".equals(type)) {
+            listener.onOffer(require(sdp, "sdp"));
+        } else if ("candidate".equals(type)) {
+            listener.onCandidate(require(id, "id"), label, require(sdp, "candidate"));
+        } else if (!"candidates".equals(type)) {
+            listener.onUnknownMessage(type);
+        }
+        listener.onMessageSequence(seq, ack);
+    }
+
+    private static void parseCandidates(JsonPullParser parser, Listener listener)
+            throws IOException {
+        parser.beginArray();
+        while (parser.hasNext()) {
+            String id = null;
+            String sdp = null;
+            int label = -1;
+            parser.beginObject();
+            while (parser.hasNext()) {
+                switch (parser.nextName()) {
+                    case "id":
+                        id = parser.nextString();
+                        break;
+                    case "label":
+                        label = parser.nextInt();
+                        break;
+                    case "candidate":
+                        sdp = parser.nextString();
+                        break;
+                    default:
+                        parser.skipValue();
+                        break;
+                }
+            }
+            parser.endObject();
+            listener.onCandidate(require(id, "id"), label, require(sdp, "candidate"));
+        }
+        parser.endArray();
+    }
+
+    // Giá trị kế tiếp dưới dạng tài liệu: chính nó, hoặc nội dung chuỗi nếu là JSON lồng.
+    // The next value as a document: the value itself, or the string content for nested JSON.
+    private static JsonPullParser document(JsonPullParser parser) throws IOException {
+        return parser.peek() == Token.STRING ? parser.nextEmbedded() : parser;
+    }
+
+    private static <T> T require(T value, String name) throws SyntaxException {
+        if (value == null) {
+            throw new SyntaxException("Missing " + name);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.web;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.chukimmuoi.googlewebrtcdemo.util.executor.SessionExecutors;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.webrtc.PeerConnection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bộ nhớ đệm thông tin xác thực TURN theo ice_server_url, tôn trọng thời hạn của chúng.
+ * Cache of TURN credentials keyed by ice_server_url that honours their lifetime. It has a memory
+ * tier and a small disk tier, so a join with valid cached credentials never waits for the TURN
+ * server. Credentials are refreshed in the background before they expire, but only when they
+ * were used since the last fetch.
+ *
+ * <p>Thời hạn lấy từ "lifetimeDuration" của phản hồi, hoặc dấu thời gian trong tên người dùng
+ * TURN REST, hoặc DEFAULT_TTL_MS.
+ * The lifetime is taken from the "lifetimeDuration" of the response, else from the timestamp in
+ * the TURN REST username, else DEFAULT_TTL_MS.
+ *
+ * <p>Lớp này an toàn luồng.
+ * This class is thread-safe.
+ */
+public class TurnCredentialCache {
+    private static final String TAG = "TurnCredentialCache";
+    private static final int TURN_HTTP_TIMEOUT_MS = 5000;
+    private static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    // Thông tin xác thực chỉ được dùng nếu còn hạn ít nhất chừng này, để đủ cho việc cấp phát.
+    // Credentials are only used while at least this much lifetime is left for the allocation.
+    private static final long MIN_REMAINING_MS = TimeUnit.MINUTES.toMillis(5);
+    // Với thời hạn ngắn, MIN_REMAINING_MS bị giới hạn ở một nửa thời hạn để vẫn dùng được.
+    // For short lifetimes MIN_REMAINING_MS is capped at half the lifetime, so they stay usable.
+    private static final int MAX_MIN_REMAINING_PERCENT = 50;
+    // Làm mới khi còn lại ít hơn một phần tư thời hạn.
+    // Refresh once less than a quarter of the lifetime is left.
+    private static final int REFRESH_REMAINING_PERCENT = 25;
+    // Thời gian dành cho một lần làm mới trước khi thông tin xác thực cũ hết dùng được.
+    // Time left for a refresh to finish before the old credentials stop being usable.
+    private static final long REFRESH_MARGIN_MS = TURN_HTTP_TIMEOUT_MS;
+    private static final int MAX_MEMORY_ENTRIES = 4;
+    private static final int MAX_DISK_ENTRIES = 4;
+    private static final String DISK_FILE_SUFFIX = ".json";
+    private static final Pattern LIFETIME_PATTERN = Pattern.compile("^(\\d+)(?:\\.\\d+)?s$");
+    private static final Pattern REST_USERNAME_PATTERN = Pattern.compile("^(\\d{9,}):");
+
+    private static class Entry {
+        final String url;
+        final String response;
+        final List<PeerConnection.IceServer> servers;
+        final long fetchedAtMs;
+        final long expiresAtMs;
+        // Có được dùng kể từ lần lấy cuối không; chỉ mục được dùng mới được làm mới.
+        // Whether it was used since it was fetched; only used entries are refreshed.
+        boolean used;
+
+        Entry(String url, String response, List<PeerConnection.IceServer> servers,
+              long fetchedAtMs, long expiresAtMs) {
+            this.url = url;
+            this.response = response;
+            this.servers = Collections.unmodifiableList(servers);
+            this.fetchedAtMs = fetchedAtMs;
+            this.expiresAtMs = expiresAtMs;
+        }
+
+        boolean isUsable(long nowMs) {
+            return TurnCredentialCache.isUsable(fetchedAtMs, expiresAtMs, nowMs);
+        }
+
+        long refreshAtMs() {
+            return TurnCredentialCache.refreshAtMs(fetchedAtMs, expiresAtMs);
+        }
+    }
+
+    @Nullable
+    private static TurnCredentialCache instance;
+
+    private final Map<String, Entry> memory =
+            new LinkedHashMap<String, Entry>(MAX_MEMORY_ENTRIES, 0.75f, true /* accessOrder */) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_MEMORY_ENTRIES;
+                }
+            };
+    private final Set<String> refreshing = new HashSet<>();
+    // Yêu cầu làm mới có thể chặn tới TURN_HTTP_TIMEOUT_MS nên chạy trên luồng riêng.
+    // A refresh may block for up to TURN_HTTP_TIMEOUT_MS, so it runs on its own thread.
+    private final ThreadPoolExecutor refreshExecutor = createRefreshExecutor();
+    @Nullable
+    private File diskCacheDir;
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    private long refreshCount;
+    private long refreshErrors;
+    private long totalRefreshMs;
+    private long maxRefreshMs;
+
+    public static synchronized TurnCredentialCache getInstance() {
+        if (instance == null) {
+            instance = new TurnCredentialCache();
+        }
+        return instance;
+    }
+
+    private TurnCredentialCache() {
+    }
+
+    /**
+     * Bật tầng đĩa trong |dir|, thường là một thư mục con riêng của getCacheDir(). null tắt nó.
+     * Enables the disk tier in |dir|, normally a private subdirectory of getCacheDir(). Passing
+     * null disables it.
+     */
+    public synchronized void setDiskCacheDir(@Nullable File dir) {
+        diskCacheDir = dir;
+    }
+
+    /**
+     * Trả về máy chủ TURN còn hạn trong bộ nhớ đệm mà không chặn mạng, hoặc null.
+     * Returns valid cached TURN servers without touching the network, or null.
+     */
+    @Nullable
+    public List<PeerConnection.IceServer> getCached(String url) {
+        final long nowMs = System.currentTimeMillis();
+        final Entry entry;
+        synchronized (this) {
+            Entry cached = memory.get(url);
+            if (cached != null && cached.isUsable(nowMs)) {
+                memoryHits++;
+            } else {
+                cached = readFromDiskLocked(url);
+                if (cached != null && cached.isUsable(nowMs)) {
+                    diskHits++;
+                    memory.put(url, cached);
+                } else {
+                    misses++;
+                    return null;
+                }
+            }
+            entry = cached;
+            entry.used = true;
+        }
+        Log.d(TAG, "TURN cache hit for " + url + ", expires in "
+                + TimeUnit.MILLISECONDS.toSeconds(entry.expiresAtMs - nowMs) + "s");
+        if (nowMs >= entry.refreshAtMs()) {
+            refreshAsync(url);
+        }
+        return entry.servers;
+    }
+
+    /**
+     * Yêu cầu máy chủ TURN từ |url| và lưu chúng. Chặn tới TURN_HTTP_TIMEOUT_MS; không được
+     * gọi trên luồng chính.
+     * Requests the TURN servers from |url| and caches them. Blocks for up to
+     * TURN_HTTP_TIMEOUT_MS; must not be called on the main thread.
+     */
+    public List<PeerConnection.IceServer> fetch(String url) throws IOException, JSONException {
+        final Entry entry = requestTurnServers(url);
+        entry.used = true;
+        store(entry);
+        return entry.servers;
+    }
+
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getHitRatePercent() {
+        final long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (int) ((memoryHits + diskHits) * 100 / lookups);
+    }
+
+    public synchronized long getRefreshCount() {
+        return refreshCount;
+    }
+
+    public synchronized long getRefreshErrors() {
+        return refreshErrors;
+    }
+
+    public synchronized long getAverageRefreshMs() {
+        return refreshCount == 0 ? 0 : totalRefreshMs / refreshCount;
+    }
+
+    public synchronized long getMaxRefreshMs() {
+        return maxRefreshMs;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "memoryHits=" + memoryHits + ", diskHits=" + diskHits + ", misses=" + misses
+                + ", hitRate=" + getHitRatePercent() + "%, refreshes=" + refreshCount
+                + ", refreshErrors=" + refreshErrors + ", avgRefresh=" + getAverageRefreshMs()
+                + "ms, maxRefresh=" + maxRefreshMs + "ms";
+    }
+
+    private void store(Entry entry) {
+        synchronized (this) {
+            memory.put(entry.url, entry);
+            writeToDiskLocked(entry);
+        }
+        final long delayMs = Math.max(0, entry.refreshAtMs() - System.currentTimeMillis());
+        SessionExecutors.timer().schedule(
+                () -> maybeRefresh(entry), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Chạy trên bộ hẹn giờ. Chỉ làm mới nếu mục vẫn là mục hiện tại và đã được dùng.
+    // Runs on the timer. Only refreshes when the entry is still current and was used.
+    private void maybeRefresh(Entry entry) {
+        synchronized (this) {
+            if (memory.get(entry.url) != entry || !entry.used) {
+                return;
+            }
+        }
+        refreshAsync(entry.url);
+    }
+
+    private void refreshAsync(final String url) {
+        synchronized (this) {
+            if (!refreshing.add(url)) {
+                return;
+            }
+        }
+        refreshExecutor.execute(() -> {
+            final long startMs = System.currentTimeMillis();
+            boolean success = false;
+            try {
+                store(requestTurnServers(url));
+                success = true;
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "TURN refresh failed: " + e.getMessage());
+            } finally {
+                final long elapsedMs = System.currentTimeMillis() - startMs;
+                synchronized (this) {
+                    refreshing.remove(url);
+                    refreshCount++;
+                    if (!success) {
+                        refreshErrors++;
+                    }
+                    totalRefreshMs += elapsedMs;
+                    maxRefreshMs = Math.max(maxRefreshMs, elapsedMs);
+                }
+                Log.d(TAG, "TURN refresh took " + elapsedMs + "ms. " + this);
+            }
+        });
+    }
+
+    // Yêu cầu và trả về TURN ICE Server dựa trên URL yêu cầu.
+    // Phải chạy tắt chủ đề chính!
+    // Requests & returns a TURN ICE Server based on a request URL.  Must be run
+    // off the main thread!
+    private static Entry requestTurnServers(String url) throws IOException, JSONException {
+        Log.d(TAG, "Request TURN from: " + url);
+        final long fetchedAtMs = System.currentTimeMillis();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setDoOutput(true);
+        connection.setRequestProperty("REFERER", "https://appr.tc");
+        connection.setConnectTimeout(TURN_HTTP_TIMEOUT_MS);
+        connection.setReadTimeout(TURN_HTTP_TIMEOUT_MS);
+        int responseCode = connection.getResponseCode();
+        if (responseCode != 200) {
+            throw new IOException("Non-200 response when requesting TURN server from " + url + " : "
+                    + connection.getHeaderField(null));
+        }
+        InputStream responseStream = connection.getInputStream();
+        String response = drainStream(responseStream);
+        connection.disconnect();
+        Log.d(TAG, "TURN response: " + response);
+        return parseResponse(url, response, fetchedAtMs);
+    }
+
+    private static Entry parseResponse(String url, String response, long fetchedAtMs)
+            throws JSONException {
+        List<PeerConnection.IceServer> turnServers = new ArrayList<>();
+        long expiresAtMs = 0;
+        JSONObject responseJSON = new JSONObject(response);
+        final Matcher lifetime =
+                LIFETIME_PATTERN.matcher(responseJSON.optString("lifetimeDuration"));
+        if (lifetime.matches()) {
+            expiresAtMs = fetchedAtMs + TimeUnit.SECONDS.toMillis(Long.parseLong(lifetime.group(1)));
+        }
+        JSONArray iceServers = responseJSON.getJSONArray("iceServers");
+        for (int i = 0; i < iceServers.length(); ++i) {
+            JSONObject server = iceServers.getJSONObject(i);
+            JSONArray turnUrls = server.getJSONArray("urls");
+            String username = server.has("username") ? server.getString("username") : "";
+            String credential = server.has("credential") ? server.getString("credential") : "";
+            final Matcher restUsername = REST_USERNAME_PATTERN.matcher(username);
+            if (restUsername.find()) {
+                // Tên người dùng TURN REST bắt đầu bằng thời điểm hết hạn tính bằng giây.
+                // A TURN REST username starts with its expiry time in seconds.
+                final long usernameExpiresAtMs =
+                        TimeUnit.SECONDS.toMillis(Long.parseLong(restUsername.group(1)));
+                expiresAtMs = expiresAtMs == 0
+                        ? usernameExpiresAtMs : Math.min(expiresAtMs, usernameExpiresAtMs);
+            }
+            for (int j = 0; j < turnUrls.length(); j++) {
+                String turnUrl = turnUrls.getString(j);
+                PeerConnection.IceServer turnServer =
+                        PeerConnection.IceServer.builder(turnUrl)
+                                .setUsername(username)
+                                .setPassword(credential)
+                                .createIceServer();
+                turnServers.add(turnServer);
+            }
+        }
+        if (expiresAtMs <= fetchedAtMs) {
+            expiresAtMs = fetchedAtMs + DEFAULT_TTL_MS;
+        }
+        return new Entry(url, response, turnServers, fetchedAtMs, expiresAtMs);
+    }
+
+    // Thời hạn còn lại tối thiểu để dùng thông tin xác thực có thời hạn |lifetimeMs|.
+    // Minimum lifetime left to use credentials whose lifetime is |lifetimeMs|.
+    static long minRemainingMs(long lifetimeMs) {
+        return Math.min(MIN_REMAINING_MS, lifetimeMs * MAX_MIN_REMAINING_PERCENT / 100);
+    }
+
+    static boolean isUsable(long fetchedAtMs, long expiresAtMs, long nowMs) {
+        return expiresAtMs - nowMs >= minRemainingMs(expiresAtMs - fetchedAtMs);
+    }
+
+    // Làm mới khi còn một phần tư thời hạn, nhưng luôn đủ sớm để xong trước khi mục hết dùng
+    // được; nếu không lần nối kế tiếp sẽ phải chờ máy chủ TURN.
+    // Refreshes when a quarter of the lifetime is left, but always early enough to finish before
+    // the entry stops being usable; otherwise the next join would wait for the TURN server.
+    static long refreshAtMs(long fetchedAtMs, long expiresAtMs) {
+        final long lifetimeMs = expiresAtMs - fetchedAtMs;
+        return Math.min(expiresAtMs - lifetimeMs * REFRESH_REMAINING_PERCENT / 100,
+                expiresAtMs - minRemainingMs(lifetimeMs) - REFRESH_MARGIN_MS);
+    }
+
+    // Tầng đĩa: một tệp nhỏ cho mỗi URL trong thư mục riêng của ứng dụng.
+    // Disk tier: one small file per URL in the private app directory.
+    @Nullable
+    private Entry readFromDiskLocked(String url) {
+        final File file = getDiskFileLocked(url);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            final JSONObject json = new JSONObject(drainStream(in));
+            if (!url.equals(json.getString("url"))) {
+                return null;
+            }
+            final long fetchedAtMs = json.getLong("fetchedAtMs");
+            final Entry parsed = parseResponse(url, json.getString("response"), fetchedAtMs);
+            return new Entry(url, parsed.response, parsed.servers, fetchedAtMs,
+                    json.getLong("expiresAtMs"));
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Dropping unreadable TURN cache file: " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDiskLocked(Entry entry) {
+        final File file = getDiskFileLocked(entry.url);
+        if (file == null) {
+            return;
+        }
+        final File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create TURN cache directory " + dir);
+            return;
+        }
+        final File tmp = new File(dir, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            final JSONObject json = new JSONObject();
+            json.put("url", entry.url);
+            json.put("fetchedAtMs", entry.fetchedAtMs);
+            json.put("expiresAtMs", entry.expiresAtMs);
+            json.put("response", entry.response);
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Failed to write TURN cache file: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        trimDiskLocked(dir);
+    }
+
+    // Giữ lại nhiều nhất MAX_DISK_ENTRIES tệp mới nhất.
+    // Keeps at most the MAX_DISK_ENTRIES newest files.
+    private static void trimDiskLocked(File dir) {
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(DISK_FILE_SUFFIX));
+        if (files == null || files.length <= MAX_DISK_ENTRIES) {
+            return;
+        }
+        final List<File> sorted = new ArrayList<>();
+        Collections.addAll(sorted, files);
+        Collections.sort(sorted, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (File stale : sorted.subList(MAX_DISK_ENTRIES, sorted.size())) {
+            stale.delete();
+        }
+    }
+
+    @Nullable
+    private File getDiskFileLocked(String url) {
+        if (diskCacheDir == null) {
+            return null;
+        }
+        return new File(diskCacheDir, Integer.toHexString(url.hashCode()) + DISK_FILE_SUFFIX);
+    }
+
+    private static ThreadPoolExecutor createRefreshExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "turn-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Trả về nội dung của InputStream dưới dạng Chuỗi.
+    // Return the contents of an InputStream as a String.
+    private static String drainStream(InputStream in) {
+        Scanner s = new Scanner(in, "UTF-8").useDelimiter("\\A");
+        return s.hasNext() ? s.next() : "";
+    }
+}
@@ -23,12 +23,10 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
 import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection;
 import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection.AsyncHttpEvents;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 /**
  * Triển khai ứng dụng khách WebSocket.
  *
@@ -40,12 +38,18 @@ import org.json.JSONObject;
  * <p>All public methods should be called from a looper executor thread
  * passed in a constructor, otherwise exception will be thrown.
  * All events are dispatched on the same thread.
+ *
+ * <p>disconnect() không chặn luồng looper: việc đóng hoàn tất khi có sự kiện đóng hoặc khi hết
+ * CLOSE_TIMEOUT, rồi CloseCallback được gọi.
+ * disconnect() never blocks the looper thread: the close completes on the close event or after
+ * CLOSE_TIMEOUT, then the CloseCallback is invoked.
  */
 public class WebSocketChannelClient {
     private static final String TAG = "WSChannelRTCClient";
     private static final int CLOSE_TIMEOUT = 1000;
     private final WebSocketChannelEvents events;
     private final Handler handler;
+    private final SignalingCodec codec = new SignalingCodec();
     private WebSocketConnection ws;
     private String wsServerUrl;
     private String postServerUrl;
@@ -59,8 +63,9 @@ public class WebSocketChannelClient {
     // Do not remove this member variable. If this is removed, the observer gets garbage collected and
     // this causes test breakages.
     private WebSocketObserver wsObserver;
-    private final Object closeEventLock = new Object();
-    private boolean closeEvent;
+    private final Runnable closeTimeoutTask = () -> finishClose(false /* clean */);
+    @Nullable
+    private CloseCallback closeCallback;
     // WebSocket gửi hàng đợi. Tin nhắn được thêm vào hàng đợi khi ứng dụng khách WebSocket
     // chưa được đăng ký và được sử dụng trong cuộc gọi register().
     // WebSocket send queue. Messages are added to the queue when WebSocket
@@ -71,7 +76,19 @@ public class WebSocketChannelClient {
      * Các trạng thái kết nối WebSocket có thể.
      * Possible WebSocket connection states.
      */
-    public enum WebSocketConnectionState {NEW, CONNECTED, REGISTERED, CLOSED, ERROR}
+    public enum WebSocketConnectionState {NEW, CONNECTED, REGISTERED, CLOSING, CLOSED, ERROR}
+
+    /**
+     * Được gọi trên luồng looper khi việc đóng hoàn tất.
+     * Invoked on the looper thread when the close has completed.
+     */
+    public interface CloseCallback {
+        /**
+         * |clean| là false nếu sự kiện đóng không đến trước CLOSE_TIMEOUT.
+         * |clean| is false if the close event did not arrive within CLOSE_TIMEOUT.
+         */
+        void onClosed(boolean clean);
+    }
 
     /**
      * Giao diện gọi lại cho các tin nhắn được gửi trên WebSocket.
@@ -82,6 +99,8 @@ public class WebSocketChannelClient {
     public interface WebSocketChannelEvents {
         void onWebSocketMessage(final String message);
 
+        void onWebSocketRegistered();
+
         void onWebSocketClose();
 
         void onWebSocketError(final String description);
@@ -107,7 +126,6 @@ public class WebSocketChannelClient {
         }
         wsServerUrl = wsUrl;
         postServerUrl = postUrl;
-        closeEvent = false;
 
         Log.d(TAG, "Connecting WebSocket to: " + wsUrl + ". Post URL: " + postUrl);
         ws = new WebSocketConnection();
@@ -130,23 +148,17 @@ public class WebSocketChannelClient {
             return;
         }
         Log.d(TAG, "Registering WebSocket for room " + roomID + ". ClientID: " + clientID);
-        JSONObject json = new JSONObject();
-        try {
-            json.put("cmd", "register");
-            json.put("roomid", roomID);
-            json.put("clientid", clientID);
-            Log.d(TAG, "C->WSS: " + json.toString());
-            ws.sendTextMessage(json.toString());
-            state = WebSocketConnectionState.REGISTERED;
-            // Gửi bất kỳ tin nhắn tích lũy trước đó.
-            // Send any previously accumulated messages.
-            for (String sendMessage : wsSendQueue) {
-                send(sendMessage);
-            }
-            wsSendQueue.clear();
-        } catch (JSONException e) {
-            reportError("WebSocket register JSON error: " + e.getMessage());
+        final String registerMessage = codec.encodeRegister(roomID, clientID);
+        Log.d(TAG, "C->WSS: " + registerMessage);
+        ws.sendTextMessage(registerMessage);
+        state = WebSocketConnectionState.REGISTERED;
+        events.onWebSocketRegistered();
+        // Gửi bất kỳ tin nhắn tích lũy trước đó.
+        // Send any previously accumulated messages.
+        for (String sendMessage : wsSendQueue) {
+            send(sendMessage);
         }
+        wsSendQueue.clear();
     }
 
     public void send(String message) {
@@ -161,20 +173,14 @@ public class WebSocketChannelClient {
                 wsSendQueue.add(message);
                 return;
             case ERROR:
+            case CLOSING:
             case CLOSED:
                 Log.e(TAG, "WebSocket send() in error or closed state : " + message);
                 return;
             case REGISTERED:
-                JSONObject json = new JSONObject();
-                try {
-                    json.put("cmd", "send");
-                    json.put("msg", message);
-                    message = json.toString();
-                    Log.d(TAG, "C->WSS: " + message);
-                    ws.sendTextMessage(message);
-                } catch (JSONException e) {
-                    reportError("WebSocket send JSON error: " + e.getMessage());
-                }
+                message = codec.encodeSendCommand(message);
+                Log.d(TAG, "C->WSS: " + message);
+                ws.sendTextMessage(message);
                 break;
         }
     }
@@ -187,13 +193,19 @@ public class WebSocketChannelClient {
         sendWSSMessage("POST", message);
     }
 
-    public void disconnect(boolean waitForComplete) {
+    /**
+     * Gửi "bye" và DELETE rồi đóng WebSocket mà không chờ. |callback| được gọi khi đóng xong,
+     * hoặc ngay lập tức nếu không có gì để đóng.
+     * Sends "bye" and DELETE, then closes the WebSocket without waiting. |callback| is invoked
+     * once the close has completed, or right away if there is nothing to close.
+     */
+    public void disconnect(@Nullable CloseCallback callback) {
         checkIfCalledOnValidThread();
         Log.d(TAG, "Disconnect WebSocket. State: " + state);
         if (state == WebSocketConnectionState.REGISTERED) {
             // Gửi "tạm biệt" đến máy chủ WebSocket.
             // Send "bye" to WebSocket server.
-            send("{\"type\": \"bye\"}");
+            send(codec.encodeType(SignalingCodec.TYPE_BYE));
             state = WebSocketConnectionState.CONNECTED;
             // Gửi http XÓA đến máy chủ http WebSocket.
             // Send http DELETE to http WebSocket server.
@@ -203,26 +215,36 @@ public class WebSocketChannelClient {
         // Close WebSocket in CONNECTED or ERROR states only.
         if (state == WebSocketConnectionState.CONNECTED || state == WebSocketConnectionState.ERROR) {
             ws.disconnect();
-            state = WebSocketConnectionState.CLOSED;
-
-            // Đợi sự kiện đóng websocket để ngăn thư viện websocket khỏi
-            // gửi bất kỳ tin nhắn đang chờ xử lý đến chủ đề looper đã xóa.
-            // Wait for websocket close event to prevent websocket library from
-            // sending any pending messages to deleted looper thread.
-            if (waitForComplete) {
-                synchronized (closeEventLock) {
-                    while (!closeEvent) {
-                        try {
-                            closeEventLock.wait(CLOSE_TIMEOUT);
-                            break;
-                        } catch (InterruptedException e) {
-                            Log.e(TAG, "Wait error: " + e.toString());
-                        }
-                    }
-                }
-            }
+            // Chủ looper chỉ nên dừng looper sau sự kiện đóng, để thư viện websocket không
+            // gửi tin nhắn đang chờ đến một looper đã dừng. Hết thời gian vẫn hoàn tất việc đóng.
+            // The looper owner should only quit the looper after the close event, so the
+            // websocket library does not post pending messages to a dead looper. The timeout
+            // completes the close regardless.
+            state = WebSocketConnectionState.CLOSING;
+            closeCallback = callback;
+            handler.postDelayed(closeTimeoutTask, CLOSE_TIMEOUT);
+            return;
         }
         Log.d(TAG, "Disconnecting WebSocket done.");
+        if (callback != null) {
+            callback.onClosed(true /* clean */);
+        }
+    }
+
+    // Kết thúc trạng thái CLOSING - chạy trên luồng looper.
+    // Leaves the CLOSING state - runs on the looper thread.
+    private void finishClose(boolean clean) {
+        if (state != WebSocketConnectionState.CLOSING) {
+            return;
+        }
+        handler.removeCallbacks(closeTimeoutTask);
+        state = WebSocketConnectionState.CLOSED;
+        Log.d(TAG, "Disconnecting WebSocket done. Clean: " + clean);
+        final CloseCallback callback = closeCallback;
+        closeCallback = null;
+        if (callback != null) {
+            callback.onClosed(clean);
+        }
     }
 
     private void reportError(final String errorMessage) {
@@ -230,6 +252,12 @@ public class WebSocketChannelClient {
         handler.post(new Runnable() {
             @Override
             public void run() {
+                // Lỗi trong khi đóng, ví dụ của DELETE, không còn ai cần biết.
+                // Errors while closing, e.g. of the DELETE, are of no interest to anyone.
+                if (state == WebSocketConnectionState.CLOSING
+                        || state == WebSocketConnectionState.CLOSED) {
+                    return;
+                }
                 if (state != WebSocketConnectionState.ERROR) {
                     state = WebSocketConnectionState.ERROR;
                     events.onWebSocketError(errorMessage);
@@ -288,14 +316,12 @@ public class WebSocketChannelClient {
         public void onClose(WebSocketCloseNotification code, String reason) {
             Log.d(TAG, "WebSocket connection closed. Code: " + code + ". Reason: " + reason + ". State: "
                     + state);
-            synchronized (closeEventLock) {
-                closeEvent = true;
-                closeEventLock.notify();
-            }
             handler.post(new Runnable() {
                 @Override
                 public void run() {
-                    if (state != WebSocketConnectionState.CLOSED) {
+                    if (state == WebSocketConnectionState.CLOSING) {
+                        finishClose(true /* clean */);
+                    } else if (state != WebSocketConnectionState.CLOSED) {
                         state = WebSocketConnectionState.CLOSED;
                         events.onWebSocketClose();
                     }
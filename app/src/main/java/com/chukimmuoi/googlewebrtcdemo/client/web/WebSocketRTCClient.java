@@ -16,13 +16,19 @@ import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient;
+import com.chukimmuoi.googlewebrtcdemo.client.CallSetup;
+import com.chukimmuoi.googlewebrtcdemo.client.IceCandidateBatcher;
+import com.chukimmuoi.googlewebrtcdemo.client.IceCandidates;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingMetrics;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingSession;
 import com.chukimmuoi.googlewebrtcdemo.client.web.RoomParametersFetcher.RoomParametersFetcherEvents;
 import com.chukimmuoi.googlewebrtcdemo.client.web.WebSocketChannelClient.WebSocketChannelEvents;
 import com.chukimmuoi.googlewebrtcdemo.client.web.WebSocketChannelClient.WebSocketConnectionState;
-import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection;
 import com.chukimmuoi.googlewebrtcdemo.util.AsyncHttpURLConnection.AsyncHttpEvents;
 
-import org.json.JSONArray;
+import java.io.IOException;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.webrtc.IceCandidate;
@@ -45,6 +51,11 @@ import org.webrtc.SessionDescription;
  * onConnectedToRoom() callback with room parameters is invoked.
  * Messages to other party (with local Ice candidates and answer SDP) can
  * be sent after WebSocket connection is established.
+ *
+ * <p>Khi WebSocket bị đóng ngoài ý muốn, máy khách kết nối và đăng ký lại rồi nối lại
+ * SignalingSession; cuộc gọi chỉ kết thúc khi nhận "bye" hoặc không nối lại được.
+ * When the WebSocket closes unexpectedly, the client connects and registers again and resumes
+ * its SignalingSession; the call only ends on "bye" or when resuming fails.
  */
 public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents {
     private static final String TAG = "WSRTCClient";
@@ -57,6 +68,14 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
     private enum MessageType {MESSAGE, LEAVE}
 
     private final Handler handler;
+    private final IceCandidateBatcher candidateBatcher;
+    // Hàng đợi POST có thứ tự tới máy chủ GAE.
+    // Ordered POST queue to the GAE server.
+    private final RoomMessageQueue messageQueue;
+    private final SignalingSession session;
+    // Chỉ dùng trên luồng looper cục bộ.
+    // Only used on the local looper thread.
+    private final SignalingCodec codec = new SignalingCodec();
     private boolean initiator;
     private SignalingEvents events;
     private WebSocketChannelClient wsClient;
@@ -64,13 +83,47 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
     private RoomConnectionParameters connectionParameters;
     private String messageUrl;
     private String leaveUrl;
+    private String wssUrl;
+    private String wssPostUrl;
+    private String clientId;
+    // Sự kiện của các WebSocket cũ hơn WebSocket hiện tại bị bỏ qua.
+    // Events of WebSockets older than the current one are ignored.
+    private int channelGeneration;
 
     public WebSocketRTCClient(SignalingEvents events) {
+        this(events, IceCandidateBatcher.DEFAULT_WINDOW_MS);
+    }
+
+    /**
+     * |candidateBatchWindowMs| là cửa sổ gom ứng viên ICE cục bộ; 0 gửi từng ứng viên riêng.
+     * |candidateBatchWindowMs| is the window used to batch local ICE candidates; 0 sends every
+     * candidate in its own message.
+     */
+    public WebSocketRTCClient(SignalingEvents events, int candidateBatchWindowMs) {
         this.events = events;
         roomState = ConnectionState.NEW;
         final HandlerThread handlerThread = new HandlerThread(TAG);
         handlerThread.start();
         handler = new Handler(handlerThread.getLooper());
+        candidateBatcher = new IceCandidateBatcher(candidateBatchWindowMs,
+                IceCandidateBatcher.DEFAULT_MAX_BATCH_SIZE, handler::postDelayed,
+                this::sendLocalIceCandidatesInternal);
+        messageQueue = new RoomMessageQueue(
+                RoomMessageQueue.DEFAULT_CAPACITY, handler::post, this::onMessageQueueSaturationChanged);
+        session = new SignalingSession(handler::postDelayed, new SessionTransport());
+    }
+
+    @Override
+    public SignalingMetrics getSignalingMetrics() {
+        return session.getMetrics();
+    }
+
+    /**
+     * Hàng đợi POST của phòng, để đọc độ sâu và độ trễ.
+     * POST queue of the room, to read its depth and latency.
+     */
+    public RoomMessageQueue getMessageQueue() {
+        return messageQueue;
     }
 
     // --------------------------------------------------------------------
@@ -91,13 +144,14 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
         });
     }
 
+    // Trả về ngay; luồng looper dừng khi WebSocket đã đóng xong.
+    // Returns right away; the looper thread quits once the WebSocket has closed.
     @Override
     public void disconnectFromRoom() {
         handler.post(new Runnable() {
             @Override
             public void run() {
                 disconnectFromRoomInternal();
-                handler.getLooper().quit();
             }
         });
     }
@@ -108,9 +162,19 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
         String connectionUrl = getConnectionUrl(connectionParameters);
         Log.d(TAG, "Connect to room: " + connectionUrl);
         roomState = ConnectionState.NEW;
-        wsClient = new WebSocketChannelClient(handler, this);
+        wsClient = new WebSocketChannelClient(handler, new ChannelEvents(++channelGeneration));
 
         RoomParametersFetcherEvents callbacks = new RoomParametersFetcherEvents() {
+            @Override
+            public void onRoomJoined(final SignalingParameters params) {
+                WebSocketRTCClient.this.handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        WebSocketRTCClient.this.roomJoined(params);
+                    }
+                });
+            }
+
             @Override
             public void onSignalingParametersReady(final SignalingParameters params) {
                 WebSocketRTCClient.this.handler.post(new Runnable() {
@@ -134,13 +198,22 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
     // Disconnect from room and send bye messages - runs on a local looper thread.
     private void disconnectFromRoomInternal() {
         Log.d(TAG, "Disconnect. Room state: " + roomState);
+        candidateBatcher.clear();
+        // Các tin nhắn chưa gửi không còn ý nghĩa khi rời phòng.
+        // Messages not sent yet are pointless once the room is left.
+        messageQueue.clear();
+        Log.d(TAG, "GAE message queue: " + messageQueue);
+        Log.d(TAG, "Signaling session: " + session);
+        session.end();
         if (roomState == ConnectionState.CONNECTED) {
             Log.d(TAG, "Closing room.");
             sendPostMessage(MessageType.LEAVE, leaveUrl, null);
         }
         roomState = ConnectionState.CLOSED;
         if (wsClient != null) {
-            wsClient.disconnect(true);
+            wsClient.disconnect(clean -> handler.getLooper().quit());
+        } else {
+            handler.getLooper().quit();
         }
     }
 
@@ -171,12 +244,15 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
         }
     }
 
-    // Gọi lại khi các tham số phòng được trích xuất.
+    // Gọi lại khi đã vào phòng. WebSocket được kết nối song song với việc lấy máy chủ TURN.
     // Chạy trên chủ đề looper cục bộ.
-    // Callback issued when room parameters are extracted. Runs on local
-    // looper thread.
-    private void signalingParametersReady(final SignalingParameters signalingParameters) {
-        Log.d(TAG, "Room connection completed.");
+    // Callback issued when the room is joined. The WebSocket is connected in parallel with the
+    // TURN server request. Runs on local looper thread.
+    private void roomJoined(final SignalingParameters signalingParameters) {
+        Log.d(TAG, "Room joined.");
+        if (roomState != ConnectionState.NEW) {
+            return;
+        }
         if (connectionParameters.loopback
                 && (!signalingParameters.initiator || signalingParameters.offerSdp != null)) {
             reportError("Loopback room is busy.");
@@ -192,15 +268,43 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
         Log.d(TAG, "Message URL: " + messageUrl);
         Log.d(TAG, "Leave URL: " + leaveUrl);
         roomState = ConnectionState.CONNECTED;
+        events.onSignalingStageCompleted(CallSetup.Stage.JOIN);
+
+        // Offer và ứng viên trong phản hồi vào phòng không đi qua WebSocket nhưng vẫn được đánh
+        // số; phiên phải biết chúng trước tin nhắn WebSocket đầu tiên để xác nhận chúng và bỏ
+        // qua bản gửi lại khi nối lại.
+        // The offer and candidates of the join response bypass the WebSocket but are still
+        // numbered; the session must see them before the first WebSocket message so it
+        // acknowledges them and drops their replay on resume.
+        if (signalingParameters.messageSequences != null) {
+            for (long[] sequence : signalingParameters.messageSequences) {
+                session.onReceive(sequence[0], sequence[1], 0);
+            }
+        }
+
+        // Kết nối và đăng ký ứng dụng khách WebSocket.
+        // Connect and register WebSocket client.
+        wssUrl = signalingParameters.wssUrl;
+        wssPostUrl = signalingParameters.wssPostUrl;
+        clientId = signalingParameters.clientId;
+        wsClient.connect(wssUrl, wssPostUrl);
+        wsClient.register(connectionParameters.roomId, clientId);
+    }
+
+    // Gọi lại khi các tham số phòng được trích xuất, kể cả máy chủ TURN.
+    // Chạy trên chủ đề looper cục bộ.
+    // Callback issued when room parameters are extracted, TURN servers included. Runs on local
+    // looper thread.
+    private void signalingParametersReady(final SignalingParameters signalingParameters) {
+        if (roomState != ConnectionState.CONNECTED) {
+            return;
+        }
+        Log.d(TAG, "Room connection completed.");
+        events.onSignalingStageCompleted(CallSetup.Stage.TURN);
 
         // Kết nối và các thông số báo hiệu sự kiện.
         // Fire connection and signaling parameters events.
         events.onConnectedToRoom(signalingParameters);
-
-        // Kết nối và đăng ký ứng dụng khách WebSocket.
-        // Connect and register WebSocket client.
-        wsClient.connect(signalingParameters.wssUrl, signalingParameters.wssPostUrl);
-        wsClient.register(connectionParameters.roomId, signalingParameters.clientId);
     }
 
     // Gửi SDP cung cấp địa phương cho người tham gia khác.
@@ -214,10 +318,7 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
                     reportError("Sending offer SDP in non connected state.");
                     return;
                 }
-                JSONObject json = new JSONObject();
-                jsonPut(json, "sdp", sdp.description);
-                jsonPut(json, "type", "offer");
-                sendPostMessage(MessageType.MESSAGE, messageUrl, json.toString());
+                session.send(codec.encodeSdp(SignalingCodec.TYPE_OFFER, sdp.description));
                 if (connectionParameters.loopback) {
                     // In loopback mode rename this offer to answer and route it back.
                     SessionDescription sdpAnswer = new SessionDescription(
@@ -239,46 +340,50 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
                     Log.e(TAG, "Sending answer in loopback mode.");
                     return;
                 }
-                JSONObject json = new JSONObject();
-                jsonPut(json, "sdp", sdp.description);
-                jsonPut(json, "type", "answer");
-                wsClient.send(json.toString());
+                session.send(codec.encodeSdp(SignalingCodec.TYPE_ANSWER, sdp.description));
             }
         });
     }
 
-    // Gửi ứng viên Ice cho người tham gia khác.
-    // Send Ice candidate to the other participant.
+    // Gửi ứng viên Ice cho người tham gia khác. Các ứng viên được gom thành lô.
+    // Send Ice candidate to the other participant. Candidates are batched.
     @Override
     public void sendLocalIceCandidate(final IceCandidate candidate) {
         handler.post(new Runnable() {
             @Override
             public void run() {
-                JSONObject json = new JSONObject();
-                jsonPut(json, "type", "candidate");
-                jsonPut(json, "label", candidate.sdpMLineIndex);
-                jsonPut(json, "id", candidate.sdpMid);
-                jsonPut(json, "candidate", candidate.sdp);
-                if (initiator) {
-                    // Trình khởi tạo cuộc gọi gửi ứng viên ICR đến máy chủ GAE.
-                    // Call initiator sends ice candidates to GAE server.
-                    if (roomState != ConnectionState.CONNECTED) {
-                        reportError("Sending ICE candidate in non connected state.");
-                        return;
-                    }
-                    sendPostMessage(MessageType.MESSAGE, messageUrl, json.toString());
-                    if (connectionParameters.loopback) {
-                        events.onRemoteIceCandidate(candidate);
-                    }
-                } else {
-                    // Nhận cuộc gọi gửi ứng viên ICE đến máy chủ websocket.
-                    // Call receiver sends ice candidates to websocket server.
-                    wsClient.send(json.toString());
-                }
+                candidateBatcher.add(candidate);
             }
         });
     }
 
+    // Gửi một lô ứng viên Ice - chạy trên một chuỗi looper cục bộ. Tin nhắn "candidates" chỉ
+    // được gửi khi bên kia đã cho thấy nó là phiên bản mới; nếu không, mỗi ứng viên được gửi
+    // dưới dạng tin nhắn "candidate" cũ, liền nhau.
+    // Send a batch of Ice candidates - runs on a local looper thread. The "candidates" message
+    // is only sent once the peer has shown it runs a newer version (the appr.tc web client does
+    // not understand it); otherwise every candidate goes out back to back as the old
+    // "candidate" message.
+    private void sendLocalIceCandidatesInternal(final IceCandidate[] candidates) {
+        // Trình khởi tạo cuộc gọi gửi ứng viên ICE đến máy chủ GAE, bên nhận qua websocket.
+        // Call initiator sends ice candidates to GAE server, the receiver to websocket server.
+        if (initiator && roomState != ConnectionState.CONNECTED) {
+            reportError("Sending ICE candidate in non connected state.");
+            return;
+        }
+        if (candidates.length > 1 && session.isPeerResumable()) {
+            session.send(IceCandidates.encodeCandidates(
+                    codec, SignalingCodec.TYPE_CANDIDATES, candidates));
+        } else {
+            for (IceCandidate candidate : candidates) {
+                session.send(IceCandidates.encodeCandidate(codec, candidate));
+            }
+        }
+        if (initiator && connectionParameters.loopback) {
+            events.onRemoteIceCandidates(candidates);
+        }
+    }
+
     // Gửi các ứng cử viên Ice đã xóa cho người tham gia khác.
     // Send removed Ice candidates to the other participant.
     @Override
@@ -286,13 +391,11 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
         handler.post(new Runnable() {
             @Override
             public void run() {
-                JSONObject json = new JSONObject();
-                jsonPut(json, "type", "remove-candidates");
-                JSONArray jsonArray = new JSONArray();
-                for (final IceCandidate candidate : candidates) {
-                    jsonArray.put(toJsonCandidate(candidate));
-                }
-                jsonPut(json, "candidates", jsonArray);
+                // Gửi các ứng viên đang chờ trước để bên kia không nhận lệnh xóa trước lệnh thêm.
+                // Send pending candidates first so the removal never overtakes the addition.
+                candidateBatcher.flush();
+                final String message = IceCandidates.encodeCandidates(
+                        codec, SignalingCodec.TYPE_REMOVE_CANDIDATES, candidates);
                 if (initiator) {
                     // Trình khởi tạo cuộc gọi gửi ứng viên ICE đến máy chủ GAE.
                     // Call initiator sends ice candidates to GAE server.
@@ -300,14 +403,14 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
                         reportError("Sending ICE candidate removals in non connected state.");
                         return;
                     }
-                    sendPostMessage(MessageType.MESSAGE, messageUrl, json.toString());
+                    session.send(message);
                     if (connectionParameters.loopback) {
                         events.onRemoteIceCandidatesRemoved(candidates);
                     }
                 } else {
                     // Nhận cuộc gọi gửi ứng viên ICE đến máy chủ websocket.
                     // Call receiver sends ice candidates to websocket server.
-                    wsClient.send(json.toString());
+                    session.send(message);
                 }
             }
         });
@@ -326,65 +429,116 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
             Log.e(TAG, "Got WebSocket message in non registered state.");
             return;
         }
+        // Phong bì và tin nhắn lồng trong "msg" được giải mã trong một lượt.
+        // The envelope and the message nested in "msg" are decoded in one pass.
+        final SignalingCodec.Message message;
         try {
-            JSONObject json = new JSONObject(msg);
-            String msgText = json.getString("msg");
-            String errorText = json.optString("error");
-            if (msgText.length() > 0) {
-                json = new JSONObject(msgText);
-                String type = json.optString("type");
-                if (type.equals("candidate")) {
-                    events.onRemoteIceCandidate(toJavaCandidate(json));
-                } else if (type.equals("remove-candidates")) {
-                    JSONArray candidateArray = json.getJSONArray("candidates");
-                    IceCandidate[] candidates = new IceCandidate[candidateArray.length()];
-                    for (int i = 0; i < candidateArray.length(); ++i) {
-                        candidates[i] = toJavaCandidate(candidateArray.getJSONObject(i));
-                    }
-                    events.onRemoteIceCandidatesRemoved(candidates);
-                } else if (type.equals("answer")) {
-                    if (initiator) {
-                        SessionDescription sdp = new SessionDescription(
-                                SessionDescription.Type.fromCanonicalForm(type), json.getString("sdp"));
-                        events.onRemoteDescription(sdp);
-                    } else {
-                        reportError("Received answer for call initiator: " + msg);
-                    }
-                } else if (type.equals("offer")) {
-                    if (!initiator) {
-                        SessionDescription sdp = new SessionDescription(
-                                SessionDescription.Type.fromCanonicalForm(type), json.getString("sdp"));
-                        events.onRemoteDescription(sdp);
-                    } else {
-                        reportError("Received offer for call receiver: " + msg);
-                    }
-                } else if (type.equals("bye")) {
-                    events.onChannelClose();
+            message = codec.decodeEnvelope(msg);
+        } catch (IOException e) {
+            reportError("WebSocket message JSON parsing error: " + e.toString());
+            return;
+        }
+        final String type = message.getType();
+        if (type == null) {
+            final String errorText = message.getError();
+            if (errorText != null && errorText.length() > 0) {
+                reportError("WebSocket error message: " + errorText);
+            } else {
+                reportError("Unexpected WebSocket message: " + msg);
+            }
+            return;
+        }
+        if (!session.onReceive(message.getSeq(), message.getAck(), msg.length())) {
+            Log.d(TAG, "Dropping duplicate WebSocket message");
+            return;
+        }
+        switch (type) {
+            case "ack":
+                // Đã được xử lý bởi phiên.
+                // Already handled by the session.
+                break;
+            case "ping":
+                session.onPing(message.getTs());
+                break;
+            case "pong":
+                session.onPong(message.getTs());
+                break;
+            case "resume":
+                session.onResume(message.getAck(), message.isReply());
+                Log.d(TAG, "Signaling resumed: " + session);
+                break;
+            case SignalingCodec.TYPE_CANDIDATE:
+                events.onRemoteIceCandidate(IceCandidates.fromMessage(message)[0]);
+                break;
+            case SignalingCodec.TYPE_CANDIDATES:
+                events.onRemoteIceCandidates(IceCandidates.fromMessage(message));
+                break;
+            case SignalingCodec.TYPE_REMOVE_CANDIDATES:
+                events.onRemoteIceCandidatesRemoved(IceCandidates.fromMessage(message));
+                break;
+            case SignalingCodec.TYPE_ANSWER:
+                if (initiator) {
+                    SessionDescription sdp = new SessionDescription(
+                            SessionDescription.Type.fromCanonicalForm(type), message.getSdp());
+                    events.onRemoteDescription(sdp);
                 } else {
-                    reportError("Unexpected WebSocket message: " + msg);
+                    reportError("Received answer for call initiator: " + msg);
                 }
-            } else {
-                if (errorText != null && errorText.length() > 0) {
-                    reportError("WebSocket error message: " + errorText);
+                break;
+            case SignalingCodec.TYPE_OFFER:
+                if (!initiator) {
+                    SessionDescription sdp = new SessionDescription(
+                            SessionDescription.Type.fromCanonicalForm(type), message.getSdp());
+                    events.onRemoteDescription(sdp);
                 } else {
-                    reportError("Unexpected WebSocket message: " + msg);
+                    reportError("Received offer for call receiver: " + msg);
                 }
-            }
-        } catch (JSONException e) {
-            reportError("WebSocket message JSON parsing error: " + e.toString());
+                break;
+            case SignalingCodec.TYPE_BYE:
+                session.end();
+                events.onChannelClose();
+                break;
+            default:
+                reportError("Unexpected WebSocket message: " + msg);
+                break;
+        }
+    }
+
+    @Override
+    public void onWebSocketRegistered() {
+        if (session.isResuming()) {
+            session.onChannelOpened(true /* initiateResume */);
+            return;
         }
+        events.onSignalingStageCompleted(CallSetup.Stage.WEBSOCKET);
     }
 
     @Override
     public void onWebSocketClose() {
+        if (roomState == ConnectionState.CONNECTED && session.onChannelLost()) {
+            Log.w(TAG, "WebSocket closed, reconnecting: " + session);
+            return;
+        }
         events.onChannelClose();
     }
 
     @Override
     public void onWebSocketError(String description) {
+        if (roomState == ConnectionState.CONNECTED && session.onChannelLost()) {
+            Log.w(TAG, "WebSocket error, reconnecting: " + description);
+            return;
+        }
         reportError("WebSocket error: " + description);
     }
 
+    // Tạm dừng gửi ứng viên khi hàng đợi POST bão hòa - chạy trên một chuỗi looper cục bộ.
+    // Holds back candidates while the POST queue is saturated - runs on a local looper thread.
+    private void onMessageQueueSaturationChanged(boolean saturated) {
+        if (roomState == ConnectionState.CONNECTED) {
+            candidateBatcher.setPaused(saturated);
+        }
+    }
+
     // --------------------------------------------------------------------
     // Helper functions.
     private void reportError(final String errorMessage) {
@@ -400,15 +554,6 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
         });
     }
 
-    // Put a |key|->|value| mapping in |json|.
-    private static void jsonPut(JSONObject json, String key, Object value) {
-        try {
-            json.put(key, value);
-        } catch (JSONException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     // Send SDP or ICE candidate to a room server.
     private void sendPostMessage(
             final MessageType messageType, final String url, @Nullable final String message) {
@@ -417,43 +562,108 @@ public class WebSocketRTCClient implements AppRTCClient, WebSocketChannelEvents
             logInfo += ". Message: " + message;
         }
         Log.d(TAG, "C->GAE: " + logInfo);
-        AsyncHttpURLConnection httpConnection =
-                new AsyncHttpURLConnection("POST", url, message, new AsyncHttpEvents() {
-                    @Override
-                    public void onHttpError(String errorMessage) {
-                        reportError("GAE POST error: " + errorMessage);
-                    }
+        messageQueue.send(url, message, new AsyncHttpEvents() {
+            @Override
+            public void onHttpError(String errorMessage) {
+                reportError("GAE POST error: " + errorMessage);
+            }
 
-                    @Override
-                    public void onHttpComplete(String response) {
-                        if (messageType == MessageType.MESSAGE) {
-                            try {
-                                JSONObject roomJson = new JSONObject(response);
-                                String result = roomJson.getString("result");
-                                if (!result.equals("SUCCESS")) {
-                                    reportError("GAE POST error: " + result);
-                                }
-                            } catch (JSONException e) {
-                                reportError("GAE POST JSON error: " + e.toString());
-                            }
+            @Override
+            public void onHttpComplete(String response) {
+                if (messageType == MessageType.MESSAGE) {
+                    try {
+                        JSONObject roomJson = new JSONObject(response);
+                        String result = roomJson.getString("result");
+                        if (!result.equals("SUCCESS")) {
+                            reportError("GAE POST error: " + result);
                         }
+                    } catch (JSONException e) {
+                        reportError("GAE POST JSON error: " + e.toString());
                     }
-                });
-        httpConnection.send();
+                }
+            }
+        });
     }
 
-    // Converts a Java candidate to a JSONObject.
-    private JSONObject toJsonCandidate(final IceCandidate candidate) {
-        JSONObject json = new JSONObject();
-        jsonPut(json, "label", candidate.sdpMLineIndex);
-        jsonPut(json, "id", candidate.sdpMid);
-        jsonPut(json, "candidate", candidate.sdp);
-        return json;
+    /**
+     * Kênh của phiên báo hiệu: bên khởi tạo gửi qua máy chủ GAE, bên nhận qua WebSocket. Tin
+     * nhắn điều khiển luôn đi qua WebSocket để không tốn một POST mỗi lần.
+     * Channel of the signaling session: the initiator sends through the GAE server, the receiver
+     * through the WebSocket. Control messages always go through the WebSocket so they never cost
+     * a POST; they are only sent once the peer has shown it is registered on it. Runs on the
+     * local looper thread.
+     */
+    private class SessionTransport implements SignalingSession.Transport {
+        @Override
+        public void send(String message) {
+            if (initiator) {
+                sendPostMessage(MessageType.MESSAGE, messageUrl, message);
+            } else {
+                wsClient.send(message);
+            }
+        }
+
+        @Override
+        public void sendControl(String message) {
+            wsClient.send(message);
+        }
+
+        @Override
+        public void reconnect() {
+            if (roomState != ConnectionState.CONNECTED) {
+                return;
+            }
+            Log.d(TAG, "Reconnecting WebSocket to " + wssUrl);
+            wsClient.disconnect(null);
+            wsClient = new WebSocketChannelClient(handler, new ChannelEvents(++channelGeneration));
+            wsClient.connect(wssUrl, wssPostUrl);
+            wsClient.register(connectionParameters.roomId, clientId);
+        }
+
+        @Override
+        public void onSessionLost() {
+            Log.w(TAG, "Could not resume signaling: " + session);
+            events.onChannelClose();
+        }
     }
 
-    // Converts a JSON candidate to a Java object.
-    IceCandidate toJavaCandidate(JSONObject json) throws JSONException {
-        return new IceCandidate(
-                json.getString("id"), json.getInt("label"), json.getString("candidate"));
+    /**
+     * Chuyển sự kiện của một WebSocket, bỏ qua nếu WebSocket đã được thay thế.
+     * Forwards the events of one WebSocket, ignoring them once the WebSocket was replaced.
+     */
+    private class ChannelEvents implements WebSocketChannelEvents {
+        private final int generation;
+
+        ChannelEvents(int generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public void onWebSocketMessage(String message) {
+            if (generation == channelGeneration) {
+                WebSocketRTCClient.this.onWebSocketMessage(message);
+            }
+        }
+
+        @Override
+        public void onWebSocketRegistered() {
+            if (generation == channelGeneration) {
+                WebSocketRTCClient.this.onWebSocketRegistered();
+            }
+        }
+
+        @Override
+        public void onWebSocketClose() {
+            if (generation == channelGeneration) {
+                WebSocketRTCClient.this.onWebSocketClose();
+            }
+        }
+
+        @Override
+        public void onWebSocketError(String description) {
+            if (generation == channelGeneration) {
+                WebSocketRTCClient.this.onWebSocketError(description);
+            }
+        }
     }
 }
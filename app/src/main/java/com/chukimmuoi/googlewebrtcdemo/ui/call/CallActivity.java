@@ -33,6 +33,7 @@ import android.view.WindowManager;
 import android.view.WindowManager.LayoutParams;
 import android.widget.Toast;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.RuntimeException;
 import java.util.ArrayList;
@@ -40,19 +41,25 @@ import java.util.List;
 import java.util.Set;
 
 import com.chukimmuoi.googlewebrtcdemo.ui.call.fragment.CallFragment;
+import com.chukimmuoi.googlewebrtcdemo.util.capture.BandwidthAdaptationController;
 import com.chukimmuoi.googlewebrtcdemo.util.cpu.CpuMonitor;
 import com.chukimmuoi.googlewebrtcdemo.ui.call.fragment.HudFragment;
+import com.chukimmuoi.googlewebrtcdemo.ui.call.fragment.HudStats;
 import com.chukimmuoi.googlewebrtcdemo.R;
 import com.chukimmuoi.googlewebrtcdemo.util.exception.UnhandledExceptionHandler;
+import com.chukimmuoi.googlewebrtcdemo.util.executor.SessionExecutors;
 import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient;
+import com.chukimmuoi.googlewebrtcdemo.client.CallController;
 import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionClient;
+import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionFactoryHolder;
 import com.chukimmuoi.googlewebrtcdemo.client.direct.DirectRTCClient;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+import com.chukimmuoi.googlewebrtcdemo.client.web.TurnCredentialCache;
 import com.chukimmuoi.googlewebrtcdemo.client.web.WebSocketRTCClient;
 import com.chukimmuoi.googlewebrtcdemo.manager.AppRTCAudioManager;
 import com.chukimmuoi.googlewebrtcdemo.manager.AppRTCAudioManager.AudioDevice;
 import com.chukimmuoi.googlewebrtcdemo.manager.AppRTCAudioManager.AudioManagerEvents;
 import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient.RoomConnectionParameters;
-import com.chukimmuoi.googlewebrtcdemo.client.AppRTCClient.SignalingParameters;
 import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionClient.DataChannelParameters;
 import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionClient.PeerConnectionParameters;
 
@@ -61,13 +68,10 @@ import org.webrtc.Camera2Enumerator;
 import org.webrtc.CameraEnumerator;
 import org.webrtc.EglBase;
 import org.webrtc.FileVideoCapturer;
-import org.webrtc.IceCandidate;
 import org.webrtc.Logging;
 import org.webrtc.PeerConnectionFactory;
 import org.webrtc.RendererCommon.ScalingType;
 import org.webrtc.ScreenCapturerAndroid;
-import org.webrtc.SessionDescription;
-import org.webrtc.StatsReport;
 import org.webrtc.SurfaceViewRenderer;
 import org.webrtc.VideoCapturer;
 import org.webrtc.VideoFileRenderer;
@@ -79,10 +83,10 @@ import org.webrtc.VideoSink;
  * Activity for peer connection call setup, call waiting
  * and call view.
  */
-public class CallActivity extends Activity implements AppRTCClient.SignalingEvents,
-        PeerConnectionClient.PeerConnectionEvents,
+public class CallActivity extends Activity implements CallController.CallEvents,
         CallFragment.OnCallEvents {
     private static final String TAG = "CallRTCClient";
+    private static final String TURN_CACHE_DIR_NAME = "turn";
 
     public static final String EXTRA_ROOMID = "org.appspot.apprtc.ROOMID";
     public static final String EXTRA_URLPARAMETERS = "org.appspot.apprtc.URLPARAMETERS";
@@ -164,12 +168,14 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
 
     private final ProxyVideoSink remoteProxyRenderer = new ProxyVideoSink();
     private final ProxyVideoSink localProxyVideoSink = new ProxyVideoSink();
+    // Đọc cả trên luồng thống kê; disconnect() đặt lại null trên luồng UI.
+    // Also read on the stats thread; disconnect() resets it to null on the UI thread.
     @Nullable
-    private PeerConnectionClient peerConnectionClient;
+    private volatile PeerConnectionClient peerConnectionClient;
     @Nullable
     private AppRTCClient appRtcClient;
     @Nullable
-    private SignalingParameters signalingParameters;
+    private CallController callController;
     @Nullable
     private AppRTCAudioManager audioManager;
     @Nullable
@@ -188,6 +194,7 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
     private boolean connected;
     private boolean isError;
     private boolean callControlFragmentVisible = true;
+    private boolean displayHud;
     private long callStartedTimeMs;
     private boolean micEnabled = true;
     private boolean screencaptureEnabled;
@@ -200,6 +207,11 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
     private CallFragment callFragment;
     private HudFragment hudFragment;
     private CpuMonitor cpuMonitor;
+    @Nullable
+    private BandwidthAdaptationController bandwidthAdaptation;
+    // Chỉ dùng trên luồng thống kê.
+    // Only used on the stats thread.
+    private boolean statsFastSampling;
 
     @Override
     // TODO(bugs.webrtc.org/8580): LayoutParams.FLAG_TURN_SCREEN_ON and
@@ -218,7 +230,6 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
         setContentView(R.layout.activity_call);
 
         connected = false;
-        signalingParameters = null;
 
         // Create UI controls.
         pipRenderer = findViewById(R.id.pip_video_view);
@@ -246,7 +257,7 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
         remoteSinks.add(remoteProxyRenderer);
 
         final Intent intent = getIntent();
-        final EglBase eglBase = EglBase.create();
+        final EglBase eglBase = PeerConnectionFactoryHolder.getInstance().getEglBase();
 
         // Create video renderers.
         pipRenderer.init(eglBase.getEglBaseContext(), null);
@@ -346,27 +357,79 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
 
         Log.d(TAG, "VIDEO_FILE: '" + intent.getStringExtra(EXTRA_VIDEO_FILE_AS_CAMERA) + "'");
 
+        // Tạo bộ điều khiển cuộc gọi, nối báo hiệu với kết nối ngang hàng ngoài luồng UI.
+        // Create the call controller which wires signaling and the peer connection together off
+        // the UI thread.
+        callController = new CallController(peerConnectionParameters, this, this::runOnUiThread,
+                SessionExecutors.newSessionExecutor());
+        callController.setStatsListener(this::onStatsReady);
+
+        // Tự điều chỉnh chất lượng video theo đường truyền, trừ khi người dùng tự chọn bằng thanh
+        // trượt hoặc đang chia sẻ màn hình.
+        // Adapt the video quality to the link, unless the user picks it with the capture quality
+        // slider or the screen is being shared.
+        if (peerConnectionParameters.videoCallEnabled && !screencaptureEnabled
+                && !intent.getBooleanExtra(EXTRA_VIDEO_CAPTUREQUALITYSLIDER_ENABLED, false)) {
+            bandwidthAdaptation = new BandwidthAdaptationController(
+                    peerConnectionParameters.videoWidth, peerConnectionParameters.videoHeight,
+                    peerConnectionParameters.videoFps, peerConnectionParameters.videoMaxBitrate,
+                    new BandwidthAdaptationController.Events() {
+                        @Override
+                        public void onCaptureFormatChange(int width, int height, int framerate) {
+                            final PeerConnectionClient client = peerConnectionClient;
+                            if (client != null) {
+                                client.changeCaptureFormat(width, height, framerate);
+                            }
+                        }
+
+                        @Override
+                        public void onVideoMaxBitrateChange(@Nullable Integer maxBitrateKbps) {
+                            final PeerConnectionClient client = peerConnectionClient;
+                            if (client != null) {
+                                client.setVideoMaxBitrate(maxBitrateKbps);
+                            }
+                        }
+
+                        @Override
+                        public void onVideoEnabledChange(boolean enabled) {
+                            final PeerConnectionClient client = peerConnectionClient;
+                            if (client != null) {
+                                client.setLocalVideoSendingEnabled(enabled);
+                            }
+                        }
+                    });
+        }
+
         // Tạo kết nối máy khách.
-        // Sử dụng DirectRTCClient nếu tên phòng là IP nếu không sử dụng WebSocketRTCClient tiêu chuẩn.
-        // Create connection client. Use DirectRTCClient if room name is an IP otherwise use the
-        // standard WebSocketRTCClient.
-        if (loopback || !DirectRTCClient.IP_PATTERN.matcher(roomId).matches()) {
-            appRtcClient = new WebSocketRTCClient(this);
+        // Sử dụng DirectRTCClient nếu tên phòng là IP (có thể kèm phòng trên hub) nếu không sử dụng
+        // WebSocketRTCClient tiêu chuẩn.
+        // Create connection client. Use DirectRTCClient if room name is an IP, optionally with a
+        // hub room, otherwise use the standard WebSocketRTCClient.
+        if (loopback || !DirectRTCClient.isDirectRoomId(roomId)) {
+            // Thông tin xác thực TURN được giữ trên đĩa giữa các lần chạy ứng dụng.
+            // TURN credentials are kept on disk across app restarts.
+            TurnCredentialCache.getInstance().setDiskCacheDir(
+                    new File(getCacheDir(), TURN_CACHE_DIR_NAME));
+            appRtcClient = new WebSocketRTCClient(callController);
         } else {
             Log.i(TAG, "Using DirectRTCClient because room name looks like an IP.");
-            appRtcClient = new DirectRTCClient(this);
+            appRtcClient = new DirectRTCClient(callController);
         }
         // Create connection parameters.
         String urlParameters = intent.getStringExtra(EXTRA_URLPARAMETERS);
         roomConnectionParameters =
                 new RoomConnectionParameters(roomUri.toString(), roomId, loopback, urlParameters);
 
+        hudFragment.setSignalingMetrics(appRtcClient.getSignalingMetrics());
+
         // Create CPU monitor
         if (CpuMonitor.isSupported()) {
             cpuMonitor = new CpuMonitor(this);
             hudFragment.setCpuMonitor(cpuMonitor);
         }
 
+        displayHud = intent.getBooleanExtra(EXTRA_DISPLAY_HUD, false);
+
         // Send intent arguments to fragments.
         callFragment.setArguments(intent.getExtras());
         hudFragment.setArguments(intent.getExtras());
@@ -389,12 +452,7 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
         // Tạo khách hàng kết nối ngang hàng.
         // Create peer connection client.
         peerConnectionClient = new PeerConnectionClient(
-                getApplicationContext(), eglBase, peerConnectionParameters, CallActivity.this);
-        PeerConnectionFactory.Options options = new PeerConnectionFactory.Options();
-        if (loopback) {
-            options.networkIgnoreMask = 0;
-        }
-        peerConnectionClient.createPeerConnectionFactory(options);
+                getApplicationContext(), eglBase, peerConnectionParameters, callController);
 
         if (screencaptureEnabled) {
             startScreenCapture();
@@ -509,6 +567,9 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
         if (cpuMonitor != null) {
             cpuMonitor.pause();
         }
+        if (peerConnectionClient != null) {
+            peerConnectionClient.setStatsInForeground(false);
+        }
     }
 
     @Override
@@ -522,6 +583,9 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
         if (cpuMonitor != null) {
             cpuMonitor.resume();
         }
+        if (peerConnectionClient != null) {
+            peerConnectionClient.setStatsInForeground(true);
+        }
     }
 
     @Override
@@ -586,10 +650,19 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
         }
         ft.setTransition(FragmentTransaction.TRANSIT_FRAGMENT_FADE);
         ft.commit();
+        if (peerConnectionClient != null) {
+            peerConnectionClient.setStatsConsumerVisible(isStatsConsumerVisible());
+        }
+    }
+
+    // Thống kê được dùng khi HUD hiện hoặc khi vòng thích ứng băng thông chạy.
+    // The stats are used while the HUD is shown or while bandwidth adaptation runs.
+    private boolean isStatsConsumerVisible() {
+        return bandwidthAdaptation != null || (displayHud && callControlFragmentVisible);
     }
 
     private void startCall() {
-        if (appRtcClient == null) {
+        if (appRtcClient == null || callController == null) {
             Log.e(TAG, "AppRTC client is not allocated for a call.");
             return;
         }
@@ -597,7 +670,18 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
 
         // Start room connection.
         logAndToast(getString(R.string.connecting_to, roomConnectionParameters.roomUrl));
-        appRtcClient.connectToRoom(roomConnectionParameters);
+        PeerConnectionFactory.Options options = new PeerConnectionFactory.Options();
+        if (peerConnectionParameters.loopback) {
+            options.networkIgnoreMask = 0;
+        }
+        VideoCapturer videoCapturer = null;
+        if (peerConnectionParameters.videoCallEnabled) {
+            videoCapturer = createVideoCapturer();
+        }
+        // Nhà máy, camera và phòng được chuẩn bị song song.
+        // The factory, the camera and the room are prepared in parallel.
+        callController.start(appRtcClient, peerConnectionClient, roomConnectionParameters, options,
+                localProxyVideoSink, remoteSinks, videoCapturer);
 
         // Create and audio manager that will take care of audio routing,
         // audio modes, audio device enumeration etc.
@@ -624,7 +708,8 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
             Log.w(TAG, "Call is connected in closed or error state");
             return;
         }
-        // Enable statistics callback.
+        // Enable statistics callback. The period is stretched while nobody uses the stats.
+        peerConnectionClient.setStatsConsumerVisible(isStatsConsumerVisible());
         peerConnectionClient.enableStatsEvents(true, STAT_CALLBACK_PERIOD);
         setSwappedFeeds(false /* isSwappedFeeds */);
     }
@@ -641,9 +726,21 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
     // Disconnect from remote resources, dispose of local resources, and exit.
     private void disconnect() {
         activityRunning = false;
+        if (callController != null) {
+            callController.close();
+            callController = null;
+        }
         remoteProxyRenderer.setTarget(null);
         localProxyVideoSink.setTarget(null);
         if (appRtcClient != null) {
+            // Tóm tắt kênh báo hiệu sau cuộc gọi.
+            // Post-call summary of the signaling channel.
+            final String summary = "Signaling: " + appRtcClient.getSignalingMetrics();
+            if (displayHud) {
+                logAndToast(summary);
+            } else {
+                Log.i(TAG, summary);
+            }
             appRtcClient.disconnectFromRoom();
             appRtcClient = null;
         }
@@ -760,235 +857,66 @@ public class CallActivity extends Activity implements AppRTCClient.SignalingEven
         pipRenderer.setMirror(!isSwappedFeeds);
     }
 
-    // -----Implementation of AppRTCClient.AppRTCSignalingEvents ---------------
-    // Tất cả các cuộc gọi lại được gọi từ chủ đề looper báo hiệu websocket và
-    // được định tuyến đến luồng UI.
-    // All callbacks are invoked from websocket signaling looper thread and
-    // are routed to UI thread.
-    private void onConnectedToRoomInternal(final SignalingParameters params) {
-        final long delta = System.currentTimeMillis() - callStartedTimeMs;
-
-        signalingParameters = params;
-        logAndToast("Creating peer connection, delay=" + delta + "ms");
-        VideoCapturer videoCapturer = null;
-        if (peerConnectionParameters.videoCallEnabled) {
-            videoCapturer = createVideoCapturer();
-        }
-        peerConnectionClient.createPeerConnection(
-                localProxyVideoSink, remoteSinks, videoCapturer, signalingParameters);
-
-        if (signalingParameters.initiator) {
-            logAndToast("Creating OFFER...");
-            // Create offer. Offer SDP will be sent to answering client in
-            // PeerConnectionEvents.onLocalDescription event.
-            peerConnectionClient.createOffer();
-        } else {
-            if (params.offerSdp != null) {
-                peerConnectionClient.setRemoteDescription(params.offerSdp);
-                logAndToast("Creating ANSWER...");
-                // Create answer. Answer SDP will be sent to offering client in
-                // PeerConnectionEvents.onLocalDescription event.
-                peerConnectionClient.createAnswer();
-            }
-            if (params.iceCandidates != null) {
-                // Add remote ICE candidates from room.
-                for (IceCandidate iceCandidate : params.iceCandidates) {
-                    peerConnectionClient.addRemoteIceCandidate(iceCandidate);
-                }
-            }
-        }
-    }
-
-    @Override
-    public void onConnectedToRoom(final SignalingParameters params) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                onConnectedToRoomInternal(params);
-            }
-        });
-    }
-
-    @Override
-    public void onRemoteDescription(final SessionDescription sdp) {
-        final long delta = System.currentTimeMillis() - callStartedTimeMs;
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                if (peerConnectionClient == null) {
-                    Log.e(TAG, "Received remote SDP for non-initilized peer connection.");
-                    return;
-                }
-                logAndToast("Received remote " + sdp.type + ", delay=" + delta + "ms");
-                peerConnectionClient.setRemoteDescription(sdp);
-                if (!signalingParameters.initiator) {
-                    logAndToast("Creating ANSWER...");
-                    // Create answer. Answer SDP will be sent to offering client in
-                    // PeerConnectionEvents.onLocalDescription event.
-                    peerConnectionClient.createAnswer();
-                }
-            }
-        });
-    }
-
-    @Override
-    public void onRemoteIceCandidate(final IceCandidate candidate) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                if (peerConnectionClient == null) {
-                    Log.e(TAG, "Received ICE candidate for a non-initialized peer connection.");
-                    return;
-                }
-                peerConnectionClient.addRemoteIceCandidate(candidate);
-            }
-        });
-    }
-
-    @Override
-    public void onRemoteIceCandidatesRemoved(final IceCandidate[] candidates) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                if (peerConnectionClient == null) {
-                    Log.e(TAG, "Received ICE candidate removals for a non-initialized peer connection.");
-                    return;
-                }
-                peerConnectionClient.removeRemoteIceCandidates(candidates);
-            }
-        });
-    }
-
+    // -----Implementation of CallController.CallEvents ---------------
+    // Tất cả các cuộc gọi lại được gọi trên luồng UI. SDP và ứng viên ICE không đi qua đây.
+    // All callbacks are invoked on the UI thread. SDP and ICE candidates do not pass here.
     @Override
-    public void onChannelClose() {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                logAndToast("Remote end hung up; dropping PeerConnection");
-                disconnect();
-            }
-        });
-    }
-
-    @Override
-    public void onChannelError(final String description) {
-        reportError(description);
-    }
-
-    // -----Implementation of PeerConnectionClient.PeerConnectionEvents.---------
-    // Send local peer connection SDP and ICE candidates to remote party.
-    // All callbacks are invoked from peer connection client looper thread and
-    // are routed to UI thread.
-    @Override
-    public void onLocalDescription(final SessionDescription sdp) {
-        final long delta = System.currentTimeMillis() - callStartedTimeMs;
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                if (appRtcClient != null) {
-                    logAndToast("Sending " + sdp.type + ", delay=" + delta + "ms");
-                    if (signalingParameters.initiator) {
-                        appRtcClient.sendOfferSdp(sdp);
-                    } else {
-                        appRtcClient.sendAnswerSdp(sdp);
-                    }
-                }
-                if (peerConnectionParameters.videoMaxBitrate > 0) {
-                    Log.d(TAG, "Set video maximum bitrate: " + peerConnectionParameters.videoMaxBitrate);
-                    peerConnectionClient.setVideoMaxBitrate(peerConnectionParameters.videoMaxBitrate);
-                }
-            }
-        });
-    }
-
-    @Override
-    public void onIceCandidate(final IceCandidate candidate) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                if (appRtcClient != null) {
-                    appRtcClient.sendLocalIceCandidate(candidate);
-                }
-            }
-        });
-    }
-
-    @Override
-    public void onIceCandidatesRemoved(final IceCandidate[] candidates) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                if (appRtcClient != null) {
-                    appRtcClient.sendLocalIceCandidateRemovals(candidates);
-                }
-            }
-        });
+    public void onCallProgress(final String message) {
+        logAndToast(message);
     }
 
     @Override
-    public void onIceConnected() {
-        final long delta = System.currentTimeMillis() - callStartedTimeMs;
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                logAndToast("ICE connected, delay=" + delta + "ms");
-            }
-        });
+    public void onCallConnected() {
+        connected = true;
+        callConnected();
     }
 
     @Override
-    public void onIceDisconnected() {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                logAndToast("ICE disconnected");
-            }
-        });
+    public void onCallDisconnected() {
+        connected = false;
+        disconnect();
     }
 
     @Override
-    public void onConnected() {
-        final long delta = System.currentTimeMillis() - callStartedTimeMs;
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                logAndToast("DTLS connected, delay=" + delta + "ms");
-                connected = true;
-                callConnected();
-            }
-        });
+    public void onRemoteHangUp() {
+        logAndToast("Remote end hung up; dropping PeerConnection");
+        disconnect();
     }
 
-    @Override
-    public void onDisconnected() {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                logAndToast("DTLS disconnected");
-                connected = false;
-                disconnect();
+    // Chạy trên luồng thống kê: tổng hợp và định dạng ở đây, luồng UI chỉ hiển thị kết quả.
+    // Runs on the stats thread: aggregation and formatting happen here, the UI thread only
+    // displays the result.
+    private void onStatsReady(final CallStatsSnapshot stats) {
+        // Ghi CPU vào lịch sử cùng nhịp và cùng đồng hồ với thống kê.
+        // Records the CPU usage into the history at the same pace and on the same clock as the
+        // stats, so both series share their time windows.
+        final PeerConnectionClient client = peerConnectionClient;
+        if (cpuMonitor != null && client != null) {
+            client.getStatsHistory().addCpuUsage(
+                    stats.getTimestampUs() / 1000, cpuMonitor.getCpuUsageCurrent());
+        }
+        if (bandwidthAdaptation != null) {
+            bandwidthAdaptation.onStatsReady(stats);
+            // Lấy mẫu nhanh hơn khi đường truyền xấu để quyết định hạ bậc dựa trên mẫu mới.
+            // Sample faster while the link is degraded, so stepping down acts on fresh samples.
+            final boolean fastSampling = bandwidthAdaptation.isLinkDegraded();
+            if (client != null && fastSampling != statsFastSampling) {
+                statsFastSampling = fastSampling;
+                client.setStatsFastSampling(fastSampling);
             }
-        });
-    }
-
-    @Override
-    public void onPeerConnectionClosed() {
-    }
-
-    @Override
-    public void onPeerConnectionStatsReady(final StatsReport[] reports) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
+        }
+        final HudStats hudStats = hudFragment.formatStatistics(stats);
+        if (hudStats != null) {
+            runOnUiThread(() -> {
                 if (!isError && connected) {
-                    hudFragment.updateEncoderStatistics(reports);
+                    hudFragment.updateEncoderStatistics(hudStats);
                 }
-            }
-        });
+            });
+        }
     }
 
     @Override
-    public void onPeerConnectionError(final String description) {
+    public void onCallError(final String description) {
         reportError(description);
     }
 }
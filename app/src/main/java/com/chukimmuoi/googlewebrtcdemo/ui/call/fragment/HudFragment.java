@@ -21,14 +21,10 @@ import android.widget.TextView;
 
 import com.chukimmuoi.googlewebrtcdemo.util.cpu.CpuMonitor;
 import com.chukimmuoi.googlewebrtcdemo.R;
-import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionClient;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingMetrics;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
 import com.chukimmuoi.googlewebrtcdemo.ui.call.CallActivity;
 
-import org.webrtc.StatsReport;
-
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Fragment cho hiển thị thống kê HUD.
  * Fragment for HUD statistics display.
@@ -43,7 +39,12 @@ public class HudFragment extends Fragment {
     private boolean videoCallEnabled;
     private boolean displayHud;
     private volatile boolean isRunning;
-    private CpuMonitor cpuMonitor;
+    private final HudStatsFormatter statsFormatter = new HudStatsFormatter();
+    // Chỉ dùng trên luồng UI: các view theo thứ tự phần của HudStats, văn bản đang hiển thị.
+    // UI thread only: the views in HudStats section order and the text they display.
+    private final TextView[] statViews = new TextView[HudStats.SECTION_COUNT];
+    private final String[] renderedText = new String[HudStats.SECTION_COUNT];
+    private HudStats latestStats;
 
     @Override
     public View onCreateView(
@@ -57,6 +58,11 @@ public class HudFragment extends Fragment {
         hudViewVideoSend = controlView.findViewById(R.id.hud_stat_video_send);
         hudViewVideoRecv = controlView.findViewById(R.id.hud_stat_video_recv);
         toggleDebugButton = controlView.findViewById(R.id.button_toggle_debug);
+        statViews[HudStats.BWE] = hudViewBwe;
+        statViews[HudStats.CONNECTION] = hudViewConnection;
+        statViews[HudStats.VIDEO_SEND] = hudViewVideoSend;
+        statViews[HudStats.VIDEO_RECV] = hudViewVideoRecv;
+        statViews[HudStats.ENCODER] = encoderStatView;
 
         toggleDebugButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -65,6 +71,7 @@ public class HudFragment extends Fragment {
                     int visibility =
                             (hudViewBwe.getVisibility() == View.VISIBLE) ? View.INVISIBLE : View.VISIBLE;
                     hudViewsSetProperties(visibility);
+                    render();
                 }
             }
         });
@@ -86,16 +93,31 @@ public class HudFragment extends Fragment {
         toggleDebugButton.setVisibility(visibility);
         hudViewsSetProperties(View.INVISIBLE);
         isRunning = true;
+        statsFormatter.setVideoCallEnabled(videoCallEnabled);
+        statsFormatter.setEnabled(displayHud);
     }
 
     @Override
     public void onStop() {
         isRunning = false;
+        statsFormatter.setEnabled(false);
         super.onStop();
     }
 
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (!hidden) {
+            render();
+        }
+    }
+
     public void setCpuMonitor(CpuMonitor cpuMonitor) {
-        this.cpuMonitor = cpuMonitor;
+        statsFormatter.setCpuMonitor(cpuMonitor);
+    }
+
+    public void setSignalingMetrics(SignalingMetrics signalingMetrics) {
+        statsFormatter.setSignalingMetrics(signalingMetrics);
     }
 
     private void hudViewsSetProperties(int visibility) {
@@ -109,102 +131,43 @@ public class HudFragment extends Fragment {
         hudViewVideoRecv.setTextSize(TypedValue.COMPLEX_UNIT_PT, 5);
     }
 
-    private Map<String, String> getReportMap(StatsReport report) {
-        Map<String, String> reportMap = new HashMap<>();
-        for (StatsReport.Value value : report.values) {
-            reportMap.put(value.name, value.value);
-        }
-        return reportMap;
+    /**
+     * Định dạng |stats| cho HUD, có thể gọi trên bất kỳ luồng nào; trả về null nếu HUD không
+     * hiển thị.
+     * Formats |stats| for the HUD and may be called on any thread, one call at a time; returns
+     * null if the HUD is not displayed.
+     */
+    public HudStats formatStatistics(final CallStatsSnapshot stats) {
+        return statsFormatter.format(stats);
     }
 
-    public void updateEncoderStatistics(final StatsReport[] reports) {
+    /**
+     * Hiển thị |stats| trên luồng UI, chỉ cập nhật các view đang hiện và có nội dung thay đổi.
+     * Displays |stats| on the UI thread, updating only the views that are shown and whose
+     * content changed.
+     */
+    public void updateEncoderStatistics(final HudStats stats) {
         if (!isRunning || !displayHud) {
             return;
         }
-        StringBuilder encoderStat = new StringBuilder(128);
-        StringBuilder bweStat = new StringBuilder();
-        StringBuilder connectionStat = new StringBuilder();
-        StringBuilder videoSendStat = new StringBuilder();
-        StringBuilder videoRecvStat = new StringBuilder();
-        String fps = null;
-        String targetBitrate = null;
-        String actualBitrate = null;
-
-        for (StatsReport report : reports) {
-            if (report.type.equals("ssrc") && report.id.contains("ssrc") && report.id.contains("send")) {
-                // Send video statistics.
-                Map<String, String> reportMap = getReportMap(report);
-                String trackId = reportMap.get("googTrackId");
-                if (trackId != null && trackId.contains(PeerConnectionClient.VIDEO_TRACK_ID)) {
-                    fps = reportMap.get("googFrameRateSent");
-                    videoSendStat.append(report.id).append("\n");
-                    for (StatsReport.Value value : report.values) {
-                        String name = value.name.replace("goog", "");
-                        videoSendStat.append(name).append("=").append(value.value).append("\n");
-                    }
-                }
-            } else if (report.type.equals("ssrc") && report.id.contains("ssrc")
-                    && report.id.contains("recv")) {
-                // Receive video statistics.
-                Map<String, String> reportMap = getReportMap(report);
-                // Check if this stat is for video track.
-                String frameWidth = reportMap.get("googFrameWidthReceived");
-                if (frameWidth != null) {
-                    videoRecvStat.append(report.id).append("\n");
-                    for (StatsReport.Value value : report.values) {
-                        String name = value.name.replace("goog", "");
-                        videoRecvStat.append(name).append("=").append(value.value).append("\n");
-                    }
-                }
-            } else if (report.id.equals("bweforvideo")) {
-                // BWE statistics.
-                Map<String, String> reportMap = getReportMap(report);
-                targetBitrate = reportMap.get("googTargetEncBitrate");
-                actualBitrate = reportMap.get("googActualEncBitrate");
-
-                bweStat.append(report.id).append("\n");
-                for (StatsReport.Value value : report.values) {
-                    String name = value.name.replace("goog", "").replace("Available", "");
-                    bweStat.append(name).append("=").append(value.value).append("\n");
-                }
-            } else if (report.type.equals("googCandidatePair")) {
-                // Connection statistics.
-                Map<String, String> reportMap = getReportMap(report);
-                String activeConnection = reportMap.get("googActiveConnection");
-                if (activeConnection != null && activeConnection.equals("true")) {
-                    connectionStat.append(report.id).append("\n");
-                    for (StatsReport.Value value : report.values) {
-                        String name = value.name.replace("goog", "");
-                        connectionStat.append(name).append("=").append(value.value).append("\n");
-                    }
-                }
-            }
+        latestStats = stats;
+        render();
+    }
+
+    private void render() {
+        final HudStats stats = latestStats;
+        if (stats == null) {
+            return;
         }
-        hudViewBwe.setText(bweStat.toString());
-        hudViewConnection.setText(connectionStat.toString());
-        hudViewVideoSend.setText(videoSendStat.toString());
-        hudViewVideoRecv.setText(videoRecvStat.toString());
-
-        if (videoCallEnabled) {
-            if (fps != null) {
-                encoderStat.append("Fps:  ").append(fps).append("\n");
-            }
-            if (targetBitrate != null) {
-                encoderStat.append("Target BR: ").append(targetBitrate).append("\n");
-            }
-            if (actualBitrate != null) {
-                encoderStat.append("Actual BR: ").append(actualBitrate).append("\n");
+        for (int i = 0; i < HudStats.SECTION_COUNT; i++) {
+            final TextView view = statViews[i];
+            final String text = stats.getSection(i);
+            // Chuỗi không đổi là cùng một đối tượng, xem HudStatsFormatter.
+            // An unchanged section is the same String instance, see HudStatsFormatter.
+            if (text != renderedText[i] && view.isShown()) {
+                view.setText(text);
+                renderedText[i] = text;
             }
         }
-
-        if (cpuMonitor != null) {
-            encoderStat.append("CPU%: ")
-                    .append(cpuMonitor.getCpuUsageCurrent())
-                    .append("/")
-                    .append(cpuMonitor.getCpuUsageAverage())
-                    .append(". Freq: ")
-                    .append(cpuMonitor.getFrequencyScaleAverage());
-        }
-        encoderStatView.setText(encoderStat.toString());
     }
 }
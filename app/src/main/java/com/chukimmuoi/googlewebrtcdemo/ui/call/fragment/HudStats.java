@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.ui.call.fragment;
+
+/**
+ * Văn bản HUD đã định dạng sẵn, bất biến, có thể chuyển giữa các luồng.
+ * Immutable, already formatted HUD text that can be handed between threads. A section that did
+ * not change since the previous HudStats is the same String instance, so the HUD can skip it
+ * with a reference comparison.
+ */
+public final class HudStats {
+    static final int BWE = 0;
+    static final int CONNECTION = 1;
+    static final int VIDEO_SEND = 2;
+    static final int VIDEO_RECV = 3;
+    static final int ENCODER = 4;
+    static final int SECTION_COUNT = 5;
+
+    private final String[] sections;
+
+    HudStats(String bwe, String connection, String videoSend, String videoRecv, String encoder) {
+        sections = new String[] {bwe, connection, videoSend, videoRecv, encoder};
+    }
+
+    String getSection(int section) {
+        return sections[section];
+    }
+
+    public String getBwe() {
+        return sections[BWE];
+    }
+
+    public String getConnection() {
+        return sections[CONNECTION];
+    }
+
+    public String getVideoSend() {
+        return sections[VIDEO_SEND];
+    }
+
+    public String getVideoRecv() {
+        return sections[VIDEO_RECV];
+    }
+
+    public String getEncoder() {
+        return sections[ENCODER];
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.ui.call.fragment;
+
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingMetrics;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+import com.chukimmuoi.googlewebrtcdemo.util.cpu.CpuMonitor;
+
+/**
+ * Định dạng CallStatsSnapshot thành HudStats ngoài luồng giao diện.
+ * Formats a CallStatsSnapshot into HudStats off the UI thread. The builders are reused, and a
+ * section whose text did not change reuses the String of the previous HudStats, so an unchanged
+ * section costs neither an allocation nor a setText() on the UI thread.
+ *
+ * <p>format() chỉ được gọi từ một luồng tại một thời điểm, ví dụ cuộc gọi lại thống kê.
+ * format() must be called from one thread at a time, e.g. the stats callback. The setters may be
+ * called from any thread.
+ */
+public class HudStatsFormatter {
+    private final StringBuilder builder = new StringBuilder(256);
+    private final String[] previous = new String[HudStats.SECTION_COUNT];
+    private volatile boolean enabled;
+    private volatile boolean videoCallEnabled = true;
+    private volatile CpuMonitor cpuMonitor;
+    private volatile SignalingMetrics signalingMetrics;
+
+    /**
+     * Khi tắt, format() trả về null và không làm gì.
+     * While disabled, format() returns null and does nothing.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setVideoCallEnabled(boolean videoCallEnabled) {
+        this.videoCallEnabled = videoCallEnabled;
+    }
+
+    public void setCpuMonitor(CpuMonitor cpuMonitor) {
+        this.cpuMonitor = cpuMonitor;
+    }
+
+    public void setSignalingMetrics(SignalingMetrics signalingMetrics) {
+        this.signalingMetrics = signalingMetrics;
+    }
+
+    /**
+     * Định dạng |stats|, hoặc trả về null nếu HUD không hiển thị.
+     * Formats |stats|, or returns null if the HUD is not displayed. Only reads |stats| during
+     * the call, so the snapshot may be reused afterwards.
+     */
+    public HudStats format(CallStatsSnapshot stats) {
+        if (!enabled) {
+            return null;
+        }
+        // BWE statistics.
+        builder.setLength(0);
+        builder.append("bwe\nSendBandwidth=").append((long) stats.getAvailableOutgoingBitrateBps())
+                .append("\nReceiveBandwidth=").append((long) stats.getAvailableIncomingBitrateBps())
+                .append("\nTargetEncBitrate=").append((long) stats.getVideoTargetBitrateBps())
+                .append("\nActualEncBitrate=").append(stats.getVideoSendBitrateBps())
+                .append('\n');
+        final String bwe = take(HudStats.BWE);
+
+        // Connection statistics.
+        builder.setLength(0);
+        if (stats.isConnected()) {
+            builder.append("candidate-pair\nRtt=")
+                    .append((long) (stats.getRoundTripTimeSeconds() * 1000))
+                    .append("ms\n");
+        }
+        final String connection = take(HudStats.CONNECTION);
+
+        // Send video statistics.
+        builder.setLength(0);
+        if (stats.getVideoSendCodec() != null) {
+            builder.append("video send\nCodec=").append(stats.getVideoSendCodec())
+                    .append("\nFrame=").append(stats.getVideoFrameWidthSent()).append('x')
+                    .append(stats.getVideoFrameHeightSent())
+                    .append("\nFrameRate=").append((int) stats.getVideoFramesPerSecondSent())
+                    .append("\nFramesEncoded=").append(stats.getVideoFramesEncoded())
+                    .append("\nPacketsSent=").append(stats.getVideoPacketsSent())
+                    .append("\nBitrate=").append(stats.getVideoSendBitrateBps())
+                    .append("\nQualityLimitation=").append(stats.getVideoQualityLimitation())
+                    .append('\n');
+        }
+        final String videoSend = take(HudStats.VIDEO_SEND);
+
+        // Receive video statistics.
+        builder.setLength(0);
+        if (stats.getVideoReceiveCodec() != null) {
+            builder.append("video recv\nCodec=").append(stats.getVideoReceiveCodec())
+                    .append("\nFrame=").append(stats.getVideoFrameWidthReceived()).append('x')
+                    .append(stats.getVideoFrameHeightReceived())
+                    .append("\nFrameRate=").append((int) stats.getVideoFramesPerSecondReceived())
+                    .append("\nFramesDecoded=").append(stats.getVideoFramesDecoded())
+                    .append("\nFramesDropped=").append(stats.getVideoFramesDropped())
+                    .append("\nPacketsLost=").append(stats.getVideoPacketsLost())
+                    .append("\nJitter=").append((long) (stats.getVideoJitterSeconds() * 1000))
+                    .append("ms\nBitrate=").append(stats.getVideoReceiveBitrateBps())
+                    .append('\n');
+        }
+        final String videoRecv = take(HudStats.VIDEO_RECV);
+
+        // Encoder, CPU and signaling statistics.
+        builder.setLength(0);
+        if (videoCallEnabled) {
+            if (stats.getVideoFramesPerSecondSent() >= 0) {
+                builder.append("Fps:  ").append((int) stats.getVideoFramesPerSecondSent())
+                        .append('\n');
+            }
+            if (stats.getVideoTargetBitrateBps() >= 0) {
+                builder.append("Target BR: ").append((long) stats.getVideoTargetBitrateBps())
+                        .append('\n');
+            }
+            if (stats.getVideoSendBitrateBps() >= 0) {
+                builder.append("Actual BR: ").append(stats.getVideoSendBitrateBps())
+                        .append('\n');
+            }
+        }
+        final CpuMonitor cpuMonitor = this.cpuMonitor;
+        if (cpuMonitor != null) {
+            builder.append("CPU%: ").append(cpuMonitor.getCpuUsageCurrent())
+                    .append('/').append(cpuMonitor.getCpuUsageAverage())
+                    .append(". Freq: ").append(cpuMonitor.getFrequencyScaleAverage());
+        }
+        final SignalingMetrics signalingMetrics = this.signalingMetrics;
+        if (signalingMetrics != null) {
+            builder.append('\n').append(signalingMetrics.toHudString());
+        }
+        final String encoder = take(HudStats.ENCODER);
+
+        return new HudStats(bwe, connection, videoSend, videoRecv, encoder);
+    }
+
+    // Trả về nội dung của |builder|, dùng lại chuỗi trước nếu không đổi.
+    // Returns the content of |builder|, reusing the previous String if it is unchanged.
+    private String take(int section) {
+        final String last = previous[section];
+        if (last != null && last.contentEquals(builder)) {
+            return last;
+        }
+        final String text = builder.toString();
+        previous[section] = text;
+        return text;
+    }
+}
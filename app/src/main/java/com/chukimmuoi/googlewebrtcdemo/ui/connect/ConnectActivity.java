@@ -40,6 +40,8 @@ import android.widget.ListView;
 import android.widget.TextView;
 
 import com.chukimmuoi.googlewebrtcdemo.R;
+import com.chukimmuoi.googlewebrtcdemo.client.PeerConnectionFactoryHolder;
+import com.chukimmuoi.googlewebrtcdemo.client.direct.SignalingHub;
 import com.chukimmuoi.googlewebrtcdemo.ui.setting.SettingsActivity;
 import com.chukimmuoi.googlewebrtcdemo.ui.call.CallActivity;
 
@@ -203,6 +205,25 @@ public class ConnectActivity extends Activity {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Giữ nhà máy cho cuộc gọi kế tiếp trừ khi hệ thống cần lấy lại bộ nhớ.
+        // Keep the factory warm for the next call unless the system needs the memory back.
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            PeerConnectionFactoryHolder.getInstance().evict();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (isFinishing()) {
+            PeerConnectionFactoryHolder.getInstance().evict();
+            SignalingHub.getInstance().stop();
+        }
+        super.onDestroy();
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         if (requestCode == CONNECTION_REQUEST && commandLineRun) {
@@ -10,21 +10,52 @@
 
 package com.chukimmuoi.googlewebrtcdemo.util;
 
+import android.util.Log;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Thực hiện yêu cầu http không đồng bộ.
  * Asynchronous http requests implementation.
+ *
+ * <p>Các yêu cầu chạy trên một nhóm luồng có giới hạn dùng chung. Kết nối được giữ lại
+ * (keep-alive) bằng cách đọc hết và đóng luồng phản hồi thay vì gọi disconnect().
+ * Requests run on a shared bounded worker pool. Connections are kept alive per host by fully
+ * draining and closing the response stream instead of calling disconnect(); only connections that
+ * failed are dropped.
  */
 public class AsyncHttpURLConnection {
+    private static final String TAG = "AsyncHttpURLConnection";
     private static final int HTTP_TIMEOUT_MS = 8000;
     private static final String HTTP_ORIGIN = "https://appr.tc";
+    private static final int POOL_SIZE = 4;
+    private static final long POOL_KEEP_ALIVE_SECONDS = 30;
+    private static final int BUFFER_SIZE = 8192;
+    // Bộ đệm lớn hơn mức này không được giữ lại giữa các yêu cầu.
+    // Buffers grown beyond this size are not kept between requests.
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadPoolExecutor pool = createPool();
+    private static final HttpMetrics metrics = new HttpMetrics();
+    // Bộ đệm phản hồi được dùng lại cho mỗi luồng trong nhóm.
+    // Response buffer reused by each pool thread.
+    private static final ThreadLocal<byte[]> responseBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
     private final String method;
     private final String url;
     private final String message;
@@ -48,20 +79,43 @@ public class AsyncHttpURLConnection {
         this.events = events;
     }
 
+    /**
+     * Số liệu thời gian của tất cả các yêu cầu trong tiến trình.
+     * Timing metrics of all requests in the process.
+     */
+    public static HttpMetrics getMetrics() {
+        return metrics;
+    }
+
     public void setContentType(String contentType) {
         this.contentType = contentType;
     }
 
     public void send() {
-        new Thread(this::sendHttpMessage).start();
+        pool.execute(this::sendHttpMessage);
+    }
+
+    private static ThreadPoolExecutor createPool() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
     }
 
     private void sendHttpMessage() {
+        final long startNs = System.nanoTime();
+        long firstByteNs = 0;
+        HttpURLConnection connection = null;
         try {
-            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection = (HttpURLConnection) new URL(url).openConnection();
             byte[] postData = new byte[0];
             if (message != null) {
-                postData = message.getBytes("UTF-8");
+                postData = message.getBytes(StandardCharsets.UTF_8);
             }
             connection.setRequestMethod(method);
             connection.setUseCaches(false);
@@ -91,28 +145,72 @@ public class AsyncHttpURLConnection {
 
             // Get response.
             int responseCode = connection.getResponseCode();
+            firstByteNs = System.nanoTime();
             if (responseCode != 200) {
-                events.onHttpError("Non-200 response to " + method + " to URL: " + url + " : "
-                        + connection.getHeaderField(null));
-                connection.disconnect();
+                final String statusLine = connection.getHeaderField(null);
+                // Đọc hết nội dung lỗi để kết nối có thể được dùng lại.
+                // Drain the error body so the connection can be reused.
+                drainStream(connection.getErrorStream());
+                recordTiming(startNs, firstByteNs, false);
+                events.onHttpError(
+                        "Non-200 response to " + method + " to URL: " + url + " : " + statusLine);
                 return;
             }
-            InputStream responseStream = connection.getInputStream();
-            String response = drainStream(responseStream);
-            responseStream.close();
-            connection.disconnect();
+            String response = drainStream(connection.getInputStream());
+            recordTiming(startNs, firstByteNs, true);
             events.onHttpComplete(response);
         } catch (SocketTimeoutException e) {
+            dropConnection(connection);
+            recordTiming(startNs, firstByteNs, false);
             events.onHttpError("HTTP " + method + " to " + url + " timeout");
         } catch (IOException e) {
+            dropConnection(connection);
+            recordTiming(startNs, firstByteNs, false);
             events.onHttpError("HTTP " + method + " to " + url + " error: " + e.getMessage());
         }
     }
 
-    // Trả về nội dung của InputStream dưới dạng Chuỗi.
-    // Return the contents of an InputStream as a String.
-    private static String drainStream(InputStream in) {
-        Scanner s = new Scanner(in, "UTF-8").useDelimiter("\\A");
-        return s.hasNext() ? s.next() : "";
+    private void recordTiming(long startNs, long firstByteNs, boolean success) {
+        final long endNs = System.nanoTime();
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(endNs - startNs);
+        final long firstByteMs =
+                TimeUnit.NANOSECONDS.toMillis((firstByteNs != 0 ? firstByteNs : endNs) - startNs);
+        metrics.record(firstByteMs, elapsedMs, success);
+        Log.d(TAG, method + " " + url + ": firstByte=" + firstByteMs + "ms, total=" + elapsedMs + "ms");
+    }
+
+    // Kết nối lỗi không được trả lại nhóm keep-alive.
+    // A failed connection is not returned to the keep-alive pool.
+    private static void dropConnection(HttpURLConnection connection) {
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    // Trả về nội dung của InputStream dưới dạng Chuỗi và đóng nó.
+    // Return the contents of an InputStream as a String and close it.
+    private static String drainStream(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        byte[] buffer = responseBuffer.get();
+        int size = 0;
+        try {
+            int read;
+            while ((read = in.read(buffer, size, buffer.length - size)) != -1) {
+                size += read;
+                if (size == buffer.length) {
+                    final byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, size);
+                    buffer = grown;
+                }
+            }
+        } finally {
+            in.close();
+        }
+        if (buffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+            responseBuffer.set(buffer);
+        }
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.util;
+
+/**
+ * Số liệu thời gian tổng hợp của các yêu cầu http, an toàn luồng.
+ * Thread-safe aggregated timing metrics of http requests.
+ */
+public class HttpMetrics {
+    private long requestCount;
+    private long errorCount;
+    private long totalFirstByteMs;
+    private long totalMs;
+    private long maxTotalMs;
+
+    /**
+     * |firstByteMs| là thời gian đến khi có mã phản hồi, |elapsedMs| là tổng thời gian.
+     * |firstByteMs| is the time until the response code is known, |elapsedMs| the total time.
+     */
+    synchronized void record(long firstByteMs, long elapsedMs, boolean success) {
+        requestCount++;
+        if (!success) {
+            errorCount++;
+        }
+        totalFirstByteMs += firstByteMs;
+        totalMs += elapsedMs;
+        maxTotalMs = Math.max(maxTotalMs, elapsedMs);
+    }
+
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    public synchronized long getErrorCount() {
+        return errorCount;
+    }
+
+    public synchronized long getAverageFirstByteMs() {
+        return requestCount == 0 ? 0 : totalFirstByteMs / requestCount;
+    }
+
+    public synchronized long getAverageMs() {
+        return requestCount == 0 ? 0 : totalMs / requestCount;
+    }
+
+    public synchronized long getMaxMs() {
+        return maxTotalMs;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "requests=" + requestCount + ", errors=" + errorCount + ", avgFirstByte="
+                + getAverageFirstByteMs() + "ms, avg=" + getAverageMs() + "ms, max=" + maxTotalMs + "ms";
+    }
+}
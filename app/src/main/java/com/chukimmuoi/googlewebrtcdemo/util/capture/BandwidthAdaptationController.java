@@ -0,0 +1,243 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.util.capture;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.webrtc.CameraEnumerationAndroid.CaptureFormat;
+
+/**
+ * Điều chỉnh định dạng chụp và bitrate video tối đa theo thống kê định kỳ, với độ trễ chuyển.
+ * Adapts the capture format and the maximum video bitrate to the periodic stats, with
+ * hysteresis. The budget for video is the available send bandwidth minus the audio bitrate;
+ * every rung of the CaptureQualityController ladder needs a bitrate proportional to its pixel
+ * rate. The controller steps down one rung when the budget stays below what the current rung
+ * needs, the encoder is starved for bandwidth, or loss or RTT are high; it steps up one rung only
+ * after the link has been clear with room for the next rung for much longer. Below the lowest
+ * rung the call stops sending video and keeps audio, and video comes back at the lowest rung
+ * once the link recovers, waiting twice as long after each failed recovery. Unknown loss or RTT
+ * never count as a clear link.
+ *
+ * <p>onStatsReady() chỉ được gọi từ một luồng tại một thời điểm.
+ * onStatsReady() must be called from one thread at a time, e.g. the stats callback.
+ */
+public class BandwidthAdaptationController {
+    private static final String TAG = "BandwidthAdaptation";
+    // Số bit mỗi điểm ảnh cho chất lượng chấp nhận được với VP8/H264.
+    // Bits per pixel for an acceptable quality with VP8/H264.
+    private static final double BITS_PER_PIXEL = 0.05;
+    // Phần băng thông ước tính dùng cho media, chừa chỗ cho phần đầu gói và truyền lại.
+    // Share of the estimated bandwidth used for media, leaving room for headers and
+    // retransmissions.
+    private static final double BANDWIDTH_USAGE = 0.9;
+    // Hạ khi ngân sách dưới 80% nhu cầu, nâng khi trên 125% nhu cầu của bậc kế.
+    // Step down below 80% of the need, step up above 125% of the need of the next rung.
+    private static final double DOWN_MARGIN = 0.8;
+    private static final double UP_MARGIN = 1.25;
+    // Bitrate tối đa của một bậc, so với nhu cầu của nó.
+    // Maximum bitrate of a rung, relative to its need.
+    private static final double MAX_BITRATE_FACTOR = 1.5;
+    private static final double HIGH_LOSS = 0.1;
+    private static final double LOW_LOSS = 0.02;
+    private static final double HIGH_RTT_S = 1.0;
+    private static final double LOW_RTT_S = 0.4;
+    private static final long DOWN_HOLD_MS = 3000;
+    private static final long UP_HOLD_MS = 10000;
+    private static final long AUDIO_ONLY_HOLD_MS = 6000;
+    private static final long MIN_RECOVERY_HOLD_MS = 10000;
+    private static final long MAX_RECOVERY_HOLD_MS = 80000;
+    // Video ổn định trong thời gian này thì thời gian chờ phục hồi được đặt lại.
+    // Video stable for this long resets the recovery hold.
+    private static final long STABLE_VIDEO_MS = 60000;
+    private static final int DEFAULT_WIDTH = 1280;
+    private static final int DEFAULT_HEIGHT = 720;
+    private static final int DEFAULT_FPS = 30;
+
+    /**
+     * Các thay đổi cần áp dụng, ví dụ cho PeerConnectionClient.
+     * Changes to apply, e.g. to PeerConnectionClient.
+     */
+    public interface Events {
+        void onCaptureFormatChange(int width, int height, int framerate);
+
+        /**
+         * |maxBitrateKbps| null nghĩa là không giới hạn.
+         * A null |maxBitrateKbps| means no limit.
+         */
+        void onVideoMaxBitrateChange(@Nullable Integer maxBitrateKbps);
+
+        /**
+         * Chỉ bật hoặc tắt việc gửi video cục bộ; video nhận được không bị ảnh hưởng.
+         * Only enables or disables sending local video; the received video is not affected.
+         */
+        void onVideoEnabledChange(boolean enabled);
+    }
+
+    private final Events events;
+    // Bậc 0 là định dạng của cuộc gọi, các bậc sau lấy từ CaptureQualityController.FORMATS.
+    // Rung 0 is the format of the call, the next ones come from CaptureQualityController.FORMATS.
+    private final List<CaptureFormat> ladder = new ArrayList<>();
+    private final int[] fps;
+    private final double[] needKbps;
+    private final int maxBitrateKbps;
+    private int rung;
+    private boolean videoEnabled = true;
+    private long badSinceMs = -1;
+    private long goodSinceMs = -1;
+    private long videoEnabledAtMs = -1;
+    private long recoveryHoldMs = MIN_RECOVERY_HOLD_MS;
+
+    /**
+     * |width|, |height| và |framerate| là định dạng của cuộc gọi, 0 cho mặc định;
+     * |maxBitrateKbps| là giới hạn của người dùng, 0 nếu không có.
+     * |width|, |height| and |framerate| are the format of the call, 0 for the default;
+     * |maxBitrateKbps| is the limit set by the user, 0 if none.
+     */
+    public BandwidthAdaptationController(int width, int height, int framerate,
+            int maxBitrateKbps, Events events) {
+        this.events = events;
+        this.maxBitrateKbps = maxBitrateKbps;
+        if (width == 0 || height == 0) {
+            width = DEFAULT_WIDTH;
+            height = DEFAULT_HEIGHT;
+        }
+        final int callFps = framerate > 0 ? framerate : DEFAULT_FPS;
+        ladder.add(new CaptureFormat(width, height, 0, callFps * 1000));
+        for (CaptureFormat format : CaptureQualityController.FORMATS) {
+            if (format.width * format.height < width * height) {
+                ladder.add(format);
+            }
+        }
+        fps = new int[ladder.size()];
+        needKbps = new double[ladder.size()];
+        for (int i = 0; i < ladder.size(); i++) {
+            final CaptureFormat format = ladder.get(i);
+            fps[i] = Math.min(callFps, format.framerate.max / 1000);
+            needKbps[i] = (double) format.width * format.height * fps[i] * BITS_PER_PIXEL / 1000;
+        }
+    }
+
+    public void onStatsReady(CallStatsSnapshot stats) {
+        final double availableBps = stats.getAvailableOutgoingBitrateBps();
+        if (availableBps < 0) {
+            // Chưa có ước tính băng thông.
+            // No bandwidth estimate yet.
+            return;
+        }
+        final long nowMs = stats.getTimestampUs() / 1000;
+        final double budgetKbps =
+                (availableBps * BANDWIDTH_USAGE - Math.max(0, stats.getAudioSendBitrateBps()))
+                        / 1000;
+        // Khi không gửi video, mất gói được đo trên luồng âm thanh.
+        // While video is not sent, loss is measured on the audio stream.
+        final double loss = videoEnabled
+                ? stats.getVideoRemoteFractionLost() : stats.getAudioRemoteFractionLost();
+        final double rtt = stats.getRoundTripTimeSeconds();
+        final boolean congested = loss > HIGH_LOSS || rtt > HIGH_RTT_S;
+        // Mất gói hoặc RTT chưa biết (-1) không được coi là đường truyền tốt.
+        // Unknown loss or RTT (-1) does not count as a clear link.
+        final boolean clear = loss >= 0 && loss < LOW_LOSS && rtt >= 0 && rtt < LOW_RTT_S;
+
+        if (!videoEnabled) {
+            if (clear && budgetKbps >= needKbps[rung] * UP_MARGIN) {
+                if (hold(nowMs, recoveryHoldMs)) {
+                    Log.d(TAG, "Link recovered, budget " + (long) budgetKbps + " kbps");
+                    videoEnabled = true;
+                    videoEnabledAtMs = nowMs;
+                    recoveryHoldMs = Math.min(MAX_RECOVERY_HOLD_MS, recoveryHoldMs * 2);
+                    events.onVideoEnabledChange(true);
+                    changeRung(rung);
+                }
+            } else {
+                goodSinceMs = -1;
+            }
+            return;
+        }
+
+        // Bộ mã hóa bị giới hạn băng thông và không đạt nhu cầu của bậc hiện tại.
+        // The encoder is limited by bandwidth and does not reach the need of the current rung.
+        final long actualBps = stats.getVideoSendBitrateBps();
+        final boolean starved = stats.getVideoQualityLimitation()
+                == CallStatsSnapshot.QUALITY_LIMITATION_BANDWIDTH
+                && actualBps >= 0 && actualBps < needKbps[rung] * DOWN_MARGIN * 1000;
+        if (congested || starved || budgetKbps < needKbps[rung] * DOWN_MARGIN) {
+            goodSinceMs = -1;
+            if (badSinceMs < 0) {
+                badSinceMs = nowMs;
+            }
+            final boolean lowest = rung == ladder.size() - 1;
+            if (!lowest && nowMs - badSinceMs >= DOWN_HOLD_MS) {
+                Log.d(TAG, "Stepping down, budget " + (long) budgetKbps + " kbps, loss " + loss
+                        + ", rtt " + rtt + "s, starved " + starved);
+                changeRung(rung + 1);
+                badSinceMs = nowMs;
+            } else if (lowest && nowMs - badSinceMs >= AUDIO_ONLY_HOLD_MS) {
+                Log.d(TAG, "Falling back to audio only, budget " + (long) budgetKbps + " kbps");
+                videoEnabled = false;
+                badSinceMs = -1;
+                events.onVideoEnabledChange(false);
+            }
+            return;
+        }
+        badSinceMs = -1;
+        if (videoEnabledAtMs >= 0 && nowMs - videoEnabledAtMs >= STABLE_VIDEO_MS) {
+            recoveryHoldMs = MIN_RECOVERY_HOLD_MS;
+            videoEnabledAtMs = -1;
+        }
+        if (rung > 0 && clear && budgetKbps >= needKbps[rung - 1] * UP_MARGIN) {
+            if (hold(nowMs, UP_HOLD_MS)) {
+                Log.d(TAG, "Stepping up, budget " + (long) budgetKbps + " kbps");
+                changeRung(rung - 1);
+            }
+        } else {
+            goodSinceMs = -1;
+        }
+    }
+
+    /**
+     * Đường truyền có đang xấu, tức là đang chờ hạ bậc hoặc chuyển sang chỉ âm thanh.
+     * Whether the link is degraded, i.e. a step down or the audio only fallback is pending.
+     */
+    public boolean isLinkDegraded() {
+        return videoEnabled && badSinceMs >= 0;
+    }
+
+    // Trả về true khi điều kiện tốt đã kéo dài |holdMs|.
+    // Returns true once the good condition has lasted for |holdMs|.
+    private boolean hold(long nowMs, long holdMs) {
+        if (goodSinceMs < 0) {
+            goodSinceMs = nowMs;
+        }
+        if (nowMs - goodSinceMs < holdMs) {
+            return false;
+        }
+        goodSinceMs = -1;
+        return true;
+    }
+
+    private void changeRung(int newRung) {
+        rung = newRung;
+        final CaptureFormat format = ladder.get(rung);
+        events.onCaptureFormatChange(format.width, format.height, fps[rung]);
+        Integer limitKbps = maxBitrateKbps > 0 ? maxBitrateKbps : null;
+        if (rung > 0) {
+            final int rungMaxKbps = (int) Math.round(needKbps[rung] * MAX_BITRATE_FACTOR);
+            limitKbps = limitKbps != null ? Math.min(limitKbps, rungMaxKbps) : rungMaxKbps;
+        }
+        events.onVideoMaxBitrateChange(limitKbps);
+    }
+}
@@ -28,10 +28,14 @@ import org.webrtc.CameraEnumerationAndroid.CaptureFormat;
  * Control capture format based on a seekbar listener.
  */
 public class CaptureQualityController implements SeekBar.OnSeekBarChangeListener {
-    private final List<CaptureFormat> formats =
+    /**
+     * Thang định dạng chụp, từ cao xuống thấp; dùng chung với BandwidthAdaptationController.
+     * Capture format ladder, from highest to lowest; shared with BandwidthAdaptationController.
+     */
+    public static final List<CaptureFormat> FORMATS = Collections.unmodifiableList(
             Arrays.asList(new CaptureFormat(1280, 720, 0, 30000), new CaptureFormat(960, 540, 0, 30000),
                     new CaptureFormat(640, 480, 0, 30000), new CaptureFormat(480, 360, 0, 30000),
-                    new CaptureFormat(320, 240, 0, 30000), new CaptureFormat(256, 144, 0, 30000));
+                    new CaptureFormat(320, 240, 0, 30000), new CaptureFormat(256, 144, 0, 30000)));
     // Ưu tiên tốc độ khung hình dưới ngưỡng này và độ phân giải trên ngưỡng.
     // Prioritize framerate below this threshold and resolution above the threshold.
     private static final int FRAMERATE_THRESHOLD = 15;
@@ -80,7 +84,7 @@ public class CaptureQualityController implements SeekBar.OnSeekBarChangeListener
         // Trích xuất băng thông tối đa (tính bằng millipixels / giây).
         // Extract max bandwidth (in millipixels / second).
         long maxCaptureBandwidth = Long.MIN_VALUE;
-        for (CaptureFormat format : formats) {
+        for (CaptureFormat format : FORMATS) {
             maxCaptureBandwidth =
                     Math.max(maxCaptureBandwidth, (long) format.width * format.height * format.framerate.max);
         }
@@ -97,7 +101,7 @@ public class CaptureQualityController implements SeekBar.OnSeekBarChangeListener
 
         // Chọn định dạng tốt nhất cho băng thông đích.
         // Choose the best format given a target bandwidth.
-        final CaptureFormat bestFormat = Collections.max(formats, compareFormats);
+        final CaptureFormat bestFormat = Collections.max(FORMATS, compareFormats);
         width = bestFormat.width;
         height = bestFormat.height;
         framerate = calculateFramerate(targetBandwidth, bestFormat);
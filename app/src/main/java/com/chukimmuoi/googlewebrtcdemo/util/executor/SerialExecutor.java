@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.util.executor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Một "làn" thực thi tuần tự trên một Executor dùng chung. Các tác vụ chạy lần lượt theo đúng
+ * thứ tự được gửi, nhưng không nhất thiết trên cùng một luồng.
+ * Ordered lane on top of a shared Executor. Tasks run one at a time in submission order, but
+ * not necessarily on the same thread. A lane owns no thread: it only keeps a queue and, while
+ * the queue is not empty, one drain task on |delegate|.
+ *
+ * <p>Lớp này không phụ thuộc vào Android.
+ * This class has no Android dependencies.
+ */
+public final class SerialExecutor extends AbstractExecutorService {
+    // Số tác vụ tối đa chạy trong một lần rút trước khi nhường luồng cho các làn khác.
+    // Maximum number of tasks run by one drain before the thread is yielded to other lanes.
+    private static final int MAX_TASKS_PER_DRAIN = 32;
+
+    private final Object lock = new Object();
+    private final Executor delegate;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private final Runnable drainTask = this::drain;
+    // True khi một tác vụ rút đã được lên lịch hoặc đang chạy trên |delegate|.
+    // True while a drain task is scheduled or running on |delegate|.
+    private boolean draining;
+    private boolean isShutdown;
+
+    public SerialExecutor(Executor delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command");
+        }
+        synchronized (lock) {
+            if (isShutdown) {
+                throw new RejectedExecutionException("SerialExecutor has been shut down");
+            }
+            tasks.add(command);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        try {
+            delegate.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            // Executor dùng chung đã dừng: bỏ các tác vụ còn lại thay vì treo làn mãi mãi.
+            // The shared executor is gone: drop the remaining tasks instead of stalling forever.
+            synchronized (lock) {
+                tasks.clear();
+                draining = false;
+                lock.notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private void drain() {
+        boolean idle = false;
+        try {
+            for (int i = 0; i < MAX_TASKS_PER_DRAIN; i++) {
+                final Runnable task;
+                synchronized (lock) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        draining = false;
+                        idle = true;
+                        lock.notifyAll();
+                        return;
+                    }
+                }
+                task.run();
+            }
+        } finally {
+            // Lên lịch lại cả khi một tác vụ ném ngoại lệ, để làn không bị kẹt.
+            // Reschedule even if a task threw, so the lane never gets stuck.
+            if (!idle) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            isShutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        synchronized (lock) {
+            isShutdown = true;
+            final List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            lock.notifyAll();
+            return pending;
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return isShutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        synchronized (lock) {
+            return isShutdown && !draining && tasks.isEmpty();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long remainingNs = unit.toNanos(timeout);
+        final long deadlineNs = System.nanoTime() + remainingNs;
+        synchronized (lock) {
+            while (!(isShutdown && !draining && tasks.isEmpty())) {
+                if (remainingNs <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remainingNs);
+                remainingNs = deadlineNs - System.nanoTime();
+            }
+            return true;
+        }
+    }
+}
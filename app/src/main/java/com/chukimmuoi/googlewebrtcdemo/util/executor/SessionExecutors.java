@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.util.executor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nhóm luồng có giới hạn dùng chung cho cả tiến trình, mỗi phiên nhận một làn tuần tự riêng.
+ * Process-wide bounded worker pool. Each session gets its own ordered lane on it, so tasks of one
+ * session keep their order while independent sessions run in parallel.
+ */
+public final class SessionExecutors {
+    private static final int MIN_POOL_SIZE = 2;
+    private static final int MAX_POOL_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    // Khởi tạo lười khi lớp được nạp lần đầu.
+    // Lazily created when the class is first loaded.
+    private static class PoolHolder {
+        static final ThreadPoolExecutor POOL = createPool();
+    }
+
+    private static class TimerHolder {
+        static final ScheduledExecutorService TIMER = createTimer();
+    }
+
+    private SessionExecutors() {
+    }
+
+    /**
+     * Trả về một làn tuần tự mới trên nhóm dùng chung. Làn không giữ luồng nào nên không cần
+     * phải shutdown.
+     * Returns a new ordered lane on the shared pool. A lane holds no thread, so it does not need
+     * to be shut down.
+     */
+    public static ExecutorService newSessionExecutor() {
+        return new SerialExecutor(PoolHolder.POOL);
+    }
+
+    /**
+     * Bộ hẹn giờ dùng chung cho các phiên. Các tác vụ hẹn giờ chỉ nên chuyển việc sang làn
+     * của phiên, không được chạy việc nặng trên luồng này.
+     * Timer shared by all sessions. Timer tasks should only hand work over to the session lane
+     * and must not do heavy work on this thread.
+     */
+    public static ScheduledExecutorService timer() {
+        return TimerHolder.TIMER;
+    }
+
+    private static ScheduledExecutorService createTimer() {
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "session-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private static ThreadPoolExecutor createPool() {
+        final int poolSize = Math.max(MIN_POOL_SIZE,
+                Math.min(MAX_POOL_SIZE, Runtime.getRuntime().availableProcessors()));
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "session-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Hàng đợi chứa nhiều nhất một tác vụ rút cho mỗi làn, nên không cần giới hạn.
+        // The queue holds at most one drain task per lane, so it needs no bound.
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.util.json;
+
+import java.io.IOException;
+
+/**
+ * Bộ đọc JSON kiểu kéo, đọc từng token một mà không dựng cây đối tượng.
+ * Pull based JSON reader that reads one token at a time without building an object tree. The API
+ * follows android.util.JsonReader, but the class is plain Java so it can be benchmarked on the JVM.
+ *
+ * <p>Máy chủ AppRTC lồng JSON bên trong chuỗi JSON. nextEmbedded() đọc một chuỗi như vậy
+ * như một tài liệu JSON, giải mã ký tự thoát ngay khi đọc, không sao chép chuỗi.
+ * The AppRTC server nests JSON inside JSON strings. nextEmbedded() reads such a string as a JSON
+ * document, unescaping while reading, so the nested document is never copied into a String.
+ *
+ * <p>Lớp này không an toàn luồng.
+ * This class is not thread-safe.
+ */
+public class JsonPullParser {
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    /**
+     * Lỗi cú pháp JSON.
+     * JSON syntax error.
+     */
+    public static class SyntaxException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public SyntaxException(String message) {
+            super(message);
+        }
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private static final int END = -1;
+    private static final int NO_CHAR = -2;
+
+    /**
+     * Nguồn ký tự có thể xem trước một ký tự.
+     * Character source with one character of lookahead.
+     */
+    private abstract static class Source {
+        private int lookahead = NO_CHAR;
+
+        // Trả về ký tự kế tiếp hoặc END.
+        // Returns the next character or END.
+        abstract int readRaw() throws IOException;
+
+        final int peek() throws IOException {
+            if (lookahead == NO_CHAR) {
+                lookahead = readRaw();
+            }
+            return lookahead;
+        }
+
+        final int read() throws IOException {
+            if (lookahead != NO_CHAR) {
+                final int c = lookahead;
+                lookahead = NO_CHAR;
+                return c;
+            }
+            return readRaw();
+        }
+    }
+
+    private static class StringSource extends Source {
+        private final String text;
+        private int position;
+
+        StringSource(String text) {
+            this.text = text;
+        }
+
+        @Override
+        int readRaw() {
+            return position < text.length() ? text.charAt(position++) : END;
+        }
+    }
+
+    /**
+     * Nội dung của một chuỗi JSON của |parent|, đã giải mã ký tự thoát.
+     * Content of one JSON string of |parent|, unescaped. Ends at the closing quote, which is
+     * consumed from |parent|.
+     */
+    private static class EmbeddedSource extends Source {
+        private final Source parent;
+        private boolean closed;
+
+        EmbeddedSource(Source parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        int readRaw() throws IOException {
+            if (closed) {
+                return END;
+            }
+            final int c = parent.read();
+            if (c == '"') {
+                closed = true;
+                return END;
+            }
+            if (c == '\\') {
+                return readEscape(parent);
+            }
+            if (c == END) {
+                throw new SyntaxException("Unterminated string");
+            }
+            return c;
+        }
+
+        void drain() throws IOException {
+            while (readRaw() != END) {
+            }
+        }
+    }
+
+    private final Source source;
+    private final StringBuilder buffer = new StringBuilder();
+    private int[] stack = new int[16];
+    private int depth;
+    private Token peeked;
+    private EmbeddedSource openChild;
+
+    public JsonPullParser(String json) {
+        this(new StringSource(json));
+    }
+
+    private JsonPullParser(Source source) {
+        this.source = source;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    public Token peek() throws IOException {
+        if (openChild != null) {
+            // Bỏ phần còn lại của tài liệu lồng nếu người gọi chưa đọc hết.
+            // Skip the rest of the embedded document if the caller did not read all of it.
+            openChild.drain();
+            openChild = null;
+        }
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    public boolean hasNext() throws IOException {
+        final Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY
+                && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        expectToken(Token.NAME);
+        peeked = null;
+        return readQuoted();
+    }
+
+    /**
+     * Đọc một chuỗi. Số và giá trị logic được trả về dưới dạng văn bản.
+     * Reads a string. Numbers and booleans are returned as their text.
+     */
+    public String nextString() throws IOException {
+        final Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            return readQuoted();
+        }
+        if (token == Token.NUMBER || token == Token.BOOLEAN) {
+            peeked = null;
+            return readLiteral();
+        }
+        throw new SyntaxException("Expected a string but was " + token);
+    }
+
+    /**
+     * Đọc một giá trị logic, chấp nhận cả chuỗi "true"/"false" như org.json.
+     * Reads a boolean, also accepting the strings "true"/"false" like org.json does.
+     */
+    public boolean nextBoolean() throws IOException {
+        final Token token = peek();
+        if (token != Token.BOOLEAN && token != Token.STRING) {
+            throw new SyntaxException("Expected a boolean but was " + token);
+        }
+        final String value = nextString();
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new SyntaxException("Invalid boolean: " + value);
+    }
+
+    /**
+     * Đọc một số nguyên, chấp nhận cả số được ghi dưới dạng chuỗi như org.json.
+     * Reads an int, also accepting numbers written as strings like org.json does.
+     */
+    public int nextInt() throws IOException {
+        final Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw new SyntaxException("Expected a number but was " + token);
+        }
+        final String value = nextString();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new SyntaxException("Invalid int: " + value);
+        }
+    }
+
+    public long nextLong() throws IOException {
+        final Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw new SyntaxException("Expected a number but was " + token);
+        }
+        final String value = nextString();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new SyntaxException("Invalid long: " + value);
+        }
+    }
+
+    public void nextNull() throws IOException {
+        expectToken(Token.NULL);
+        peeked = null;
+        final String value = readLiteral();
+        if (!"null".equals(value)) {
+            throw new SyntaxException("Invalid literal: " + value);
+        }
+    }
+
+    /**
+     * Đọc giá trị chuỗi kế tiếp như một tài liệu JSON riêng. Parser này không được dùng cho
+     * đến khi đọc xong tài liệu lồng; phần chưa đọc sẽ bị bỏ qua ở lần gọi kế tiếp.
+     * Reads the next string value as a JSON document of its own. This parser must not be used
+     * until the returned one is done; whatever it left unread is skipped on the next call here.
+     */
+    public JsonPullParser nextEmbedded() throws IOException {
+        expectToken(Token.STRING);
+        peeked = null;
+        source.read();
+        openChild = new EmbeddedSource(source);
+        return new JsonPullParser(openChild);
+    }
+
+    /**
+     * Bỏ qua giá trị kế tiếp, kể cả đối tượng và mảng lồng nhau.
+     * Skips the next value, including nested objects and arrays.
+     */
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            final Token token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nesting--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nesting--;
+                    break;
+                case NAME:
+                    peeked = null;
+                    skipQuoted();
+                    continue;
+                case STRING:
+                    peeked = null;
+                    skipQuoted();
+                    break;
+                case END_DOCUMENT:
+                    throw new SyntaxException("Unexpected end of document");
+                default:
+                    peeked = null;
+                    readLiteral();
+                    break;
+            }
+        } while (nesting > 0);
+    }
+
+    private Token doPeek() throws IOException {
+        final int scope = stack[depth - 1];
+        if (scope == EMPTY_ARRAY || scope == NONEMPTY_ARRAY) {
+            if (peekNonWhitespace() == ']') {
+                return Token.END_ARRAY;
+            }
+            if (scope == NONEMPTY_ARRAY) {
+                expect(',');
+            }
+            stack[depth - 1] = NONEMPTY_ARRAY;
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            if (peekNonWhitespace() == '}') {
+                return Token.END_OBJECT;
+            }
+            if (scope == NONEMPTY_OBJECT) {
+                expect(',');
+            }
+            if (peekNonWhitespace() != '"') {
+                throw new SyntaxException("Expected a name");
+            }
+            stack[depth - 1] = DANGLING_NAME;
+            return Token.NAME;
+        } else if (scope == DANGLING_NAME) {
+            expect(':');
+            stack[depth - 1] = NONEMPTY_OBJECT;
+        } else if (scope == EMPTY_DOCUMENT) {
+            // Tài liệu rỗng, ví dụ chuỗi lồng "", chỉ có END_DOCUMENT.
+            // An empty document, e.g. the nested string "", only has END_DOCUMENT.
+            if (peekNonWhitespace() == END) {
+                return Token.END_DOCUMENT;
+            }
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+        } else if (peekNonWhitespace() == END) {
+            return Token.END_DOCUMENT;
+        } else {
+            throw new SyntaxException("Expected end of document");
+        }
+
+        final int c = peekNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            case END:
+                throw new SyntaxException("Unexpected end of document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw new SyntaxException("Unexpected character: " + (char) c);
+        }
+    }
+
+    private void consume(Token expected) throws IOException {
+        expectToken(expected);
+        peeked = null;
+        source.read();
+    }
+
+    private void expectToken(Token expected) throws IOException {
+        final Token token = peek();
+        if (token != expected) {
+            throw new SyntaxException("Expected " + expected + " but was " + token);
+        }
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            final int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int c = source.peek();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            source.read();
+            c = source.peek();
+        }
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peekNonWhitespace() != expected) {
+            throw new SyntaxException("Expected '" + expected + "'");
+        }
+        source.read();
+    }
+
+    private String readQuoted() throws IOException {
+        source.read();
+        buffer.setLength(0);
+        while (true) {
+            final int c = source.read();
+            if (c == '"') {
+                return buffer.toString();
+            }
+            if (c == '\\') {
+                buffer.append((char) readEscape(source));
+            } else if (c == END) {
+                throw new SyntaxException("Unterminated string");
+            } else {
+                buffer.append((char) c);
+            }
+        }
+    }
+
+    private void skipQuoted() throws IOException {
+        source.read();
+        while (true) {
+            final int c = source.read();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape(source);
+            } else if (c == END) {
+                throw new SyntaxException("Unterminated string");
+            }
+        }
+    }
+
+    // Số, true, false hoặc null.
+    // A number, true, false or null.
+    private String readLiteral() throws IOException {
+        buffer.setLength(0);
+        int c = source.peek();
+        while ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || c == '-' || c == '+' || c == '.') {
+            buffer.append((char) source.read());
+            c = source.peek();
+        }
+        return buffer.toString();
+    }
+
+    // Giải mã một ký tự thoát, dấu '\' đã được đọc.
+    // Decodes one escape sequence, the '\' is already read.
+    private static int readEscape(Source source) throws IOException {
+        final int c = source.read();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    final int digit = Character.digit(source.read(), 16);
+                    if (digit < 0) {
+                        throw new SyntaxException("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return value;
+            default:
+                throw new SyntaxException("Invalid escape: " + (char) c);
+        }
+    }
+}
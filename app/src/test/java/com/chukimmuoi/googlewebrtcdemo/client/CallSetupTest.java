@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import com.chukimmuoi.googlewebrtcdemo.client.CallSetup.Stage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CallSetupTest {
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<Stage> ran = new ArrayList<>();
+    private final List<CallSetup.Report> reports = new ArrayList<>();
+    private long nowMs = 1000;
+    private CallSetup setup;
+
+    @Before
+    public void setUp() {
+        setup = new CallSetup(() -> nowMs, tasks::add, reports::add);
+    }
+
+    @Test
+    public void runWhenReady_waitsForDependencies() {
+        schedule(Stage.FACTORY);
+        schedule(Stage.MEDIA);
+        runTasks();
+        assertTrue(ran.isEmpty());
+
+        setup.start();
+        runTasks();
+        assertEquals(1, ran.size());
+        assertEquals(Stage.FACTORY, ran.get(0));
+
+        setup.complete(Stage.FACTORY);
+        runTasks();
+        assertEquals(2, ran.size());
+        assertEquals(Stage.MEDIA, ran.get(1));
+    }
+
+    @Test
+    public void runWhenReady_afterDependenciesRunsRightAway() {
+        setup.start();
+        setup.complete(Stage.JOIN);
+        setup.complete(Stage.TURN);
+        schedule(Stage.ROOM);
+        runTasks();
+        assertEquals(1, ran.size());
+    }
+
+    @Test
+    public void complete_reportsOnceAfterPeerConnection() {
+        setup.start();
+        setup.complete(Stage.FACTORY);
+        setup.complete(Stage.MEDIA);
+        setup.complete(Stage.JOIN);
+        setup.complete(Stage.WEBSOCKET);
+        setup.complete(Stage.ROOM);
+        runTasks();
+        assertTrue(reports.isEmpty());
+
+        setup.complete(Stage.PEER_CONNECTION);
+        setup.complete(Stage.PEER_CONNECTION);
+        runTasks();
+        assertEquals(1, reports.size());
+        final CallSetup.Report report = reports.get(0);
+        assertTrue(report.isCompleted(Stage.ROOM));
+        // TURN không được báo, ví dụ cuộc gọi trực tiếp, nên không có trong báo cáo.
+        // TURN was never reported, e.g. a direct call, so it is left out of the report.
+        assertFalse(report.isCompleted(Stage.TURN));
+        final List<Stage> path = report.getCriticalPath();
+        assertEquals(Stage.PEER_CONNECTION, path.get(path.size() - 1));
+        assertFalse(path.contains(Stage.TURN));
+        assertTrue(report.getTotalMs() <= report.getSumMs());
+    }
+
+    @Test
+    public void report_timingsAndCriticalPath() {
+        schedule(Stage.FACTORY);
+        schedule(Stage.MEDIA);
+        schedule(Stage.PEER_CONNECTION);
+        setup.start();
+        runTasks();
+
+        advance(50);
+        setup.complete(Stage.JOIN);
+        advance(50);
+        setup.complete(Stage.FACTORY);
+        runTasks();
+        advance(100);
+        setup.complete(Stage.WEBSOCKET);
+        advance(100);
+        setup.complete(Stage.TURN);
+        advance(20);
+        setup.complete(Stage.ROOM);
+        advance(80);
+        setup.complete(Stage.MEDIA);
+        runTasks();
+        advance(50);
+        setup.complete(Stage.PEER_CONNECTION);
+        runTasks();
+
+        final CallSetup.Report report = reports.get(0);
+        assertEquals(0, report.getStartMs(Stage.FACTORY));
+        assertEquals(100, report.getDurationMs(Stage.FACTORY));
+        assertEquals(100, report.getStartMs(Stage.MEDIA));
+        assertEquals(300, report.getDurationMs(Stage.MEDIA));
+        // Giai đoạn do báo hiệu điều khiển bắt đầu khi phụ thuộc của nó hoàn tất.
+        // Signaling driven stages start when their dependencies are completed.
+        assertEquals(0, report.getStartMs(Stage.JOIN));
+        assertEquals(50, report.getStartMs(Stage.TURN));
+        assertEquals(250, report.getDurationMs(Stage.TURN));
+        assertEquals(300, report.getStartMs(Stage.ROOM));
+        assertEquals(20, report.getDurationMs(Stage.ROOM));
+        assertEquals(400, report.getStartMs(Stage.PEER_CONNECTION));
+        assertEquals(450, report.getTotalMs());
+        assertEquals(100 + 300 + 50 + 150 + 250 + 20 + 50, report.getSumMs());
+        assertEquals(Arrays.asList(Stage.FACTORY, Stage.MEDIA, Stage.PEER_CONNECTION),
+                report.getCriticalPath());
+    }
+
+    @Test
+    public void complete_beforeStartIsIgnored() {
+        setup.complete(Stage.JOIN);
+        assertFalse(setup.isCompleted(Stage.JOIN));
+        setup.start();
+        setup.complete(Stage.JOIN);
+        assertTrue(setup.isCompleted(Stage.JOIN));
+    }
+
+    @Test
+    public void report_withoutStagesIsEmpty() {
+        setup.start();
+        setup.complete(Stage.PEER_CONNECTION);
+        runTasks();
+        final CallSetup.Report report = reports.get(0);
+        assertEquals(1, report.getCriticalPath().size());
+        assertEquals(0, report.getDurationMs(Stage.MEDIA));
+        assertEquals(0, report.getStartMs(Stage.MEDIA));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_twiceThrows() {
+        setup.start();
+        setup.start();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void runWhenReady_twiceThrows() {
+        schedule(Stage.MEDIA);
+        schedule(Stage.MEDIA);
+    }
+
+    private void schedule(final Stage stage) {
+        setup.runWhenReady(stage, () -> ran.add(stage));
+    }
+
+    private void advance(long deltaMs) {
+        nowMs += deltaMs;
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+}
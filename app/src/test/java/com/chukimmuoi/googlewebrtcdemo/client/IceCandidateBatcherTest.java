@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.webrtc.IceCandidate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IceCandidateBatcherTest {
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+    private final List<IceCandidate[]> batches = new ArrayList<>();
+    private IceCandidateBatcher batcher;
+
+    @Before
+    public void setUp() {
+        batcher = create(20, 3);
+    }
+
+    @Test
+    public void add_sendsBatchWhenWindowExpires() {
+        batcher.add(candidate(0));
+        batcher.add(candidate(1));
+        assertTrue(batches.isEmpty());
+        assertEquals(1, tasks.size());
+        assertEquals(20L, (long) delays.get(0));
+
+        runTasks();
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).length);
+        assertEquals("candidate:0", batches.get(0)[0].sdp);
+        assertEquals("candidate:1", batches.get(0)[1].sdp);
+    }
+
+    @Test
+    public void add_sendsFullBatchRightAway() {
+        batcher.add(candidate(0));
+        batcher.add(candidate(1));
+        batcher.add(candidate(2));
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).length);
+
+        // Lượt hẹn giờ cũ không gửi lô rỗng.
+        // The stale timer does not send an empty batch.
+        runTasks();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void add_zeroWindowSendsEveryCandidate() {
+        batcher = create(0, 16);
+        batcher.add(candidate(0));
+        batcher.add(candidate(1));
+        assertEquals(2, batches.size());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void flush_sendsPendingCandidatesOnce() {
+        batcher.add(candidate(0));
+        batcher.flush();
+        assertEquals(1, batches.size());
+        batcher.flush();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void setPaused_collectsUntilResumed() {
+        batcher.setPaused(true);
+        for (int i = 0; i < 5; i++) {
+            batcher.add(candidate(i));
+        }
+        runTasks();
+        assertTrue(batches.isEmpty());
+
+        batcher.setPaused(false);
+        assertEquals(1, batches.size());
+        assertEquals(5, batches.get(0).length);
+    }
+
+    @Test
+    public void clear_dropsPendingCandidates() {
+        batcher.add(candidate(0));
+        batcher.clear();
+        runTasks();
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNegativeWindow() {
+        create(-1, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyBatch() {
+        create(20, 0);
+    }
+
+    private IceCandidateBatcher create(int windowMs, int maxBatchSize) {
+        return new IceCandidateBatcher(windowMs, maxBatchSize, (task, delayMs) -> {
+            tasks.add(task);
+            delays.add(delayMs);
+        }, batches::add);
+    }
+
+    private void runTasks() {
+        final List<Runnable> due = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : due) {
+            task.run();
+        }
+    }
+
+    private static IceCandidate candidate(int index) {
+        return new IceCandidate("0", 0, "candidate:" + index);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.SyntaxException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SignalingCodecTest {
+    private static final String SDP =
+            "v=0\r\no=- 1 2 IN IP4 127.0.0.1\r\na=msid:\"x\" \\y\t\u0001\r\n";
+
+    private final SignalingCodec codec = new SignalingCodec();
+
+    @Test
+    public void sdp_roundTripWithEscapes() throws IOException {
+        final String json = codec.encodeSdp(SignalingCodec.TYPE_OFFER, SDP);
+        assertTrue(json.startsWith("{\"type\":\"offer\",\"sdp\":\"v=0\\r\\n"));
+        assertTrue(json.contains("\\\"x\\\" \\\\y\\t\\u0001"));
+        final SignalingCodec.Message message = codec.decode(json);
+        assertEquals(SignalingCodec.TYPE_OFFER, message.getType());
+        assertEquals(SDP, message.getSdp());
+        assertEquals(0, message.getCandidateCount());
+    }
+
+    @Test
+    public void candidate_roundTrip() throws IOException {
+        final String json = codec.encodeCandidate("video", 1, "candidate:1 1 udp 1 ::1 9 typ host");
+        assertEquals("{\"type\":\"candidate\",\"label\":1,\"id\":\"video\","
+                + "\"candidate\":\"candidate:1 1 udp 1 ::1 9 typ host\"}", json);
+        final SignalingCodec.Message message = codec.decode(json);
+        assertEquals(1, message.getCandidateCount());
+        assertEquals("video", message.getCandidateMid(0));
+        assertEquals(1, message.getCandidateMLineIndex(0));
+        assertEquals("candidate:1 1 udp 1 ::1 9 typ host", message.getCandidateSdp(0));
+    }
+
+    @Test
+    public void candidate_nullMidIsLeftOut() throws IOException {
+        final String json = codec.encodeCandidate(null, 0, "c");
+        assertEquals("{\"type\":\"candidate\",\"label\":0,\"candidate\":\"c\"}", json);
+        assertNull(codec.decode(json).getCandidateMid(0));
+        assertNull(codec.decode("{\"type\":\"candidate\",\"label\":0,\"id\":null,"
+                + "\"candidate\":\"c\"}").getCandidateMid(0));
+    }
+
+    @Test
+    public void candidates_roundTrip() throws IOException {
+        codec.beginCandidates(SignalingCodec.TYPE_CANDIDATES);
+        for (int i = 0; i < 20; i++) {
+            codec.appendCandidate(i % 2 == 0 ? "audio" : null, i % 2, "c" + i);
+        }
+        final SignalingCodec.Message message = codec.decode(codec.endCandidates());
+        assertEquals(SignalingCodec.TYPE_CANDIDATES, message.getType());
+        assertEquals(20, message.getCandidateCount());
+        assertEquals("audio", message.getCandidateMid(18));
+        assertNull(message.getCandidateMid(19));
+        assertEquals(1, message.getCandidateMLineIndex(19));
+        assertEquals("c19", message.getCandidateSdp(19));
+    }
+
+    @Test
+    public void candidates_emptyList() throws IOException {
+        codec.beginCandidates(SignalingCodec.TYPE_REMOVE_CANDIDATES);
+        final String json = codec.endCandidates();
+        assertEquals("{\"type\":\"remove-candidates\",\"candidates\":[]}", json);
+        assertEquals(0, codec.decode(json).getCandidateCount());
+    }
+
+    @Test
+    public void decode_resetsPreviousMessage() throws IOException {
+        codec.decode(codec.encodeCandidate("audio", 0, "c"));
+        final SignalingCodec.Message message =
+                codec.decode(codec.encodeType(SignalingCodec.TYPE_BYE));
+        assertEquals(SignalingCodec.TYPE_BYE, message.getType());
+        assertEquals(0, message.getCandidateCount());
+        assertNull(message.getSdp());
+    }
+
+    @Test
+    public void decode_sessionFieldsInAnyOrder() throws IOException {
+        final SignalingCodec.Message message = codec.decode("{\"ack\":4,\"reply\":true,"
+                + "\"ts\":123,\"extra\":{\"a\":[1]},\"seq\":\"5\",\"type\":\"resume\"}");
+        assertEquals("resume", message.getType());
+        assertEquals(5, message.getSeq());
+        assertEquals(4, message.getAck());
+        assertEquals(123, message.getTs());
+        assertTrue(message.isReply());
+    }
+
+    @Test
+    public void encodeType_withFields() throws IOException {
+        assertEquals("{\"type\":\"bye\"}", codec.encodeType(SignalingCodec.TYPE_BYE));
+        assertEquals("{\"type\":\"hub\"}", codec.encodeType("hub", "room", null));
+        final SignalingCodec.Message message =
+                codec.decode(codec.encodeType("joined", "initiator", true));
+        assertTrue(message.isInitiator());
+        assertEquals("r\"1", codec.decode(codec.encodeType("hub", "room", "r\"1")).getRoom());
+    }
+
+    @Test
+    public void commands() throws IOException {
+        assertEquals("{\"cmd\":\"register\",\"roomid\":\"room\",\"clientid\":null}",
+                codec.encodeRegister("room", null));
+        final String offer = codec.encodeSdp(SignalingCodec.TYPE_OFFER, SDP);
+        final String send = codec.encodeSendCommand(offer);
+        assertTrue(send.startsWith("{\"cmd\":\"send\",\"msg\":\"{\\\"type\\\":\\\"offer\\\""));
+    }
+
+    @Test
+    public void decodeEnvelope_nestedMessage() throws IOException {
+        final String offer = codec.encodeSdp(SignalingCodec.TYPE_ANSWER, SDP);
+        final String envelope = "{\"msg\":" + quote(offer) + ",\"error\":\"\"}";
+        final SignalingCodec.Message message = codec.decodeEnvelope(envelope);
+        assertEquals(SignalingCodec.TYPE_ANSWER, message.getType());
+        assertEquals(SDP, message.getSdp());
+        assertNull(message.getError());
+    }
+
+    @Test
+    public void decodeEnvelope_errorOnly() throws IOException {
+        final SignalingCodec.Message message =
+                codec.decodeEnvelope("{\"msg\":\"\",\"error\":\"Unknown client\"}");
+        assertNull(message.getType());
+        assertEquals("Unknown client", message.getError());
+        assertNull(codec.decodeEnvelope("{\"msg\":null,\"error\":null}").getError());
+    }
+
+    @Test
+    public void decodeEnvelope_plainObject() throws IOException {
+        assertEquals(SignalingCodec.TYPE_BYE,
+                codec.decodeEnvelope("{\"msg\":{\"type\":\"bye\"}}").getType());
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void decode_missingType() throws IOException {
+        codec.decode("{\"sdp\":\"v=0\"}");
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void decode_offerWithoutSdp() throws IOException {
+        codec.decode("{\"type\":\"offer\",\"sdp\":null}");
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void decode_candidateWithoutCandidate() throws IOException {
+        codec.decode("{\"type\":\"candidate\",\"label\":0,\"id\":\"audio\"}");
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void decode_candidatesEntryWithoutCandidate() throws IOException {
+        codec.decode("{\"type\":\"candidates\",\"candidates\":[{\"label\":0}]}");
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void decode_malformedJson() throws IOException {
+        codec.decode("{\"type\":\"bye\"");
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void decode_emptyString() throws IOException {
+        codec.decode("");
+    }
+
+    private static String quote(String json) {
+        return "\"" + json.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SignalingSessionTest {
+    private static final int ACK_DELAY_MS = 100;
+    private static final int HEARTBEAT_INTERVAL_MS = 5000;
+    private static final long RESUME_TIMEOUT_MS = 20000;
+    private static final String OFFER = "{\"type\":\"offer\",\"sdp\":\"v=0\"}";
+    private static final String ANSWER = "{\"type\":\"answer\",\"sdp\":\"v=0\"}";
+    private static final String CANDIDATE = "{\"type\":\"candidate\",\"candidate\":\"c\"}";
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+    private final List<String> sent = new ArrayList<>();
+    private final List<String> controls = new ArrayList<>();
+    private int reconnects;
+    private int sessionsLost;
+    private final SignalingSession.Transport transport = new SignalingSession.Transport() {
+        @Override
+        public void send(String message) {
+            sent.add(message);
+        }
+
+        @Override
+        public void sendControl(String message) {
+            controls.add(message);
+        }
+
+        @Override
+        public void reconnect() {
+            reconnects++;
+        }
+
+        @Override
+        public void onSessionLost() {
+            sessionsLost++;
+        }
+    };
+    private SignalingSession session;
+
+    @Before
+    public void setUp() {
+        session = create(16);
+    }
+
+    @Test
+    public void send_stampsSequenceAndAck() {
+        session.send(OFFER);
+        session.send("{}");
+        assertEquals(Arrays.asList("{\"seq\":1,\"ack\":0,\"type\":\"offer\",\"sdp\":\"v=0\"}",
+                "{\"seq\":2,\"ack\":0}"), sent);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void send_rejectsNonObject() {
+        session.send("[]");
+    }
+
+    @Test
+    public void onReceive_dropsDuplicates() {
+        assertTrue(session.onReceive(1, 0, 10));
+        assertTrue(session.onReceive(2, 0, 10));
+        assertFalse(session.onReceive(2, 0, 10));
+        assertFalse(session.onReceive(1, 0, 10));
+        assertTrue(session.onReceive(3, 0, 10));
+        assertTrue(session.isPeerResumable());
+    }
+
+    @Test
+    public void onReceive_messagesDeliveredOutOfBand() {
+        // Offer và ứng viên trong phản hồi vào phòng, trước tin nhắn WebSocket đầu tiên.
+        // The offer and a candidate of the join response, before the first WebSocket message.
+        assertTrue(session.onReceive(1, 0, 0));
+        assertTrue(session.onReceive(2, 0, 0));
+        session.send(ANSWER);
+        assertEquals("{\"seq\":1,\"ack\":2,\"type\":\"answer\",\"sdp\":\"v=0\"}", sent.get(0));
+
+        // Bên nhận có thể nối lại, và offer được bên kia gửi lại bị bỏ qua.
+        // The receiver can resume, and the offer replayed by the peer is dropped.
+        assertTrue(session.onChannelLost());
+        session.onChannelOpened(false /* initiateResume */);
+        session.onResume(0, false /* reply */);
+        assertEquals(Collections.singletonList("{\"type\":\"resume\",\"ack\":2,\"reply\":true}"),
+                controls);
+        assertFalse(session.onReceive(1, 0, 10));
+        assertFalse(session.onReceive(2, 0, 10));
+        assertTrue(session.onReceive(3, 1, 10));
+    }
+
+    @Test
+    public void ack_sentOnItsOwnAfterDelay() {
+        session.onReceive(1, 0, 10);
+        session.onReceive(2, 0, 10);
+        run(ACK_DELAY_MS);
+        assertEquals(Collections.singletonList("{\"type\":\"ack\",\"ack\":2}"), controls);
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void ack_carriedByOutgoingMessage() {
+        session.onReceive(1, 0, 10);
+        session.send(CANDIDATE);
+        run(ACK_DELAY_MS);
+        assertTrue(controls.isEmpty());
+        assertTrue(sent.get(0).startsWith("{\"seq\":1,\"ack\":1,"));
+    }
+
+    @Test
+    public void olderPeer_isNotResumed() {
+        session.send(OFFER);
+        // Tin nhắn không có "seq" và "ack": bên kia là bên cũ.
+        // A message without "seq" and "ack": the peer is an older one.
+        assertTrue(session.onReceive(0, 0, 10));
+        assertFalse(session.isPeerResumable());
+        assertFalse(session.onChannelLost());
+        assertEquals(1, session.getMetrics().getMessagesReceived());
+    }
+
+    @Test
+    public void olderPeer_messagesAreNotTrackedForAcks() {
+        session.send(OFFER);
+        assertEquals(1, session.getMetrics().getQueueDepth());
+        session.onReceive(0, 0, 10);
+        assertEquals(0, session.getMetrics().getQueueDepth());
+        session.send(CANDIDATE);
+        assertEquals(0, session.getMetrics().getQueueDepth());
+    }
+
+    @Test
+    public void resume_replaysUnacknowledgedMessagesIncludingOffer() {
+        // Offer được gửi trước khi biết bên kia có hỗ trợ nối lại.
+        // The offer is sent before it is known whether the peer can resume.
+        session.send(OFFER);
+        session.onReceive(1, 0, 10);
+        session.send(CANDIDATE);
+        session.send(CANDIDATE);
+        session.onReceive(2, 1, 10);
+        sent.clear();
+
+        assertTrue(session.onChannelLost());
+        assertTrue(session.isResuming());
+        session.send("{\"type\":\"bye\"}");
+        assertTrue(sent.isEmpty());
+        run(reconnectDelay());
+        assertEquals(1, reconnects);
+
+        session.onChannelOpened(true /* initiateResume */);
+        assertEquals(Collections.singletonList("{\"type\":\"resume\",\"ack\":2,\"reply\":false}"),
+                controls);
+        session.onResume(2, true /* reply */);
+        assertFalse(session.isResuming());
+        assertEquals(Arrays.asList(
+                "{\"seq\":3,\"ack\":2,\"type\":\"candidate\",\"candidate\":\"c\"}",
+                "{\"seq\":4,\"ack\":2,\"type\":\"bye\"}"), sent);
+        assertEquals(1, controls.size());
+    }
+
+    @Test
+    public void resume_replaysOfferWhenPeerMissedIt() {
+        session.send(OFFER);
+        session.onReceive(1, 0, 10);
+        sent.clear();
+        assertTrue(session.onChannelLost());
+        session.onChannelOpened(false /* initiateResume */);
+        assertTrue(controls.isEmpty());
+
+        session.onResume(0, false /* reply */);
+        assertEquals(Collections.singletonList("{\"type\":\"resume\",\"ack\":1,\"reply\":true}"),
+                controls);
+        assertEquals(Collections.singletonList(
+                "{\"seq\":1,\"ack\":1,\"type\":\"offer\",\"sdp\":\"v=0\"}"), sent);
+    }
+
+    @Test
+    public void resume_timesOut() {
+        session.onReceive(1, 0, 10);
+        assertTrue(session.onChannelLost());
+        run(RESUME_TIMEOUT_MS);
+        assertEquals(1, sessionsLost);
+        assertFalse(session.isResuming());
+        session.send(CANDIDATE);
+        assertTrue(sent.isEmpty());
+        assertFalse(session.onChannelLost());
+    }
+
+    @Test
+    public void resume_staleTimeoutIsIgnored() {
+        session.onReceive(1, 0, 10);
+        assertTrue(session.onChannelLost());
+        session.onResume(0, true /* reply */);
+        run(RESUME_TIMEOUT_MS);
+        assertEquals(0, sessionsLost);
+    }
+
+    @Test
+    public void overflow_disablesResume() {
+        session = create(2);
+        session.onReceive(1, 0, 10);
+        session.send(CANDIDATE);
+        session.send(CANDIDATE);
+        assertTrue(session.onPeerLost());
+        session.onResume(0, true /* reply */);
+        session.send(CANDIDATE);
+        assertFalse(session.onChannelLost());
+    }
+
+    @Test
+    public void heartbeat_pingsOnlyResumablePeers() {
+        assertTrue(delays.isEmpty());
+        session.onReceive(1, 0, 10);
+        run(HEARTBEAT_INTERVAL_MS);
+        assertEquals(1, controls.size());
+        assertTrue(controls.get(0).startsWith("{\"type\":\"ping\",\"ts\":"));
+        // Ping được lên lịch lại.
+        // The ping is rescheduled.
+        assertTrue(delays.contains((long) HEARTBEAT_INTERVAL_MS));
+
+        session.onPing(42);
+        assertEquals("{\"type\":\"pong\",\"ts\":42}", controls.get(1));
+        session.onPong(SignalingMetrics.nowMs());
+        assertTrue(session.getMetrics().getRttMs() >= 0);
+    }
+
+    @Test
+    public void end_stopsSession() {
+        session.onReceive(1, 0, 10);
+        session.end();
+        assertFalse(session.onChannelLost());
+        session.send(CANDIDATE);
+        run(HEARTBEAT_INTERVAL_MS);
+        assertTrue(sent.isEmpty());
+        assertTrue(controls.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyQueue() {
+        create(0);
+    }
+
+    private SignalingSession create(int maxUnacked) {
+        tasks.clear();
+        delays.clear();
+        return new SignalingSession(ACK_DELAY_MS, HEARTBEAT_INTERVAL_MS, maxUnacked,
+                (task, delayMs) -> {
+                    tasks.add(task);
+                    delays.add(delayMs);
+                }, transport);
+    }
+
+    // Độ trễ nối lại có độ lệch ngẫu nhiên (125-250 ms lần đầu), nên lấy từ tác vụ đã lên lịch.
+    // The reconnect delay has random jitter (125-250 ms at first), so it is taken from the
+    // scheduled task; the other delays are outside that range.
+    private long reconnectDelay() {
+        for (long delay : delays) {
+            if (delay != RESUME_TIMEOUT_MS && delay != HEARTBEAT_INTERVAL_MS
+                    && delay != ACK_DELAY_MS) {
+                return delay;
+            }
+        }
+        throw new AssertionError("No reconnect scheduled: " + delays);
+    }
+
+    // Chạy các tác vụ đã lên lịch với |delayMs|, không chạy các tác vụ chúng lên lịch thêm.
+    // Runs the tasks scheduled with |delayMs|, but not the tasks they schedule in turn.
+    private void run(long delayMs) {
+        final List<Runnable> due = new ArrayList<>();
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            if (delays.get(i) == delayMs) {
+                due.add(0, tasks.remove(i));
+                delays.remove(i);
+            }
+        }
+        for (Runnable task : due) {
+            task.run();
+        }
+    }
+}
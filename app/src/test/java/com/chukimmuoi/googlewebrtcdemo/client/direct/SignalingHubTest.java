@@ -0,0 +1,196 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.direct;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Kiểm thử hub qua socket loopback thật, ở chế độ khung văn bản.
+ * Tests the hub over real loopback sockets, with text framing.
+ */
+public class SignalingHubTest {
+    private static final int TIMEOUT_MS = 5000;
+    private static final String OFFER = "{\"type\":\"offer\",\"sdp\":\"v=0\"}";
+    private static final String ANSWER = "{\"type\":\"answer\",\"sdp\":\"v=0\"}";
+
+    private final SignalingHub hub = SignalingHub.getInstance();
+    private final List<Peer> peers = new ArrayList<>();
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        port = freePort();
+        hub.start(InetAddress.getLoopbackAddress(), port);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        hub.stop();
+        for (Peer peer : peers) {
+            peer.socket.close();
+        }
+    }
+
+    @Test
+    public void join_pairsPeersAndForwardsMessages() throws Exception {
+        final Peer first = connect();
+        first.send(joinMessage("pair"));
+        assertJoined(first.receive(), false /* initiator */);
+        final Peer second = connect();
+        second.send(joinMessage("pair"));
+        assertJoined(second.receive(), true /* initiator */);
+
+        second.send(OFFER);
+        assertEquals(OFFER, first.receive());
+        first.send(ANSWER);
+        assertEquals(ANSWER, second.receive());
+    }
+
+    @Test
+    public void join_fullRoomIsRejected() throws Exception {
+        final Peer first = connect();
+        first.send(joinMessage("full"));
+        assertJoined(first.receive(), false /* initiator */);
+        final Peer second = connect();
+        second.send(joinMessage("full"));
+        assertJoined(second.receive(), true /* initiator */);
+
+        final Peer third = connect();
+        third.send(joinMessage("full"));
+        assertError(third.receive(), "FULL");
+        third.assertClosed();
+    }
+
+    @Test
+    public void join_otherMessageFirstIsRejected() throws Exception {
+        final Peer peer = connect();
+        peer.send(OFFER);
+        assertError(peer.receive(), "NOT_JOINED");
+        peer.assertClosed();
+    }
+
+    @Test
+    public void peerLeft_remainingPeerIsPairedAgain() throws Exception {
+        final Peer first = connect();
+        first.send(joinMessage("rejoin"));
+        assertJoined(first.receive(), false /* initiator */);
+        final Peer second = connect();
+        second.send(joinMessage("rejoin"));
+        assertJoined(second.receive(), true /* initiator */);
+
+        second.socket.close();
+        assertEquals("hub-peer-left", new JSONObject(first.receive()).getString("type"));
+        // Bên kia nối lại và được ghép với bên vẫn đang chờ.
+        // The other peer reconnects and is paired with the peer still waiting.
+        final Peer third = connect();
+        third.send(joinMessage("rejoin"));
+        assertJoined(third.receive(), true /* initiator */);
+        third.send(OFFER);
+        assertEquals(OFFER, first.receive());
+    }
+
+    private static String joinMessage(String room) throws Exception {
+        return new JSONObject().put("type", "hub-join").put("room", room).toString();
+    }
+
+    private static void assertJoined(String message, boolean initiator) throws Exception {
+        final JSONObject json = new JSONObject(message);
+        assertEquals("hub-joined", json.getString("type"));
+        assertEquals(initiator, json.getBoolean("initiator"));
+    }
+
+    private static void assertError(String message, String error) throws Exception {
+        final JSONObject json = new JSONObject(message);
+        assertEquals("hub-error", json.getString("type"));
+        assertEquals(error, json.getString("error"));
+    }
+
+    // Thử lại cho đến khi hub đã nghe.
+    // Retries until the hub is listening.
+    private Peer connect() throws Exception {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            final Socket socket = new Socket();
+            socket.setSoTimeout(TIMEOUT_MS);
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                final Peer peer = new Peer(socket);
+                peers.add(peer);
+                return peer;
+            } catch (ConnectException e) {
+                socket.close();
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // Một bên dùng khung văn bản: mỗi tin nhắn là một dòng.
+    // A peer using text framing: every message is one line.
+    private static class Peer {
+        final Socket socket;
+        final BufferedReader reader;
+        final OutputStream out;
+
+        Peer(Socket socket) throws IOException {
+            this.socket = socket;
+            this.reader =
+                    new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            this.out = socket.getOutputStream();
+        }
+
+        void send(String message) throws IOException {
+            out.write((message + "\n").getBytes("UTF-8"));
+            out.flush();
+        }
+
+        String receive() throws IOException {
+            final String message = reader.readLine();
+            assertNotNull("Connection closed", message);
+            return message;
+        }
+
+        void assertClosed() throws IOException {
+            try {
+                assertNull(reader.readLine());
+            } catch (SocketException e) {
+                // Kết nối bị đặt lại thay vì đóng bình thường.
+                // The connection was reset instead of closed normally.
+            }
+        }
+    }
+}
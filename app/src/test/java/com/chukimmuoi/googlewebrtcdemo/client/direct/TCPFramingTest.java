@@ -0,0 +1,192 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.direct;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TCPFramingTest {
+    private static final String CANDIDATE = "{\"type\":\"candidate\",\"label\":0,\"id\":\"audio\","
+            + "\"candidate\":\"candidate:1 1 udp 2122260223 192.168.1.2 40000 typ host\"}";
+    private static final String SDP = sdpMessage();
+    private static final String UNICODE = "{\"name\":\"Xin chào € 😀\"}";
+
+    @Test
+    public void text_roundTrip() throws IOException {
+        final TCPFraming.Writer writer = new TCPFraming.Writer(0);
+        final byte[] bytes = encode(writer, CANDIDATE, UNICODE, "");
+        assertEquals('\n', bytes[bytes.length - 1]);
+        assertEquals(Arrays.asList(CANDIDATE, UNICODE, ""), decode(bytes, bytes.length));
+    }
+
+    @Test
+    public void binary_roundTrip() throws IOException {
+        final TCPFraming.Writer writer = new TCPFraming.Writer(Integer.MAX_VALUE);
+        writer.setMode(true /* binary */, true /* deflate */);
+        final byte[] bytes = encode(writer, CANDIDATE, UNICODE, "");
+        assertEquals(TCPFraming.TYPE_TEXT, bytes[0]);
+        assertEquals(Arrays.asList(CANDIDATE, UNICODE, ""), decode(bytes, bytes.length));
+    }
+
+    @Test
+    public void deflate_compressesLargeMessagesOnly() throws IOException {
+        final TCPFraming.Writer writer =
+                new TCPFraming.Writer(TCPFraming.DEFAULT_COMPRESSION_THRESHOLD);
+        writer.setMode(true /* binary */, true /* deflate */);
+        writer.append(SDP);
+        assertEquals(TCPFraming.TYPE_DEFLATE, pending(writer)[0]);
+        assertTrue(writer.getPendingBytes() < SDP.length());
+
+        final byte[] bytes = encode(writer, SDP, CANDIDATE);
+        assertEquals(TCPFraming.TYPE_TEXT, bytes[bytes.length - CANDIDATE.length() - 5]);
+        assertEquals(Arrays.asList(SDP, CANDIDATE), decode(bytes, bytes.length));
+        writer.release();
+    }
+
+    @Test
+    public void deflate_messageThatDoesNotShrinkIsSentAsText() throws IOException {
+        // Một tin nhắn rất ngắn dài hơn sau khi nén.
+        // A very short message grows when compressed.
+        final TCPFraming.Writer writer = new TCPFraming.Writer(1);
+        writer.setMode(true /* binary */, true /* deflate */);
+        final byte[] bytes = encode(writer, "{}");
+        assertEquals(TCPFraming.TYPE_TEXT, bytes[0]);
+        assertEquals(7, bytes.length);
+        assertEquals(Arrays.asList("{}"), decode(bytes, bytes.length));
+        writer.release();
+    }
+
+    @Test
+    public void decoder_oneByteChunks() throws IOException {
+        final TCPFraming.Writer writer =
+                new TCPFraming.Writer(TCPFraming.DEFAULT_COMPRESSION_THRESHOLD);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Hai chế độ trên cùng một luồng, như sau khi hai bên thỏa thuận khung nhị phân.
+        // Both modes on the same stream, as after the peers agreed on binary framing.
+        writer.append(CANDIDATE);
+        writer.append(UNICODE);
+        writer.setMode(true /* binary */, true /* deflate */);
+        writer.append(SDP);
+        writer.append(UNICODE);
+        writer.append("");
+        writer.setMode(false /* binary */, false /* deflate */);
+        writer.append(CANDIDATE);
+        writer.writeTo(out);
+        assertFalse(writer.hasPending());
+
+        assertEquals(Arrays.asList(CANDIDATE, UNICODE, SDP, UNICODE, "", CANDIDATE),
+                decode(out.toByteArray(), 1));
+        assertEquals(Arrays.asList(CANDIDATE, UNICODE, SDP, UNICODE, "", CANDIDATE),
+                decode(out.toByteArray(), 7));
+    }
+
+    @Test
+    public void decoder_stripsCarriageReturn() throws IOException {
+        final byte[] bytes = "{\"a\":1}\r\n{\"b\":2}".getBytes("UTF-8");
+        final List<String> messages = new ArrayList<>();
+        final TCPFraming.Decoder decoder = new TCPFraming.Decoder();
+        decoder.feed(ByteBuffer.wrap(bytes), messages::add);
+        assertEquals(Arrays.asList("{\"a\":1}"), messages);
+        // Dòng cuối không có "\n" vẫn là một tin nhắn.
+        // A last line without "\n" is still a message.
+        decoder.finish(messages::add);
+        assertEquals(Arrays.asList("{\"a\":1}", "{\"b\":2}"), messages);
+    }
+
+    @Test
+    public void reader_readsUntilEndOfStream() throws IOException {
+        final TCPFraming.Writer writer = new TCPFraming.Writer(0);
+        writer.setMode(true /* binary */, true /* deflate */);
+        final TCPFraming.Reader reader =
+                new TCPFraming.Reader(new ByteArrayInputStream(encode(writer, SDP, CANDIDATE)));
+        assertEquals(SDP, reader.read());
+        assertEquals(CANDIDATE, reader.read());
+        assertNull(reader.read());
+        assertNull(reader.read());
+        reader.release();
+    }
+
+    @Test(expected = EOFException.class)
+    public void finish_truncatedFrame() throws IOException {
+        final TCPFraming.Writer writer = new TCPFraming.Writer(0);
+        writer.setMode(true /* binary */, false /* deflate */);
+        final byte[] bytes = encode(writer, CANDIDATE);
+        final TCPFraming.Decoder decoder = new TCPFraming.Decoder();
+        decoder.feed(ByteBuffer.wrap(bytes, 0, bytes.length - 1), message -> fail(message));
+        decoder.finish(message -> fail(message));
+    }
+
+    @Test(expected = IOException.class)
+    public void feed_unknownFrameType() throws IOException {
+        new TCPFraming.Decoder().feed(ByteBuffer.wrap(new byte[] {0x07, 0, 0, 0, 0}),
+                message -> fail(message));
+    }
+
+    @Test(expected = IOException.class)
+    public void feed_frameTooLong() throws IOException {
+        new TCPFraming.Decoder().feed(ByteBuffer.wrap(new byte[] {TCPFraming.TYPE_TEXT,
+                0x7f, 0, 0, 0}), message -> fail(message));
+    }
+
+    @Test(expected = IOException.class)
+    public void feed_invalidDeflatePayload() throws IOException {
+        new TCPFraming.Decoder().feed(ByteBuffer.wrap(new byte[] {TCPFraming.TYPE_DEFLATE,
+                0, 0, 0, 3, (byte) 0xff, (byte) 0xff, (byte) 0xff}), message -> fail(message));
+    }
+
+    private static byte[] encode(TCPFraming.Writer writer, String... messages)
+            throws IOException {
+        for (String message : messages) {
+            writer.append(message);
+        }
+        return pending(writer);
+    }
+
+    private static byte[] pending(TCPFraming.Writer writer) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return out.toByteArray();
+    }
+
+    // Giải mã |bytes| theo từng khối |chunkSize| byte.
+    // Decodes |bytes| in chunks of |chunkSize| bytes.
+    private static List<String> decode(byte[] bytes, int chunkSize) throws IOException {
+        final List<String> messages = new ArrayList<>();
+        final TCPFraming.Decoder decoder = new TCPFraming.Decoder();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            final ByteBuffer chunk =
+                    ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            decoder.feed(chunk, messages::add);
+            assertFalse(chunk.hasRemaining());
+        }
+        decoder.finish(messages::add);
+        decoder.release();
+        return messages;
+    }
+
+    private static String sdpMessage() {
+        final StringBuilder sdp = new StringBuilder("v=0\\r\\no=- 1 2 IN IP4 127.0.0.1\\r\\n");
+        for (int i = 0; i < 40; i++) {
+            sdp.append("a=rtpmap:").append(96 + i).append(" VP8/90000\\r\\n");
+        }
+        return "{\"type\":\"offer\",\"sdp\":\"" + sdp + "\"}";
+    }
+}
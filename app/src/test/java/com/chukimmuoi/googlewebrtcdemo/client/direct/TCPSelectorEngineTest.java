@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.direct;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Kiểm thử qua socket loopback thật.
+ * Tests over real loopback sockets.
+ */
+public class TCPSelectorEngineTest {
+    private static final long TIMEOUT_MS = 5000;
+    // Thời gian chờ để chắc rằng một sự kiện không xảy ra.
+    // How long to wait to be reasonably sure an event does not happen.
+    private static final long QUIET_MS = 300;
+    // Lớn hơn bộ đệm gửi và nhận của socket, nên việc ghi chắc chắn bị chia nhỏ.
+    // Larger than the socket send and receive buffers, so the writes are partial.
+    private static final int LARGE_LENGTH = 8 * 1024 * 1024;
+    private static final int CHUNK_LENGTH = 10000;
+
+    private final TCPSelectorEngine engine = new TCPSelectorEngine();
+    private final Recorder serverEvents = new Recorder();
+    private final List<Socket> sockets = new ArrayList<>();
+    private TCPSelectorEngine.Server server;
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        port = freePort();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void connect_exchangesMessages() throws Exception {
+        server = engine.listen(InetAddress.getLoopbackAddress(), port, 1, Runnable::run,
+                serverEvents);
+        final Recorder clientEvents = new Recorder();
+        final TCPSelectorEngine.Connection client = engine.connect(
+                InetAddress.getLoopbackAddress(), port, Runnable::run, clientEvents);
+        assertSame(client, poll(clientEvents.connected));
+        assertFalse(client.isServer());
+        final TCPSelectorEngine.Connection accepted = poll(serverEvents.connected);
+        assertTrue(accepted.isServer());
+
+        final TCPFraming.Writer writer = new TCPFraming.Writer(0);
+        writer.setMode(true /* binary */, true /* deflate */);
+        writer.append("{\"type\":\"offer\"}");
+        writer.append("{\"type\":\"candidate\"}");
+        writer.writeTo(client.getOutputStream());
+        assertEquals("{\"type\":\"offer\"}", poll(serverEvents.messages));
+        assertEquals("{\"type\":\"candidate\"}", poll(serverEvents.messages));
+
+        final byte[] answer = "{\"type\":\"answer\"}\n".getBytes("UTF-8");
+        accepted.send(answer, 0, answer.length);
+        assertEquals("{\"type\":\"answer\"}", poll(clientEvents.messages));
+
+        client.close();
+        assertSame(client, poll(clientEvents.closed));
+        assertSame(accepted, poll(serverEvents.closed));
+        assertTrue(clientEvents.errors.isEmpty());
+        assertTrue(serverEvents.errors.isEmpty());
+    }
+
+    @Test
+    public void listen_acceptsMoreAfterAConnectionCloses() throws Exception {
+        server = engine.listen(InetAddress.getLoopbackAddress(), port, 1, Runnable::run,
+                serverEvents);
+        final Socket first = connectSocket();
+        final TCPSelectorEngine.Connection accepted = poll(serverEvents.connected);
+        // Kết nối thứ hai chờ trong hàng đợi của socket nghe.
+        // The second connection waits in the backlog of the listening socket.
+        connectSocket();
+        assertNull(serverEvents.connected.poll(QUIET_MS, TimeUnit.MILLISECONDS));
+
+        first.close();
+        assertSame(accepted, poll(serverEvents.closed));
+        assertNotNull(poll(serverEvents.connected));
+    }
+
+    @Test
+    public void send_partialWritesKeepOrder() throws Exception {
+        server = engine.listen(InetAddress.getLoopbackAddress(), port, 1, Runnable::run,
+                serverEvents);
+        final Socket socket = connectSocket();
+        final TCPSelectorEngine.Connection accepted = poll(serverEvents.connected);
+        // Gửi khi bên kia chưa đọc, nên dữ liệu mới được nối sau phần còn lại đã compact.
+        // Sent while the peer does not read, so new data is appended after the compacted rest.
+        sendPattern(accepted, LARGE_LENGTH);
+
+        final InputStream in = socket.getInputStream();
+        final byte[] buffer = new byte[CHUNK_LENGTH];
+        int received = 0;
+        while (received < LARGE_LENGTH) {
+            final int count = in.read(buffer);
+            assertTrue(count > 0);
+            for (int i = 0; i < count; i++) {
+                assertEquals(patternByte(received + i), buffer[i]);
+            }
+            received += count;
+        }
+        assertTrue(serverEvents.errors.isEmpty());
+    }
+
+    @Test
+    public void close_whileWritingDropsPendingData() throws Exception {
+        server = engine.listen(InetAddress.getLoopbackAddress(), port, 1, Runnable::run,
+                serverEvents);
+        final Socket socket = connectSocket();
+        final TCPSelectorEngine.Connection accepted = poll(serverEvents.connected);
+        sendPattern(accepted, LARGE_LENGTH);
+        accepted.close();
+        accepted.close();
+        assertSame(accepted, poll(serverEvents.closed));
+
+        // Bên kia nhận một phần đầu đúng thứ tự, rồi kết thúc luồng.
+        // The peer receives an in-order prefix, then the end of the stream.
+        final InputStream in = socket.getInputStream();
+        final byte[] buffer = new byte[CHUNK_LENGTH];
+        int received = 0;
+        try {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                for (int i = 0; i < count; i++) {
+                    assertEquals(patternByte(received + i), buffer[i]);
+                }
+                received += count;
+            }
+        } catch (SocketException e) {
+            // Kết nối bị đặt lại vì dữ liệu còn chờ bị bỏ.
+            // The connection was reset because the pending data was dropped.
+        }
+        assertTrue(received < LARGE_LENGTH);
+
+        accepted.send(new byte[1], 0, 1);
+        assertEquals("Sending data on closed socket.", poll(serverEvents.errors));
+        assertNull(serverEvents.closed.poll(QUIET_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private void sendPattern(TCPSelectorEngine.Connection connection, int length) {
+        final byte[] chunk = new byte[CHUNK_LENGTH];
+        for (int offset = 0; offset < length; offset += CHUNK_LENGTH) {
+            final int count = Math.min(CHUNK_LENGTH, length - offset);
+            for (int i = 0; i < count; i++) {
+                chunk[i] = patternByte(offset + i);
+            }
+            connection.send(chunk, 0, count);
+        }
+    }
+
+    // Socket bị chặn với bộ đệm nhận nhỏ. Thử lại cho đến khi máy chủ đã nghe.
+    // Blocking socket with a small receive buffer. Retries until the server is listening.
+    private Socket connectSocket() throws Exception {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            final Socket socket = new Socket();
+            socket.setReceiveBufferSize(4096);
+            socket.setSoTimeout((int) TIMEOUT_MS);
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                sockets.add(socket);
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static byte patternByte(int index) {
+        return (byte) (index % 251);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+        final T value = queue.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull("Timed out", value);
+        return value;
+    }
+
+    private static class Recorder implements TCPSelectorEngine.Callbacks {
+        final BlockingQueue<TCPSelectorEngine.Connection> connected = new LinkedBlockingQueue<>();
+        final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        final BlockingQueue<String> errors = new LinkedBlockingQueue<>();
+        final BlockingQueue<TCPSelectorEngine.Connection> closed = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onConnected(TCPSelectorEngine.Connection connection) {
+            connected.add(connection);
+        }
+
+        @Override
+        public void onMessage(TCPSelectorEngine.Connection connection, String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void onError(TCPSelectorEngine.Connection connection, String description) {
+            errors.add(description);
+        }
+
+        @Override
+        public void onClosed(TCPSelectorEngine.Connection connection) {
+            closed.add(connection);
+        }
+    }
+}
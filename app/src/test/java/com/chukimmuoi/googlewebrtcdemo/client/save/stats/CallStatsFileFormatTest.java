@@ -0,0 +1,147 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.save.stats;
+
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsProjector;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class CallStatsFileFormatTest {
+    @Test
+    public void header_roundTrip() throws IOException {
+        final CallStatsFileFormat.Header header = readHeader(toArray(
+                CallStatsFileFormat.header(1600000000000L)));
+        assertEquals(CallStatsFileFormat.VERSION, header.version);
+        assertEquals(CallStatsFileFormat.RECORD_SIZE, header.recordSize);
+        assertEquals(1600000000000L, header.startTimeMs);
+        assertEquals(CallStatsFileFormat.recordSize(header.names.length), header.recordSize);
+        assertEquals("video_bytes_sent", header.names[0]);
+        assertEquals(1, header.ids[0]);
+        assertEquals(header.names.length, header.ids[header.ids.length - 1]);
+        assertEquals(CallStatsFileFormat.TYPE_LONG, header.types[0]);
+        assertEquals("rtt_s", header.names[29]);
+        assertEquals(CallStatsFileFormat.TYPE_DOUBLE, header.types[29]);
+    }
+
+    @Test
+    public void encode_recordRoundTrip() {
+        final CallStatsSnapshot stats = snapshot(5000000, 123456, 0.125);
+        final ByteBuffer buffer = ByteBuffer.allocate(CallStatsFileFormat.RECORD_SIZE);
+        final CRC32 crc = new CRC32();
+        CallStatsFileFormat.encode(stats, buffer, crc);
+        assertEquals(CallStatsFileFormat.RECORD_SIZE, buffer.remaining());
+
+        final byte[] record = toArray(buffer);
+        assertTrue(CallStatsFileFormat.isValid(record, record.length, crc));
+        final ByteBuffer in = ByteBuffer.wrap(record);
+        assertEquals(stats.getSequence(), in.getInt());
+        assertEquals(5000000, in.getLong());
+        assertEquals(123456, in.getLong());
+        // "rtt_s" là số liệu thứ 30.
+        // "rtt_s" is the 30th metric.
+        in.position(4 + 8 + 29 * 8);
+        assertEquals(0.125, in.getDouble(), 0);
+    }
+
+    @Test
+    public void encode_reusesBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocate(CallStatsFileFormat.RECORD_SIZE);
+        final CRC32 crc = new CRC32();
+        CallStatsFileFormat.encode(snapshot(1000000, 1, 0.1), buffer, crc);
+        final byte[] first = toArray(buffer);
+        CallStatsFileFormat.encode(snapshot(2000000, 2, 0.2), buffer, crc);
+        final byte[] second = toArray(buffer);
+        assertFalse(Arrays.equals(first, second));
+        assertTrue(CallStatsFileFormat.isValid(first, first.length, crc));
+        assertTrue(CallStatsFileFormat.isValid(second, second.length, crc));
+    }
+
+    @Test
+    public void isValid_detectsCorruption() {
+        final ByteBuffer buffer = ByteBuffer.allocate(CallStatsFileFormat.RECORD_SIZE);
+        final CRC32 crc = new CRC32();
+        CallStatsFileFormat.encode(snapshot(1000000, 42, 0.1), buffer, crc);
+        final byte[] record = toArray(buffer);
+        record[20] ^= 1;
+        assertFalse(CallStatsFileFormat.isValid(record, record.length, crc));
+        // Một bản ghi toàn số 0, như phần cuối tệp được cấp trước, cũng không hợp lệ.
+        // An all-zero record, as in a preallocated file tail, is not valid either.
+        assertFalse(CallStatsFileFormat.isValid(
+                new byte[CallStatsFileFormat.RECORD_SIZE], CallStatsFileFormat.RECORD_SIZE, crc));
+    }
+
+    @Test(expected = IOException.class)
+    public void readHeader_badMagic() throws IOException {
+        final byte[] header = toArray(CallStatsFileFormat.header(0));
+        header[0] = 'X';
+        readHeader(header);
+    }
+
+    @Test(expected = IOException.class)
+    public void readHeader_newerVersion() throws IOException {
+        final byte[] header = toArray(CallStatsFileFormat.header(0));
+        header[5] = CallStatsFileFormat.VERSION + 1;
+        readHeader(header);
+    }
+
+    @Test(expected = IOException.class)
+    public void readHeader_recordSizeMismatch() throws IOException {
+        final byte[] header = toArray(CallStatsFileFormat.header(0));
+        header[11]++;
+        readHeader(header);
+    }
+
+    @Test(expected = EOFException.class)
+    public void readHeader_truncated() throws IOException {
+        final byte[] header = toArray(CallStatsFileFormat.header(0));
+        readHeader(Arrays.copyOf(header, header.length - 1));
+    }
+
+    private static CallStatsFileFormat.Header readHeader(byte[] bytes) throws IOException {
+        return CallStatsFileFormat.readHeader(
+                new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static CallStatsSnapshot snapshot(long timestampUs, long videoBytesSent,
+            double roundTripTimeSeconds) {
+        final CallStatsProjector projector = new CallStatsProjector();
+        projector.begin(timestampUs);
+        final Map<String, Object> outbound = new HashMap<>();
+        outbound.put("kind", "video");
+        outbound.put("bytesSent", videoBytesSent);
+        projector.add("OT01V1", "outbound-rtp", outbound);
+        final Map<String, Object> pair = new HashMap<>();
+        pair.put("nominated", true);
+        pair.put("state", "succeeded");
+        pair.put("currentRoundTripTime", roundTripTimeSeconds);
+        projector.add("CP1", "candidate-pair", pair);
+        return projector.publish();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.sdp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SdpDescriptionTest {
+    private static final String SDP = "v=0\r\n"
+            + "o=- 1 2 IN IP4 127.0.0.1\r\n"
+            + "s=-\r\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 111 103 9\r\n"
+            + "a=rtpmap:111 opus/48000/2\r\n"
+            + "a=fmtp:111 minptime=10;useinbandfec=1\r\n"
+            + "a=rtpmap:103 ISAC/16000\r\n"
+            + "a=rtpmap:9 G722/8000\r\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96 97 98 99\r\n"
+            + "a=rtpmap:96 VP8/90000\r\n"
+            + "a=rtpmap:97 rtx/90000\r\n"
+            + "a=fmtp:97 apt=96\r\n"
+            + "a=rtpmap:98 H264/90000\r\n"
+            + "a=rtpmap:99 H264/90000\r\n";
+
+    @Test
+    public void parse_indexesMediaSections() {
+        final SdpDescription sdp = SdpDescription.parse(SDP);
+        assertEquals(2, sdp.getMediaSections().size());
+        final SdpDescription.MediaSection audio = sdp.findMediaSection("audio");
+        assertEquals("audio", audio.getMedia());
+        assertEquals("m=audio 9 UDP/TLS/RTP/SAVPF 111 103 9", audio.getMediaDescriptionLine());
+        assertEquals(4, audio.getAttributeLines().size());
+        assertEquals(Collections.singletonList("111"), audio.getPayloadTypes("opus"));
+        assertEquals(Arrays.asList("98", "99"),
+                sdp.findMediaSection("video").getPayloadTypes("H264"));
+        assertNull(sdp.findMediaSection("application"));
+    }
+
+    @Test
+    public void serialize_withoutChangesReturnsOriginal() {
+        final String sdp = "v=0\r\n\r\nm=audio 9 RTP/AVP 0";
+        assertSame(sdp, SdpDescription.parse(sdp).serialize());
+    }
+
+    @Test
+    public void serialize_roundTripsAfterNoOpTransform() {
+        final SdpDescription sdp = SdpDescription.parse(SDP);
+        assertTrue(sdp.preferCodec("opus", true));
+        assertEquals(SDP, sdp.serialize());
+    }
+
+    @Test
+    public void preferCodec_movesAllPayloadTypesToFront() {
+        final SdpDescription sdp = SdpDescription.parse(SDP);
+        assertTrue(sdp.preferCodec("H264", false));
+        assertEquals("m=video 9 UDP/TLS/RTP/SAVPF 98 99 96 97",
+                sdp.findMediaSection("video").getMediaDescriptionLine());
+        assertTrue(sdp.serialize().contains("m=video 9 UDP/TLS/RTP/SAVPF 98 99 96 97\r\n"));
+    }
+
+    @Test
+    public void preferCodec_unknownCodecLeavesSdpUnchanged() {
+        final SdpDescription sdp = SdpDescription.parse(SDP);
+        assertFalse(sdp.preferCodec("VP9", false));
+        assertFalse(sdp.preferCodec("opus", false));
+        assertSame(SDP, sdp.serialize());
+    }
+
+    @Test
+    public void preferCodec_malformedMediaLine() {
+        final SdpDescription sdp =
+                SdpDescription.parse("m=audio 9\r\na=rtpmap:111 opus/48000/2\r\n");
+        assertFalse(sdp.preferCodec("opus", true));
+    }
+
+    @Test
+    public void preferCodec_ignoresCodecNamePrefixes() {
+        final SdpDescription sdp = SdpDescription.parse(
+                "m=video 9 RTP/SAVPF 96 100\r\na=rtpmap:96 VP8/90000\r\na=rtpmap:100 VP/90000\r\n");
+        assertEquals(Collections.singletonList("100"),
+                sdp.findMediaSection("video").getPayloadTypes("VP"));
+    }
+
+    @Test
+    public void setStartBitrate_addsFmtpAfterRtpmap() {
+        final SdpDescription sdp = SdpDescription.parse(SDP);
+        assertTrue(sdp.setStartBitrate("VP8", true, 1700));
+        final SdpDescription reparsed = SdpDescription.parse(sdp.serialize());
+        assertEquals(Arrays.asList("a=rtpmap:96 VP8/90000", "a=fmtp:96 x-google-start-bitrate=1700",
+                "a=rtpmap:97 rtx/90000", "a=fmtp:97 apt=96", "a=rtpmap:98 H264/90000",
+                "a=rtpmap:99 H264/90000"),
+                reparsed.findMediaSection("video").getAttributeLines());
+        // Chỉ mục rtpmap được dịch sau khi chèn.
+        // The rtpmap indexes are shifted after the insert.
+        assertEquals(Arrays.asList("98", "99"),
+                sdp.findMediaSection("video").getPayloadTypes("H264"));
+    }
+
+    @Test
+    public void setStartBitrate_extendsExistingFmtp() {
+        final SdpDescription sdp = SdpDescription.parse(SDP);
+        assertTrue(sdp.setStartBitrate("opus", false, 32));
+        assertEquals("a=fmtp:111 minptime=10;useinbandfec=1; maxaveragebitrate=32000",
+                sdp.findMediaSection("audio").getAttributeLines().get(1));
+    }
+
+    @Test
+    public void setStartBitrate_unknownCodec() {
+        final SdpDescription sdp = SdpDescription.parse(SDP);
+        assertFalse(sdp.setStartBitrate("VP9", true, 1000));
+        assertSame(SDP, sdp.serialize());
+    }
+
+    @Test
+    public void parse_manyRtpmapLines() {
+        final StringBuilder builder = new StringBuilder("m=video 9 RTP/SAVPF");
+        for (int i = 0; i < 20; i++) {
+            builder.append(' ').append(100 + i);
+        }
+        builder.append("\r\n");
+        for (int i = 0; i < 20; i++) {
+            builder.append("a=rtpmap:").append(100 + i).append(i == 19 ? " AV1" : " VP8")
+                    .append("/90000\r\n");
+        }
+        final SdpDescription sdp = SdpDescription.parse(builder.toString());
+        assertEquals(Collections.singletonList("119"),
+                sdp.findMediaSection("video").getPayloadTypes("AV1"));
+        assertTrue(sdp.preferCodec("AV1", false));
+        assertTrue(sdp.findMediaSection("video").getMediaDescriptionLine()
+                .startsWith("m=video 9 RTP/SAVPF 119 100 101"));
+    }
+}
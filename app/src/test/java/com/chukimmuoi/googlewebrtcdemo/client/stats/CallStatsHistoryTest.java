@@ -0,0 +1,133 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CallStatsHistoryTest {
+    private static final double DELTA = 1e-9;
+
+    private final StatsSeries.Summary summary = new StatsSeries.Summary();
+    private CallStatsHistory history;
+
+    @Before
+    public void setUp() {
+        history = new CallStatsHistory(1, 1000);
+    }
+
+    @Test
+    public void add_derivesBitratesFromByteCounters() {
+        for (int i = 0; i <= 10; i++) {
+            final CallStatsSnapshot stats = snapshot(i * 1000L);
+            stats.videoBytesSent = i * 125000L;
+            stats.videoBytesReceived = i * 62500L;
+            history.add(stats);
+        }
+        assertTrue(history.summarizeVideoSendBitrate(60000, summary));
+        assertEquals(10, summary.getCount());
+        assertEquals(1000000, summary.getP50(), DELTA);
+        assertTrue(history.summarizeVideoReceiveBitrate(60000, summary));
+        assertEquals(500000, summary.getMax(), DELTA);
+        assertEquals(250000, history.getVideoBytesSent(1000));
+        assertEquals(62500 * 10, history.getVideoBytesReceived(60000));
+    }
+
+    @Test
+    public void add_derivesPacketLossBetweenSnapshots() {
+        CallStatsSnapshot stats = snapshot(0);
+        stats.videoPacketsLost = 5;
+        stats.videoPacketsReceived = 100;
+        history.add(stats);
+        assertFalse(history.summarizeVideoPacketLossPercent(60000, summary));
+
+        stats = snapshot(1000);
+        stats.videoPacketsLost = 15;
+        stats.videoPacketsReceived = 190;
+        history.add(stats);
+        // Không có gói nào giữa hai ảnh chụp: bỏ qua.
+        // No packet between two snapshots: skipped.
+        history.add(withPacketCounters(2000, stats));
+        assertTrue(history.summarizeVideoPacketLossPercent(60000, summary));
+        assertEquals(1, summary.getCount());
+        assertEquals(10, summary.getMax(), DELTA);
+    }
+
+    @Test
+    public void add_skipsUnknownGauges() {
+        final CallStatsSnapshot stats = snapshot(0);
+        history.add(stats);
+        assertFalse(history.summarizeRoundTripTimeMs(60000, summary));
+        assertFalse(history.summarizeVideoFpsSent(60000, summary));
+
+        stats.timestampUs = 1000000;
+        stats.roundTripTimeSeconds = 0.25;
+        stats.videoFramesPerSecondSent = 30;
+        history.add(stats);
+        assertTrue(history.summarizeRoundTripTimeMs(60000, summary));
+        assertEquals(250, summary.getMax(), DELTA);
+        assertTrue(history.summarizeVideoFpsSent(60000, summary));
+        assertEquals(30, summary.getMin(), DELTA);
+    }
+
+    @Test
+    public void addCpuUsage_skipsUnknownValues() {
+        history.addCpuUsage(0, -1);
+        assertFalse(history.summarizeCpuUsagePercent(60000, summary));
+        history.addCpuUsage(1000, 40);
+        history.addCpuUsage(2000, 60);
+        assertTrue(history.summarizeCpuUsagePercent(60000, summary));
+        assertEquals(50, summary.getAverage(), DELTA);
+        assertTrue(history.summarizeCpuUsagePercent(0, summary));
+        assertEquals(60, summary.getAverage(), DELTA);
+    }
+
+    @Test
+    public void capacity_keepsOnlyTheLastMinutes() {
+        for (int i = 0; i < 200; i++) {
+            history.addCpuUsage(i * 1000L, i);
+        }
+        assertTrue(history.summarizeCpuUsagePercent(Long.MAX_VALUE / 2, summary));
+        assertEquals(60, summary.getCount());
+        assertEquals(140, summary.getMin(), DELTA);
+    }
+
+    @Test
+    public void describe_listsKnownMetricsOnly() {
+        history.addCpuUsage(0, 30);
+        final String description = history.describe(60000);
+        assertTrue(description.startsWith("CPU %"));
+        assertEquals(1, description.split("\n").length);
+        history.clear();
+        assertEquals("", history.describe(60000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyHistory() {
+        new CallStatsHistory(0, 1000);
+    }
+
+    private static CallStatsSnapshot snapshot(long timestampMs) {
+        final CallStatsSnapshot stats = new CallStatsSnapshot();
+        stats.timestampUs = timestampMs * 1000;
+        return stats;
+    }
+
+    private static CallStatsSnapshot withPacketCounters(long timestampMs,
+            CallStatsSnapshot counters) {
+        final CallStatsSnapshot stats = snapshot(timestampMs);
+        stats.videoPacketsLost = counters.videoPacketsLost;
+        stats.videoPacketsReceived = counters.videoPacketsReceived;
+        return stats;
+    }
+}
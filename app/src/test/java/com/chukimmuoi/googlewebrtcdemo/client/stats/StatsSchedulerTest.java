@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Kiểm thử với bộ hẹn giờ thật; các yêu cầu chạy trên luồng của bộ hẹn giờ.
+ * Tests with a real timer; the requests run on the timer thread.
+ */
+public class StatsSchedulerTest {
+    private static final long TIMEOUT_MS = 5000;
+    // Thời gian chờ để chắc rằng một yêu cầu không xảy ra.
+    // How long to wait to be reasonably sure a request does not happen.
+    private static final long QUIET_MS = 300;
+    // Sai số cho phép khi so khoảng cách giữa các yêu cầu với chu kỳ.
+    // Tolerance when comparing the gaps between requests with the period.
+    private static final long SLACK_MS = 10;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    // Thời điểm của các yêu cầu, tính bằng ms.
+    // Times of the requests, in ms.
+    private final BlockingQueue<Long> requests = new LinkedBlockingQueue<>();
+    // Các yêu cầu chưa hoàn thành khi |completeRequests| là false.
+    // Requests not completed yet while |completeRequests| is false.
+    private final BlockingQueue<Runnable> pending = new LinkedBlockingQueue<>();
+    private volatile boolean completeRequests = true;
+    private final StatsScheduler scheduler = new StatsScheduler(timer, Runnable::run, done -> {
+        requests.add(nowMs());
+        if (completeRequests) {
+            done.run();
+        } else {
+            pending.add(done);
+        }
+        return true;
+    });
+
+    @After
+    public void tearDown() {
+        scheduler.stop();
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void period_dependsOnTheConsumer() {
+        scheduler.start(1000);
+        assertEquals(1000, scheduler.getPeriodMs());
+        scheduler.setConsumerVisible(false);
+        assertEquals(5000, scheduler.getPeriodMs());
+        scheduler.setInForeground(false);
+        assertEquals(5000, scheduler.getPeriodMs());
+        // Chu kỳ nhàn rỗi bị giới hạn, nhưng không ngắn hơn chu kỳ cơ bản.
+        // The idle period is capped, but never shorter than the base period.
+        scheduler.start(3000);
+        assertEquals(10000, scheduler.getPeriodMs());
+        scheduler.start(20000);
+        assertEquals(20000, scheduler.getPeriodMs());
+        scheduler.setConsumerVisible(true);
+        scheduler.setInForeground(true);
+        assertEquals(20000, scheduler.getPeriodMs());
+    }
+
+    @Test
+    public void period_fastSamplingWinsOverIdle() {
+        scheduler.start(1000);
+        scheduler.setInForeground(false);
+        scheduler.setFastSampling(true);
+        assertEquals(250, scheduler.getPeriodMs());
+        // Không nhanh hơn chu kỳ tối thiểu.
+        // Not faster than the minimum period.
+        scheduler.start(400);
+        assertEquals(200, scheduler.getPeriodMs());
+        scheduler.start(100);
+        assertEquals(100, scheduler.getPeriodMs());
+        scheduler.setFastSampling(false);
+        assertEquals(500, scheduler.getPeriodMs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void start_invalidPeriod() {
+        scheduler.start(0);
+    }
+
+    @Test
+    public void start_requestsRightAwayThenEveryPeriod() throws InterruptedException {
+        final long startMs = nowMs();
+        scheduler.start(50);
+        long previousMs = poll(requests);
+        assertTrue(previousMs - startMs < 50);
+        for (int i = 0; i < 4; i++) {
+            final long requestMs = poll(requests);
+            assertTrue(requestMs - previousMs >= 50 - SLACK_MS);
+            previousMs = requestMs;
+        }
+    }
+
+    @Test
+    public void periodChange_takesEffectBeforeTheNextTick() throws InterruptedException {
+        scheduler.start(2000);
+        final long firstMs = poll(requests);
+        scheduler.setFastSampling(true);
+        // Tick kế tiếp được tính lại từ tick trước với chu kỳ 500 ms.
+        // The next tick is recomputed from the previous one with the 500 ms period.
+        final long secondMs = poll(requests);
+        assertTrue(secondMs - firstMs >= 500 - SLACK_MS);
+        assertTrue(secondMs - firstMs < 2000 - SLACK_MS);
+    }
+
+    @Test
+    public void coalesce_whileARequestIsInFlight() throws InterruptedException {
+        completeRequests = false;
+        scheduler.start(20);
+        poll(requests);
+        final long deadlineMs = nowMs() + TIMEOUT_MS;
+        while (scheduler.getCoalescedTicks() < 3) {
+            assertTrue("Timed out", nowMs() < deadlineMs);
+            Thread.sleep(10);
+        }
+        assertTrue(requests.isEmpty());
+
+        // Yêu cầu kế tiếp chỉ được gửi sau khi yêu cầu trước hoàn thành.
+        // The next request is only issued once the previous one completes.
+        completeRequests = true;
+        poll(pending).run();
+        poll(requests);
+    }
+
+    @Test
+    public void stop_cancelsTheTicks() throws InterruptedException {
+        scheduler.start(20);
+        poll(requests);
+        scheduler.stop();
+        assertFalse(scheduler.isRunning());
+        requests.clear();
+        assertNull(requests.poll(QUIET_MS, TimeUnit.MILLISECONDS));
+
+        // Có thể bắt đầu lại sau khi dừng.
+        // It can be started again after being stopped.
+        scheduler.start(20);
+        assertTrue(scheduler.isRunning());
+        poll(requests);
+    }
+
+    private static <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+        final T value = queue.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull("Timed out", value);
+        return value;
+    }
+
+    private static long nowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
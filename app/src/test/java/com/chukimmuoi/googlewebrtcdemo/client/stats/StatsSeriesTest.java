@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StatsSeriesTest {
+    private static final double DELTA = 1e-9;
+
+    private final StatsSeries.Summary summary = new StatsSeries.Summary();
+
+    @Test
+    public void summarize_percentiles() {
+        final StatsSeries series = StatsSeries.gauge(100);
+        // Thứ tự thêm vào không ảnh hưởng đến phân vị.
+        // The insertion order does not affect the percentiles.
+        for (int i = 100; i >= 1; i--) {
+            series.add(1000, i);
+        }
+        assertTrue(series.summarize(0, summary));
+        assertEquals(100, summary.getCount());
+        assertEquals(1, summary.getMin(), DELTA);
+        assertEquals(100, summary.getMax(), DELTA);
+        assertEquals(50.5, summary.getAverage(), DELTA);
+        assertEquals(50, summary.getP50(), DELTA);
+        assertEquals(95, summary.getP95(), DELTA);
+        assertEquals(99, summary.getP99(), DELTA);
+    }
+
+    @Test
+    public void summarize_singleSample() {
+        final StatsSeries series = StatsSeries.gauge(4);
+        series.add(0, 7);
+        assertTrue(series.summarize(1000, summary));
+        assertEquals(7, summary.getMin(), DELTA);
+        assertEquals(7, summary.getP50(), DELTA);
+        assertEquals(7, summary.getP99(), DELTA);
+    }
+
+    @Test
+    public void summarize_onlyWindowFromLatestSample() {
+        final StatsSeries series = StatsSeries.gauge(60);
+        for (int i = 0; i < 10; i++) {
+            series.add(i * 1000L, i);
+        }
+        assertTrue(series.summarize(3000, summary));
+        assertEquals(4, summary.getCount());
+        assertEquals(6, summary.getMin(), DELTA);
+        assertEquals(9, summary.getMax(), DELTA);
+        assertEquals(7.5, summary.getAverage(), DELTA);
+        assertEquals(7, summary.getP50(), DELTA);
+        assertEquals(9, summary.getP95(), DELTA);
+    }
+
+    @Test
+    public void add_overwritesOldestSamples() {
+        final StatsSeries series = StatsSeries.gauge(5);
+        for (int i = 0; i < 12; i++) {
+            series.add(i * 1000L, i);
+        }
+        assertEquals(5, series.size());
+        assertEquals(11, series.getLatest(), DELTA);
+        assertEquals(11000, series.getLatestTimestampMs());
+        assertTrue(series.summarize(Long.MAX_VALUE / 2, summary));
+        assertEquals(5, summary.getCount());
+        assertEquals(7, summary.getMin(), DELTA);
+    }
+
+    @Test
+    public void empty() {
+        final StatsSeries series = StatsSeries.gauge(5);
+        assertFalse(series.summarize(1000, summary));
+        assertEquals(0, summary.getCount());
+        assertTrue(Double.isNaN(series.getLatest()));
+        assertEquals(-1, series.getLatestTimestampMs());
+
+        series.add(0, 1);
+        series.clear();
+        assertEquals(0, series.size());
+        assertFalse(series.summarize(1000, summary));
+    }
+
+    @Test
+    public void addCounter_storesRatePerSecond() {
+        final StatsSeries series = StatsSeries.counter(10);
+        // Mẫu đầu tiên chỉ làm mốc.
+        // The first sample only serves as the reference.
+        series.addCounter(0, 100);
+        assertEquals(0, series.size());
+        series.addCounter(1000, 1100);
+        series.addCounter(1500, 2100);
+        assertEquals(2, series.size());
+        assertEquals(2000, series.getLatest(), DELTA);
+        assertTrue(series.summarize(10000, summary));
+        assertEquals(1000, summary.getMin(), DELTA);
+        assertEquals(2000, summary.getMax(), DELTA);
+
+        assertEquals(2000, series.getDelta(10000), DELTA);
+        assertEquals(1000, series.getDelta(0), DELTA);
+    }
+
+    @Test
+    public void addCounter_resetOnlyServesAsReference() {
+        final StatsSeries series = StatsSeries.counter(10);
+        series.addCounter(0, 1000);
+        series.addCounter(1000, 2000);
+        // Bộ đếm đi lùi, ví dụ luồng bị thay thế.
+        // The counter goes backwards, e.g. a replaced stream.
+        series.addCounter(2000, 50);
+        assertEquals(1, series.size());
+        series.addCounter(3000, 550);
+        assertEquals(2, series.size());
+        assertEquals(500, series.getLatest(), DELTA);
+        assertEquals(1500, series.getDelta(5000), DELTA);
+    }
+
+    @Test
+    public void addCounter_sameTimestampIsSkipped() {
+        final StatsSeries series = StatsSeries.counter(10);
+        series.addCounter(1000, 0);
+        series.addCounter(1000, 500);
+        assertEquals(0, series.size());
+        series.addCounter(2000, 1500);
+        assertEquals(1000, series.getLatest(), DELTA);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_onCounterThrows() {
+        StatsSeries.counter(1).add(0, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addCounter_onGaugeThrows() {
+        StatsSeries.gauge(1).addCounter(0, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getDelta_onGaugeThrows() {
+        StatsSeries.gauge(1).getDelta(1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyCapacity() {
+        StatsSeries.gauge(0);
+    }
+}
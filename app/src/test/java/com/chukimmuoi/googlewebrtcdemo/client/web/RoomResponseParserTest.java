@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.web;
+
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.SyntaxException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoomResponseParserTest {
+    private static final String PC_CONFIG = "{\"iceServers\": [{\"urls\": \"stun:a\"},"
+            + " {\"urls\": [\"turn:b\", \"turn:c\"], \"credential\": \"secret\"}],"
+            + " \"bundlePolicy\": \"max-bundle\"}";
+    private static final String OFFER = "{\"sdp\": \"v=0\\r\\no=- 1 2 IN IP4 0.0.0.0\\r\\n\","
+            + " \"type\": \"offer\", \"seq\": 1}";
+    private static final String CANDIDATE = "{\"seq\": 2, \"ack\": 0, \"type\": \"candidate\","
+            + " \"label\": 1, \"id\": \"video\", \"candidate\": \"c1\"}";
+    private static final String CANDIDATES = "{\"type\": \"candidates\", \"candidates\":"
+            + " [{\"label\": 0, \"id\": \"audio\", \"candidate\": \"c2\"},"
+            + " {\"label\": 0, \"id\": \"audio\", \"candidate\": \"c3\"}]}";
+
+    private final List<String> events = new ArrayList<>();
+    private final RoomResponseParser.Listener listener = new RoomResponseParser.Listener() {
+        @Override
+        public void onIceServer(String url, String credential) {
+            events.add("server " + url + " " + credential);
+        }
+
+        @Override
+        public void onOffer(String sdp) {
+            events.add("offer " + sdp);
+        }
+
+        @Override
+        public void onCandidate(String sdpMid, int sdpMLineIndex, String sdp) {
+            events.add("candidate " + sdpMid + " " + sdpMLineIndex + " " + sdp);
+        }
+
+        @Override
+        public void onUnknownMessage(String type) {
+            events.add("unknown " + type);
+        }
+
+        @Override
+        public void onMessageSequence(long seq, long ack) {
+            events.add("seq " + seq + " " + ack);
+        }
+    };
+
+    @Test
+    public void parse_nestedParams() throws IOException {
+        final String params = "{\"room_id\": \"room\", \"client_id\": \"client\","
+                + " \"wss_url\": \"wss://host/ws\", \"wss_post_url\": \"https://host\","
+                + " \"is_initiator\": \"false\", \"ice_server_url\": \"https://turn\","
+                + " \"pc_config\": " + quote(PC_CONFIG) + ","
+                + " \"messages\": [" + quote(OFFER) + ", " + quote(CANDIDATE) + ", "
+                + quote(CANDIDATES) + ", " + quote("{\"type\": \"bye\"}") + "],"
+                + " \"version_info\": {\"gitHash\": \"x\"}, \"header_message\": null}";
+        final RoomResponseParser.RoomResponse room = RoomResponseParser.parse(
+                "{\"params\": " + quote(params) + ", \"result\": \"SUCCESS\"}", listener);
+
+        assertTrue(room.isSuccess());
+        assertEquals("room", room.getRoomId());
+        assertEquals("client", room.getClientId());
+        assertEquals("wss://host/ws", room.getWssUrl());
+        assertEquals("https://host", room.getWssPostUrl());
+        assertEquals("https://turn", room.getIceServerUrl());
+        assertFalse(room.isInitiator());
+        assertEquals(4, room.getMessageCount());
+        assertEquals(Arrays.asList(
+                "server stun:a ",
+                "server turn:b secret",
+                "server turn:c secret",
+                "offer v=0\r\no=- 1 2 IN IP4 0.0.0.0\r\n",
+                "seq 1 0",
+                "candidate video 1 c1",
+                "seq 2 0",
+                "candidate audio 0 c2",
+                "candidate audio 0 c3",
+                "seq 0 0",
+                "unknown bye",
+                "seq 0 0"), events);
+    }
+
+    @Test
+    public void parse_plainParamsAndEmptyIceServerUrl() throws IOException {
+        final RoomResponseParser.RoomResponse room = RoomResponseParser.parse(
+                "{\"result\": \"SUCCESS\", \"params\": {\"room_id\": \"r\", \"client_id\": \"c\","
+                        + " \"wss_url\": \"w\", \"wss_post_url\": \"p\", \"is_initiator\": true,"
+                        + " \"ice_server_url\": \"\", \"pc_config\": {\"iceServers\": []},"
+                        + " \"messages\": []}}", listener);
+        assertTrue(room.isInitiator());
+        assertNull(room.getIceServerUrl());
+        assertEquals(0, room.getMessageCount());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void parse_failureOnlyHasResult() throws IOException {
+        final RoomResponseParser.RoomResponse room =
+                RoomResponseParser.parse("{\"result\": \"FULL\", \"params\": null}", listener);
+        assertFalse(room.isSuccess());
+        assertEquals("FULL", room.getResult());
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void parse_missingResult() throws IOException {
+        RoomResponseParser.parse("{}", listener);
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void parse_missingRequiredField() throws IOException {
+        RoomResponseParser.parse("{\"result\": \"SUCCESS\", \"params\": {\"room_id\": \"r\","
+                + " \"client_id\": \"c\", \"wss_url\": \"w\", \"wss_post_url\": \"p\","
+                + " \"pc_config\": {\"iceServers\": []}}}", listener);
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void parse_missingPcConfig() throws IOException {
+        RoomResponseParser.parse("{\"result\": \"SUCCESS\", \"params\": {\"room_id\": \"r\","
+                + " \"client_id\": \"c\", \"wss_url\": \"w\", \"wss_post_url\": \"p\","
+                + " \"is_initiator\": \"true\"}}", listener);
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void parse_iceServerWithoutUrls() throws IOException {
+        RoomResponseParser.parse("{\"result\": \"SUCCESS\", \"params\": {\"pc_config\":"
+                + " {\"iceServers\": [{\"credential\": \"x\"}]}}}", listener);
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void parse_offerWithoutSdp() throws IOException {
+        RoomResponseParser.parse("{\"result\": \"SUCCESS\", \"params\": {\"messages\": ["
+                + quote("{\"type\": \"offer\"}") + "]}}", listener);
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void parse_emptyNestedParams() throws IOException {
+        RoomResponseParser.parse("{\"result\": \"SUCCESS\", \"params\": \"\"}", listener);
+    }
+
+    // Ghi |json| thành một chuỗi JSON, như máy chủ AppRTC lồng JSON trong chuỗi.
+    // Writes |json| as a JSON string, the way the AppRTC server nests JSON inside strings.
+    private static String quote(String json) {
+        return "\"" + json.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.client.web;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TurnCredentialCacheTest {
+    private static final long FETCHED_AT_MS = 1000000;
+
+    @Test
+    public void minRemaining_cappedAtHalfTheLifetime() {
+        assertEquals(minutes(5), TurnCredentialCache.minRemainingMs(hours(24)));
+        assertEquals(minutes(5), TurnCredentialCache.minRemainingMs(minutes(10)));
+        assertEquals(minutes(1), TurnCredentialCache.minRemainingMs(minutes(2)));
+    }
+
+    @Test
+    public void isUsable_untilMinRemainingIsLeft() {
+        final long expiresAtMs = FETCHED_AT_MS + minutes(10);
+        assertTrue(TurnCredentialCache.isUsable(FETCHED_AT_MS, expiresAtMs, FETCHED_AT_MS));
+        assertTrue(TurnCredentialCache.isUsable(
+                FETCHED_AT_MS, expiresAtMs, expiresAtMs - minutes(5)));
+        assertFalse(TurnCredentialCache.isUsable(
+                FETCHED_AT_MS, expiresAtMs, expiresAtMs - minutes(5) + 1));
+    }
+
+    @Test
+    public void isUsable_shortLifetime() {
+        // Thời hạn ngắn hơn MIN_REMAINING_MS vẫn dùng được trong nửa đầu.
+        // A lifetime shorter than MIN_REMAINING_MS is still usable for its first half.
+        final long expiresAtMs = FETCHED_AT_MS + minutes(2);
+        assertTrue(TurnCredentialCache.isUsable(FETCHED_AT_MS, expiresAtMs, FETCHED_AT_MS));
+        assertTrue(TurnCredentialCache.isUsable(
+                FETCHED_AT_MS, expiresAtMs, FETCHED_AT_MS + minutes(1)));
+        assertFalse(TurnCredentialCache.isUsable(
+                FETCHED_AT_MS, expiresAtMs, FETCHED_AT_MS + minutes(1) + 1));
+    }
+
+    @Test
+    public void refreshAt_quarterOfALongLifetime() {
+        final long expiresAtMs = FETCHED_AT_MS + hours(24);
+        assertEquals(expiresAtMs - hours(6),
+                TurnCredentialCache.refreshAtMs(FETCHED_AT_MS, expiresAtMs));
+    }
+
+    @Test
+    public void refreshAt_beforeTheEntryStopsBeingUsable() {
+        // Một phần tư của 10 phút là 2,5 phút, muộn hơn lúc mục hết dùng được.
+        // A quarter of 10 minutes is 2.5 minutes, later than when the entry stops being usable.
+        final long expiresAtMs = FETCHED_AT_MS + minutes(10);
+        final long refreshAtMs = TurnCredentialCache.refreshAtMs(FETCHED_AT_MS, expiresAtMs);
+        assertEquals(expiresAtMs - minutes(5) - TimeUnit.SECONDS.toMillis(5), refreshAtMs);
+        assertTrue(TurnCredentialCache.isUsable(FETCHED_AT_MS, expiresAtMs, refreshAtMs));
+    }
+
+    @Test
+    public void refreshAt_shortLifetime() {
+        final long expiresAtMs = FETCHED_AT_MS + minutes(2);
+        final long refreshAtMs = TurnCredentialCache.refreshAtMs(FETCHED_AT_MS, expiresAtMs);
+        assertEquals(expiresAtMs - minutes(1) - TimeUnit.SECONDS.toMillis(5), refreshAtMs);
+        assertTrue(refreshAtMs > FETCHED_AT_MS);
+        assertTrue(TurnCredentialCache.isUsable(FETCHED_AT_MS, expiresAtMs, refreshAtMs));
+    }
+
+    private static long minutes(long value) {
+        return TimeUnit.MINUTES.toMillis(value);
+    }
+
+    private static long hours(long value) {
+        return TimeUnit.HOURS.toMillis(value);
+    }
+}
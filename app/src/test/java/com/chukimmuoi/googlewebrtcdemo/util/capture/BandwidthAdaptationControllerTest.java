@@ -0,0 +1,199 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.util.capture;
+
+import android.support.annotation.Nullable;
+
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsProjector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cuộc gọi 640x480@30 không giới hạn bitrate; các bậc kế là 480x360, 320x240 và 256x144.
+ * A 640x480@30 call without a bitrate limit; the next rungs are 480x360, 320x240 and 256x144.
+ */
+public class BandwidthAdaptationControllerTest {
+    // Đủ cho mọi bậc, kể cả bậc đầu.
+    // Enough for every rung, including the first one.
+    private static final double GOOD_KBPS = 1000;
+    // Dưới nhu cầu của 640x480 nhưng đủ cho 480x360.
+    // Below the need of 640x480 but enough for 480x360.
+    private static final double LOW_KBPS = 300;
+    // Dưới nhu cầu của mọi bậc.
+    // Below the need of every rung.
+    private static final double VERY_LOW_KBPS = 30;
+    private static final double LOW_RTT_S = 0.1;
+
+    private final List<String> events = new ArrayList<>();
+    private final CallStatsProjector projector = new CallStatsProjector();
+    private final BandwidthAdaptationController controller =
+            new BandwidthAdaptationController(640, 480, 30, 0 /* maxBitrateKbps */,
+                    new BandwidthAdaptationController.Events() {
+                        @Override
+                        public void onCaptureFormatChange(int width, int height, int framerate) {
+                            events.add("format " + width + "x" + height + "@" + framerate);
+                        }
+
+                        @Override
+                        public void onVideoMaxBitrateChange(@Nullable Integer maxBitrateKbps) {
+                            events.add("bitrate " + maxBitrateKbps);
+                        }
+
+                        @Override
+                        public void onVideoEnabledChange(boolean enabled) {
+                            events.add("video " + enabled);
+                        }
+                    });
+
+    @Test
+    public void stepDown_afterTheLinkStaysBad() {
+        report(0, LOW_KBPS, 0, LOW_RTT_S);
+        assertTrue(controller.isLinkDegraded());
+        report(2999, LOW_KBPS, 0, LOW_RTT_S);
+        assertEquals(Collections.emptyList(), events);
+
+        report(3000, LOW_KBPS, 0, LOW_RTT_S);
+        assertEquals(Arrays.asList("format 480x360@30", "bitrate 389"), events);
+        // 480x360 đủ với băng thông này nên không hạ tiếp.
+        // 480x360 fits this bandwidth, so there is no further step down.
+        report(4000, LOW_KBPS, 0, LOW_RTT_S);
+        assertFalse(controller.isLinkDegraded());
+    }
+
+    @Test
+    public void stepDown_onHighLoss() {
+        report(0, GOOD_KBPS, 0.2, LOW_RTT_S);
+        report(3000, GOOD_KBPS, 0.2, LOW_RTT_S);
+        assertEquals(Arrays.asList("format 480x360@30", "bitrate 389"), events);
+    }
+
+    @Test
+    public void badSampleResetsTheHold() {
+        report(0, LOW_KBPS, 0, LOW_RTT_S);
+        report(2000, GOOD_KBPS, 0, LOW_RTT_S);
+        assertFalse(controller.isLinkDegraded());
+        report(4000, LOW_KBPS, 0, LOW_RTT_S);
+        report(6000, LOW_KBPS, 0, LOW_RTT_S);
+        assertEquals(Collections.emptyList(), events);
+        report(7000, LOW_KBPS, 0, LOW_RTT_S);
+        assertEquals(Arrays.asList("format 480x360@30", "bitrate 389"), events);
+    }
+
+    @Test
+    public void stepUp_afterTheLinkStaysClearLonger() {
+        report(0, LOW_KBPS, 0, LOW_RTT_S);
+        report(3000, LOW_KBPS, 0, LOW_RTT_S);
+        events.clear();
+
+        report(4000, GOOD_KBPS, 0, LOW_RTT_S);
+        report(13999, GOOD_KBPS, 0, LOW_RTT_S);
+        assertEquals(Collections.emptyList(), events);
+        report(14000, GOOD_KBPS, 0, LOW_RTT_S);
+        assertEquals(Arrays.asList("format 640x480@30", "bitrate null"), events);
+    }
+
+    @Test
+    public void stepUp_notWithUnknownRtt() {
+        report(0, LOW_KBPS, 0, LOW_RTT_S);
+        report(3000, LOW_KBPS, 0, LOW_RTT_S);
+        events.clear();
+
+        for (long timeMs = 4000; timeMs <= 30000; timeMs += 1000) {
+            report(timeMs, GOOD_KBPS, 0, -1 /* rttS */);
+        }
+        assertEquals(Collections.emptyList(), events);
+    }
+
+    @Test
+    public void audioOnly_belowTheLowestRung() {
+        stepDownToAudioOnly(0);
+        assertEquals(Arrays.asList("format 480x360@30", "bitrate 389", "format 320x240@30",
+                "bitrate 173", "format 256x144@30", "bitrate 83", "video false"), events);
+        assertFalse(controller.isLinkDegraded());
+    }
+
+    @Test
+    public void audioOnly_recoveryWaitsLongerAfterEachFailure() {
+        stepDownToAudioOnly(0);
+        events.clear();
+
+        report(16000, GOOD_KBPS, 0, LOW_RTT_S);
+        report(25999, GOOD_KBPS, 0, LOW_RTT_S);
+        assertEquals(Collections.emptyList(), events);
+        report(26000, GOOD_KBPS, 0, LOW_RTT_S);
+        assertEquals(Arrays.asList("video true", "format 256x144@30", "bitrate 83"), events);
+        events.clear();
+
+        // Video lại thất bại ở bậc thấp nhất; lần phục hồi sau chờ gấp đôi.
+        // Video fails again at the lowest rung; the next recovery waits twice as long.
+        report(27000, VERY_LOW_KBPS, 0, LOW_RTT_S);
+        report(33000, VERY_LOW_KBPS, 0, LOW_RTT_S);
+        assertEquals(Arrays.asList("video false"), events);
+        events.clear();
+
+        report(34000, GOOD_KBPS, 0, LOW_RTT_S);
+        report(53999, GOOD_KBPS, 0, LOW_RTT_S);
+        assertEquals(Collections.emptyList(), events);
+        report(54000, GOOD_KBPS, 0, LOW_RTT_S);
+        assertEquals(Arrays.asList("video true", "format 256x144@30", "bitrate 83"), events);
+    }
+
+    @Test
+    public void noBandwidthEstimate_isIgnored() {
+        for (long timeMs = 0; timeMs <= 10000; timeMs += 1000) {
+            report(timeMs, -1 /* availableKbps */, 0.5, 2.0);
+        }
+        assertEquals(Collections.emptyList(), events);
+        assertFalse(controller.isLinkDegraded());
+    }
+
+    // Hạ ba bậc rồi chuyển sang chỉ âm thanh, bắt đầu từ |startMs|.
+    // Steps down three rungs, then falls back to audio only, starting at |startMs|.
+    private void stepDownToAudioOnly(long startMs) {
+        for (long timeMs = startMs; timeMs <= startMs + 15000; timeMs += 3000) {
+            report(timeMs, VERY_LOW_KBPS, 0, LOW_RTT_S);
+        }
+    }
+
+    // |availableKbps|, |loss| hoặc |rttS| âm nghĩa là chưa biết.
+    // A negative |availableKbps|, |loss| or |rttS| means unknown.
+    private void report(long timeMs, double availableKbps, double loss, double rttS) {
+        projector.begin(timeMs * 1000);
+        final Map<String, Object> pair = new HashMap<>();
+        pair.put("nominated", true);
+        pair.put("state", "succeeded");
+        if (availableKbps >= 0) {
+            pair.put("availableOutgoingBitrate", availableKbps * 1000);
+        }
+        if (rttS >= 0) {
+            pair.put("currentRoundTripTime", rttS);
+        }
+        projector.add("CP1", "candidate-pair", pair);
+        if (loss >= 0) {
+            for (String kind : new String[] {"audio", "video"}) {
+                final Map<String, Object> remoteInbound = new HashMap<>();
+                remoteInbound.put("kind", kind);
+                remoteInbound.put("fractionLost", loss);
+                projector.add("RI" + kind, "remote-inbound-rtp", remoteInbound);
+            }
+        }
+        controller.onStatsReady(projector.publish());
+    }
+}
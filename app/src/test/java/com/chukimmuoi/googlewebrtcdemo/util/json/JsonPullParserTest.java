@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.util.json;
+
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.SyntaxException;
+import com.chukimmuoi.googlewebrtcdemo.util.json.JsonPullParser.Token;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class JsonPullParserTest {
+    @Test
+    public void readsAllTokenTypes() throws IOException {
+        final JsonPullParser parser = new JsonPullParser(
+                " {\"s\": \"a\", \"i\": -12, \"l\": 123456789012, \"b\": true, \"n\": null,"
+                        + " \"a\": [1, \"2\"]}\n");
+        parser.beginObject();
+        assertEquals("s", parser.nextName());
+        assertEquals("a", parser.nextString());
+        assertEquals("i", parser.nextName());
+        assertEquals(-12, parser.nextInt());
+        assertEquals("l", parser.nextName());
+        assertEquals(123456789012L, parser.nextLong());
+        assertEquals("b", parser.nextName());
+        assertTrue(parser.nextBoolean());
+        assertEquals("n", parser.nextName());
+        assertEquals(Token.NULL, parser.peek());
+        parser.nextNull();
+        assertEquals("a", parser.nextName());
+        parser.beginArray();
+        assertEquals(1, parser.nextInt());
+        // Số ghi dưới dạng chuỗi được chấp nhận như org.json.
+        // Numbers written as strings are accepted like org.json does.
+        assertEquals(2, parser.nextInt());
+        assertFalse(parser.hasNext());
+        parser.endArray();
+        parser.endObject();
+        assertEquals(Token.END_DOCUMENT, parser.peek());
+    }
+
+    @Test
+    public void emptyContainers() throws IOException {
+        final JsonPullParser parser = new JsonPullParser("{\"o\":{},\"a\":[]}");
+        parser.beginObject();
+        parser.nextName();
+        parser.beginObject();
+        assertFalse(parser.hasNext());
+        parser.endObject();
+        parser.nextName();
+        parser.beginArray();
+        assertFalse(parser.hasNext());
+        parser.endArray();
+        parser.endObject();
+    }
+
+    @Test
+    public void emptyDocument() throws IOException {
+        assertEquals(Token.END_DOCUMENT, new JsonPullParser("  ").peek());
+    }
+
+    @Test
+    public void unescapesStrings() throws IOException {
+        final JsonPullParser parser =
+                new JsonPullParser("\"a\\\"b\\\\c\\/d\\n\\r\\t\\b\\f\\u00e9\\u20AC\"");
+        assertEquals("a\"b\\c/d\n\r\t\b\f\u00e9\u20ac", parser.nextString());
+    }
+
+    @Test
+    public void nextEmbedded_readsNestedDocument() throws IOException {
+        final JsonPullParser parser = new JsonPullParser(
+                "{\"doc\": \"{\\\"sdp\\\": \\\"v=0\\\\r\\\\n\\\", \\\"n\\\": 5}\", \"after\": 1}");
+        parser.beginObject();
+        assertEquals("doc", parser.nextName());
+        final JsonPullParser embedded = parser.nextEmbedded();
+        embedded.beginObject();
+        assertEquals("sdp", embedded.nextName());
+        assertEquals("v=0\r\n", embedded.nextString());
+        assertEquals("n", embedded.nextName());
+        assertEquals(5, embedded.nextInt());
+        embedded.endObject();
+        assertEquals(Token.END_DOCUMENT, embedded.peek());
+        assertEquals("after", parser.nextName());
+        assertEquals(1, parser.nextInt());
+        parser.endObject();
+    }
+
+    @Test
+    public void nextEmbedded_unreadRestIsSkipped() throws IOException {
+        final JsonPullParser parser =
+                new JsonPullParser("[\"{\\\"a\\\": [1, 2, \\\"]\\\"]}\", \"next\"]");
+        parser.beginArray();
+        final JsonPullParser embedded = parser.nextEmbedded();
+        embedded.beginObject();
+        assertEquals("a", embedded.nextName());
+        assertEquals("next", parser.nextString());
+        parser.endArray();
+    }
+
+    @Test
+    public void nextEmbedded_emptyString() throws IOException {
+        final JsonPullParser parser = new JsonPullParser("[\"\", 1]");
+        parser.beginArray();
+        assertEquals(Token.END_DOCUMENT, parser.nextEmbedded().peek());
+        assertEquals(1, parser.nextInt());
+    }
+
+    @Test
+    public void skipValue_skipsNestedValues() throws IOException {
+        final JsonPullParser parser = new JsonPullParser(
+                "{\"x\": {\"a\": [1, {\"b\": \"}\\\"\"}], \"c\": null}, \"y\": false}");
+        parser.beginObject();
+        assertEquals("x", parser.nextName());
+        parser.skipValue();
+        assertEquals("y", parser.nextName());
+        assertFalse(parser.nextBoolean());
+        parser.endObject();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void unterminatedString() throws IOException {
+        new JsonPullParser("\"abc").nextString();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void unterminatedEmbeddedString() throws IOException {
+        final JsonPullParser embedded = new JsonPullParser("\"{\\\"a\\\":").nextEmbedded();
+        embedded.beginObject();
+        embedded.nextName();
+        embedded.nextInt();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void invalidEscape() throws IOException {
+        new JsonPullParser("\"\\x\"").nextString();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void invalidUnicodeEscape() throws IOException {
+        new JsonPullParser("\"\\u12G4\"").nextString();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void missingComma() throws IOException {
+        final JsonPullParser parser = new JsonPullParser("[1 2]");
+        parser.beginArray();
+        parser.nextInt();
+        parser.nextInt();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void trailingContent() throws IOException {
+        final JsonPullParser parser = new JsonPullParser("{} {}");
+        parser.beginObject();
+        parser.endObject();
+        parser.peek();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void truncatedDocument() throws IOException {
+        final JsonPullParser parser = new JsonPullParser("{\"a\":");
+        parser.beginObject();
+        parser.nextName();
+        parser.skipValue();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void wrongToken() throws IOException {
+        new JsonPullParser("[]").beginObject();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void invalidInt() throws IOException {
+        new JsonPullParser("\"12a\"").nextInt();
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void invalidBoolean() throws IOException {
+        new JsonPullParser("\"yes\"").nextBoolean();
+    }
+}
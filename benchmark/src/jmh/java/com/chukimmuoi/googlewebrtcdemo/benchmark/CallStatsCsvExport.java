@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.client.save.stats.CallStatsFileFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Xuất tệp thống kê cuộc gọi của CallStatsRecorder sang CSV, mỗi bản ghi một dòng.
+ * Exports call stats files written by CallStatsRecorder to CSV, one line per record, next to the
+ * input file. A truncated or corrupt last record, as left by a crash mid-call, ends the export
+ * with a warning instead of failing it.
+ *
+ * <p>Lấy tệp / Pull the files:
+ * adb exec-out run-as com.chukimmuoi.googlewebrtcdemo cat app_call_stats/FILE.bin > FILE.bin
+ *
+ * <p>Chạy / Run:
+ * ./gradlew :benchmark:statsToCsv -PstatsFiles="FILE.bin ..."
+ */
+public final class CallStatsCsvExport {
+    private CallStatsCsvExport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CallStatsCsvExport FILE.bin...");
+            System.exit(1);
+        }
+        for (String arg : args) {
+            final File input = new File(arg);
+            final String name = input.getName();
+            final int dot = name.lastIndexOf('.');
+            final File output = new File(input.getParentFile(),
+                    (dot > 0 ? name.substring(0, dot) : name) + ".csv");
+            final int records = export(input, output);
+            System.out.println(input + ": " + records + " records -> " + output);
+        }
+    }
+
+    static int export(File input, File output) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(new FileInputStream(input)));
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(output), Charset.forName("UTF-8")))) {
+            final CallStatsFileFormat.Header header = CallStatsFileFormat.readHeader(in);
+            out.write("sequence,timestamp_us");
+            for (String name : header.names) {
+                out.write(',');
+                out.write(name);
+            }
+            out.write('\n');
+
+            final byte[] record = new byte[header.recordSize];
+            final ByteBuffer buffer = ByteBuffer.wrap(record);
+            final CRC32 crc = new CRC32();
+            int count = 0;
+            while (true) {
+                final int read = read(in, record);
+                if (read < record.length) {
+                    // Một bản ghi dở dang còn lại khi tiến trình dừng giữa lúc ghi.
+                    // A partial record is left when the process died mid-write.
+                    if (read > 0) {
+                        System.err.println(input + ": truncated record after " + count);
+                    }
+                    break;
+                }
+                if (!CallStatsFileFormat.isValid(record, header.recordSize, crc)) {
+                    System.err.println(input + ": corrupt record after " + count);
+                    break;
+                }
+                buffer.clear();
+                out.write(Integer.toString(buffer.getInt()));
+                out.write(',');
+                out.write(Long.toString(buffer.getLong()));
+                for (byte type : header.types) {
+                    out.write(',');
+                    if (type == CallStatsFileFormat.TYPE_DOUBLE) {
+                        out.write(Double.toString(buffer.getDouble()));
+                    } else {
+                        out.write(Long.toString(buffer.getLong()));
+                    }
+                }
+                out.write('\n');
+                count++;
+            }
+            return count;
+        }
+    }
+
+    // Đọc đầy |record| hoặc đến hết tệp; trả về số byte đã đọc.
+    // Fills |record| or reads up to the end of the file; returns the number of bytes read.
+    private static int read(DataInputStream in, byte[] record) throws IOException {
+        int total = 0;
+        while (total < record.length) {
+            final int read = in.read(record, total, record.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
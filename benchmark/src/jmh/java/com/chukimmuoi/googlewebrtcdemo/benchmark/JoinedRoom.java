@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thay cho SignalingParameters, IceCandidate và IceServer vốn cần thư viện Android.
+ * Stand-in for SignalingParameters, IceCandidate and IceServer, which need the Android library.
+ * Both parsing paths fill it the same way RoomParametersFetcher does.
+ */
+final class JoinedRoom {
+    static final class Candidate {
+        final String sdpMid;
+        final int sdpMLineIndex;
+        final String sdp;
+
+        Candidate(String sdpMid, int sdpMLineIndex, String sdp) {
+            this.sdpMid = sdpMid;
+            this.sdpMLineIndex = sdpMLineIndex;
+            this.sdp = sdp;
+        }
+
+        @Override
+        public String toString() {
+            return sdpMid + ":" + sdpMLineIndex + ":" + sdp;
+        }
+    }
+
+    static final class IceServer {
+        final String url;
+        final String password;
+
+        IceServer(String url, String password) {
+            this.url = url;
+            this.password = password;
+        }
+
+        @Override
+        public String toString() {
+            return url + "[" + password + "]";
+        }
+    }
+
+    final List<IceServer> iceServers = new ArrayList<>();
+    final List<Candidate> candidates = new ArrayList<>();
+    String offerSdp;
+    String roomId;
+    String clientId;
+    String wssUrl;
+    String wssPostUrl;
+    String iceServerUrl;
+    boolean initiator;
+
+    @Override
+    public String toString() {
+        return "room=" + roomId + ", client=" + clientId + ", wss=" + wssUrl + ", post="
+                + wssPostUrl + ", iceServerUrl=" + iceServerUrl + ", initiator=" + initiator
+                + ", iceServers=" + iceServers + ", offer=" + offerSdp + ", candidates="
+                + candidates;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Bản sao cách RoomParametersFetcher đọc phản hồi vào phòng bằng JSONObject trước đây,
+ * chỉ giữ lại để làm mốc so sánh.
+ * Copy of the former JSONObject based join response parsing of RoomParametersFetcher, kept only
+ * as a baseline for comparison. Logging is left out, except for the full response string that
+ * was built for it. Do not use in the app.
+ */
+final class LegacyRoomResponseParsing {
+    private LegacyRoomResponseParsing() {
+    }
+
+    static JoinedRoom parse(String response) throws JSONException {
+        final JoinedRoom room = new JoinedRoom();
+        // Trước đây: Log.d(TAG, "Room response: " + response).
+        // Formerly: Log.d(TAG, "Room response: " + response).
+        Blackhole.consume("Room response: " + response);
+        JSONObject roomJson = new JSONObject(response);
+
+        String result = roomJson.getString("result");
+        if (!result.equals("SUCCESS")) {
+            throw new JSONException("Room response error: " + result);
+        }
+        response = roomJson.getString("params");
+        roomJson = new JSONObject(response);
+        room.roomId = roomJson.getString("room_id");
+        room.clientId = roomJson.getString("client_id");
+        room.wssUrl = roomJson.getString("wss_url");
+        room.wssPostUrl = roomJson.getString("wss_post_url");
+        room.initiator = roomJson.getBoolean("is_initiator");
+        if (!room.initiator) {
+            String messagesString = roomJson.getString("messages");
+            JSONArray messages = new JSONArray(messagesString);
+            for (int i = 0; i < messages.length(); ++i) {
+                String messageString = messages.getString(i);
+                JSONObject message = new JSONObject(messageString);
+                String messageType = message.getString("type");
+                Blackhole.consume("GAE->C #" + i + " : " + messageString);
+                if (messageType.equals("offer")) {
+                    room.offerSdp = message.getString("sdp");
+                } else if (messageType.equals("candidate")) {
+                    room.candidates.add(new JoinedRoom.Candidate(message.getString("id"),
+                            message.getInt("label"), message.getString("candidate")));
+                } else if (messageType.equals("candidates")) {
+                    JSONArray candidateArray = message.getJSONArray("candidates");
+                    for (int j = 0; j < candidateArray.length(); ++j) {
+                        JSONObject candidateJson = candidateArray.getJSONObject(j);
+                        room.candidates.add(new JoinedRoom.Candidate(candidateJson.getString("id"),
+                                candidateJson.getInt("label"), candidateJson.getString("candidate")));
+                    }
+                }
+            }
+        }
+
+        JSONObject json = new JSONObject(roomJson.getString("pc_config"));
+        JSONArray servers = json.getJSONArray("iceServers");
+        for (int i = 0; i < servers.length(); ++i) {
+            JSONObject server = servers.getJSONObject(i);
+            String url = server.getString("urls");
+            String credential = server.has("credential") ? server.getString("credential") : "";
+            room.iceServers.add(new JoinedRoom.IceServer(url, credential));
+        }
+        if (!roomJson.optString("ice_server_url").isEmpty()) {
+            room.iceServerUrl = roomJson.getString("ice_server_url");
+        }
+        return room;
+    }
+
+    // Giữ chuỗi nhật ký sống để JIT không loại bỏ việc dựng nó.
+    // Keeps the log strings alive so the JIT can not drop building them.
+    static final class Blackhole {
+        static volatile int sink;
+
+        static void consume(String value) {
+            sink = value.length();
+        }
+    }
+}
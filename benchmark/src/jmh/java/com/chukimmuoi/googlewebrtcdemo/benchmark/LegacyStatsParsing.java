@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.benchmark.StatsCorpus.LegacyReport;
+import com.chukimmuoi.googlewebrtcdemo.benchmark.StatsCorpus.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bản sao cách HudFragment đọc StatsReport[] trước đây, chỉ giữ lại để làm mốc so sánh.
+ * Copy of the former StatsReport[] handling of HudFragment, kept only as a baseline for
+ * comparison: hud() is what every stats tick cost before, without the TextViews, and parse()
+ * is what it takes to get the same typed values as CallStatsSnapshot out of the string reports.
+ * Do not use in the app.
+ */
+final class LegacyStatsParsing {
+    private static final String VIDEO_TRACK_ID = "ARDAMSv0";
+
+    // Các giá trị có kiểu lấy từ báo cáo chuỗi.
+    // Typed values taken from the string reports.
+    static final class Metrics {
+        long videoBytesSent = -1;
+        int videoFrameWidthSent = -1;
+        long videoPacketsLost = -1;
+        long roundTripTimeMs = -1;
+        long availableSendBps = -1;
+    }
+
+    private LegacyStatsParsing() {
+    }
+
+    private static Map<String, String> getReportMap(LegacyReport report) {
+        Map<String, String> reportMap = new HashMap<>();
+        for (Value value : report.values) {
+            reportMap.put(value.name, value.value);
+        }
+        return reportMap;
+    }
+
+    static Metrics parse(LegacyReport[] reports) {
+        final Metrics metrics = new Metrics();
+        for (LegacyReport report : reports) {
+            if (report.type.equals("ssrc") && report.id.contains("ssrc")) {
+                Map<String, String> reportMap = getReportMap(report);
+                if (!"video".equals(reportMap.get("mediaType"))) {
+                    continue;
+                }
+                if (report.id.contains("send")) {
+                    metrics.videoBytesSent = Long.parseLong(reportMap.get("bytesSent"));
+                    metrics.videoFrameWidthSent =
+                            Integer.parseInt(reportMap.get("googFrameWidthSent"));
+                } else if (report.id.contains("recv")) {
+                    metrics.videoPacketsLost = Long.parseLong(reportMap.get("packetsLost"));
+                }
+            } else if (report.id.equals("bweforvideo")) {
+                Map<String, String> reportMap = getReportMap(report);
+                metrics.availableSendBps =
+                        Long.parseLong(reportMap.get("googAvailableSendBandwidth"));
+            } else if (report.type.equals("googCandidatePair")) {
+                Map<String, String> reportMap = getReportMap(report);
+                if ("true".equals(reportMap.get("googActiveConnection"))) {
+                    metrics.roundTripTimeMs = Long.parseLong(reportMap.get("googRtt"));
+                }
+            }
+        }
+        return metrics;
+    }
+
+    static String[] hud(LegacyReport[] reports, boolean videoCallEnabled) {
+        StringBuilder encoderStat = new StringBuilder(128);
+        StringBuilder bweStat = new StringBuilder();
+        StringBuilder connectionStat = new StringBuilder();
+        StringBuilder videoSendStat = new StringBuilder();
+        StringBuilder videoRecvStat = new StringBuilder();
+        String fps = null;
+        String targetBitrate = null;
+        String actualBitrate = null;
+
+        for (LegacyReport report : reports) {
+            if (report.type.equals("ssrc") && report.id.contains("ssrc") && report.id.contains("send")) {
+                // Send video statistics.
+                Map<String, String> reportMap = getReportMap(report);
+                String trackId = reportMap.get("googTrackId");
+                if (trackId != null && trackId.contains(VIDEO_TRACK_ID)) {
+                    fps = reportMap.get("googFrameRateSent");
+                    videoSendStat.append(report.id).append("\n");
+                    for (Value value : report.values) {
+                        String name = value.name.replace("goog", "");
+                        videoSendStat.append(name).append("=").append(value.value).append("\n");
+                    }
+                }
+            } else if (report.type.equals("ssrc") && report.id.contains("ssrc")
+                    && report.id.contains("recv")) {
+                // Receive video statistics.
+                Map<String, String> reportMap = getReportMap(report);
+                // Check if this stat is for video track.
+                String frameWidth = reportMap.get("googFrameWidthReceived");
+                if (frameWidth != null) {
+                    videoRecvStat.append(report.id).append("\n");
+                    for (Value value : report.values) {
+                        String name = value.name.replace("goog", "");
+                        videoRecvStat.append(name).append("=").append(value.value).append("\n");
+                    }
+                }
+            } else if (report.id.equals("bweforvideo")) {
+                // BWE statistics.
+                Map<String, String> reportMap = getReportMap(report);
+                targetBitrate = reportMap.get("googTargetEncBitrate");
+                actualBitrate = reportMap.get("googActualEncBitrate");
+
+                bweStat.append(report.id).append("\n");
+                for (Value value : report.values) {
+                    String name = value.name.replace("goog", "").replace("Available", "");
+                    bweStat.append(name).append("=").append(value.value).append("\n");
+                }
+            } else if (report.type.equals("googCandidatePair")) {
+                // Connection statistics.
+                Map<String, String> reportMap = getReportMap(report);
+                String activeConnection = reportMap.get("googActiveConnection");
+                if (activeConnection != null && activeConnection.equals("true")) {
+                    connectionStat.append(report.id).append("\n");
+                    for (Value value : report.values) {
+                        String name = value.name.replace("goog", "");
+                        connectionStat.append(name).append("=").append(value.value).append("\n");
+                    }
+                }
+            }
+        }
+
+        if (videoCallEnabled) {
+            if (fps != null) {
+                encoderStat.append("Fps:  ").append(fps).append("\n");
+            }
+            if (targetBitrate != null) {
+                encoderStat.append("Target BR: ").append(targetBitrate).append("\n");
+            }
+            if (actualBitrate != null) {
+                encoderStat.append("Actual BR: ").append(actualBitrate).append("\n");
+            }
+        }
+        return new String[] {bweStat.toString(), connectionStat.toString(),
+                videoSendStat.toString(), videoRecvStat.toString(), encoderStat.toString()};
+    }
+}
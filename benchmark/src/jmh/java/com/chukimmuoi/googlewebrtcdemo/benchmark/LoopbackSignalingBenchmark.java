@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.benchmark.loopback.LoopbackRoomServer;
+import com.chukimmuoi.googlewebrtcdemo.benchmark.loopback.SimulatedClient;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Đo thời gian thiết lập báo hiệu của một cuộc gọi trên LoopbackRoomServer: hai bên vào phòng,
+ * đăng ký WebSocket, trao đổi offer/answer và rời phòng.
+ * Measures the signaling setup time of one call against LoopbackRoomServer: two clients join,
+ * register their WebSockets, exchange an offer and an answer, and leave. Run with -t N to have
+ * N calls set up concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoopbackSignalingBenchmark {
+    private static final long RECEIVE_TIMEOUT_MS = 10000;
+
+    @Param({"0", "20"})
+    public long latencyMs;
+
+    private final AtomicLong nextRoom = new AtomicLong();
+    private LoopbackRoomServer server;
+    private String sdp;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new LoopbackRoomServer(latencyMs);
+        sdp = SdpCorpus.load(SdpCorpus.UNIFIED_PLAN);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public int callSetup() throws IOException {
+        final String roomId = "bench" + nextRoom.getAndIncrement();
+        final SignalingCodec codec = new SignalingCodec();
+        final SimulatedClient initiator = new SimulatedClient(server.getRoomUrl());
+        final SimulatedClient answerer = new SimulatedClient(server.getRoomUrl());
+        try {
+            initiator.join(roomId);
+            initiator.register();
+            initiator.send(codec.encodeSdp(SignalingCodec.TYPE_OFFER, sdp));
+            answerer.join(roomId);
+            answerer.register();
+            answerer.send(codec.encodeSdp(SignalingCodec.TYPE_ANSWER, answerer.getOfferSdp()));
+            final int length = initiator.receive(RECEIVE_TIMEOUT_MS).getSdp().length();
+            initiator.leave();
+            answerer.leave();
+            return length;
+        } finally {
+            initiator.close();
+            answerer.close();
+        }
+    }
+}
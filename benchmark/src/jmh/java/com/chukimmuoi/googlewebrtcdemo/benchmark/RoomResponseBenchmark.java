@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.client.web.RoomResponseParser;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo thời gian (ns/op) và số byte cấp phát (-prof gc) cho mỗi lần vào phòng, so với cách
+ * đọc bằng JSONObject trước đây.
+ * Measures time (ns/op) and allocated bytes (-prof gc) per room join against the former
+ * JSONObject based parsing. A |candidates| of 0 is the initiator's response; otherwise it is
+ * the answerer's response with the pending offer and candidates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoomResponseBenchmark {
+    @Param({"0", "10", "40"})
+    public int candidates;
+
+    private String response;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        response = RoomResponseCorpus.build(SdpCorpus.load(SdpCorpus.UNIFIED_PLAN), candidates);
+        // Hai cách phải cho cùng kết quả, nếu không thì phép so sánh vô nghĩa.
+        // Both paths must agree, otherwise the comparison is meaningless.
+        if (!legacy().toString().equals(streaming().toString())) {
+            throw new IllegalStateException("Room response mismatch for " + candidates);
+        }
+    }
+
+    @Benchmark
+    public JoinedRoom streaming() throws IOException {
+        final JoinedRoom room = new JoinedRoom();
+        final RoomResponseParser.RoomResponse response = RoomResponseParser.parse(this.response,
+                new RoomResponseParser.Listener() {
+                    @Override
+                    public void onIceServer(String url, String credential) {
+                        room.iceServers.add(new JoinedRoom.IceServer(url, credential));
+                    }
+
+                    @Override
+                    public void onOffer(String sdp) {
+                        room.offerSdp = sdp;
+                    }
+
+                    @Override
+                    public void onCandidate(String sdpMid, int sdpMLineIndex, String sdp) {
+                        room.candidates.add(new JoinedRoom.Candidate(sdpMid, sdpMLineIndex, sdp));
+                    }
+
+                    @Override
+                    public void onUnknownMessage(String type) {
+                    }
+
+                    @Override
+                    public void onMessageSequence(long seq, long ack) {
+                    }
+                });
+        room.roomId = response.getRoomId();
+        room.clientId = response.getClientId();
+        room.wssUrl = response.getWssUrl();
+        room.wssPostUrl = response.getWssPostUrl();
+        room.iceServerUrl = response.getIceServerUrl();
+        room.initiator = response.isInitiator();
+        return room;
+    }
+
+    @Benchmark
+    public JoinedRoom legacy() throws JSONException {
+        return LegacyRoomResponseParsing.parse(response);
+    }
+}
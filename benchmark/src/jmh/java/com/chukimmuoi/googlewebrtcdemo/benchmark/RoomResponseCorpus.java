@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Dựng phản hồi vào phòng theo định dạng của máy chủ AppRTC.
+ * Builds join responses in the format of the AppRTC room server: "params" is an object, while
+ * "pc_config" and every entry of "messages" are JSON encoded strings.
+ */
+final class RoomResponseCorpus {
+    private RoomResponseCorpus() {
+    }
+
+    /**
+     * Phản hồi cho bên khởi tạo khi |candidateCount| bằng 0, nếu không thì cho bên trả lời
+     * với một offer |offerSdp| và |candidateCount| ứng viên đang chờ.
+     * Response for the initiator when |candidateCount| is 0, otherwise for the answerer with the
+     * pending |offerSdp| offer and |candidateCount| pending candidates, one message each.
+     */
+    static String build(String offerSdp, int candidateCount) {
+        try {
+            final JSONArray messages = new JSONArray();
+            if (candidateCount > 0) {
+                messages.put(new JSONObject()
+                        .put("sdp", offerSdp)
+                        .put("type", "offer")
+                        .toString());
+            }
+            for (int i = 0; i < candidateCount; i++) {
+                final int label = i % 2;
+                messages.put(new JSONObject()
+                        .put("type", "candidate")
+                        .put("label", label)
+                        .put("id", label == 0 ? "audio" : "video")
+                        .put("candidate", "candidate:" + (1000 + i) + " 1 udp 2122260223 192.168.1."
+                                + (i % 250) + " " + (50000 + i) + " typ host generation 0"
+                                + " ufrag EsAw network-id 1")
+                        .toString());
+            }
+            final JSONObject pcConfig = new JSONObject()
+                    .put("rtcpMuxPolicy", "require")
+                    .put("bundlePolicy", "max-bundle")
+                    .put("iceServers", new JSONArray()
+                            .put(new JSONObject().put("urls", "stun:stun.l.google.com:19302")));
+            final JSONObject params = new JSONObject()
+                    .put("is_initiator", candidateCount == 0 ? "true" : "false")
+                    .put("room_id", "123456789")
+                    .put("room_link", "https://appr.tc/r/123456789")
+                    .put("client_id", "87654321")
+                    .put("wss_url", "wss://apprtc-ws.webrtc.org:443/ws")
+                    .put("wss_post_url", "https://apprtc-ws.webrtc.org:443")
+                    .put("ice_server_url",
+                            "https://networktraversal.googleapis.com/v1alpha/iceconfig?key=none")
+                    .put("media_constraints", "{\"audio\": true, \"video\": true}")
+                    .put("pc_config", pcConfig.toString())
+                    .put("messages", messages);
+            return new JSONObject()
+                    .put("params", params)
+                    .put("result", "SUCCESS")
+                    .toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
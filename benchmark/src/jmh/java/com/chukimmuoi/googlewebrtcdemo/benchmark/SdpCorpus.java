@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bộ SDP mẫu được đọc từ resources/sdp.
+ * SDP corpus loaded from resources/sdp.
+ */
+final class SdpCorpus {
+    // Tên các tệp trong resources/sdp, dùng làm giá trị @Param.
+    // File names in resources/sdp, used as @Param values.
+    static final String AUDIO_ONLY = "audio_only";
+    static final String AUDIO_VIDEO = "audio_video";
+    static final String UNIFIED_PLAN = "unified_plan";
+    static final String SIMULCAST = "simulcast";
+    static final String MANY_CODECS = "many_codecs";
+
+    private SdpCorpus() {
+    }
+
+    /**
+     * Trả về SDP |name| với dấu xuống dòng "\r\n" như được gửi trên mạng.
+     * Returns SDP |name| with "\r\n" line endings, as sent on the wire. The files are checked in
+     * with "\n" so they stay readable in diffs.
+     */
+    static String load(String name) {
+        final String path = "/sdp/" + name + ".sdp";
+        try (InputStream in = SdpCorpus.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing SDP corpus file: " + path);
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            final String sdp = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            return sdp.replace("\r\n", "\n").replace("\n", "\r\n");
+        } catch (IOException e) {
+            throw new IllegalStateException("Can not read SDP corpus file: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.client.sdp.SdpDescription;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo thời gian (ns/op) và số byte cấp phát (-prof gc) của từng phép biến đổi SDP, so với
+ * các hàm dựa trên regex trước đây.
+ * Measures time (ns/op) and allocated bytes (-prof gc) of each SDP transform against the former
+ * regex based helpers. Every benchmark starts from the raw SDP string, the same way
+ * PeerConnectionClient receives it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SdpMungingBenchmark {
+    // Giống các giá trị mặc định của PeerConnectionClient.
+    // Same as the PeerConnectionClient defaults.
+    private static final String AUDIO_CODEC_ISAC = "ISAC";
+    private static final String AUDIO_CODEC_OPUS = "opus";
+    private static final String VIDEO_CODEC_H264 = "H264";
+    private static final int AUDIO_START_BITRATE_KBPS = 32;
+
+    @Param({SdpCorpus.AUDIO_ONLY, SdpCorpus.AUDIO_VIDEO, SdpCorpus.UNIFIED_PLAN,
+            SdpCorpus.SIMULCAST, SdpCorpus.MANY_CODECS})
+    public String corpus;
+
+    private String sdp;
+
+    @Setup
+    public void setUp() {
+        sdp = SdpCorpus.load(corpus);
+        // Hai cách phải cho cùng kết quả, nếu không thì phép so sánh vô nghĩa.
+        // Both paths must agree, otherwise the comparison is meaningless. The legacy helpers
+        // collect payload types from every m-section, so with several sections of the same kind
+        // they emit duplicated payload types and the outputs differ on purpose.
+        if (!SdpCorpus.UNIFIED_PLAN.equals(corpus) && !legacyMungeRemote().equals(mungeRemote())) {
+            throw new IllegalStateException("SDP munging mismatch for corpus " + corpus);
+        }
+    }
+
+    @Benchmark
+    public SdpDescription parse() {
+        return SdpDescription.parse(sdp);
+    }
+
+    @Benchmark
+    public String parseSerialize() {
+        return SdpDescription.parse(sdp).serialize();
+    }
+
+    @Benchmark
+    public String preferAudioCodec() {
+        final SdpDescription description = SdpDescription.parse(sdp);
+        description.preferCodec(AUDIO_CODEC_ISAC, true /* isAudio */);
+        return description.serialize();
+    }
+
+    @Benchmark
+    public String legacyPreferAudioCodec() {
+        return LegacySdpMunging.preferCodec(sdp, AUDIO_CODEC_ISAC, true /* isAudio */);
+    }
+
+    @Benchmark
+    public String preferVideoCodec() {
+        final SdpDescription description = SdpDescription.parse(sdp);
+        description.preferCodec(VIDEO_CODEC_H264, false /* isAudio */);
+        return description.serialize();
+    }
+
+    @Benchmark
+    public String legacyPreferVideoCodec() {
+        return LegacySdpMunging.preferCodec(sdp, VIDEO_CODEC_H264, false /* isAudio */);
+    }
+
+    @Benchmark
+    public String setStartBitrate() {
+        final SdpDescription description = SdpDescription.parse(sdp);
+        description.setStartBitrate(
+                AUDIO_CODEC_OPUS, false /* isVideoCodec */, AUDIO_START_BITRATE_KBPS);
+        return description.serialize();
+    }
+
+    @Benchmark
+    public String legacySetStartBitrate() {
+        return LegacySdpMunging.setStartBitrate(
+                AUDIO_CODEC_OPUS, false /* isVideoCodec */, sdp, AUDIO_START_BITRATE_KBPS);
+    }
+
+    /**
+     * Toàn bộ đường đi của SDP từ xa: ưu tiên ISAC, ưu tiên H264, đặt bitrate bắt đầu opus.
+     * Whole remote SDP path: prefer ISAC, prefer H264, set opus start bitrate.
+     */
+    @Benchmark
+    public String mungeRemote() {
+        final SdpDescription description = SdpDescription.parse(sdp);
+        description.preferCodec(AUDIO_CODEC_ISAC, true /* isAudio */);
+        description.preferCodec(VIDEO_CODEC_H264, false /* isAudio */);
+        description.setStartBitrate(
+                AUDIO_CODEC_OPUS, false /* isVideoCodec */, AUDIO_START_BITRATE_KBPS);
+        return description.serialize();
+    }
+
+    @Benchmark
+    public String legacyMungeRemote() {
+        String result = LegacySdpMunging.preferCodec(sdp, AUDIO_CODEC_ISAC, true /* isAudio */);
+        result = LegacySdpMunging.preferCodec(result, VIDEO_CODEC_H264, false /* isAudio */);
+        return LegacySdpMunging.setStartBitrate(
+                AUDIO_CODEC_OPUS, false /* isVideoCodec */, result, AUDIO_START_BITRATE_KBPS);
+    }
+}
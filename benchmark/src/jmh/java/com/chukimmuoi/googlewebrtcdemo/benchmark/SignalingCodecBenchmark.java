@@ -0,0 +1,175 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo thời gian (ns/op) và số byte cấp phát (-prof gc) khi mã hóa và giải mã tin nhắn báo
+ * hiệu qua WebSocket, so với cách dựng cây JSONObject trước đây.
+ * Measures time (ns/op) and allocated bytes (-prof gc) of encoding and decoding WebSocket
+ * signaling messages against the former JSONObject trees. Every operation handles an offer and
+ * one message with |candidates| candidates, wrapped in the envelope of the WebSocket server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SignalingCodecBenchmark {
+    @Param({"1", "10"})
+    public int candidates;
+
+    private final SignalingCodec codec = new SignalingCodec();
+    private String sdp;
+    private String[] mids;
+    private int[] mLineIndexes;
+    private String[] candidateSdps;
+    private String offerEnvelope;
+    private String candidatesEnvelope;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        sdp = SdpCorpus.load(SdpCorpus.UNIFIED_PLAN);
+        mids = new String[candidates];
+        mLineIndexes = new int[candidates];
+        candidateSdps = new String[candidates];
+        for (int i = 0; i < candidates; i++) {
+            mLineIndexes[i] = i % 2;
+            mids[i] = i % 2 == 0 ? "audio" : "video";
+            candidateSdps[i] = "candidate:" + (1000 + i) + " 1 udp 2122260223 192.168.1."
+                    + (i % 250) + " " + (50000 + i) + " typ host generation 0"
+                    + " ufrag EsAw network-id 1";
+        }
+        final String[] sent = legacyEncode();
+        offerEnvelope = toDelivered(sent[0]);
+        candidatesEnvelope = toDelivered(sent[1]);
+
+        // Hai cách phải cho cùng kết quả, nếu không thì phép so sánh vô nghĩa.
+        // Both paths must agree, otherwise the comparison is meaningless.
+        final String[] encoded = encode();
+        if (!readWithJsonObject(toDelivered(encoded[0]), toDelivered(encoded[1])).equals(
+                readWithJsonObject(offerEnvelope, candidatesEnvelope))) {
+            throw new IllegalStateException("Encoding mismatch for " + candidates);
+        }
+        if (decode() != readWithJsonObject(offerEnvelope, candidatesEnvelope).length()) {
+            throw new IllegalStateException("Decoding mismatch for " + candidates);
+        }
+    }
+
+    @Benchmark
+    public String[] encode() {
+        final String offer =
+                codec.encodeSendCommand(codec.encodeSdp(SignalingCodec.TYPE_OFFER, sdp));
+        final String candidatesMessage;
+        if (candidates == 1) {
+            candidatesMessage = codec.encodeCandidate(mids[0], mLineIndexes[0], candidateSdps[0]);
+        } else {
+            codec.beginCandidates(SignalingCodec.TYPE_CANDIDATES);
+            for (int i = 0; i < candidates; i++) {
+                codec.appendCandidate(mids[i], mLineIndexes[i], candidateSdps[i]);
+            }
+            candidatesMessage = codec.endCandidates();
+        }
+        return new String[] {offer, codec.encodeSendCommand(candidatesMessage)};
+    }
+
+    @Benchmark
+    public String[] legacyEncode() throws JSONException {
+        final String offer = new JSONObject()
+                .put("sdp", sdp)
+                .put("type", SignalingCodec.TYPE_OFFER)
+                .toString();
+        final JSONObject candidatesJson;
+        if (candidates == 1) {
+            candidatesJson = toJsonCandidate(0).put("type", SignalingCodec.TYPE_CANDIDATE);
+        } else {
+            final JSONArray array = new JSONArray();
+            for (int i = 0; i < candidates; i++) {
+                array.put(toJsonCandidate(i));
+            }
+            candidatesJson = new JSONObject()
+                    .put("type", SignalingCodec.TYPE_CANDIDATES)
+                    .put("candidates", array);
+        }
+        return new String[] {
+                new JSONObject().put("cmd", "send").put("msg", offer).toString(),
+                new JSONObject().put("cmd", "send").put("msg", candidatesJson.toString()).toString()
+        };
+    }
+
+    // Trả về độ dài SDP cộng độ dài các ứng viên để JIT không bỏ kết quả.
+    // Returns the SDP length plus the candidate lengths so the JIT keeps the result.
+    @Benchmark
+    public int decode() throws IOException {
+        int length = codec.decodeEnvelope(offerEnvelope).getSdp().length();
+        final SignalingCodec.Message message = codec.decodeEnvelope(candidatesEnvelope);
+        for (int i = 0; i < message.getCandidateCount(); i++) {
+            length += message.getCandidateMid(i).length() + message.getCandidateSdp(i).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int legacyDecode() throws JSONException {
+        return readWithJsonObject(offerEnvelope, candidatesEnvelope).length();
+    }
+
+    // Phong bì như WebSocketRTCClient đọc trước đây: JSONObject cho phong bì, rồi cho "msg".
+    // The envelope as WebSocketRTCClient used to read it: a JSONObject for the envelope, then
+    // one for "msg".
+    private static String readWithJsonObject(String offerEnvelope, String candidatesEnvelope)
+            throws JSONException {
+        final StringBuilder result = new StringBuilder();
+        result.append(new JSONObject(new JSONObject(offerEnvelope).getString("msg"))
+                .getString("sdp"));
+        final JSONObject json = new JSONObject(new JSONObject(candidatesEnvelope).getString("msg"));
+        if (json.getString("type").equals(SignalingCodec.TYPE_CANDIDATE)) {
+            result.append(json.getString("id")).append(json.getString("candidate"));
+        } else {
+            final JSONArray array = json.getJSONArray("candidates");
+            for (int i = 0; i < array.length(); i++) {
+                final JSONObject candidate = array.getJSONObject(i);
+                result.append(candidate.getString("id")).append(candidate.getString("candidate"));
+            }
+        }
+        return result.toString();
+    }
+
+    // Máy chủ WebSocket chuyển "msg" của lệnh gửi trong {"msg":...,"error":""}.
+    // The WebSocket server delivers the "msg" of a send command in {"msg":...,"error":""}.
+    private static String toDelivered(String sendCommand) throws JSONException {
+        return new JSONObject()
+                .put("msg", new JSONObject(sendCommand).getString("msg"))
+                .put("error", "")
+                .toString();
+    }
+
+    private JSONObject toJsonCandidate(int i) throws JSONException {
+        return new JSONObject()
+                .put("label", mLineIndexes[i])
+                .put("id", mids[i])
+                .put("candidate", candidateSdps[i]);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.benchmark.loopback.LoopbackRoomServer;
+import com.chukimmuoi.googlewebrtcdemo.benchmark.loopback.SimulatedClient;
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Kiểm tra tải báo hiệu trên LoopbackRoomServer: N máy khách giả lập vào phòng cùng lúc theo
+ * từng cặp, trao đổi offer/answer rồi ứng viên.
+ * Signaling load test against LoopbackRoomServer: N simulated clients join rooms concurrently in
+ * pairs, exchange an offer and an answer, then candidates. Reports join latency percentiles,
+ * message fan-out throughput and heap per session.
+ *
+ * <p>Chạy / Run:
+ * ./gradlew :benchmark:loadTest -PloadArgs="clients latencyMs messagesPerClient"
+ */
+public final class SignalingLoadTest {
+    private static final int DEFAULT_CLIENTS = 200;
+    private static final int DEFAULT_MESSAGES = 20;
+    private static final int MAX_THREADS = 64;
+    private static final long RECEIVE_TIMEOUT_MS = 30000;
+
+    // Hai bên của một phòng.
+    // The two clients of one room.
+    private static class Pair {
+        final SimulatedClient initiator;
+        final SimulatedClient answerer;
+        long initiatorJoinNs;
+        long answererJoinNs;
+
+        Pair(String roomUrl) {
+            initiator = new SimulatedClient(roomUrl);
+            answerer = new SimulatedClient(roomUrl);
+        }
+    }
+
+    private SignalingLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        final long latencyMs = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        final int messages = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MESSAGES;
+        final int pairCount = Math.max(1, clients / 2);
+        final String sdp = SdpCorpus.load(SdpCorpus.UNIFIED_PLAN);
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(pairCount, MAX_THREADS));
+
+        try (LoopbackRoomServer server = new LoopbackRoomServer(latencyMs)) {
+            final long heapBefore = usedHeap();
+            final List<Pair> pairs = new ArrayList<>();
+            for (int i = 0; i < pairCount; i++) {
+                pairs.add(new Pair(server.getRoomUrl()));
+            }
+
+            // Vào phòng và trao đổi offer/answer, mọi cặp cùng lúc.
+            // Join and exchange offer/answer, all pairs at once.
+            final long joinStart = System.nanoTime();
+            runAll(executor, pairs, (index, pair) -> {
+                final SignalingCodec codec = new SignalingCodec();
+                final String roomId = "load" + index;
+                long start = System.nanoTime();
+                pair.initiator.join(roomId);
+                pair.initiator.register();
+                pair.initiatorJoinNs = System.nanoTime() - start;
+                pair.initiator.send(codec.encodeSdp(SignalingCodec.TYPE_OFFER, sdp));
+
+                start = System.nanoTime();
+                pair.answerer.join(roomId);
+                pair.answerer.register();
+                pair.answererJoinNs = System.nanoTime() - start;
+                if (pair.answerer.getOfferSdp() == null) {
+                    throw new IOException("No offer in the join response of " + roomId);
+                }
+                pair.answerer.send(codec.encodeSdp(SignalingCodec.TYPE_ANSWER, sdp));
+                expect(pair.initiator.receive(RECEIVE_TIMEOUT_MS), SignalingCodec.TYPE_ANSWER);
+            });
+            final long joinElapsedNs = System.nanoTime() - joinStart;
+            final long heapAfter = usedHeap();
+
+            // Mỗi bên gửi |messages| ứng viên cho bên kia.
+            // Every client sends |messages| candidates to the other one.
+            final long deliveredBefore = server.getCollider().getDeliveredMessages();
+            final long fanOutStart = System.nanoTime();
+            runAll(executor, pairs, (index, pair) -> {
+                final SignalingCodec codec = new SignalingCodec();
+                for (int i = 0; i < messages; i++) {
+                    pair.answerer.send(codec.encodeCandidate("0", 0, candidate(index, i)));
+                    pair.initiator.send(codec.encodeCandidate("0", 0, candidate(index, i)));
+                }
+                for (int i = 0; i < messages; i++) {
+                    expect(pair.initiator.receive(RECEIVE_TIMEOUT_MS),
+                            SignalingCodec.TYPE_CANDIDATE);
+                    expect(pair.answerer.receive(RECEIVE_TIMEOUT_MS),
+                            SignalingCodec.TYPE_CANDIDATE);
+                }
+            });
+            final long fanOutElapsedNs = System.nanoTime() - fanOutStart;
+            final long delivered = server.getCollider().getDeliveredMessages() - deliveredBefore;
+
+            runAll(executor, pairs, (index, pair) -> {
+                pair.initiator.leave();
+                pair.answerer.leave();
+            });
+
+            final long[] joinNs = new long[pairs.size() * 2];
+            for (int i = 0; i < pairs.size(); i++) {
+                joinNs[2 * i] = pairs.get(i).initiatorJoinNs;
+                joinNs[2 * i + 1] = pairs.get(i).answererJoinNs;
+            }
+            Arrays.sort(joinNs);
+            System.out.println("Clients: " + joinNs.length + ", injected latency: " + latencyMs
+                    + " ms, messages per client: " + messages);
+            System.out.println("Join + register latency (ms): p50 " + percentileMs(joinNs, 50)
+                    + ", p95 " + percentileMs(joinNs, 95) + ", p99 " + percentileMs(joinNs, 99)
+                    + ", max " + percentileMs(joinNs, 100)
+                    + ", all joined in " + joinElapsedNs / 1000000 + " ms");
+            System.out.println("Fan-out: " + delivered + " messages in "
+                    + fanOutElapsedNs / 1000000 + " ms, "
+                    + delivered * 1000000000L / Math.max(1, fanOutElapsedNs) + " msg/s");
+            System.out.println("Heap per session (client and server side): "
+                    + (heapAfter - heapBefore) / joinNs.length + " bytes");
+            System.out.println("Rooms left open: " + server.getRoomCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface PairTask {
+        void run(int index, Pair pair) throws IOException;
+    }
+
+    private static void runAll(ExecutorService executor, List<Pair> pairs, PairTask task)
+            throws Exception {
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            final int index = i;
+            futures.add(executor.submit((Callable<Void>) () -> {
+                task.run(index, pairs.get(index));
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+
+    private static void expect(SignalingCodec.Message message, String type) throws IOException {
+        if (!type.equals(message.getType())) {
+            throw new IOException("Expected " + type + " but got " + message.getType());
+        }
+    }
+
+    private static String candidate(int pair, int i) {
+        return "candidate:" + (1000 + i) + " 1 udp 2122260223 10.0." + (pair % 250) + "."
+                + (i % 250) + " " + (50000 + i) + " typ host generation 0";
+    }
+
+    private static double percentileMs(long[] sortedNs, int percentile) {
+        final int index = Math.min(sortedNs.length - 1,
+                Math.max(0, (int) Math.ceil(percentile / 100.0 * sortedNs.length) - 1));
+        return sortedNs[index] / 1000 / 1000.0;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
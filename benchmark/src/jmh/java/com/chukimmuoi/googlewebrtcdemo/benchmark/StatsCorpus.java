@@ -0,0 +1,318 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thống kê của một cuộc gọi âm thanh và video qua một cặp ứng viên, theo cả hai API.
+ * Stats of one audio and video call over one candidate pair, in both APIs, as the JNI layer
+ * hands them over: the legacy StatsReport[] with string values, and RTCStats objects whose
+ * members are Long, Integer, BigInteger, Double, Boolean or String. Both describe the same call,
+ * so the values the app uses match. The org.webrtc classes are Android-only, hence the copies.
+ */
+final class StatsCorpus {
+    static final long VIDEO_BYTES_SENT = 1843200;
+    static final long VIDEO_PACKETS_LOST = 17;
+    static final int FRAME_WIDTH = 640;
+    static final int FRAME_HEIGHT = 480;
+    static final long RTT_MS = 48;
+    static final long AVAILABLE_SEND_BPS = 1500000;
+
+    // Tương đương org.webrtc.StatsReport.
+    // Equivalent of org.webrtc.StatsReport.
+    static final class LegacyReport {
+        final String id;
+        final String type;
+        final double timestamp;
+        final Value[] values;
+
+        LegacyReport(String id, String type, double timestamp, Value[] values) {
+            this.id = id;
+            this.type = type;
+            this.timestamp = timestamp;
+            this.values = values;
+        }
+    }
+
+    // Tương đương org.webrtc.StatsReport.Value.
+    // Equivalent of org.webrtc.StatsReport.Value.
+    static final class Value {
+        final String name;
+        final String value;
+
+        Value(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    // Tương đương org.webrtc.RTCStats.
+    // Equivalent of org.webrtc.RTCStats.
+    static final class Stats {
+        final String id;
+        final String type;
+        final Map<String, Object> members;
+
+        Stats(String id, String type, Map<String, Object> members) {
+            this.id = id;
+            this.type = type;
+            this.members = members;
+        }
+    }
+
+    private StatsCorpus() {
+    }
+
+    static LegacyReport[] legacy() {
+        final List<LegacyReport> reports = new ArrayList<>();
+        reports.add(legacy("ssrc_1001_send", "ssrc",
+                "googTrackId", "ARDAMSv0", "ssrc", "1001", "transportId", "Channel-0-1",
+                "mediaType", "video", "googCodecName", "VP8",
+                "codecImplementationName", "libvpx", "bytesSent", "" + VIDEO_BYTES_SENT,
+                "packetsSent", "1710", "packetsLost", "3", "googFirsReceived", "0",
+                "googPlisReceived", "2", "googNacksReceived", "11",
+                "googAdaptationChanges", "1", "googAvgEncodeMs", "6",
+                "googEncodeUsagePercent", "21", "googFrameHeightInput", "" + FRAME_HEIGHT,
+                "googFrameWidthInput", "" + FRAME_WIDTH, "googFrameRateInput", "30",
+                "googFrameHeightSent", "" + FRAME_HEIGHT, "googFrameWidthSent", "" + FRAME_WIDTH,
+                "googFrameRateSent", "30", "framesEncoded", "912", "qpSum", "23411",
+                "googRtt", "" + RTT_MS, "googBandwidthLimitedResolution", "false",
+                "googCpuLimitedResolution", "false", "googContentType", "realtime",
+                "googHasEnteredLowResolution", "false", "hugeFramesSent", "0"));
+        reports.add(legacy("ssrc_2001_send", "ssrc",
+                "audioInputLevel", "1289", "totalAudioEnergy", "0.2177",
+                "totalSamplesDuration", "30.52", "googTrackId", "ARDAMSa0", "ssrc", "2001",
+                "transportId", "Channel-0-1", "mediaType", "audio", "googCodecName", "opus",
+                "bytesSent", "183142", "packetsSent", "1526", "packetsLost", "0",
+                "googJitterReceived", "3", "googRtt", "" + RTT_MS,
+                "googEchoCancellationReturnLoss", "-100",
+                "googEchoCancellationReturnLossEnhancement", "-100",
+                "googTypingNoiseState", "false"));
+        reports.add(legacy("ssrc_3001_recv", "ssrc",
+                "googTrackId", "ARDAMSv0", "ssrc", "3001", "transportId", "Channel-0-1",
+                "mediaType", "video", "googCodecName", "VP8",
+                "codecImplementationName", "libvpx", "bytesReceived", "1796032",
+                "packetsReceived", "1688", "packetsLost", "" + VIDEO_PACKETS_LOST,
+                "googCurrentDelayMs", "71", "googDecodeMs", "3", "googFirsSent", "0",
+                "googFrameHeightReceived", "" + FRAME_HEIGHT,
+                "googFrameWidthReceived", "" + FRAME_WIDTH, "googFrameRateReceived", "30",
+                "googFrameRateDecoded", "30", "googFrameRateOutput", "30",
+                "framesDecoded", "901", "framesReceived", "905", "googJitterBufferMs", "52",
+                "googMaxDecodeMs", "11", "googMinPlayoutDelayMs", "0", "googNacksSent", "14",
+                "googPlisSent", "1", "googRenderDelayMs", "10", "googTargetDelayMs", "71",
+                "qpSum", "22108", "googInterframeDelayMax", "51",
+                "googTimingFrameInfo", ""));
+        reports.add(legacy("ssrc_4001_recv", "ssrc",
+                "audioOutputLevel", "2206", "totalAudioEnergy", "0.3107",
+                "totalSamplesDuration", "30.48", "googTrackId", "ARDAMSa0", "ssrc", "4001",
+                "transportId", "Channel-0-1", "mediaType", "audio", "googCodecName", "opus",
+                "bytesReceived", "181004", "packetsReceived", "1519", "packetsLost", "2",
+                "googAccelerateRate", "0", "googCurrentDelayMs", "80",
+                "googDecodingCNG", "0", "googDecodingCTN", "1519", "googDecodingCTSG", "0",
+                "googDecodingMuted", "0", "googDecodingNormal", "1519", "googDecodingPLC", "2",
+                "googDecodingPLCCNG", "0", "googExpandRate", "0.001", "googJitterBufferMs", "60",
+                "googJitterReceived", "4", "googPreemptiveExpandRate", "0",
+                "googPreferredJitterBufferMs", "60", "googSecondaryDecodedRate", "0",
+                "googSpeechExpandRate", "0"));
+        reports.add(legacy("bweforvideo", "VideoBwe",
+                "googAvailableSendBandwidth", "" + AVAILABLE_SEND_BPS,
+                "googAvailableReceiveBandwidth", "1620000", "googTargetEncBitrate", "1200000",
+                "googActualEncBitrate", "1180000", "googRetransmitBitrate", "12000",
+                "googTransmitBitrate", "1260000", "googBucketDelay", "5"));
+        for (int i = 0; i < 4; i++) {
+            final boolean active = i == 0;
+            reports.add(legacy("Conn-0-1-" + i, "googCandidatePair",
+                    "googActiveConnection", "" + active, "bytesSent", active ? "2100000" : "0",
+                    "bytesReceived", active ? "2050000" : "0", "packetsSent", "3400",
+                    "packetsDiscardedOnSend", "0", "googRtt", "" + RTT_MS,
+                    "googReadable", "true", "googWritable", "" + active,
+                    "googChannelId", "Channel-0-1", "googLocalAddress", "192.168.1.2:5000" + i,
+                    "googRemoteAddress", "192.168.1.3:6000" + i,
+                    "googLocalCandidateType", "local", "googRemoteCandidateType", "local",
+                    "googTransportType", "udp", "requestsSent", "12", "responsesReceived", "12",
+                    "requestsReceived", "12", "responsesSent", "12",
+                    "consentRequestsSent", "3", "localCandidateId", "Cand-L" + i,
+                    "remoteCandidateId", "Cand-R" + i));
+        }
+        reports.add(legacy("Channel-0-1", "googComponent",
+                "selectedCandidatePairId", "Conn-0-1-0", "dtlsCipher", "TLS_ECDHE",
+                "srtpCipher", "AES_CM_128_HMAC_SHA1_80", "localCertificateId", "googCert1",
+                "remoteCertificateId", "googCert2"));
+        for (int i = 0; i < 2; i++) {
+            reports.add(legacy("googCert" + i, "googCertificate",
+                    "googFingerprint", "AB:CD:EF:01:23:45:67:89:AB:CD:EF:01:23:45:67:89",
+                    "googFingerprintAlgorithm", "sha-256", "googDerBase64", "MIIBFjCBvaADAgEC"));
+        }
+        for (int i = 0; i < 8; i++) {
+            reports.add(legacy("Cand-" + (i < 4 ? "L" : "R") + i,
+                    i < 4 ? "localcandidate" : "remotecandidate",
+                    "ipAddress", "192.168.1." + i, "portNumber", "5000" + i,
+                    "transport", "udp", "candidateType", "host", "priority", "2122260223",
+                    "networkType", "wlan"));
+        }
+        for (int i = 0; i < 4; i++) {
+            reports.add(legacy("googTrack_" + i, "googTrack", "googTrackId", "ARDAMS" + i));
+        }
+        reports.add(legacy("googLibjingleSession_1", "googLibjingleSession",
+                "googInitiator", "true"));
+        return reports.toArray(new LegacyReport[0]);
+    }
+
+    static List<Stats> rtc() {
+        final List<Stats> stats = new ArrayList<>();
+        stats.add(rtc("RTCCodec_0_Outbound_96", "codec", "payloadType", 96L,
+                "mimeType", "video/VP8", "clockRate", 90000L));
+        stats.add(rtc("RTCCodec_0_Inbound_96", "codec", "payloadType", 96L,
+                "mimeType", "video/VP8", "clockRate", 90000L));
+        stats.add(rtc("RTCCodec_1_Outbound_111", "codec", "payloadType", 111L,
+                "mimeType", "audio/opus", "clockRate", 48000L, "channels", 2L,
+                "sdpFmtpLine", "minptime=10;useinbandfec=1"));
+        stats.add(rtc("RTCCodec_1_Inbound_111", "codec", "payloadType", 111L,
+                "mimeType", "audio/opus", "clockRate", 48000L, "channels", 2L,
+                "sdpFmtpLine", "minptime=10;useinbandfec=1"));
+        stats.add(rtc("RTCOutboundRTPVideoStream_1001", "outbound-rtp",
+                "ssrc", 1001L, "isRemote", false, "mediaType", "video", "kind", "video",
+                "trackId", "RTCMediaStreamTrack_sender_1", "transportId", "RTCTransport_0_1",
+                "codecId", "RTCCodec_0_Outbound_96", "firCount", 0L, "pliCount", 2L,
+                "nackCount", 11L, "qpSum", big(23411), "mediaSourceId", "RTCVideoSource_1",
+                "packetsSent", 1710L, "retransmittedPacketsSent", big(9),
+                "bytesSent", big(VIDEO_BYTES_SENT), "headerBytesSent", big(41040),
+                "retransmittedBytesSent", big(9720), "targetBitrate", 1200000.0,
+                "framesEncoded", 912L, "keyFramesEncoded", 3L, "totalEncodeTime", 5.47,
+                "totalEncodedBytesTarget", big(1801000), "totalPacketSendDelay", 12.9,
+                "qualityLimitationReason", "none", "qualityLimitationResolutionChanges", 1L,
+                "encoderImplementation", "libvpx"));
+        stats.add(rtc("RTCOutboundRTPAudioStream_2001", "outbound-rtp",
+                "ssrc", 2001L, "isRemote", false, "mediaType", "audio", "kind", "audio",
+                "trackId", "RTCMediaStreamTrack_sender_2", "transportId", "RTCTransport_0_1",
+                "codecId", "RTCCodec_1_Outbound_111", "mediaSourceId", "RTCAudioSource_2",
+                "packetsSent", 1526L, "retransmittedPacketsSent", big(0),
+                "bytesSent", big(183142), "headerBytesSent", big(36624),
+                "retransmittedBytesSent", big(0)));
+        stats.add(rtc("RTCInboundRTPVideoStream_3001", "inbound-rtp",
+                "ssrc", 3001L, "isRemote", false, "mediaType", "video", "kind", "video",
+                "trackId", "RTCMediaStreamTrack_receiver_3", "transportId", "RTCTransport_0_1",
+                "codecId", "RTCCodec_0_Inbound_96", "firCount", 0L, "pliCount", 1L,
+                "nackCount", 14L, "qpSum", big(22108), "packetsReceived", 1688L,
+                "bytesReceived", big(1796032), "headerBytesReceived", big(40512),
+                "packetsLost", (int) VIDEO_PACKETS_LOST, "lastPacketReceivedTimestamp", 30512.0,
+                "jitter", 0.011, "framesDecoded", 901L, "keyFramesDecoded", 2L,
+                "totalDecodeTime", 2.71, "totalInterFrameDelay", 30.1,
+                "totalSquaredInterFrameDelay", 1.02, "decoderImplementation", "libvpx"));
+        stats.add(rtc("RTCInboundRTPAudioStream_4001", "inbound-rtp",
+                "ssrc", 4001L, "isRemote", false, "mediaType", "audio", "kind", "audio",
+                "trackId", "RTCMediaStreamTrack_receiver_4", "transportId", "RTCTransport_0_1",
+                "codecId", "RTCCodec_1_Inbound_111", "packetsReceived", 1519L,
+                "bytesReceived", big(181004), "headerBytesReceived", big(36456),
+                "packetsLost", 2, "lastPacketReceivedTimestamp", 30512.0, "jitter", 0.004,
+                "fecPacketsReceived", big(0), "fecPacketsDiscarded", big(0)));
+        for (int i = 0; i < 2; i++) {
+            stats.add(rtc("RTCRemoteInboundRtp" + (i == 0 ? "Video" : "Audio") + "Stream_"
+                    + (1001 + i * 1000), "remote-inbound-rtp",
+                    "ssrc", 1001L + i * 1000, "kind", i == 0 ? "video" : "audio",
+                    "transportId", "RTCTransport_0_1", "packetsLost", 3,
+                    "jitter", 0.003, "roundTripTime", RTT_MS / 1000.0,
+                    "localId", "RTCOutboundRTPVideoStream_1001"));
+        }
+        stats.add(rtc("RTCVideoSource_1", "media-source", "trackIdentifier", "ARDAMSv0",
+                "kind", "video", "width", (long) FRAME_WIDTH, "height", (long) FRAME_HEIGHT,
+                "frames", 915L, "framesPerSecond", 30L));
+        stats.add(rtc("RTCAudioSource_2", "media-source", "trackIdentifier", "ARDAMSa0",
+                "kind", "audio", "audioLevel", 0.0393, "totalAudioEnergy", 0.2177,
+                "totalSamplesDuration", 30.52));
+        stats.add(rtc("RTCMediaStreamTrack_sender_1", "track", "trackIdentifier", "ARDAMSv0",
+                "mediaSourceId", "RTCVideoSource_1", "remoteSource", false, "ended", false,
+                "detached", false, "kind", "video", "frameWidth", (long) FRAME_WIDTH,
+                "frameHeight", (long) FRAME_HEIGHT, "framesSent", 912L, "hugeFramesSent", 0L));
+        stats.add(rtc("RTCMediaStreamTrack_receiver_3", "track", "trackIdentifier", "ARDAMSv0",
+                "remoteSource", true, "ended", false, "detached", false, "kind", "video",
+                "jitterBufferDelay", 46.9, "jitterBufferEmittedCount", big(901),
+                "frameWidth", (long) FRAME_WIDTH, "frameHeight", (long) FRAME_HEIGHT,
+                "framesReceived", 905L, "framesDecoded", 901L, "framesDropped", 4L,
+                "freezeCount", 0L, "pauseCount", 0L, "totalFreezesDuration", 0.0));
+        stats.add(rtc("RTCMediaStreamTrack_sender_2", "track", "trackIdentifier", "ARDAMSa0",
+                "mediaSourceId", "RTCAudioSource_2", "remoteSource", false, "ended", false,
+                "detached", false, "kind", "audio"));
+        stats.add(rtc("RTCMediaStreamTrack_receiver_4", "track", "trackIdentifier", "ARDAMSa0",
+                "remoteSource", true, "ended", false, "detached", false, "kind", "audio",
+                "jitterBufferDelay", 91.2, "jitterBufferEmittedCount", big(1456000),
+                "audioLevel", 0.0673, "totalAudioEnergy", 0.3107, "totalSamplesReceived",
+                big(1463040), "totalSamplesDuration", 30.48, "concealedSamples", big(960),
+                "silentConcealedSamples", big(0), "concealmentEvents", big(2),
+                "insertedSamplesForDeceleration", big(0),
+                "removedSamplesForAcceleration", big(0)));
+        stats.add(rtc("RTCTransport_0_1", "transport", "bytesSent", big(2100000),
+                "bytesReceived", big(2050000), "dtlsState", "connected",
+                "selectedCandidatePairId", "RTCIceCandidatePair_0",
+                "localCertificateId", "RTCCertificate_0", "remoteCertificateId",
+                "RTCCertificate_1"));
+        for (int i = 0; i < 4; i++) {
+            final boolean selected = i == 0;
+            stats.add(rtc("RTCIceCandidatePair_" + i, "candidate-pair",
+                    "transportId", "RTCTransport_0_1", "localCandidateId", "RTCIceCandidate_L" + i,
+                    "remoteCandidateId", "RTCIceCandidate_R" + i,
+                    "state", selected ? "succeeded" : "waiting",
+                    "priority", big(9114756780671369215L),
+                    "nominated", selected, "writable", selected,
+                    "bytesSent", big(selected ? 2100000 : 0),
+                    "bytesReceived", big(selected ? 2050000 : 0),
+                    "totalRoundTripTime", 0.576, "currentRoundTripTime", RTT_MS / 1000.0,
+                    "availableOutgoingBitrate", (double) AVAILABLE_SEND_BPS,
+                    "availableIncomingBitrate", 1620000.0,
+                    "requestsReceived", big(12), "requestsSent", big(12),
+                    "responsesReceived", big(12), "responsesSent", big(12),
+                    "consentRequestsSent", big(3)));
+        }
+        for (int i = 0; i < 8; i++) {
+            stats.add(rtc("RTCIceCandidate_" + (i < 4 ? "L" : "R") + i,
+                    i < 4 ? "local-candidate" : "remote-candidate",
+                    "transportId", "RTCTransport_0_1", "isRemote", i >= 4,
+                    "networkType", "wifi", "ip", "192.168.1." + i, "port", 50000 + i,
+                    "protocol", "udp", "candidateType", "host", "priority", 2122260223,
+                    "deleted", false));
+        }
+        for (int i = 0; i < 2; i++) {
+            stats.add(rtc("RTCCertificate_" + i, "certificate",
+                    "fingerprint", "AB:CD:EF:01:23:45:67:89:AB:CD:EF:01:23:45:67:89",
+                    "fingerprintAlgorithm", "sha-256", "base64Certificate", "MIIBFjCBvaADAgEC"));
+        }
+        stats.add(rtc("RTCPeerConnection", "peer-connection",
+                "dataChannelsOpened", 0L, "dataChannelsClosed", 0L));
+        return stats;
+    }
+
+    private static LegacyReport legacy(String id, String type, String... namesAndValues) {
+        final Value[] values = new Value[namesAndValues.length / 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Value(namesAndValues[2 * i], namesAndValues[2 * i + 1]);
+        }
+        return new LegacyReport(id, type, 1585000000000.0, values);
+    }
+
+    private static Stats rtc(String id, String type, Object... namesAndValues) {
+        final Map<String, Object> members = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            members.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return new Stats(id, type, members);
+    }
+
+    // Các thành viên uint64 đến dưới dạng BigInteger.
+    // uint64 members arrive as BigInteger.
+    private static BigInteger big(long value) {
+        return BigInteger.valueOf(value);
+    }
+}
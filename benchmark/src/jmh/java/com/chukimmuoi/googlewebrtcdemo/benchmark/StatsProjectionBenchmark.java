@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsProjector;
+import com.chukimmuoi.googlewebrtcdemo.client.stats.CallStatsSnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo thời gian (ns/op) và số byte cấp phát (-prof gc) cho mỗi tick thống kê, so với cách đọc
+ * StatsReport[] trước đây.
+ * Measures time (ns/op) and allocated bytes (-prof gc) per stats tick against the former
+ * StatsReport[] handling: legacyHud is what HudFragment did on every tick, legacyParse gets the
+ * typed values out of the string reports, project fills a CallStatsSnapshot. The cost of the
+ * JNI layer creating the report objects is the same for both APIs and is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatsProjectionBenchmark {
+    private final CallStatsProjector projector = new CallStatsProjector();
+    private StatsCorpus.LegacyReport[] legacyReports;
+    private List<StatsCorpus.Stats> stats;
+    private long timestampUs;
+
+    @Setup
+    public void setUp() {
+        legacyReports = StatsCorpus.legacy();
+        stats = StatsCorpus.rtc();
+
+        // Hai cách phải cho cùng kết quả, nếu không thì phép so sánh vô nghĩa.
+        // Both paths must agree, otherwise the comparison is meaningless.
+        final LegacyStatsParsing.Metrics legacy = legacyParse();
+        final CallStatsSnapshot snapshot = project();
+        if (legacy.videoBytesSent != snapshot.getVideoBytesSent()
+                || legacy.videoFrameWidthSent != snapshot.getVideoFrameWidthSent()
+                || legacy.videoPacketsLost != snapshot.getVideoPacketsLost()
+                || legacy.roundTripTimeMs
+                        != Math.round(snapshot.getRoundTripTimeSeconds() * 1000)
+                || legacy.availableSendBps != (long) snapshot.getAvailableOutgoingBitrateBps()
+                || !"video/VP8".equals(snapshot.getVideoSendCodec())) {
+            throw new IllegalStateException("Stats mismatch: " + snapshot);
+        }
+    }
+
+    @Benchmark
+    public String[] legacyHud() {
+        return LegacyStatsParsing.hud(legacyReports, true /* videoCallEnabled */);
+    }
+
+    @Benchmark
+    public LegacyStatsParsing.Metrics legacyParse() {
+        return LegacyStatsParsing.parse(legacyReports);
+    }
+
+    @Benchmark
+    public CallStatsSnapshot project() {
+        timestampUs += 1000000;
+        projector.begin(timestampUs);
+        for (int i = 0; i < stats.size(); i++) {
+            final StatsCorpus.Stats entry = stats.get(i);
+            projector.add(entry.id, entry.type, entry.members);
+        }
+        return projector.publish();
+    }
+}
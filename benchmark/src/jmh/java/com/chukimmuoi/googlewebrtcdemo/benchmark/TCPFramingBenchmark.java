@@ -0,0 +1,185 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark;
+
+import com.chukimmuoi.googlewebrtcdemo.client.direct.TCPFraming;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo thông lượng của kênh báo hiệu TCP qua socket loopback: mỗi thao tác gửi một offer cùng
+ * |candidates| ứng viên tới một luồng phản hồi lại và chờ nhận đủ.
+ * Measures the throughput of the TCP signaling channel over loopback sockets: every operation
+ * sends an offer and |candidates| candidates to an echo thread and waits until all of them came
+ * back.
+ *
+ * <p>"legacy" là PrintWriter/BufferedReader với một lần flush cho mỗi tin nhắn như trước đây.
+ * Các chế độ khác dùng TCPFraming và ghi cả lô trong một lần.
+ * "legacy" is the former PrintWriter/BufferedReader path with one flush per message. The other
+ * modes use TCPFraming and write the whole batch at once, as TCPChannelClient does for messages
+ * sent during the same executor task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TCPFramingBenchmark {
+    private static final String LEGACY = "legacy";
+    private static final String TEXT = "text";
+    private static final String BINARY = "binary";
+    private static final String DEFLATE = "deflate";
+
+    @Param({LEGACY, TEXT, BINARY, DEFLATE})
+    public String mode;
+
+    @Param({"10"})
+    public int candidates;
+
+    private String[] messages;
+    private ServerSocket serverSocket;
+    private Socket socket;
+    private Thread echoThread;
+    private PrintWriter legacyOut;
+    private BufferedReader legacyIn;
+    private OutputStream out;
+    private TCPFraming.Writer writer;
+    private TCPFraming.Reader reader;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        messages = new String[candidates + 1];
+        messages[0] = new JSONObject()
+                .put("sdp", SdpCorpus.load(SdpCorpus.UNIFIED_PLAN))
+                .put("type", "offer")
+                .toString();
+        for (int i = 1; i <= candidates; i++) {
+            messages[i] = new JSONObject()
+                    .put("label", i % 2)
+                    .put("id", i % 2 == 0 ? "audio" : "video")
+                    .put("candidate", "candidate:" + (1000 + i) + " 1 udp 2122260223 192.168.1."
+                            + i + " " + (50000 + i) + " typ host generation 0")
+                    .put("type", "candidate")
+                    .toString();
+        }
+
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        echoThread = new Thread(this::echo, "tcp-echo");
+        echoThread.start();
+        socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        if (LEGACY.equals(mode)) {
+            legacyOut = new PrintWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            legacyIn = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        } else {
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            writer = newWriter();
+            reader = new TCPFraming.Reader(socket.getInputStream());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        socket.close();
+        serverSocket.close();
+        echoThread.join();
+        if (writer != null) {
+            writer.release();
+            reader.release();
+        }
+    }
+
+    @Benchmark
+    public int exchange() throws IOException {
+        if (LEGACY.equals(mode)) {
+            for (String message : messages) {
+                legacyOut.write(message + "\n");
+                legacyOut.flush();
+            }
+        } else {
+            for (String message : messages) {
+                writer.append(message);
+            }
+            writer.writeTo(out);
+        }
+        int length = 0;
+        for (int i = 0; i < messages.length; i++) {
+            final String message = LEGACY.equals(mode) ? legacyIn.readLine() : reader.read();
+            if (message == null) {
+                throw new IOException("Echo socket closed");
+            }
+            length += message.length();
+        }
+        return length;
+    }
+
+    private TCPFraming.Writer newWriter() {
+        final TCPFraming.Writer writer =
+                new TCPFraming.Writer(TCPFraming.DEFAULT_COMPRESSION_THRESHOLD);
+        writer.setMode(BINARY.equals(mode) || DEFLATE.equals(mode), DEFLATE.equals(mode));
+        return writer;
+    }
+
+    // Gửi lại từng tin nhắn nhận được, với cùng định dạng như bên gửi.
+    // Sends every received message back, with the same framing as the sender.
+    private void echo() {
+        try (Socket peer = serverSocket.accept()) {
+            if (LEGACY.equals(mode)) {
+                final BufferedReader in = new BufferedReader(
+                        new InputStreamReader(peer.getInputStream(), StandardCharsets.UTF_8));
+                final PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                        peer.getOutputStream(), StandardCharsets.UTF_8), true);
+                String message;
+                while ((message = in.readLine()) != null) {
+                    out.write(message + "\n");
+                    out.flush();
+                }
+            } else {
+                peer.setTcpNoDelay(true);
+                final TCPFraming.Reader in = new TCPFraming.Reader(peer.getInputStream());
+                final TCPFraming.Writer out = newWriter();
+                final OutputStream stream = peer.getOutputStream();
+                String message;
+                while ((message = in.read()) != null) {
+                    out.append(message);
+                    out.writeTo(stream);
+                }
+                in.release();
+                out.release();
+            }
+        } catch (IOException e) {
+            // Socket bị đóng ở tearDown.
+            // The socket is closed in tearDown.
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark.loopback;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Máy chủ WebSocket "collider" của AppRTC chạy trong tiến trình, trên loopback.
+ * In-process stand-in for the AppRTC WebSocket "collider", on loopback. It speaks what
+ * WebSocketChannelClient uses: {"cmd":"register"} and {"cmd":"send"} over the WebSocket at /ws,
+ * POST and DELETE on /roomid/clientid, and delivers {"msg":...,"error":""} to the other client
+ * of the room.
+ *
+ * <p>Như collider thật, tin nhắn gửi khi bên kia chưa đăng ký được giữ lại và giao khi nó
+ * đăng ký. Mỗi lần giao và mỗi phản hồi HTTP bị trễ thêm |latencyMs|.
+ * Like the real collider, messages sent before the other client registered are held and
+ * delivered when it registers. Every delivery and every HTTP response is delayed by |latencyMs|.
+ */
+public class LoopbackCollider implements Closeable {
+    private static final int MAX_ROOM_CLIENTS = 2;
+
+    // Một bên trong phòng, có thể chưa đăng ký WebSocket.
+    // One client of a room, possibly without a registered WebSocket yet.
+    private static class Client {
+        Connection connection;
+        final List<String> pending = new ArrayList<>();
+    }
+
+    // Kết nối WebSocket phía máy chủ; ghi được tuần tự hóa.
+    // Server side of a WebSocket connection; writes are serialized.
+    private static class Connection {
+        private final OutputStream out;
+        String roomId;
+        String clientId;
+
+        Connection(OutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void send(String text) {
+            try {
+                WebSocketFrames.writeText(out, text, false /* masked */);
+            } catch (IOException e) {
+                // Bên kia đã đóng; luồng đọc của nó sẽ hủy đăng ký.
+                // The client is gone; its reader thread unregisters it.
+            }
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    // Một luồng duy nhất giữ thứ tự giao tin nhắn với cùng độ trễ.
+    // A single thread keeps deliveries with the same delay in order.
+    private final ScheduledExecutorService delivery =
+            Executors.newSingleThreadScheduledExecutor();
+    private final long latencyMs;
+    // Chỉ dùng khi giữ khóa của đối tượng này.
+    // Only used while holding the lock of this object.
+    private final Map<String, Map<String, Client>> rooms = new HashMap<>();
+    private final AtomicLong deliveredMessages = new AtomicLong();
+    private final AtomicLong deliveredBytes = new AtomicLong();
+    private final Set<Socket> sockets = Collections.synchronizedSet(new HashSet<Socket>());
+
+    public LoopbackCollider(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        connections.execute(this::acceptLoop);
+    }
+
+    public String getWssUrl() {
+        return "ws://127.0.0.1:" + serverSocket.getLocalPort() + "/ws";
+    }
+
+    public String getWssPostUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    public long getDeliveredMessages() {
+        return deliveredMessages.get();
+    }
+
+    public long getDeliveredBytes() {
+        return deliveredBytes.get();
+    }
+
+    /**
+     * Gửi |message| của |clientId| tới bên kia trong phòng, như POST của máy chủ phòng.
+     * Sends |message| of |clientId| to the other client of the room, like the room server's
+     * POST does.
+     */
+    public synchronized void send(String roomId, String clientId, String message) {
+        final Map<String, Client> room = room(roomId);
+        Client sender = room.get(clientId);
+        if (sender == null) {
+            sender = new Client();
+            room.put(clientId, sender);
+        }
+        for (Map.Entry<String, Client> entry : room.entrySet()) {
+            final Client other = entry.getValue();
+            if (!entry.getKey().equals(clientId) && other.connection != null) {
+                deliver(other.connection, message);
+                return;
+            }
+        }
+        sender.pending.add(message);
+    }
+
+    /**
+     * Xóa |clientId| khỏi phòng, như DELETE.
+     * Removes |clientId| from the room, like DELETE does.
+     */
+    public synchronized void remove(String roomId, String clientId) {
+        final Map<String, Client> room = rooms.get(roomId);
+        if (room == null) {
+            return;
+        }
+        room.remove(clientId);
+        if (room.isEmpty()) {
+            rooms.remove(roomId);
+        }
+    }
+
+    public synchronized int getRoomCount() {
+        return rooms.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        // Đóng các kết nối còn mở để luồng đọc của chúng dừng.
+        // Close the connections still open so that their reader threads stop.
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+        connections.shutdownNow();
+        delivery.shutdownNow();
+    }
+
+    private synchronized boolean register(Connection connection, String roomId, String clientId) {
+        final Map<String, Client> room = room(roomId);
+        Client client = room.get(clientId);
+        if (client == null) {
+            if (room.size() >= MAX_ROOM_CLIENTS) {
+                return false;
+            }
+            client = new Client();
+            room.put(clientId, client);
+        }
+        client.connection = connection;
+        connection.roomId = roomId;
+        connection.clientId = clientId;
+        for (Map.Entry<String, Client> entry : room.entrySet()) {
+            if (entry.getKey().equals(clientId)) {
+                continue;
+            }
+            for (String message : entry.getValue().pending) {
+                deliver(connection, message);
+            }
+            entry.getValue().pending.clear();
+        }
+        return true;
+    }
+
+    private synchronized void unregister(Connection connection) {
+        if (connection.roomId == null) {
+            return;
+        }
+        final Map<String, Client> room = rooms.get(connection.roomId);
+        final Client client = room == null ? null : room.get(connection.clientId);
+        if (client != null && client.connection == connection) {
+            remove(connection.roomId, connection.clientId);
+        }
+    }
+
+    private Map<String, Client> room(String roomId) {
+        Map<String, Client> room = rooms.get(roomId);
+        if (room == null) {
+            room = new HashMap<>();
+            rooms.put(roomId, room);
+        }
+        return room;
+    }
+
+    private void deliver(Connection connection, String message) {
+        final String envelope = envelope(message, "");
+        deliveredMessages.incrementAndGet();
+        deliveredBytes.addAndGet(envelope.length());
+        delivery.schedule(() -> connection.send(envelope), latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static String envelope(String message, String error) {
+        try {
+            return new JSONObject().put("msg", message).put("error", error).toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException | RejectedExecutionException e) {
+                // Máy chủ đã đóng.
+                // The server was closed.
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        sockets.add(socket);
+        try {
+            socket.setTcpNoDelay(true);
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            final List<String> head = WebSocketFrames.readHead(in);
+            if (head == null || head.isEmpty()) {
+                return;
+            }
+            final String[] request = head.get(0).split(" ");
+            if ("websocket".equalsIgnoreCase(WebSocketFrames.header(head, "Upgrade"))) {
+                serveWebSocket(head, in, out);
+            } else {
+                serveHttp(request[0], request[1], WebSocketFrames.readBody(in, head), out);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Một kết nối hỏng không được làm dừng máy chủ.
+            // A broken connection must not stop the server.
+        } finally {
+            sockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    // POST chuyển tin nhắn, DELETE rời phòng; đường dẫn là /roomid/clientid.
+    // POST forwards a message, DELETE leaves the room; the path is /roomid/clientid.
+    private void serveHttp(String method, String path, byte[] body, OutputStream out)
+            throws IOException {
+        sleep(latencyMs);
+        final String[] parts = path.split("/");
+        int status = 200;
+        if (parts.length != 3) {
+            status = 404;
+        } else if ("POST".equals(method)) {
+            send(parts[1], parts[2], new String(body, StandardCharsets.UTF_8));
+        } else if ("DELETE".equals(method)) {
+            remove(parts[1], parts[2]);
+        } else {
+            status = 405;
+        }
+        WebSocketFrames.writeResponse(out, status, "");
+    }
+
+    private void serveWebSocket(List<String> head, InputStream in, OutputStream out)
+            throws IOException {
+        final String key = WebSocketFrames.header(head, "Sec-WebSocket-Key");
+        out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\n"
+                + "Connection: Upgrade\r\nSec-WebSocket-Accept: " + WebSocketFrames.acceptKey(key)
+                + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        final Connection connection = new Connection(out);
+        try {
+            String text;
+            while ((text = WebSocketFrames.readText(in)) != null) {
+                onCommand(connection, text);
+            }
+        } finally {
+            unregister(connection);
+        }
+    }
+
+    private void onCommand(Connection connection, String text) {
+        try {
+            final JSONObject command = new JSONObject(text);
+            final String cmd = command.optString("cmd");
+            if ("register".equals(cmd)) {
+                if (!register(connection, command.getString("roomid"),
+                        command.getString("clientid"))) {
+                    connection.send(envelope("", "Max room capacity reached"));
+                }
+            } else if ("send".equals(cmd) && connection.roomId != null) {
+                send(connection.roomId, connection.clientId, command.getString("msg"));
+            } else {
+                connection.send(envelope("", "Invalid command: " + cmd));
+            }
+        } catch (JSONException e) {
+            connection.send(envelope("", "Invalid JSON"));
+        }
+    }
+
+    static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Socket đã hỏng, không còn gì để làm.
+            // The socket is already broken, there is nothing left to do.
+        }
+    }
+
+    static void sleep(long delayMs) {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
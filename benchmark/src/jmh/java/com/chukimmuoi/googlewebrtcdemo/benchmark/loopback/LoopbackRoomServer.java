@@ -0,0 +1,234 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark.loopback;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Máy chủ phòng AppRTC chạy trong tiến trình, trên loopback, cùng với một LoopbackCollider.
+ * In-process stand-in for the AppRTC room server, on loopback, together with a LoopbackCollider.
+ * It serves what RoomParametersFetcher and WebSocketRTCClient use: POST /join/roomid,
+ * /message/roomid/clientid and /leave/roomid/clientid. A room URL of getRoomUrl() can be used
+ * by the app as well as by SimulatedClient.
+ *
+ * <p>Như máy chủ thật, bên vào đầu tiên là bên khởi tạo; tin nhắn nó gửi trước khi bên kia vào
+ * được giữ và trả trong "messages" của phản hồi vào phòng, sau đó được chuyển qua collider.
+ * Mỗi phản hồi bị trễ thêm |latencyMs|.
+ * Like the real server, the first client to join is the initiator; messages it sends before the
+ * other client joins are held and returned in "messages" of the join response, later ones go
+ * through the collider. Every response is delayed by |latencyMs|.
+ */
+public class LoopbackRoomServer implements Closeable {
+    private static final int MAX_ROOM_CLIENTS = 2;
+    private static final String RESULT_SUCCESS = "SUCCESS";
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final LoopbackCollider collider;
+    private final long latencyMs;
+    private final AtomicLong nextClientId = new AtomicLong(10000000);
+    // Mã bên -> tin nhắn đang giữ, theo thứ tự vào phòng. Chỉ dùng khi giữ khóa |rooms|.
+    // Client id -> held messages, in join order. Only used while holding the |rooms| lock.
+    private final Map<String, LinkedHashMap<String, List<String>>> rooms = new HashMap<>();
+
+    public LoopbackRoomServer(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        collider = new LoopbackCollider(latencyMs);
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    /**
+     * URL phòng, tương đương https://appr.tc.
+     * Room URL, the equivalent of https://appr.tc.
+     */
+    public String getRoomUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    public LoopbackCollider getCollider() {
+        return collider;
+    }
+
+    public int getRoomCount() {
+        synchronized (rooms) {
+            return rooms.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+        collider.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (IOException | RejectedExecutionException e) {
+                // Máy chủ đã đóng.
+                // The server was closed.
+            }
+        }
+    }
+
+    // Mỗi kết nối phục vụ một yêu cầu, như WebSocketFrames.writeResponse().
+    // Every connection serves one request, see WebSocketFrames.writeResponse().
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            final List<String> head = WebSocketFrames.readHead(in);
+            if (head == null || head.isEmpty()) {
+                return;
+            }
+            final String body =
+                    new String(WebSocketFrames.readBody(in, head), StandardCharsets.UTF_8);
+            final String[] request = head.get(0).split(" ");
+            final String[] path = request[1].split("/");
+            String response = null;
+            if ("POST".equals(request[0]) && path.length == 3 && "join".equals(path[1])) {
+                response = onJoin(path[2]);
+            } else if ("POST".equals(request[0]) && path.length == 4) {
+                if ("message".equals(path[1])) {
+                    response = onMessage(path[2], path[3], body);
+                } else if ("leave".equals(path[1])) {
+                    response = onLeave(path[2], path[3]);
+                }
+            }
+            LoopbackCollider.sleep(latencyMs);
+            WebSocketFrames.writeResponse(
+                    out, response == null ? 404 : 200, response == null ? "" : response);
+        } catch (IOException | RuntimeException e) {
+            // Một kết nối hỏng không được làm dừng máy chủ.
+            // A broken connection must not stop the server.
+        } finally {
+            LoopbackCollider.closeQuietly(socket);
+        }
+    }
+
+    private String onJoin(String roomId) {
+        final String clientId = Long.toString(nextClientId.getAndIncrement());
+        final boolean full;
+        final boolean initiator;
+        final List<String> messages = new ArrayList<>();
+        synchronized (rooms) {
+            LinkedHashMap<String, List<String>> room = rooms.get(roomId);
+            if (room == null) {
+                room = new LinkedHashMap<>();
+                rooms.put(roomId, room);
+            }
+            full = room.size() >= MAX_ROOM_CLIENTS;
+            initiator = room.isEmpty();
+            if (!full) {
+                for (List<String> held : room.values()) {
+                    messages.addAll(held);
+                    held.clear();
+                }
+                room.put(clientId, new ArrayList<>());
+            }
+        }
+        if (full) {
+            return "{\"result\":\"FULL\"}";
+        }
+        return joinResponse(roomId, clientId, initiator, messages);
+    }
+
+    private String onMessage(String roomId, String clientId, String message) {
+        String result = RESULT_SUCCESS;
+        boolean forward = false;
+        synchronized (rooms) {
+            final LinkedHashMap<String, List<String>> room = rooms.get(roomId);
+            if (room == null) {
+                result = "UNKNOWN_ROOM";
+            } else if (!room.containsKey(clientId)) {
+                result = "UNKNOWN_CLIENT";
+            } else if (room.size() < MAX_ROOM_CLIENTS) {
+                room.get(clientId).add(message);
+            } else {
+                forward = true;
+            }
+        }
+        if (forward) {
+            collider.send(roomId, clientId, message);
+        }
+        return "{\"result\":\"" + result + "\"}";
+    }
+
+    private String onLeave(String roomId, String clientId) {
+        synchronized (rooms) {
+            final LinkedHashMap<String, List<String>> room = rooms.get(roomId);
+            if (room != null) {
+                room.remove(clientId);
+                if (room.isEmpty()) {
+                    rooms.remove(roomId);
+                }
+            }
+        }
+        collider.remove(roomId, clientId);
+        return "";
+    }
+
+    private String joinResponse(
+            String roomId, String clientId, boolean initiator, List<String> messages) {
+        try {
+            final JSONObject pcConfig = new JSONObject()
+                    .put("rtcpMuxPolicy", "require")
+                    .put("bundlePolicy", "max-bundle")
+                    .put("iceServers", new JSONArray());
+            final JSONObject params = new JSONObject()
+                    .put("is_initiator", Boolean.toString(initiator))
+                    .put("room_id", roomId)
+                    .put("room_link", getRoomUrl() + "/r/" + roomId)
+                    .put("client_id", clientId)
+                    .put("wss_url", collider.getWssUrl())
+                    .put("wss_post_url", collider.getWssPostUrl())
+                    // Không có máy chủ TURN: máy khách không gửi yêu cầu ICE.
+                    // No TURN server: the client makes no ICE server request.
+                    .put("ice_server_url", "")
+                    .put("pc_config", pcConfig.toString())
+                    .put("messages", new JSONArray(messages));
+            return new JSONObject()
+                    .put("params", params)
+                    .put("result", RESULT_SUCCESS)
+                    .toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
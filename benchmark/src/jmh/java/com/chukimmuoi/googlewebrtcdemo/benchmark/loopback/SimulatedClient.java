@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark.loopback;
+
+import com.chukimmuoi.googlewebrtcdemo.client.SignalingCodec;
+import com.chukimmuoi.googlewebrtcdemo.client.web.RoomResponseParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Máy khách báo hiệu giả lập trên JVM, đi cùng đường với WebSocketRTCClient: vào phòng qua
+ * HTTP, đăng ký WebSocket, bên khởi tạo gửi qua máy chủ phòng còn bên kia qua WebSocket.
+ * Simulated signaling client on the JVM that takes the same path as WebSocketRTCClient: it joins
+ * over HTTP, registers the WebSocket, and the initiator sends through the room server while the
+ * other client sends through the WebSocket. The join response is read with RoomResponseParser
+ * and messages are encoded and decoded with SignalingCodec, like in the app.
+ *
+ * <p>Lớp này không an toàn luồng, trừ luồng đọc WebSocket bên trong.
+ * This class is not thread-safe, apart from its internal WebSocket reader thread.
+ */
+public class SimulatedClient implements Closeable {
+    private static final int HTTP_TIMEOUT_MS = 10000;
+
+    private final String roomUrl;
+    private final SignalingCodec codec = new SignalingCodec();
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private String roomId;
+    private String clientId;
+    private String wssUrl;
+    private String wssPostUrl;
+    private boolean initiator;
+    private String offerSdp;
+    private int roomCandidates;
+    private Socket socket;
+    private OutputStream out;
+
+    public SimulatedClient(String roomUrl) {
+        this.roomUrl = roomUrl;
+    }
+
+    public void join(String roomId) throws IOException {
+        final String response = http("POST", roomUrl + "/join/" + roomId, "");
+        final RoomResponseParser.RoomResponse room =
+                RoomResponseParser.parse(response, new RoomResponseParser.Listener() {
+                    @Override
+                    public void onIceServer(String url, String credential) {
+                    }
+
+                    @Override
+                    public void onOffer(String sdp) {
+                        offerSdp = sdp;
+                    }
+
+                    @Override
+                    public void onCandidate(String sdpMid, int sdpMLineIndex, String sdp) {
+                        roomCandidates++;
+                    }
+
+                    @Override
+                    public void onUnknownMessage(String type) {
+                    }
+
+                    @Override
+                    public void onMessageSequence(long seq, long ack) {
+                    }
+                });
+        if (!room.isSuccess()) {
+            throw new IOException("Join failed: " + room.getResult());
+        }
+        this.roomId = roomId;
+        clientId = room.getClientId();
+        wssUrl = room.getWssUrl();
+        wssPostUrl = room.getWssPostUrl();
+        initiator = room.isInitiator();
+    }
+
+    /**
+     * Mở WebSocket và đăng ký, như WebSocketChannelClient.connect() rồi register().
+     * Opens the WebSocket and registers, like WebSocketChannelClient.connect() then register().
+     */
+    public void register() throws IOException {
+        final URI uri = URI.create(wssUrl);
+        socket = new Socket(uri.getHost(), uri.getPort());
+        socket.setTcpNoDelay(true);
+        out = new BufferedOutputStream(socket.getOutputStream());
+        final InputStream in = new BufferedInputStream(socket.getInputStream());
+        final String key = WebSocketFrames.newKey();
+        out.write(("GET " + uri.getPath() + " HTTP/1.1\r\nHost: " + uri.getHost() + ":"
+                + uri.getPort() + "\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: " + key + "\r\nSec-WebSocket-Version: 13\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        final List<String> head = WebSocketFrames.readHead(in);
+        if (head == null || !head.get(0).contains(" 101 ")
+                || !WebSocketFrames.acceptKey(key).equals(
+                        WebSocketFrames.header(head, "Sec-WebSocket-Accept"))) {
+            throw new IOException("WebSocket handshake failed: " + head);
+        }
+        writeText(codec.encodeRegister(roomId, clientId));
+        final Thread reader = new Thread(() -> readLoop(in), "ws-" + clientId);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public void send(String message) throws IOException {
+        if (initiator) {
+            final String response =
+                    http("POST", roomUrl + "/message/" + roomId + "/" + clientId, message);
+            if (!response.contains("SUCCESS")) {
+                throw new IOException("Message failed: " + response);
+            }
+        } else {
+            writeText(codec.encodeSendCommand(message));
+        }
+    }
+
+    /**
+     * Chờ tin nhắn kế tiếp tới qua WebSocket. Tin nhắn trả về chỉ hợp lệ đến lần gọi kế tiếp.
+     * Waits for the next message delivered over the WebSocket. The returned message is only
+     * valid until the next call.
+     */
+    public SignalingCodec.Message receive(long timeoutMs) throws IOException {
+        final String text;
+        try {
+            text = received.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        }
+        if (text == null) {
+            throw new IOException("No message within " + timeoutMs + " ms");
+        }
+        return codec.decodeEnvelope(text);
+    }
+
+    /**
+     * Rời phòng như WebSocketRTCClient: "bye", DELETE tới collider, đóng WebSocket, rồi /leave.
+     * Leaves like WebSocketRTCClient does: "bye", DELETE to the collider, close the WebSocket,
+     * then /leave.
+     */
+    public void leave() throws IOException {
+        if (out != null) {
+            writeText(codec.encodeSendCommand(codec.encodeType(SignalingCodec.TYPE_BYE)));
+            http("DELETE", wssPostUrl + "/" + roomId + "/" + clientId, "");
+            WebSocketFrames.writeClose(out, true /* masked */);
+        }
+        http("POST", roomUrl + "/leave/" + roomId + "/" + clientId, "");
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    public boolean isInitiator() {
+        return initiator;
+    }
+
+    /**
+     * Offer nhận trong phản hồi vào phòng, null với bên khởi tạo.
+     * Offer received in the join response, null for the initiator.
+     */
+    public String getOfferSdp() {
+        return offerSdp;
+    }
+
+    public int getRoomCandidates() {
+        return roomCandidates;
+    }
+
+    private void writeText(String text) throws IOException {
+        synchronized (out) {
+            WebSocketFrames.writeText(out, text, true /* masked */);
+        }
+    }
+
+    private void readLoop(InputStream in) {
+        try {
+            String text;
+            while ((text = WebSocketFrames.readText(in)) != null) {
+                received.add(text);
+            }
+        } catch (IOException e) {
+            // Socket bị đóng khi rời phòng.
+            // The socket is closed when leaving.
+        }
+    }
+
+    private static String http(String method, String url, String body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(HTTP_TIMEOUT_MS);
+            connection.setReadTimeout(HTTP_TIMEOUT_MS);
+            // Mỗi máy khách giả lập là một thiết bị riêng, không dùng chung kết nối keep-alive.
+            // Every simulated client is a separate device and must not share the JVM-wide
+            // keep-alive connections with the others.
+            connection.setRequestProperty("Connection", "close");
+            if ("POST".equals(method)) {
+                final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(bytes.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(bytes);
+                }
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException(method + " " + url + ": " + connection.getResponseCode());
+            }
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    response.write(buffer, 0, read);
+                }
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
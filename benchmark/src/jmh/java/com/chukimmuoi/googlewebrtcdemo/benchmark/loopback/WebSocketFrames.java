@@ -0,0 +1,230 @@
+/*
+ *  Copyright 2020 The WebRTC Project Authors. All rights reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+
+package com.chukimmuoi.googlewebrtcdemo.benchmark.loopback;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Phần tối thiểu của HTTP/1.1 và RFC 6455 mà máy chủ và máy khách giả lập cần: phần đầu HTTP,
+ * bắt tay WebSocket và khung văn bản.
+ * The minimal part of HTTP/1.1 and RFC 6455 the loopback server and the simulated clients need:
+ * HTTP heads, the WebSocket handshake and text frames. Extensions, binary frames and pings are
+ * not supported, since neither autobahn nor the simulated clients use them.
+ */
+final class WebSocketFrames {
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int FIN = 0x80;
+    private static final int MASK = 0x80;
+    private static final int OPCODE_CONTINUATION = 0x0;
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_CLOSE = 0x8;
+
+    private WebSocketFrames() {
+    }
+
+    /**
+     * Đọc phần đầu HTTP đến dòng trống, null nếu luồng kết thúc trước đó.
+     * Reads an HTTP head up to the empty line, null if the stream ends before it. The first
+     * line is the request or status line.
+     */
+    static List<String> readHead(InputStream in) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        final StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                if (line.length() == 0) {
+                    return lines;
+                }
+                lines.add(line.toString());
+                line.setLength(0);
+            } else if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Giá trị của trường |name| trong |head|, không phân biệt hoa thường.
+     * Value of the |name| field in |head|, case-insensitive, or null.
+     */
+    static String header(List<String> head, String name) {
+        for (int i = 1; i < head.size(); i++) {
+            final String line = head.get(i);
+            final int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(name)) {
+                return line.substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    static byte[] readBody(InputStream in, List<String> head) throws IOException {
+        final String length = header(head, "Content-Length");
+        final byte[] body = new byte[length == null ? 0 : Integer.parseInt(length)];
+        readFully(in, body);
+        return body;
+    }
+
+    /**
+     * Ghi một phản hồi HTTP rồi đóng kết nối; mỗi kết nối chỉ phục vụ một yêu cầu.
+     * Writes one HTTP response and closes the connection, so every connection serves a single
+     * request.
+     */
+    static void writeResponse(OutputStream out, int status, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        out.write(("HTTP/1.1 " + status + " " + (status == 200 ? "OK" : "Error")
+                + "\r\nContent-Type: application/json\r\nContent-Length: " + bytes.length
+                + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+
+    static String newKey() {
+        final byte[] key = new byte[16];
+        ThreadLocalRandom.current().nextBytes(key);
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    static String acceptKey(String key) {
+        try {
+            final MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(
+                    sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ghi một khung văn bản. Máy khách phải che dữ liệu bằng |masked|.
+     * Writes one text frame. Clients must set |masked|.
+     */
+    static void writeText(OutputStream out, String text, boolean masked) throws IOException {
+        writeFrame(out, OPCODE_TEXT, text.getBytes(StandardCharsets.UTF_8), masked);
+    }
+
+    static void writeClose(OutputStream out, boolean masked) throws IOException {
+        writeFrame(out, OPCODE_CLOSE, new byte[0], masked);
+    }
+
+    /**
+     * Đọc tin nhắn văn bản kế tiếp, ghép các khung tiếp nối; null khi nhận khung đóng hoặc
+     * luồng kết thúc.
+     * Reads the next text message, joining continuation frames; null on a close frame or at
+     * the end of the stream.
+     */
+    static String readText(InputStream in) throws IOException {
+        final ByteArrayOutputStream message = new ByteArrayOutputStream();
+        while (true) {
+            final int first = in.read();
+            if (first == -1) {
+                return null;
+            }
+            final int opcode = first & 0x0f;
+            final int second = read(in);
+            long length = second & 0x7f;
+            if (length == 126) {
+                length = (read(in) << 8) | read(in);
+            } else if (length == 127) {
+                length = 0;
+                for (int i = 0; i < 8; i++) {
+                    length = (length << 8) | read(in);
+                }
+            }
+            final byte[] mask = new byte[4];
+            if ((second & MASK) != 0) {
+                readFully(in, mask);
+            }
+            final byte[] payload = new byte[(int) length];
+            readFully(in, payload);
+            if ((second & MASK) != 0) {
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+            }
+            if (opcode == OPCODE_CLOSE) {
+                return null;
+            }
+            if (opcode == OPCODE_TEXT || opcode == OPCODE_CONTINUATION) {
+                message.write(payload);
+                if ((first & FIN) != 0) {
+                    return new String(message.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+            // Ping và pong không được dùng nên bị bỏ qua.
+            // Pings and pongs are not used, so they are skipped.
+        }
+    }
+
+    private static void writeFrame(OutputStream out, int opcode, byte[] payload, boolean masked)
+            throws IOException {
+        final byte[] head = new byte[14];
+        int headLength = 0;
+        head[headLength++] = (byte) (FIN | opcode);
+        final int maskBit = masked ? MASK : 0;
+        if (payload.length < 126) {
+            head[headLength++] = (byte) (maskBit | payload.length);
+        } else if (payload.length < 65536) {
+            head[headLength++] = (byte) (maskBit | 126);
+            head[headLength++] = (byte) (payload.length >> 8);
+            head[headLength++] = (byte) payload.length;
+        } else {
+            head[headLength++] = (byte) (maskBit | 127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                head[headLength++] = (byte) ((long) payload.length >> shift);
+            }
+        }
+        if (masked) {
+            final byte[] mask = new byte[4];
+            ThreadLocalRandom.current().nextBytes(mask);
+            System.arraycopy(mask, 0, head, headLength, 4);
+            headLength += 4;
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+        }
+        out.write(head, 0, headLength);
+        out.write(payload);
+        out.flush();
+    }
+
+    private static int read(InputStream in) throws IOException {
+        final int c = in.read();
+        if (c == -1) {
+            throw new EOFException("Truncated WebSocket frame");
+        }
+        return c;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            final int read = in.read(buffer, offset, buffer.length - offset);
+            if (read == -1) {
+                throw new EOFException("Truncated stream");
+            }
+            offset += read;
+        }
+    }
+}